@@ -1,31 +1,69 @@
 package assettracking;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.controller.DashboardController;
+import assettracking.dao.SchemaVersionDAO;
 import assettracking.db.DatabaseConnection;
+import assettracking.manager.StageManager;
 import atlantafx.base.theme.Dracula;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
 
 public class MainApp extends Application {
 
+    private static final Logger logger = LoggerFactory.getLogger(MainApp.class);
+
     public static void main(String[] args) {
         launch(args);
     }
 
     @Override
-    public void start(Stage primaryStage) throws IOException {
+    public void start(Stage primaryStage) {
         Application.setUserAgentStylesheet(new Dracula().getUserAgentStylesheet());
 
         primaryStage.initStyle(StageStyle.UNDECORATED);
 
+        // The window only opens once the database is known to match this build, and any upgrade has installed the
+        // triggers, so nothing is written to a database whose triggers this build doesn't have.
+        Task<SchemaVersionDAO.Result> schemaTask = new Task<>() {
+            @Override
+            protected SchemaVersionDAO.Result call() throws Exception {
+                return new SchemaVersionDAO().prepare();
+            }
+        };
+        schemaTask.setOnSucceeded(e -> {
+            if (schemaTask.getValue() == SchemaVersionDAO.Result.NEWER) {
+                refuseToStart("The database has been upgraded by a newer version of this app. Install the latest version on this workstation before using it.");
+                return;
+            }
+            try {
+                showMainWindow(primaryStage);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        schemaTask.setOnFailed(e -> {
+            logger.error("Could not check the database schema version.", schemaTask.getException());
+            refuseToStart("Could not check the database version: " + schemaTask.getException().getMessage());
+        });
+        BackgroundTasks.run("check-schema", schemaTask);
+    }
+
+    private void showMainWindow(Stage primaryStage) throws IOException {
         FXMLLoader mainLoader = new FXMLLoader(getClass().getResource("/MainView.fxml"));
         Parent mainView = mainLoader.load();
 
@@ -44,10 +82,16 @@ public class MainApp extends Application {
         primaryStage.show();
     }
 
+    private void refuseToStart(String message) {
+        StageManager.showAlert(null, Alert.AlertType.ERROR, "Cannot Start", message);
+        Platform.exit();
+    }
+
     // The stop() method is now simpler
     @Override
     public void stop() throws Exception {
         System.out.println("Shutdown signal received, closing resources...");
+        BackgroundTasks.metrics().logSummary();
         DatabaseConnection.closeConnectionPool();
         super.stop();
     }
@@ -0,0 +1,170 @@
+package assettracking.concurrent;
+
+import assettracking.db.DatabaseConnection;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.stage.Window;
+import javafx.stage.WindowEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs the application's background work. Every task gets its own named virtual thread, so blocking I/O is cheap,
+ * nothing keeps the JVM alive at exit and thread dumps show what each thread is for.
+ * <p>
+ * Database tasks ({@link #run}, {@link #supply}) also hold one of {@link #DATABASE_PERMITS} permits while they run.
+ * There are fewer permits than pooled connections, so a burst of tasks queues here, in submission order, instead of timing out
+ * in the pool while the dashboard and FX-thread lookups wait behind it.
+ * <p>
+ * A task started with an owner window is cancelled when that window is hidden. Cancelling never interrupts
+ * (an interrupt inside H2 can close the database file): a queued task doesn't start, and a running one finishes
+ * its work but its success and failure handlers don't run against the closed window.
+ */
+public final class BackgroundTasks {
+
+    // Connections held by threads that don't run here: the export and dashboard pools are sized from these.
+    public static final int AUDIT_EXPORT_CONNECTIONS = 2;
+    public static final int DASHBOARD_REFRESH_CONNECTIONS = 2;
+    public static final int CHANGE_WATCHER_CONNECTIONS = 1;
+    public static final int SCAN_WRITER_CONNECTIONS = 1;
+    // Short lookups made on the FX thread.
+    public static final int FX_THREAD_CONNECTIONS = 2;
+
+    /**
+     * What is left of the pool once every connection above is taken, so background tasks never have to wait in
+     * the pool even while an audit export, a dashboard refresh and scans all run at once.
+     */
+    public static final int DATABASE_PERMITS = DatabaseConnection.MAX_POOL_SIZE - AUDIT_EXPORT_CONNECTIONS - DASHBOARD_REFRESH_CONNECTIONS
+            - CHANGE_WATCHER_CONNECTIONS - SCAN_WRITER_CONNECTIONS - FX_THREAD_CONNECTIONS;
+
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundTasks.class);
+    private static final String SCOPE_KEY = BackgroundTasks.class.getName() + ".scope";
+    private static final Semaphore databasePermits = new Semaphore(DATABASE_PERMITS, true);
+    private static final TaskMetrics metrics = new TaskMetrics();
+
+    private BackgroundTasks() {
+    }
+
+    /**
+     * Runs a task that uses the database, for as long as it takes.
+     */
+    public static void run(String name, Task<?> task) {
+        start(name, task, true);
+    }
+
+    /**
+     * Runs a task that uses the database, cancelling it if {@code owner} is hidden first. Must be called on the FX
+     * thread.
+     */
+    public static void run(String name, Window owner, Task<?> task) {
+        bind(owner, task);
+        start(name, task, true);
+    }
+
+    /**
+     * Runs work that doesn't touch the database, such as reading a process's output, without taking a permit.
+     */
+    public static void runIo(String name, Runnable work) {
+        start(name, work, false);
+    }
+
+    /**
+     * Runs database work and returns its result as a future, for callers that compose results rather than bind a
+     * {@link Task} to the UI. The future completes on the task's thread.
+     */
+    public static <T> CompletableFuture<T> supply(String name, Supplier<T> work) {
+        return supply(name, work, true);
+    }
+
+    /**
+     * Like {@link #supply}, for work that doesn't touch the database, such as running a script, without taking a
+     * permit.
+     */
+    public static <T> CompletableFuture<T> supplyIo(String name, Supplier<T> work) {
+        return supply(name, work, false);
+    }
+
+    public static TaskMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The number of database tasks running now.
+     */
+    public static int databaseTasksRunning() {
+        return DATABASE_PERMITS - databasePermits.availablePermits();
+    }
+
+    private static <T> CompletableFuture<T> supply(String name, Supplier<T> work, boolean database) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        start(name, () -> {
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                throw e;
+            }
+        }, database);
+        return result;
+    }
+
+    private static void start(String name, Runnable work, boolean database) {
+        long submittedAt = System.nanoTime();
+        Thread.ofVirtual().name(name).start(() -> {
+            if (database) databasePermits.acquireUninterruptibly();
+            long startedAt = System.nanoTime();
+            TaskMetrics.Outcome outcome = TaskMetrics.Outcome.SUCCEEDED;
+            try {
+                // A Task that was cancelled while queued returns straight away.
+                work.run();
+                if (work instanceof Future<?> future) outcome = outcomeOf(name, future);
+            } catch (RuntimeException e) {
+                outcome = TaskMetrics.Outcome.FAILED;
+                logger.error("Background task {} failed.", name, e);
+            } finally {
+                if (database) databasePermits.release();
+                metrics.record(name, startedAt - submittedAt, System.nanoTime() - startedAt, outcome);
+            }
+        });
+    }
+
+    private static TaskMetrics.Outcome outcomeOf(String name, Future<?> future) {
+        if (future.isCancelled()) return TaskMetrics.Outcome.CANCELLED;
+        try {
+            future.get();
+            return TaskMetrics.Outcome.SUCCEEDED;
+        } catch (ExecutionException e) {
+            // The task's own failure handler reports it to the user; this keeps the stack trace.
+            logger.warn("Background task {} failed.", name, e.getCause());
+            return TaskMetrics.Outcome.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TaskMetrics.Outcome.FAILED;
+        }
+    }
+
+    private static void bind(Window window, Task<?> task) {
+        @SuppressWarnings("unchecked")
+        Set<Task<?>> scope = (Set<Task<?>>) window.getProperties().computeIfAbsent(SCOPE_KEY, key -> {
+            Set<Task<?>> tasks = new HashSet<>();
+            window.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> List.copyOf(tasks).forEach(pending -> pending.cancel(false)));
+            return tasks;
+        });
+        scope.add(task);
+        // State changes are delivered on the FX thread, like the window event above.
+        task.stateProperty().addListener((obs, oldState, state) -> {
+            if (state == Worker.State.SUCCEEDED || state == Worker.State.FAILED || state == Worker.State.CANCELLED) {
+                scope.remove(task);
+            }
+        });
+    }
+}
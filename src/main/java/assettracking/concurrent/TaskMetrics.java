@@ -0,0 +1,80 @@
+package assettracking.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and timings for background tasks, kept by task name. Wait time is from submission until the task started
+ * running, which includes waiting for a database permit; run time is the task body itself. Thread-safe.
+ */
+public final class TaskMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskMetrics.class);
+
+    private final Map<String, Counters> byName = new ConcurrentHashMap<>();
+
+    enum Outcome {SUCCEEDED, FAILED, CANCELLED}
+
+    public record Stats(String name, long succeeded, long failed, long cancelled, Duration totalWait, Duration maxWait,
+                        Duration totalRun, Duration maxRun) {
+
+        public long count() {
+            return succeeded + failed + cancelled;
+        }
+    }
+
+    void record(String name, long waitNanos, long runNanos, Outcome outcome) {
+        Counters counters = byName.computeIfAbsent(name, key -> new Counters());
+        switch (outcome) {
+            case SUCCEEDED -> counters.succeeded.increment();
+            case FAILED -> counters.failed.increment();
+            case CANCELLED -> counters.cancelled.increment();
+        }
+        counters.waitNanos.add(waitNanos);
+        counters.maxWaitNanos.accumulate(waitNanos);
+        counters.runNanos.add(runNanos);
+        counters.maxRunNanos.accumulate(runNanos);
+        logger.debug("Task {} {} after {} ms waiting and {} ms running.", name, outcome.name().toLowerCase(), waitNanos / 1_000_000, runNanos / 1_000_000);
+    }
+
+    /**
+     * @return One entry per task name, most total run time first.
+     */
+    public List<Stats> snapshot() {
+        return byName.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey()))
+                .sorted(Comparator.comparing(Stats::totalRun).reversed())
+                .toList();
+    }
+
+    public void logSummary() {
+        for (Stats stats : snapshot()) {
+            logger.info("Task {}: {} runs ({} failed, {} cancelled), {} ms running (max {} ms), {} ms waiting (max {} ms).",
+                    stats.name(), stats.count(), stats.failed(), stats.cancelled(), stats.totalRun().toMillis(), stats.maxRun().toMillis(),
+                    stats.totalWait().toMillis(), stats.maxWait().toMillis());
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder runNanos = new LongAdder();
+        final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+        Stats toStats(String name) {
+            return new Stats(name, succeeded.sum(), failed.sum(), cancelled.sum(), Duration.ofNanos(waitNanos.sum()),
+                    Duration.ofNanos(maxWaitNanos.get()), Duration.ofNanos(runNanos.sum()), Duration.ofNanos(maxRunNanos.get()));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.controller.handler.MonitorIntakeHandler;
 import assettracking.controller.handler.StandardIntakeHandler;
 import assettracking.dao.AssetDAO;
@@ -444,7 +445,7 @@ public class AddAssetDialogController {
 
         lookupTask.setOnFailed(e -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Lookup Failed", "A database error occurred while looking up serial numbers."));
 
-        new Thread(lookupTask).start();
+        BackgroundTasks.run("add-asset-serial-lookup", getOwnerWindow(), lookupTask);
     }
 
 
@@ -477,7 +478,7 @@ public class AddAssetDialogController {
                     StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Update Failed", "Could not save changes to the database.");
                 }
             });
-            new Thread(updateTask).start();
+            BackgroundTasks.run("add-asset-update", updateTask);
 
         } else {
             standardIntakeHandler.handleSave();
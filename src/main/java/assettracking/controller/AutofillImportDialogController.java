@@ -1,7 +1,8 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.AssetDAO;
-import assettracking.db.DatabaseConnection;
+import assettracking.manager.AutofillImportService;
 import assettracking.manager.StageManager;
 import assettracking.ui.AutoCompletePopup;
 import javafx.collections.FXCollections;
@@ -11,15 +12,9 @@ import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.usermodel.Cell;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.*;
 
 public class AutofillImportDialogController {
@@ -34,6 +29,7 @@ public class AutofillImportDialogController {
 
     private final Map<String, ComboBox<String>> mappingCombos = new HashMap<>();
     private final AssetDAO assetDAO = new AssetDAO();
+    private final AutofillImportService autofillImportService = new AutofillImportService();
     @FXML
     private TextField filePathField;
     @FXML
@@ -69,7 +65,7 @@ public class AutofillImportDialogController {
             selectedFile = file;
             filePathField.setText(file.getAbsolutePath());
             try {
-                List<String> headers = readHeaders(file);
+                List<String> headers = autofillImportService.readHeaders(file);
                 populateMappingUI(headers);
                 importButton.setDisable(false);
             } catch (IOException e) {
@@ -129,10 +125,22 @@ public class AutofillImportDialogController {
         importButton.setDisable(true);
         statusLabel.setText("Processing file...");
 
+        // Read the UI state here, on the FX thread, before handing off to the background task.
+        Map<String, String> columnMapping = new HashMap<>();
+        for (Map.Entry<String, ComboBox<String>> entry : mappingCombos.entrySet()) {
+            String selectedHeader = entry.getValue().getValue();
+            if (!"Ignore".equals(selectedHeader)) {
+                columnMapping.put(entry.getKey(), selectedHeader);
+            }
+        }
+        AutofillImportService.Defaults defaults = new AutofillImportService.Defaults(partNumberField.getText(), descriptionField.getText(), makeField.getText(), categoryField.getText());
+        File fileToImport = selectedFile;
+
         Task<String> importTask = new Task<>() {
             @Override
             protected String call() throws Exception {
-                return processAndUpsertFile();
+                int successfulCount = autofillImportService.importFile(fileToImport, columnMapping, defaults);
+                return String.format("Successfully processed %d records into the autofill table.", successfulCount);
             }
         };
         importTask.setOnSucceeded(e -> {
@@ -145,88 +153,7 @@ public class AutofillImportDialogController {
             StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Import Failed", "An error occurred: " + e.getSource().getException().getMessage());
             importButton.setDisable(false);
         });
-        new Thread(importTask).start();
-    }
-
-    private String processAndUpsertFile() throws IOException, SQLException {
-        Map<String, Integer> finalMapping = new HashMap<>();
-        for (Map.Entry<String, ComboBox<String>> entry : mappingCombos.entrySet()) {
-            String selectedHeader = entry.getValue().getValue();
-            if (!"Ignore".equals(selectedHeader)) {
-                finalMapping.put(entry.getKey(), getHeaderIndex(selectedFile, selectedHeader));
-            }
-        }
-
-        List<Map<String, String>> dataRows = parseExcelData(finalMapping);
-
-        String sql = "MERGE INTO device_autofill_data (serial_number, part_number, description, make, category) KEY(serial_number) VALUES (?, ?, ?, ?, ?)";
-        int[] results;
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-            conn.setAutoCommit(false);
-            for (Map<String, String> rowData : dataRows) {
-                stmt.setString(1, rowData.get("serial_number"));
-                stmt.setString(2, rowData.getOrDefault("part_number", partNumberField.getText()));
-                stmt.setString(3, rowData.getOrDefault("description", descriptionField.getText()));
-                stmt.setString(4, rowData.getOrDefault("make", makeField.getText()));
-                stmt.setString(5, rowData.getOrDefault("category", categoryField.getText()));
-                stmt.addBatch();
-            }
-            results = stmt.executeBatch();
-            conn.commit();
-        }
-        long successfulCount = Arrays.stream(results).filter(i -> i >= 0).count();
-        return String.format("Successfully processed %d records into the autofill table.", successfulCount);
-    }
-
-    private List<Map<String, String>> parseExcelData(Map<String, Integer> finalMapping) throws IOException {
-        List<Map<String, String>> dataRows = new ArrayList<>();
-        try (FileInputStream fis = new FileInputStream(selectedFile); Workbook workbook = WorkbookFactory.create(fis)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                String serial = getCellValueAsString(row.getCell(finalMapping.get("serial_number")));
-                if (serial.isEmpty()) continue;
-
-                Map<String, String> rowData = new HashMap<>();
-                rowData.put("serial_number", serial);
-                rowData.put("part_number", getCellValueAsString(row.getCell(finalMapping.getOrDefault("part_number", -1))));
-                rowData.put("description", getCellValueAsString(row.getCell(finalMapping.getOrDefault("description", -1))));
-                dataRows.add(rowData);
-            }
-        }
-        return dataRows;
-    }
-
-    private int getHeaderIndex(File file, String headerName) throws IOException {
-        try (FileInputStream fis = new FileInputStream(file); Workbook workbook = WorkbookFactory.create(fis)) {
-            Row headerRow = workbook.getSheetAt(0).getRow(0);
-            for (Cell cell : headerRow) {
-                if (headerName.equalsIgnoreCase(getCellValueAsString(cell))) {
-                    return cell.getColumnIndex();
-                }
-            }
-        }
-        return -1;
-    }
-
-    private List<String> readHeaders(File file) throws IOException {
-        try (FileInputStream fis = new FileInputStream(file); Workbook workbook = WorkbookFactory.create(fis)) {
-            List<String> headers = new ArrayList<>();
-            Row headerRow = workbook.getSheetAt(0).getRow(0);
-            if (headerRow != null) {
-                for (Cell cell : headerRow) {
-                    headers.add(getCellValueAsString(cell));
-                }
-            }
-            return headers;
-        }
-    }
-
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-        return new DataFormatter().formatCellValue(cell).trim();
+        BackgroundTasks.run("autofill-import", importTask);
     }
 
     @FXML
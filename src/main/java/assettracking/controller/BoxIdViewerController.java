@@ -1,8 +1,14 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
+import assettracking.dao.DeviceStatusVersionDAO;
+import assettracking.dao.DeviceStatusVersionDAO.ApplyResult;
+import assettracking.dao.DeviceStatusVersionDAO.RowChange;
+import assettracking.dao.ReceiptEventDAO;
 import assettracking.data.BoxIdDetail;
 import assettracking.data.BoxIdSummary;
 import assettracking.db.DatabaseConnection;
+import assettracking.db.Transactions;
 import assettracking.label.service.ZplPrinterService;
 import assettracking.manager.StageManager;
 import assettracking.manager.StatusManager;
@@ -41,6 +47,7 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -52,6 +59,8 @@ public class BoxIdViewerController {
     private final ObservableList<BoxIdSummary> summaryList = FXCollections.observableArrayList();
     private final ObservableList<BoxIdDetail> detailList = FXCollections.observableArrayList();
     private final ZplPrinterService printerService = new ZplPrinterService();
+    private final ReceiptEventDAO receiptEventDAO = new ReceiptEventDAO();
+    private final DeviceStatusVersionDAO versionDAO = new DeviceStatusVersionDAO();
     @FXML
     private TextField searchField;
     @FXML
@@ -191,7 +200,7 @@ public class BoxIdViewerController {
 
         findBoxTask.setOnFailed(e -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Database Error", "An error occurred while searching for the serial number."));
 
-        new Thread(findBoxTask).start();
+        BackgroundTasks.run("box-find-serial", findBoxTask);
     }
 
     @FXML
@@ -273,13 +282,14 @@ public class BoxIdViewerController {
                     String serialsString = (String) db.getContent(SERIAL_NUMBERS_FORMAT);
                     List<String> serialsToMove = Arrays.asList(serialsString.split(","));
 
-                    Task<Integer> moveTask = createMoveItemsTask(serialsToMove, targetBox.boxId());
+                    Task<ApplyResult> moveTask = createMoveItemsTask(serialsToMove, targetBox.boxId());
                     moveTask.setOnSucceeded(e -> {
-                        statusLabel.setText(String.format("Moved %d item(s) to Box ID '%s'.", moveTask.getValue(), targetBox.boxId()));
+                        statusLabel.setText(String.format("Moved %d item(s) to Box ID '%s'.", moveTask.getValue().writtenCount(), targetBox.boxId()));
+                        reportConflicts(moveTask.getValue());
                         refreshAllData();
                     });
                     moveTask.setOnFailed(e -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Move Failed", "A database error occurred."));
-                    new Thread(moveTask).start();
+                    BackgroundTasks.run("box-move", moveTask);
 
                     success = true;
                 }
@@ -380,15 +390,16 @@ public class BoxIdViewerController {
             String status = newStatus.getKey();
             String subStatus = newStatus.getValue();
 
-            Task<Integer> updateTask = createBulkUpdateTask(selectedBox.boxId(), status, subStatus);
+            Task<ApplyResult> updateTask = createBulkUpdateTask(selectedBox.boxId(), status, subStatus);
             updateTask.setOnSucceeded(e -> {
-                int updatedCount = updateTask.getValue();
+                int updatedCount = updateTask.getValue().writtenCount();
                 statusLabel.getStyleClass().setAll("status-label-success"); // More robust
                 statusLabel.setText(String.format("Updated %d items in Box ID %s to %s / %s.", updatedCount, selectedBox.boxId(), status, subStatus));
+                reportConflicts(updateTask.getValue());
                 refreshAllData();
             });
             updateTask.setOnFailed(e -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Update Failed", "Database error during bulk update."));
-            new Thread(updateTask).start();
+            BackgroundTasks.run("box-bulk-update", updateTask);
         });
     }
 
@@ -404,14 +415,15 @@ public class BoxIdViewerController {
 
         if (confirmed) {
             List<String> serialsToRemove = selectedItems.stream().map(BoxIdDetail::serialNumber).collect(Collectors.toList());
-            Task<Void> removeTask = createRemoveItemsTask(serialsToRemove);
+            Task<ApplyResult> removeTask = createRemoveItemsTask(serialsToRemove);
             removeTask.setOnSucceeded(e -> {
                 statusLabel.getStyleClass().setAll("status-label-success"); // More robust
-                statusLabel.setText("Removed " + serialsToRemove.size() + " item(s) from the box.");
+                statusLabel.setText("Removed " + removeTask.getValue().writtenCount() + " item(s) from the box.");
+                reportConflicts(removeTask.getValue());
                 refreshAllData();
             });
             removeTask.setOnFailed(e -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Removal Failed", "A database error occurred."));
-            new Thread(removeTask).start();
+            BackgroundTasks.run("box-remove", removeTask);
         }
     }
 
@@ -473,7 +485,7 @@ public class BoxIdViewerController {
                 Platform.runLater(() -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Database Error", "Failed to load box summary data: " + ex.getMessage()));
             }
         });
-        new Thread(loadTask).start();
+        BackgroundTasks.run("box-summary-load", loadTask);
     }
 
     private void loadDetailData(String boxId) {
@@ -508,7 +520,7 @@ public class BoxIdViewerController {
                 Platform.runLater(() -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Database Error", "Failed to load box contents: " + ex.getMessage()));
             }
         });
-        new Thread(loadDetailsTask).start();
+        BackgroundTasks.run("box-details-load", loadDetailsTask);
     }
 
     private Optional<Pair<String, String>> showUpdateDialog() {
@@ -542,29 +554,32 @@ public class BoxIdViewerController {
         return dialog.showAndWait();
     }
 
-    private Task<Integer> createBulkUpdateTask(String boxId, String newStatus, String newSubStatus) {
+    private Task<ApplyResult> createBulkUpdateTask(String boxId, String newStatus, String newSubStatus) {
         return new Task<>() {
             @Override
-            protected Integer call() throws Exception {
+            protected ApplyResult call() throws Exception {
                 String sql = """
-                            UPDATE Device_Status ds
-                            SET status = ?, sub_status = ?, last_update = CURRENT_TIMESTAMP
-                            WHERE ds.receipt_id IN (
-                                SELECT re.receipt_id FROM Receipt_Events re
-                                JOIN (
-                                    SELECT serial_number, MAX(receipt_id) as max_receipt_id
-                                    FROM Receipt_Events GROUP BY serial_number
-                                ) latest ON re.serial_number = latest.serial_number AND re.receipt_id = latest.max_receipt_id
-                                JOIN Device_Status inner_ds ON re.receipt_id = inner_ds.receipt_id
-                                WHERE inner_ds.change_log LIKE ?
-                            )
+                            SELECT re.receipt_id FROM Receipt_Events re
+                            JOIN (
+                                SELECT serial_number, MAX(receipt_id) as max_receipt_id
+                                FROM Receipt_Events GROUP BY serial_number
+                            ) latest ON re.serial_number = latest.serial_number AND re.receipt_id = latest.max_receipt_id
+                            JOIN Device_Status inner_ds ON re.receipt_id = inner_ds.receipt_id
+                            WHERE inner_ds.change_log LIKE ?
                         """;
-                try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, newStatus);
-                    stmt.setString(2, newSubStatus);
-                    stmt.setString(3, "Box ID: " + boxId + "%");
-                    return stmt.executeUpdate();
-                }
+                Map<String, Object> values = DeviceStatusVersionDAO.values(DeviceStatusVersionDAO.STATUS, newStatus, DeviceStatusVersionDAO.SUB_STATUS, newSubStatus);
+                return Transactions.inTransaction(conn -> {
+                    List<RowChange> changes = new ArrayList<>();
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        stmt.setString(1, "Box ID: " + boxId + "%");
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                changes.add(new RowChange(rs.getInt("receipt_id"), values));
+                            }
+                        }
+                    }
+                    return versionDAO.apply(conn, changes);
+                });
             }
         };
     }
@@ -590,76 +605,67 @@ public class BoxIdViewerController {
             }
 
             List<String> serialsToMove = selectedItems.stream().map(BoxIdDetail::serialNumber).collect(Collectors.toList());
-            Task<Integer> moveTask = createMoveItemsTask(serialsToMove, newBoxId);
+            Task<ApplyResult> moveTask = createMoveItemsTask(serialsToMove, newBoxId);
 
             moveTask.setOnSucceeded(e -> {
-                int updatedCount = moveTask.getValue();
+                int updatedCount = moveTask.getValue().writtenCount();
                 statusLabel.getStyleClass().setAll("status-label-success");
                 statusLabel.setText(String.format("Moved %d item(s) to Box ID '%s'.", updatedCount, newBoxId));
+                reportConflicts(moveTask.getValue());
                 refreshAllData(); // Refresh the entire view to show updated counts
             });
             moveTask.setOnFailed(e -> StageManager.showAlert(getOwnerWindow(), Alert.AlertType.ERROR, "Move Failed", "A database error occurred while moving the items."));
-            new Thread(moveTask).start();
+            BackgroundTasks.run("box-move-selected", moveTask);
         });
     }
 
     // Add this new helper method to create the background task
-    private Task<Integer> createMoveItemsTask(List<String> serials, String newBoxIdRaw) {
+    private Task<ApplyResult> createMoveItemsTask(List<String> serials, String newBoxIdRaw) {
         return new Task<>() {
             @Override
-            protected Integer call() throws Exception {
+            protected ApplyResult call() throws Exception {
                 // --- THIS IS THE FIX ---
                 // Standardize the Box ID to uppercase before sending it to the database.
                 String newBoxId = newBoxIdRaw.trim().toUpperCase();
-
-                String placeholders = String.join(",", Collections.nCopies(serials.size(), "?"));
-
-                String sql = String.format("""
-                            UPDATE Device_Status SET box_id = ?
-                            WHERE receipt_id IN (
-                                SELECT MAX(re.receipt_id)
-                                FROM Receipt_Events re
-                                WHERE re.serial_number IN (%s)
-                                GROUP BY re.serial_number
-                            )
-                        """, placeholders);
-
-                try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-                    stmt.setString(1, newBoxId);
-                    int i = 2;
-                    for (String serial : serials) {
-                        stmt.setString(i++, serial);
-                    }
-                    return stmt.executeUpdate();
-                }
+                return applyToLatest(serials, DeviceStatusVersionDAO.values(DeviceStatusVersionDAO.BOX_ID, newBoxId));
             }
         };
     }
 
 
-    private Task<Void> createRemoveItemsTask(List<String> serials) {
+    private Task<ApplyResult> createRemoveItemsTask(List<String> serials) {
         return new Task<>() {
             @Override
-            protected Void call() throws Exception {
-                String placeholders = String.join(",", Collections.nCopies(serials.size(), "?"));
-
-                String sql = """
-                            UPDATE Device_Status ds SET status = 'Disposed', sub_status = 'Ready for Wipe', box_id = NULL, change_log = 'Removed from box'
-                            WHERE ds.receipt_id IN ( ... )
-                        """.replace("( ... )", String.format("(SELECT MAX(re.receipt_id) FROM Receipt_Events re WHERE re.serial_number IN (%s) GROUP BY re.serial_number)", placeholders));
-                // --- END OF FIX ---
-                try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    for (int i = 0; i < serials.size(); i++) {
-                        stmt.setString(i + 1, serials.get(i));
-                    }
-                    stmt.executeUpdate();
-                }
-                return null;
+            protected ApplyResult call() throws Exception {
+                return applyToLatest(serials, DeviceStatusVersionDAO.values(
+                        DeviceStatusVersionDAO.STATUS, "Disposed",
+                        DeviceStatusVersionDAO.SUB_STATUS, "Ready for Wipe",
+                        DeviceStatusVersionDAO.BOX_ID, null,
+                        DeviceStatusVersionDAO.CHANGE_LOG, "Removed from box"));
             }
         };
     }
 
+    /**
+     * Applies the same change to the most recent receipt of each serial in one transaction. Only rows changed on
+     * another workstation while it runs are left alone and reported as conflicts.
+     */
+    private ApplyResult applyToLatest(List<String> serials, Map<String, Object> values) throws SQLException {
+        return Transactions.inTransaction(conn -> {
+            List<RowChange> changes = new ArrayList<>();
+            for (int receiptId : receiptEventDAO.findMostRecentReceiptIds(conn, serials).values()) {
+                changes.add(new RowChange(receiptId, values));
+            }
+            return versionDAO.apply(conn, changes);
+        });
+    }
+
+    private void reportConflicts(ApplyResult result) {
+        if (!result.conflicts().isEmpty()) {
+            StageManager.showAlert(getOwnerWindow(), Alert.AlertType.WARNING, "Some Items Not Changed", "These items were being changed on another workstation at the same time and were left as they are:\n" + result.describeConflicts());
+        }
+    }
+
     private Window getOwnerWindow() {
         return summaryTable.getScene().getWindow();
     }
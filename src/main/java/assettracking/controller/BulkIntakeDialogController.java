@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.PackageDAO;
 import assettracking.dao.ReceiptEventDAO;
 import assettracking.dao.SkuDAO;
@@ -118,7 +119,7 @@ public class BulkIntakeDialogController {
 
             searchTask.setOnFailed(e -> System.err.println("Database error searching for packages: " + e.getSource().getException().getMessage()));
 
-            new Thread(searchTask).start();
+            BackgroundTasks.run("bulk-intake-package-search", getStage(), searchTask);
         });
     }
 
@@ -207,7 +208,7 @@ public class BulkIntakeDialogController {
             processButton.setDisable(false);
             StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Critical Error", "The bulk intake process failed: " + e.getSource().getException().getMessage());
         });
-        new Thread(intakeTask).start();
+        BackgroundTasks.run("bulk-intake", intakeTask);
     }
 
     @FXML
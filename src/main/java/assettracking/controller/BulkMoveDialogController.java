@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.DeviceStatusDAO;
 import assettracking.manager.StageManager;
 import javafx.application.Platform;
@@ -75,7 +76,7 @@ public class BulkMoveDialogController {
                 successListView.setItems(FXCollections.observableArrayList(result.movedSerials()));
                 failedListView.setItems(FXCollections.observableArrayList(result.notFoundOrFailedSerials()));
                 successLabel.setText(String.format("Successfully Moved (%d)", result.movedSerials().size()));
-                failedLabel.setText(String.format("Not Found in Source Box (%d)", result.notFoundOrFailedSerials().size()));
+                failedLabel.setText(String.format("Not Found in Source Box or Changed Elsewhere (%d)", result.notFoundOrFailedSerials().size()));
                 statusLabel.setText("Operation complete.");
                 if (onFinishedCallback != null) {
                     onFinishedCallback.run();
@@ -90,7 +91,7 @@ public class BulkMoveDialogController {
             moveButton.setDisable(false);
         });
 
-        new Thread(moveTask).start();
+        BackgroundTasks.run("bulk-move", moveTask);
     }
 
     private Set<String> parseSerialsFromTextArea(String text) {
@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.DeviceStatusDAO;
 import assettracking.manager.StageManager;
 import assettracking.manager.StatusManager;
@@ -91,7 +92,7 @@ public class BulkUpdateDialogController {
 
             deleteTask.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Deletion Failed", "A database error occurred and the transaction was rolled back. No devices were deleted. Error: " + e.getSource().getException().getMessage()));
 
-            new Thread(deleteTask).start();
+            BackgroundTasks.run("bulk-delete", deleteTask);
         }
     }
 
@@ -157,6 +158,9 @@ public class BulkUpdateDialogController {
             notFoundListView.setItems(FXCollections.observableArrayList(result.notFound()));
             successLabel.setText(String.format("Successfully Updated (%d)", result.updated().size()));
             notFoundLabel.setText(String.format("Not Found in Database (%d)", result.notFound().size()));
+            if (!result.conflicts().isEmpty()) {
+                StageManager.showAlert(getStage(), Alert.AlertType.WARNING, "Some Devices Not Updated", "These devices were changed on another workstation during the update and were left as they are:\n" + String.join("\n", result.conflicts()));
+            }
 
             // Notify the main screen to refresh its data
             if (onFinishedCallback != null) {
@@ -170,7 +174,7 @@ public class BulkUpdateDialogController {
             StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Update Failed", "A database error occurred: " + e.getSource().getException().getMessage());
         });
 
-        new Thread(updateTask).start();
+        BackgroundTasks.run("bulk-update", updateTask);
     }
 
     @FXML
@@ -1,9 +1,14 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.AppSettingsDAO;
+import assettracking.data.DashboardSnapshot;
+import assettracking.data.DashboardTile;
 import assettracking.data.TopModelStat;
 import assettracking.manager.ConfettiManager;
+import assettracking.manager.DashboardChangeWatcher;
 import assettracking.manager.DashboardDataService;
+import assettracking.manager.DashboardRefreshCoordinator;
 import assettracking.manager.StageManager;
 import javafx.animation.ScaleTransition;
 import javafx.application.Platform;
@@ -25,15 +30,16 @@ import javafx.util.Duration;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
 
 public class DashboardController {
 
-    private final DashboardDataService dataService = new DashboardDataService();
+    private final DashboardRefreshCoordinator refreshCoordinator = new DashboardRefreshCoordinator(new DashboardDataService());
+    private final DashboardChangeWatcher changeWatcher = new DashboardChangeWatcher();
     private final AppSettingsDAO appSettingsDAO = new AppSettingsDAO();
-    private final AtomicBoolean isRefreshing = new AtomicBoolean(false);
     private final ObservableList<TopModelStat> topModelsList = FXCollections.observableArrayList();
     // Bar Chart Series are now final fields, created only once.
     private final XYChart.Series<String, Number> intakeSeries = new XYChart.Series<>();
@@ -51,6 +57,8 @@ public class DashboardController {
     @FXML
     private Label activeTriageLabel, awaitingDisposalLabel, avgTurnaroundLabel, boxesAssembledLabel, labelsCreatedLabel;
     @FXML
+    private Label turnaroundPercentilesLabel, intakeTimePercentilesLabel, disposedTimePercentilesLabel;
+    @FXML
     private Label deviceGoalPacingLabel, monitorGoalPacingLabel, timeRangeTitleLabel, breakdownTitleLabel;
     @FXML
     private Label inventoryOverviewTitleLabel, healthTitleLabel, pacingTitleLabel, topModelsTitleLabel;
@@ -124,164 +132,96 @@ public class DashboardController {
                 return null;
             }
         };
-        initialLoadTask.setOnSucceeded(e -> refreshAllData());
+        // The watcher triggers the first full refresh, then the partial ones as the data changes.
+        initialLoadTask.setOnSucceeded(e -> changeWatcher.start(this::refreshChangedTiles));
         initialLoadTask.setOnFailed(e -> Platform.runLater(() -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Database Connection Failed", "Could not connect to the database. Error: " + initialLoadTask.getException().getMessage())));
-        new Thread(initialLoadTask).start();
+        BackgroundTasks.run("dashboard-settings", initialLoadTask);
     }
 
     @FXML
     private void refreshAllData() {
-        if (!isRefreshing.compareAndSet(false, true)) {
-            return;
-        }
-        try {
+        updateDynamicTitles();
+        LocalDate chartEnd = LocalDate.now();
+        refreshCoordinator.refresh(getRangeStart(), getChartStart(chartEnd), chartEnd, snapshot -> applySnapshot(snapshot, EnumSet.allOf(DashboardTile.class)),
+                error -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Dashboard Error", "Could not load dashboard data: " + error.getMessage()));
+    }
+
+    /**
+     * Called by the change watcher. Failures are logged by the coordinator and not shown: this runs unattended and
+     * the next change retries.
+     */
+    private void refreshChangedTiles(Set<DashboardTile> tiles) {
+        if (tiles.containsAll(EnumSet.allOf(DashboardTile.class))) {
             updateDynamicTitles();
-            loadGranularMetrics();
-            loadStaticKpis();
-            loadDynamicCharts();
-            loadTopModelsData();
-        } finally {
-            isRefreshing.set(false);
         }
+        LocalDate chartEnd = LocalDate.now();
+        refreshCoordinator.refreshTiles(tiles, getRangeStart(), getChartStart(chartEnd), chartEnd, this::applySnapshot, error -> {
+        });
     }
 
-    private void loadDynamicCharts() {
-        Task<List<PieChart.Data>> inventoryTask = new Task<>() {
-            @Override
-            protected List<PieChart.Data> call() throws Exception {
-                return dataService.getInventoryOverviewData();
-            }
-        };
-        inventoryTask.setOnSucceeded(e -> setPieChartData(inventoryPieChart, FXCollections.observableArrayList(inventoryTask.getValue())));
-        new Thread(inventoryTask).start();
-
-        Task<List<PieChart.Data>> breakdownTask = new Task<>() {
-            @Override
-            protected List<PieChart.Data> call() throws Exception {
-                return dataService.getProcessedBreakdownData(getDateFilterClause("ds.last_update"));
-            }
-        };
-        breakdownTask.setOnSucceeded(e -> setPieChartData(deploymentBreakdownChart, FXCollections.observableArrayList(breakdownTask.getValue())));
-        new Thread(breakdownTask).start();
-
-        Task<Map<String, int[]>> intakeVsProcessedTask = new Task<>() {
-            @Override
-            protected Map<String, int[]> call() throws Exception {
-                LocalDate endDate = LocalDate.now();
-                RadioButton selected = (RadioButton) dateRangeToggleGroup.getSelectedToggle();
-                String selectionText = (selected == null) ? "Last 7 Days" : selected.getText();
-                LocalDate startDate = switch (selectionText) {
-                    case "Today" -> endDate;
-                    case "Last 30 Days" -> endDate.minusDays(29);
-                    default -> endDate.minusDays(6);
-                };
-                return dataService.getIntakeVsProcessedData(startDate, endDate);
-            }
-        };
-
-        intakeVsProcessedTask.setOnSucceeded(e -> {
-            Map<String, int[]> dailyCounts = intakeVsProcessedTask.getValue();
-            Platform.runLater(() -> {
-                List<XYChart.Data<String, Number>> intakeData = new ArrayList<>();
-                List<XYChart.Data<String, Number>> processedData = new ArrayList<>();
-
-                LocalDate endDate = LocalDate.now();
-                RadioButton selected = (RadioButton) dateRangeToggleGroup.getSelectedToggle();
-                String selectionText = (selected == null) ? "Last 7 Days" : selected.getText();
-                LocalDate startDate = switch (selectionText) {
-                    case "Today" -> endDate;
-                    case "Last 30 Days" -> endDate.minusDays(29);
-                    default -> endDate.minusDays(6);
-                };
-
-                for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-                    String dayString = date.toString();
-                    int[] counts = dailyCounts.getOrDefault(dayString, new int[]{0, 0});
-                    intakeData.add(new XYChart.Data<>(dayString, counts[0]));
-                    processedData.add(new XYChart.Data<>(dayString, counts[1]));
-                }
-
-                // --- THIS IS THE FINAL, ROBUST FIX ---
-                // Do NOT create new Series objects. Do NOT touch the chart's main data list.
-                // Only modify the data *within* the existing series objects.
+    private void applySnapshot(DashboardSnapshot snapshot, Set<DashboardTile> tiles) {
+        if (tiles.contains(DashboardTile.GRANULAR_METRICS)) applyGranularMetrics(snapshot.granularMetrics());
+        if (tiles.contains(DashboardTile.KPIS) || tiles.contains(DashboardTile.INVENTORY_OVERVIEW)) applyStaticKpis(snapshot.kpis());
+        if (tiles.contains(DashboardTile.TOP_MODELS)) topModelsList.setAll(snapshot.topModels());
+        if (tiles.contains(DashboardTile.INVENTORY_OVERVIEW)) setPieChartData(inventoryPieChart, toPieData(snapshot.inventoryOverview()));
+        if (tiles.contains(DashboardTile.PROCESSED_BREAKDOWN)) setPieChartData(deploymentBreakdownChart, toPieData(snapshot.processedBreakdown()));
+        if (!tiles.contains(DashboardTile.INTAKE_VS_PROCESSED)) return;
 
-                intakeProcessedChart.setAnimated(false); // Disable animation during the update
-
-                intakeSeries.getData().setAll(intakeData);
-                processedSeries.getData().setAll(processedData);
+        List<XYChart.Data<String, Number>> intakeData = new ArrayList<>();
+        List<XYChart.Data<String, Number>> processedData = new ArrayList<>();
+        for (DashboardSnapshot.DailyCount day : snapshot.intakeVsProcessed()) {
+            intakeData.add(new XYChart.Data<>(day.day(), day.intake()));
+            processedData.add(new XYChart.Data<>(day.day(), day.processed()));
+        }
 
-                // Re-enable animation on the next UI pulse
-                Platform.runLater(() -> intakeProcessedChart.setAnimated(true));
-                // --- END OF FIX ---
-            });
-        });
-        new Thread(intakeVsProcessedTask).start();
+        // Do NOT create new Series objects. Do NOT touch the chart's main data list.
+        // Only modify the data *within* the existing series objects.
+        intakeProcessedChart.setAnimated(false); // Disable animation during the update
+        intakeSeries.getData().setAll(intakeData);
+        processedSeries.getData().setAll(processedData);
+        // Re-enable animation on the next UI pulse
+        Platform.runLater(() -> intakeProcessedChart.setAnimated(true));
     }
 
-    private void loadGranularMetrics() {
-        Task<Map<String, Integer>> task = new Task<>() {
-            @Override
-            protected Map<String, Integer> call() throws Exception {
-                return dataService.getGranularMetrics(getDateFilterClause("p.receive_date"), getDateFilterClause("ds.last_update"));
-            }
-        };
-        task.setOnSucceeded(e -> {
-            Map<String, Integer> metrics = task.getValue();
-            animateLabelUpdate(laptopsIntakenLabel, metrics.getOrDefault("laptopsIntaken", 0).toString());
-            animateLabelUpdate(laptopsProcessedLabel, metrics.getOrDefault("laptopsProcessed", 0).toString());
-            animateLabelUpdate(laptopsDisposedLabel, metrics.getOrDefault("laptopsDisposed", 0).toString());
-            animateLabelUpdate(tabletsIntakenLabel, metrics.getOrDefault("tabletsIntaken", 0).toString());
-            animateLabelUpdate(tabletsProcessedLabel, metrics.getOrDefault("tabletsProcessed", 0).toString());
-            animateLabelUpdate(tabletsDisposedLabel, metrics.getOrDefault("tabletsDisposed", 0).toString());
-            animateLabelUpdate(desktopsIntakenLabel, metrics.getOrDefault("desktopsIntaken", 0).toString());
-            animateLabelUpdate(desktopsProcessedLabel, metrics.getOrDefault("desktopsProcessed", 0).toString());
-            animateLabelUpdate(desktopsDisposedLabel, metrics.getOrDefault("desktopsDisposed", 0).toString());
-            animateLabelUpdate(monitorsIntakenLabel, metrics.getOrDefault("monitorsIntaken", 0).toString());
-            animateLabelUpdate(monitorsProcessedLabel, metrics.getOrDefault("monitorsProcessed", 0).toString());
-            animateLabelUpdate(monitorsDisposedLabel, metrics.getOrDefault("monitorsDisposed", 0).toString());
-            int totalDevicesProcessed = metrics.getOrDefault("laptopsProcessed", 0) + metrics.getOrDefault("tabletsProcessed", 0) + metrics.getOrDefault("desktopsProcessed", 0);
-            int totalMonitorsProcessed = metrics.getOrDefault("monitorsProcessed", 0);
-            animateLabelUpdate(totalProcessedLabel, String.valueOf(totalDevicesProcessed + totalMonitorsProcessed));
-            updatePacing(totalDevicesProcessed, totalMonitorsProcessed);
-            if (days7Radio.isSelected() && confettiManager != null && !goalMetCelebrated && (totalDevicesProcessed >= weeklyDeviceGoal || totalMonitorsProcessed >= weeklyMonitorGoal)) {
-                confettiManager.start();
-                goalMetCelebrated = true;
-            }
-        });
-        task.setOnFailed(e -> Platform.runLater(() -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Dashboard Error", "Could not load performance metrics.")));
-        new Thread(task).start();
+    private ObservableList<PieChart.Data> toPieData(List<DashboardSnapshot.Slice> slices) {
+        ObservableList<PieChart.Data> data = FXCollections.observableArrayList();
+        slices.forEach(slice -> data.add(new PieChart.Data(slice.label(), slice.count())));
+        return data;
     }
 
-    private void loadStaticKpis() {
-        Task<Map<String, String>> task = new Task<>() {
-            @Override
-            protected Map<String, String> call() throws Exception {
-                return dataService.getStaticKpis(getDateFilterClause("ds.last_update"));
-            }
-        };
-        task.setOnSucceeded(e -> {
-            Map<String, String> kpis = task.getValue();
-            animateLabelUpdate(activeTriageLabel, kpis.getOrDefault("activeTriage", "0"));
-            animateLabelUpdate(awaitingDisposalLabel, kpis.getOrDefault("awaitingDisposal", "0"));
-            animateLabelUpdate(avgTurnaroundLabel, kpis.getOrDefault("avgTurnaround", "0.0 Days"));
-            int boxes = Integer.parseInt(kpis.getOrDefault("boxesAssembled", "0"));
-            animateLabelUpdate(boxesAssembledLabel, String.valueOf(boxes));
-            animateLabelUpdate(labelsCreatedLabel, String.valueOf(boxes * 2));
-        });
-        task.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Dashboard Error", "Could not load static KPIs."));
-        new Thread(task).start();
+    private void applyGranularMetrics(Map<String, Integer> metrics) {
+        animateLabelUpdate(laptopsIntakenLabel, metrics.getOrDefault("laptopsIntaken", 0).toString());
+        animateLabelUpdate(laptopsProcessedLabel, metrics.getOrDefault("laptopsProcessed", 0).toString());
+        animateLabelUpdate(laptopsDisposedLabel, metrics.getOrDefault("laptopsDisposed", 0).toString());
+        animateLabelUpdate(tabletsIntakenLabel, metrics.getOrDefault("tabletsIntaken", 0).toString());
+        animateLabelUpdate(tabletsProcessedLabel, metrics.getOrDefault("tabletsProcessed", 0).toString());
+        animateLabelUpdate(tabletsDisposedLabel, metrics.getOrDefault("tabletsDisposed", 0).toString());
+        animateLabelUpdate(desktopsIntakenLabel, metrics.getOrDefault("desktopsIntaken", 0).toString());
+        animateLabelUpdate(desktopsProcessedLabel, metrics.getOrDefault("desktopsProcessed", 0).toString());
+        animateLabelUpdate(desktopsDisposedLabel, metrics.getOrDefault("desktopsDisposed", 0).toString());
+        animateLabelUpdate(monitorsIntakenLabel, metrics.getOrDefault("monitorsIntaken", 0).toString());
+        animateLabelUpdate(monitorsProcessedLabel, metrics.getOrDefault("monitorsProcessed", 0).toString());
+        animateLabelUpdate(monitorsDisposedLabel, metrics.getOrDefault("monitorsDisposed", 0).toString());
+        int totalDevicesProcessed = metrics.getOrDefault("laptopsProcessed", 0) + metrics.getOrDefault("tabletsProcessed", 0) + metrics.getOrDefault("desktopsProcessed", 0);
+        int totalMonitorsProcessed = metrics.getOrDefault("monitorsProcessed", 0);
+        animateLabelUpdate(totalProcessedLabel, String.valueOf(totalDevicesProcessed + totalMonitorsProcessed));
+        updatePacing(totalDevicesProcessed, totalMonitorsProcessed);
+        if (days7Radio.isSelected() && confettiManager != null && !goalMetCelebrated && (totalDevicesProcessed >= weeklyDeviceGoal || totalMonitorsProcessed >= weeklyMonitorGoal)) {
+            confettiManager.start();
+            goalMetCelebrated = true;
+        }
     }
 
-    private void loadTopModelsData() {
-        Task<List<TopModelStat>> task = new Task<>() {
-            @Override
-            protected List<TopModelStat> call() throws Exception {
-                return dataService.getTopModels(getDateFilterClause("ds.last_update"));
-            }
-        };
-        task.setOnSucceeded(e -> topModelsList.setAll(task.getValue()));
-        task.setOnFailed(e -> Platform.runLater(() -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Database Error", "Could not load Top Processed Models data.")));
-        new Thread(task).start();
+    private void applyStaticKpis(Map<String, String> kpis) {
+        animateLabelUpdate(activeTriageLabel, kpis.getOrDefault("activeTriage", "0"));
+        animateLabelUpdate(awaitingDisposalLabel, kpis.getOrDefault("awaitingDisposal", "0"));
+        animateLabelUpdate(avgTurnaroundLabel, kpis.getOrDefault("avgTurnaround", "0.0 Days"));
+        turnaroundPercentilesLabel.setText(kpis.getOrDefault("turnaroundPercentiles", ""));
+        intakeTimePercentilesLabel.setText(kpis.getOrDefault("intakeTimePercentiles", ""));
+        disposedTimePercentilesLabel.setText(kpis.getOrDefault("disposedTimePercentiles", ""));
+        int boxes = Integer.parseInt(kpis.getOrDefault("boxesAssembled", "0"));
+        animateLabelUpdate(boxesAssembledLabel, String.valueOf(boxes));
+        animateLabelUpdate(labelsCreatedLabel, String.valueOf(boxes * 2));
     }
 
     private void updatePacing(int deviceCount, int monitorCount) {
@@ -297,16 +237,31 @@ public class DashboardController {
         }
     }
 
-    private String getDateFilterClause(String columnName) {
-        String dateColumn = String.format("CAST(%s AS DATE)", columnName);
+    /**
+     * The first day counted for the selected range: today, or 7 or 30 days back.
+     */
+    private LocalDate getRangeStart() {
         RadioButton selected = (RadioButton) dateRangeToggleGroup.getSelectedToggle();
         if (selected == null || selected.getText().equals("Last 7 Days")) {
-            return String.format(" %s >= DATEADD('DAY', -7, CURRENT_DATE)", dateColumn);
+            return LocalDate.now().minusDays(7);
         }
         if (selected.getText().equals("Today")) {
-            return String.format(" %s >= CURRENT_DATE", dateColumn);
+            return LocalDate.now();
         }
-        return String.format(" %s >= DATEADD('DAY', -30, CURRENT_DATE)", dateColumn);
+        return LocalDate.now().minusDays(30);
+    }
+
+    /**
+     * The first day shown in the intake vs processed chart, which always shows whole days up to {@code endDate}.
+     */
+    private LocalDate getChartStart(LocalDate endDate) {
+        RadioButton selected = (RadioButton) dateRangeToggleGroup.getSelectedToggle();
+        String selectionText = (selected == null) ? "Last 7 Days" : selected.getText();
+        return switch (selectionText) {
+            case "Today" -> endDate;
+            case "Last 30 Days" -> endDate.minusDays(29);
+            default -> endDate.minusDays(6);
+        };
     }
 
     private void updateDynamicTitles() {
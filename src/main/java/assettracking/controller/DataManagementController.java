@@ -1,7 +1,10 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.AppSettingsDAO;
+import assettracking.dao.DailyRollupDAO;
 import assettracking.dao.DeviceStatusDAO;
+import assettracking.dao.DurationHistogramDAO;
 import assettracking.manager.*;
 import assettracking.ui.MelRulesImporter;
 import javafx.concurrent.Task;
@@ -43,9 +46,10 @@ public class DataManagementController {
     @SuppressWarnings("unused")
     @FXML
     private Button bulkUpdateButton;
-    @SuppressWarnings("unused")
     @FXML
     private Button exportButton;
+    @FXML
+    private Button auditExportButton;
     @SuppressWarnings("unused")
     @FXML
     private Button importAutofillButton;
@@ -69,11 +73,16 @@ public class DataManagementController {
     @SuppressWarnings("unused")
     @FXML
     private Button applyGoalsButton;
+    @FXML
+    private Button rebuildRollupsButton;
 
 
     private DeviceStatusDAO deviceStatusDAO;
     private AppSettingsDAO appSettingsDAO;
     private DeviceImportService deviceImportService;
+    private Task<List<ImportResult>> runningImportTask;
+    private Task<Void> runningExportTask;
+    private Task<Path> runningAuditExportTask;
 
     @FXML
     public void initialize() {
@@ -101,13 +110,56 @@ public class DataManagementController {
         }
     }
 
+    /**
+     * Recomputes the dashboard's daily totals from the full receipt and status history.
+     */
+    @FXML
+    private void handleRebuildRollups() {
+        Task<Integer> rebuildTask = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                DailyRollupDAO rollupDAO = new DailyRollupDAO();
+                if (!rollupDAO.isInstalled()) {
+                    throw new IllegalStateException("The dashboard totals tables are not installed. See the log for details.");
+                }
+                int rows = rollupDAO.rebuildFromHistory();
+                DurationHistogramDAO histogramDAO = new DurationHistogramDAO();
+                if (histogramDAO.isInstalled()) {
+                    rows += histogramDAO.rebuildFromHistory();
+                }
+                return rows;
+            }
+        };
+        rebuildRollupsButton.setDisable(true);
+        statusLabel.setText("Rebuilding dashboard totals from history...");
+        rebuildTask.setOnSucceeded(e -> {
+            rebuildRollupsButton.setDisable(false);
+            statusLabel.setText(String.format("Dashboard totals rebuilt (%d rows). Refresh the Dashboard to see them.", rebuildTask.getValue()));
+        });
+        rebuildTask.setOnFailed(e -> {
+            rebuildRollupsButton.setDisable(false);
+            logger.error("Rebuilding dashboard rollups failed", rebuildTask.getException());
+            statusLabel.setText("Rebuild failed. See error dialog.");
+            StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Rebuild Failed", "Could not rebuild dashboard totals: " + rebuildTask.getException().getMessage());
+        });
+        BackgroundTasks.run("rebuild-dashboard-totals", rebuildTask);
+    }
+
     @FXML
     private void handleExport() {
+        // While an export is running, the same button cancels it.
+        if (runningExportTask != null && runningExportTask.isRunning()) {
+            runningExportTask.cancel(false);
+            return;
+        }
+
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Asset Report");
         FileChooser.ExtensionFilter xlsxFilter = new FileChooser.ExtensionFilter("Excel Files (*.xlsx)", "*.xlsx");
         FileChooser.ExtensionFilter csvFilter = new FileChooser.ExtensionFilter("CSV Files (*.csv)", "*.csv");
-        fileChooser.getExtensionFilters().addAll(xlsxFilter, csvFilter);
+        FileChooser.ExtensionFilter gzipCsvFilter = new FileChooser.ExtensionFilter("Compressed CSV Files (*.csv.gz)", "*.csv.gz");
+        FileChooser.ExtensionFilter parquetFilter = new FileChooser.ExtensionFilter("Parquet Files for Analytics (*.parquet)", "*.parquet");
+        fileChooser.getExtensionFilters().addAll(xlsxFilter, csvFilter, gzipCsvFilter, parquetFilter);
         File file = fileChooser.showSaveDialog(getStage());
 
         if (file != null) {
@@ -118,28 +170,117 @@ public class DataManagementController {
                 @Override
                 protected Void call() {
                     if (extension.equals("*.xlsx")) {
+                        updateMessage("Exporting " + file.getName() + "...");
                         new ReportingService().exportToXLSX(file, owner);
+                    } else if (extension.equals("*.parquet")) {
+                        new ReportingService().exportToParquet(file, owner, this::isCancelled, this::reportProgress);
                     } else {
-                        new ReportingService().exportToCSV(file, owner);
+                        new ReportingService().exportToCSV(file, owner, this::isCancelled, this::reportProgress);
                     }
                     return null;
                 }
+
+                private void reportProgress(long rowsWritten, long totalRows) {
+                    updateProgress(rowsWritten, totalRows);
+                    updateMessage(String.format("Exporting %s: %,d of %,d rows...", file.getName(), rowsWritten, totalRows));
+                }
             };
+            runningExportTask = exportTask;
+            String originalButtonText = exportButton.getText();
+            statusLabel.textProperty().bind(exportTask.messageProperty());
+            if (!extension.equals("*.xlsx")) {
+                exportButton.setText("Cancel Export");
+            }
 
-            // Don't set onSucceeded or onFailed here, as the global bar handles hiding itself.
-            // We just need to update our local status label.
-            exportTask.setOnSucceeded(e -> statusLabel.setText("Export complete: " + file.getName()));
+            exportTask.setOnSucceeded(e -> {
+                statusLabel.textProperty().unbind();
+                exportButton.setText(originalButtonText);
+                statusLabel.setText("Export complete: " + file.getName());
+            });
             exportTask.setOnFailed(e -> {
+                statusLabel.textProperty().unbind();
+                exportButton.setText(originalButtonText);
                 statusLabel.setText("Export failed. See logs for details.");
                 Throwable ex = e.getSource().getException();
                 logger.error("Export task failed", ex);
                 StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Export Failed", "A critical error occurred during export: " + ex.getMessage());
             });
+            exportTask.setOnCancelled(e -> {
+                statusLabel.textProperty().unbind();
+                exportButton.setText(originalButtonText);
+                MainViewController.getInstance().hideProgressBar();
+                statusLabel.setText("Export cancelled. The partial file was removed.");
+            });
 
             // THIS IS THE CORRECTED LINE: Use the MainViewController's global progress bar
             MainViewController.getInstance().bindProgressBar(exportTask);
-            new Thread(exportTask).start();
+            BackgroundTasks.run("data-export", exportTask);
+        }
+    }
+
+    @FXML
+    private void handleExportAuditHistory() {
+        if (runningAuditExportTask != null && runningAuditExportTask.isRunning()) {
+            runningAuditExportTask.cancel(false);
+            return;
         }
+
+        ChoiceDialog<AuditExportService.Format> formatDialog = new ChoiceDialog<>(AuditExportService.Format.CSV, AuditExportService.Format.values());
+        formatDialog.setTitle("Export Full Audit History");
+        formatDialog.setHeaderText("One file is written per receive month, plus a manifest.json.");
+        formatDialog.setContentText("File format:");
+        formatDialog.initOwner(getStage());
+        Optional<AuditExportService.Format> format = formatDialog.showAndWait();
+        if (format.isEmpty()) return;
+
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Folder for Audit Export");
+        File directory = directoryChooser.showDialog(getStage());
+        if (directory == null) return;
+
+        Task<Path> auditTask = new Task<>() {
+            @Override
+            protected Path call() throws Exception {
+                updateMessage("Exporting audit history...");
+                return new AuditExportService().exportHistory(directory.toPath(), format.get(), this::isCancelled, (rowsWritten, totalRows) -> {
+                    updateProgress(rowsWritten, totalRows);
+                    updateMessage(String.format("Exporting audit history: %,d of %,d rows...", rowsWritten, totalRows));
+                });
+            }
+        };
+        runningAuditExportTask = auditTask;
+        String originalButtonText = auditExportButton.getText();
+        statusLabel.textProperty().bind(auditTask.messageProperty());
+        auditExportButton.setText("Cancel Audit Export");
+
+        auditTask.setOnSucceeded(e -> {
+            statusLabel.textProperty().unbind();
+            auditExportButton.setText(originalButtonText);
+            Path manifest = auditTask.getValue();
+            if (manifest == null) {
+                statusLabel.setText("Audit export cancelled.");
+                return;
+            }
+            statusLabel.setText("Audit export complete: " + manifest.getParent().getFileName());
+            StageManager.showAlert(getStage(), Alert.AlertType.INFORMATION, "Audit Export Complete", "Audit history was exported to:\n" + manifest.getParent());
+        });
+        auditTask.setOnFailed(e -> {
+            statusLabel.textProperty().unbind();
+            auditExportButton.setText(originalButtonText);
+            statusLabel.setText("Audit export failed. See logs for details.");
+            Throwable ex = auditTask.getException();
+            logger.error("Audit export task failed", ex);
+            StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Audit Export Failed", "A critical error occurred during export: " + ex.getMessage());
+        });
+        auditTask.setOnCancelled(e -> {
+            statusLabel.textProperty().unbind();
+            auditExportButton.setText(originalButtonText);
+            MainViewController.getInstance().hideProgressBar();
+            statusLabel.setText("Audit export cancelled. Partial files were removed.");
+        });
+
+        MainViewController.getInstance().bindProgressBar(auditTask);
+        BackgroundTasks.run("audit-export", auditTask);
     }
 
     @FXML
@@ -163,6 +304,13 @@ public class DataManagementController {
 
     @FXML
     private void handleRunAutoImport() {
+        // While an import is running, the same button cancels it. Committed chunks are kept and resumed next time.
+        if (runningImportTask != null && runningImportTask.isRunning()) {
+            // Don't interrupt: an interrupted thread can close H2's file channel mid-write.
+            runningImportTask.cancel(false);
+            return;
+        }
+
         final String FOLDERS_KEY = "bulk.import.scan.folders";
         Optional<String> savedPathsOpt = appSettingsDAO.getSetting(FOLDERS_KEY);
 
@@ -176,13 +324,15 @@ public class DataManagementController {
         // --- THIS IS THE KEY CHANGE ---
         // Create an instance of our new custom Task.
         Task<List<ImportResult>> importTask = new FolderImportTask(foldersToScan, deviceImportService);
+        runningImportTask = importTask;
+        String originalButtonText = runAutoImportButton.getText();
 
         statusLabel.textProperty().bind(importTask.messageProperty());
-        runAutoImportButton.setDisable(true);
+        runAutoImportButton.setText("Cancel Import");
 
         importTask.setOnSucceeded(e -> {
             statusLabel.textProperty().unbind();
-            runAutoImportButton.setDisable(false);
+            runAutoImportButton.setText(originalButtonText);
 
             List<ImportResult> results = importTask.getValue();
             if (results.isEmpty()) {
@@ -208,15 +358,22 @@ public class DataManagementController {
 
         importTask.setOnFailed(e -> {
             statusLabel.textProperty().unbind();
-            runAutoImportButton.setDisable(false);
+            runAutoImportButton.setText(originalButtonText);
             Throwable ex = importTask.getException();
             statusLabel.setText("Import failed. See error dialog.");
             logger.error("Automated import task failed", ex);
             StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Import Failed", "A critical error occurred: " + ex.getMessage());
         });
 
+        importTask.setOnCancelled(e -> {
+            statusLabel.textProperty().unbind();
+            runAutoImportButton.setText(originalButtonText);
+            MainViewController.getInstance().hideProgressBar();
+            statusLabel.setText("Import cancelled. Committed rows were kept and the import will resume on the next run.");
+        });
+
         MainViewController.getInstance().bindProgressBar(importTask);
-        new Thread(importTask).start();
+        BackgroundTasks.run("device-import", importTask);
     }
 
     @FXML
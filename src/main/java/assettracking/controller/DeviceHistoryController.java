@@ -1,7 +1,7 @@
 package assettracking.controller;
 
+import assettracking.dao.StatusTransitionDAO;
 import assettracking.data.DeviceStatusView;
-import assettracking.db.DatabaseConnection;
 import assettracking.manager.StageManager;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -12,14 +12,12 @@ import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class DeviceHistoryController {
 
     private final ObservableList<DeviceStatusView> historyList = FXCollections.observableArrayList();
+    private final StatusTransitionDAO statusTransitionDAO = new StatusTransitionDAO();
     @FXML
     private Label headerLabel;
     @FXML
@@ -33,6 +31,8 @@ public class DeviceHistoryController {
     @FXML
     private TableColumn<DeviceStatusView, String> lastUpdateCol;
     @FXML
+    private TableColumn<DeviceStatusView, String> changeCol;
+    @FXML
     private TableColumn<DeviceStatusView, String> notesCol;
 
     @FXML
@@ -41,6 +41,7 @@ public class DeviceHistoryController {
         statusCol.setCellValueFactory(new PropertyValueFactory<>("status"));
         subStatusCol.setCellValueFactory(new PropertyValueFactory<>("subStatus"));
         lastUpdateCol.setCellValueFactory(new PropertyValueFactory<>("lastUpdate"));
+        changeCol.setCellValueFactory(new PropertyValueFactory<>("transition"));
         notesCol.setCellValueFactory(new PropertyValueFactory<>("changeNote"));
 
         historyTable.setItems(historyList);
@@ -51,33 +52,8 @@ public class DeviceHistoryController {
     public void initData(String serialNumber) {
         headerLabel.setText("History for Serial Number: " + serialNumber);
 
-        String sql = "SELECT p.receive_date, ds.status, ds.sub_status, ds.last_update, ds.change_log " +
-                "FROM Receipt_Events re " +
-                "JOIN Packages p ON re.package_id = p.package_id " +
-                "LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id " +
-                "WHERE re.serial_number = ? " +
-                "ORDER BY re.receipt_id DESC";
-
-        try (Connection conn = DatabaseConnection.getInventoryConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, serialNumber);
-            ResultSet rs = stmt.executeQuery();
-
-            historyList.clear();
-            while (rs.next()) {
-                historyList.add(new DeviceStatusView(
-                        0,
-                        serialNumber,
-                        null, null, null,
-                        rs.getString("status"),
-                        rs.getString("sub_status"),
-                        rs.getTimestamp("last_update") != null ? rs.getTimestamp("last_update").toString().substring(0, 19) : "",
-                        rs.getString("receive_date"),
-                        rs.getString("change_log"),
-                        false
-                ));
-            }
+        try {
+            historyList.setAll(statusTransitionDAO.getDeviceHistory(serialNumber));
         } catch (SQLException e) {
             // REFACTORED: Replaced printStackTrace with a user-facing alert
             StageManager.showAlert(headerLabel.getScene().getWindow(), Alert.AlertType.ERROR, "Database Error", "Failed to load device history: " + e.getMessage());
@@ -8,6 +8,7 @@ import assettracking.db.DatabaseConnection;
 import assettracking.manager.DeviceStatusManager;
 import assettracking.manager.StageManager;
 import assettracking.manager.StatusManager;
+import assettracking.manager.ViewInvalidator;
 import assettracking.ui.DeviceStatusActions;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
@@ -28,6 +29,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -88,11 +90,13 @@ public class DeviceStatusTrackingController {
     private TextField boxIdField;
     private DeviceStatusManager deviceStatusManager;
     private DeviceStatusActions deviceStatusActions;
+    private ViewInvalidator invalidator;
 
 
     @FXML
     public void initialize() {
         this.deviceStatusManager = new DeviceStatusManager(this);
+        this.invalidator = new ViewInvalidator(ViewInvalidator.DEFAULT_INTERVAL, deviceStatusManager::resetPagination, deviceStatusManager::refreshRows);
         // --- THIS LINE IS IMPORTANT ---
         // It gets the DAO instance created by the manager
         this.deviceStatusActions = new DeviceStatusActions(this);
@@ -520,7 +524,7 @@ public class DeviceStatusTrackingController {
 
     @FXML
     private void onRefreshAction() {
-        refreshData();
+        deviceStatusManager.resetPagination();
     }
 
     @FXML
@@ -572,8 +576,18 @@ public class DeviceStatusTrackingController {
         deviceStatusActions.openScanUpdateWindow();
     }
 
+    /**
+     * Reloads the table, at most once per {@link ViewInvalidator#DEFAULT_INTERVAL} however often it is called.
+     */
     public void refreshData() {
-        deviceStatusManager.resetPagination();
+        invalidator.invalidateAll();
+    }
+
+    /**
+     * Reloads just the rows for these receipts, coalesced like {@link #refreshData()}.
+     */
+    public void refreshRows(Collection<Integer> receiptIds) {
+        invalidator.invalidate(receiptIds);
     }
 
     private Window getOwnerWindow() {
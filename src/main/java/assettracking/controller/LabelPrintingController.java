@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.SkuDAO;
 import assettracking.data.Sku;
 import assettracking.label.service.ZplPrinterService;
@@ -237,7 +238,7 @@ public class LabelPrintingController {
             printAllButton.setDisable(false);
         });
 
-        new Thread(printTask).start();
+        BackgroundTasks.runIo("label-printing", printTask);
     }
 
     private void setupMenuToggles() {
@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.manager.StageManager;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -24,6 +25,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -149,7 +151,7 @@ public class MachineRemovalController {
                     pb.command().add(source);
                 }
                 Process process = pb.start();
-                Thread outThread = new Thread(() -> {
+                FutureTask<Void> outReader = new FutureTask<>(() -> {
                     try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                         String line;
                         while ((line = br.readLine()) != null) {
@@ -159,8 +161,8 @@ public class MachineRemovalController {
                     } catch (IOException ioe) {
                         Platform.runLater(() -> writeLog("ERROR", "Failed reading process output: " + ioe.getMessage()));
                     }
-                });
-                Thread errThread = new Thread(() -> {
+                }, null);
+                FutureTask<Void> errReader = new FutureTask<>(() -> {
                     try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
                         String line;
                         while ((line = br.readLine()) != null) {
@@ -170,12 +172,12 @@ public class MachineRemovalController {
                     } catch (IOException ioe) {
                         Platform.runLater(() -> writeLog("ERROR", "Failed reading process error: " + ioe.getMessage()));
                     }
-                });
-                outThread.start();
-                errThread.start();
+                }, null);
+                BackgroundTasks.runIo("machine-removal-stdout", outReader);
+                BackgroundTasks.runIo("machine-removal-stderr", errReader);
                 process.waitFor();
-                outThread.join();
-                errThread.join();
+                outReader.get();
+                errReader.get();
                 Files.delete(scriptPath);
                 return null;
             }
@@ -224,7 +226,7 @@ public class MachineRemovalController {
                 });
             }
         };
-        new Thread(task).start();
+        BackgroundTasks.runIo("machine-removal", task);
     }
 
     // --- THIS IS THE CORRECTED LOGIC (Part 2) ---
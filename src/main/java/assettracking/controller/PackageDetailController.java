@@ -4,6 +4,7 @@ import assettracking.data.DeviceStatusView;
 import assettracking.data.Package;
 import assettracking.db.DatabaseConnection;
 import assettracking.manager.StageManager;
+import assettracking.manager.ViewInvalidator;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -27,6 +28,8 @@ import java.sql.SQLException;
 public class PackageDetailController {
 
     private final ObservableList<DeviceStatusView> assetsList = FXCollections.observableArrayList();
+    // Bulk intake saves one device at a time; reload the list at most once per interval while it runs.
+    private final ViewInvalidator invalidator = new ViewInvalidator(this::loadData);
     @FXML
     private Label trackingNumberLabel;
     @FXML
@@ -64,7 +67,7 @@ public class PackageDetailController {
     }
 
     public void refreshData() {
-        loadData();
+        invalidator.invalidateAll();
     }
 
     private void loadData() {
@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.PackageDAO;
 import assettracking.data.Package;
 import assettracking.db.DatabaseConnection;
@@ -125,7 +126,7 @@ public class PackageManagementController {
         });
 
         countTask.setOnFailed(e -> Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to count packages.")));
-        new Thread(countTask).start();
+        BackgroundTasks.run("package-count", countTask);
     }
 
     private void updateTableForPage(int pageIndex) {
@@ -142,7 +143,7 @@ public class PackageManagementController {
 
         fetchTask.setOnSucceeded(e -> packageList.setAll(fetchTask.getValue()));
         fetchTask.setOnFailed(e -> Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to load package data.")));
-        new Thread(fetchTask).start();
+        BackgroundTasks.run("package-page-load", fetchTask);
     }
 
     @FXML
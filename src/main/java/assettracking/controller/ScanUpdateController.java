@@ -1,5 +1,7 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
+import assettracking.dao.DeviceStatusVersionDAO.ApplyResult;
 import assettracking.dao.PackageDAO;
 import assettracking.dao.SkuDAO;
 import assettracking.data.AssetEntry;
@@ -10,6 +12,7 @@ import assettracking.manager.ScanResultManager;
 import assettracking.manager.ScanUpdateService;
 import assettracking.manager.StageManager;
 import assettracking.manager.StatusManager;
+import assettracking.ui.BarcodeWedgeInput;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -74,6 +77,7 @@ public class ScanUpdateController {
     @FXML
     private ComboBox<String> labelPrinterCombo;
     private DeviceStatusTrackingController parentController;
+    private BarcodeWedgeInput<QueuedScan> scannerInput;
 
     public void setParentController(DeviceStatusTrackingController parentController) {
         this.parentController = parentController;
@@ -86,11 +90,13 @@ public class ScanUpdateController {
         setupSkuSearch();
         populatePrinters(); // <-- ADD THIS
         clearSkuButton.setOnAction(e -> selectedSkuField.clear()); // Add this line
+        scannerInput = new BarcodeWedgeInput<>(scanSerialField, this::captureScan, this::processScan);
 
 
         // Add listeners to re-evaluate the UI state
         disposalLocationField.textProperty().addListener((obs, oldText, newText) -> updateUiForStatusChange());
         printLabelsToggle.selectedProperty().addListener((obs, wasSelected, isSelected) -> updateUiForStatusChange());
+        labelPrinterCombo.valueProperty().addListener((obs, oldPrinter, printer) -> retryHeldScans());
 
         updateUiForStatusChange(); // Initial UI setup
     }
@@ -125,6 +131,7 @@ public class ScanUpdateController {
                     skuSearchField.clear();
                     skuListView.getItems().clear();
                     scanSerialField.requestFocus();
+                    retryHeldScans();
                 });
             }
         });
@@ -136,88 +143,108 @@ public class ScanUpdateController {
         return input.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
     }
 
+    /**
+     * Enter typed by hand in the serial field. Scanner input is picked up by {@link BarcodeWedgeInput} and never
+     * reaches this. Enter on an empty field retries scans held back by a missing setting.
+     */
     @FXML
     private void onSerialScanned() {
         String serial = sanitizeSerialNumber(scanSerialField.getText());
-        scanSerialField.setText(serial);
-        if (serial.isEmpty()) return;
+        scanSerialField.clear();
+        if (serial.isEmpty()) {
+            scannerInput.resume();
+            return;
+        }
+        scannerInput.submit(serial);
+    }
 
-        String skuToPrint = selectedSkuField.getText().trim();
-        String printerName = labelPrinterCombo.getValue();
+    /**
+     * Records a scanned code with the status, note and label settings selected when it was scanned, which are what
+     * it is applied with even if it waits in the buffer while they change.
+     */
+    private QueuedScan captureScan(String scanned) {
+        return new QueuedScan(sanitizeSerialNumber(scanned), statusCombo.getValue(), subStatusCombo.getValue(),
+                changeLogField.getText().trim(), disposalLocationField.getText().trim(),
+                printLabelsToggle.isVisible() && printLabelsToggle.isSelected(), selectedSkuField.getText().trim(), labelPrinterCombo.getValue());
+    }
 
-        if (printLabelsToggle.isVisible() && printLabelsToggle.isSelected()) {
-            if (printerName == null || printerName.isEmpty()) {
-                showAlert("Printer Not Selected", "A printer must be selected from the list to print labels.");
-                labelPrinterCombo.requestFocus();
-                return;
+    /**
+     * Submits one scan from the scanner buffer, in scan order. Returns false, holding it and later scans back, if
+     * a setting the scan needs was missing when it was scanned and still is; once it has been filled in, the held
+     * scan takes it.
+     */
+    private boolean processScan(QueuedScan queued) {
+        if (queued.serial().isEmpty()) return true;
+        QueuedScan scan = queued.withMissingSettingsFrom(captureScan(queued.serial()));
+        String serial = scan.serial();
+
+        if (scan.printLabels()) {
+            if (scan.printer() == null || scan.printer().isEmpty()) {
+                return holdScans("Printer Not Selected", "A printer must be selected from the list to print labels.", labelPrinterCombo);
             }
-            if (skuToPrint.isEmpty()) {
-                showAlert("SKU Required", "A SKU must be selected from the list before printing labels.");
-                skuSearchField.requestFocus();
-                return;
+            if (scan.sku().isEmpty()) {
+                return holdScans("SKU Required", "A SKU must be selected from the list before printing labels.", skuSearchField);
             }
         }
 
-        String newStatus = statusCombo.getValue();
-        String newSubStatus = subStatusCombo.getValue();
-        String boxId = disposalLocationField.getText().trim();
-
-        if ("Disposed".equals(newStatus) && !"Ready for Wipe".equals(newSubStatus) && boxId.isEmpty()) {
-            showAlert("Box ID Required", "A Box ID must be entered for this disposed status.");
-            disposalLocationField.requestFocus();
-            return;
+        if (scan.needsBoxId() && scan.boxId().isEmpty()) {
+            return holdScans("Box ID Required", "A Box ID must be entered for this disposed status.", disposalLocationField);
         }
 
-        String finalNote = changeLogField.getText().trim();
-
         setFeedback("Processing " + serial + "...", Color.BLUE);
 
-        Task<ScanUpdateService.UpdateResult> updateTask = new Task<>() {
-            @Override
-            protected ScanUpdateService.UpdateResult call() throws Exception {
-                return updateService.updateBySerial(serial, newStatus, newSubStatus, finalNote, boxId);
-            }
-        };
+        // The field stays free for the next scan; the workstation's scan writer commits scans in small batches
+        // and each outcome is reported when its batch commits.
+        scanSerialField.requestFocus();
 
-        updateTask.setOnSucceeded(event -> {
-            // --- THIS IS THE FIX ---
+        updateService.submitUpdate(serial, scan.status(), scan.subStatus(), scan.note(), scan.boxId()).whenComplete((outcome, error) -> Platform.runLater(() -> {
             // Before updating UI, check if the window still exists.
             if (scanSerialField.getScene() == null || scanSerialField.getScene().getWindow() == null) {
                 return; // The window was closed, so do nothing.
             }
-            // --- END OF FIX ---
 
-            switch (updateTask.getValue()) {
+            if (error != null) {
+                setFeedback("DB Error: " + error.getMessage(), Color.RED);
+                resultManager.addFailure(serial, "Database Error");
+                return;
+            }
+            switch (outcome.result()) {
                 case SUCCESS:
                     setFeedback("✓ Success: " + serial, Color.GREEN);
-                    resultManager.addSuccess(serial, newStatus + " / " + newSubStatus);
-                    if (parentController != null) parentController.refreshData();
-                    if (printLabelsToggle.isVisible() && printLabelsToggle.isSelected()) {
-                        printDeploymentLabels(serial, skuToPrint, printerName);
+                    resultManager.addSuccess(serial, scan.status() + " / " + scan.subStatus());
+                    if (parentController != null) parentController.refreshRows(List.of(outcome.receiptId()));
+                    if (scan.printLabels()) {
+                        printDeploymentLabels(serial, scan.sku(), scan.printer());
                     }
                     break;
                 case NOT_FOUND:
                     setFeedback("✗ Not Found: " + serial, Color.RED);
                     resultManager.addFailure(serial, "Not Found in Database");
                     break;
+                case CONFLICT:
+                    setFeedback("✗ Conflict: " + serial, Color.RED);
+                    resultManager.addFailure(serial, outcome.detail());
+                    break;
             }
-            scanSerialField.clear();
-            scanSerialField.requestFocus();
-        });
-
-        updateTask.setOnFailed(event -> {
-            // --- THIS IS THE FIX ---
-            // Also add the check to the failure handler.
-            if (scanSerialField.getScene() == null || scanSerialField.getScene().getWindow() == null) {
-                return; // The window was closed, so do nothing.
-            }
-            // --- END OF FIX ---
+        }));
+        return true;
+    }
 
-            setFeedback("DB Error: " + updateTask.getException().getMessage(), Color.RED);
-            resultManager.addFailure(serial, "Database Error");
-        });
+    // A printer, SKU or Box ID has just been chosen; held scans that were waiting for it can go.
+    private void retryHeldScans() {
+        if (scannerInput.isHeld()) {
+            scannerInput.resume();
+        }
+    }
 
-        new Thread(updateTask).start();
+    // Alerts only when scans are first held; a retry that is still missing the setting just says so again.
+    private boolean holdScans(String title, String content, Control missingSetting) {
+        if (!scannerInput.isHeld()) {
+            showAlert(title, content);
+        }
+        missingSetting.requestFocus();
+        setFeedback("Scanning paused: " + content + " Press Enter in the serial field to submit held scans.", Color.ORANGE);
+        return false;
     }
 
     private void updateUiForStatusChange() {
@@ -333,7 +360,7 @@ public class ScanUpdateController {
         });
 
         findDevicesTask.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Database Error", "Failed to query devices by location: " + e.getSource().getException().getMessage()));
-        new Thread(findDevicesTask).start();
+        BackgroundTasks.run("scan-update-find-by-location", findDevicesTask);
     }
 
     private void confirmAndPerformBulkUpdate(List<Integer> receiptIds, String location) {
@@ -345,21 +372,27 @@ public class ScanUpdateController {
         String content = String.format("You are about to update %d device(s) to:%nStatus: %s%nSub-Status: %s%nThis action cannot be undone.", receiptIds.size(), newStatus, newSubStatus);
 
         if (StageManager.showConfirmationDialog(getStage(), "Confirm Bulk Update", header, content)) {
-            Task<Integer> bulkUpdateTask = new Task<>() {
+            Task<ApplyResult> bulkUpdateTask = new Task<>() {
                 @Override
-                protected Integer call() throws Exception {
+                protected ApplyResult call() throws Exception {
                     return updateService.updateByReceiptIds(receiptIds, newStatus, newSubStatus, finalNote);
                 }
             };
             bulkUpdateTask.setOnSucceeded(e -> {
-                int count = bulkUpdateTask.getValue();
+                ApplyResult result = bulkUpdateTask.getValue();
+                int count = result.writtenCount();
                 setFeedback(String.format("✓ Successfully updated %d devices in '%s'.", count, location), Color.GREEN); // Checkmark ✓
                 resultManager.addSuccess("Box ID: " + location, String.format("Updated %d devices", count));
-                if (parentController != null) parentController.refreshData();
+                result.conflicts().forEach(row -> resultManager.addFailure(row.serialNumber(), row.detail()));
+                if (!result.conflicts().isEmpty()) {
+                    StageManager.showAlert(getStage(), Alert.AlertType.WARNING, "Some Devices Not Updated",
+                            "These devices were being changed on another workstation at the same time and were left as they are:\n" + result.describeConflicts());
+                }
+                if (parentController != null) parentController.refreshRows(receiptIds);
                 scanLocationField.clear();
             });
             bulkUpdateTask.setOnFailed(e -> setFeedback("✖ Bulk update failed: " + e.getSource().getException().getMessage(), Color.RED)); // X mark ✗
-            new Thread(bulkUpdateTask).start();
+            BackgroundTasks.run("scan-update-bulk-location", bulkUpdateTask);
         }
     }
 
@@ -428,6 +461,7 @@ public class ScanUpdateController {
     @FXML
     private void onBoxIdScanned() {
         scanSerialField.requestFocus();
+        retryHeldScans();
     }
 
     @FXML
@@ -471,4 +505,28 @@ public class ScanUpdateController {
             return timestamp.get();
         }
     }
+
+    /**
+     * A scanned serial with the settings in effect when it was scanned.
+     *
+     * @param printLabels Whether labels were to be printed, which only applies to Ready for Deployment.
+     */
+    private record QueuedScan(String serial, String status, String subStatus, String note, String boxId,
+                              boolean printLabels, String sku, String printer) {
+
+        boolean needsBoxId() {
+            return "Disposed".equals(status) && !"Ready for Wipe".equals(subStatus);
+        }
+
+        /**
+         * Fills in a Box ID, SKU or printer this scan needed but didn't have from {@code current}, for a scan that
+         * was held until the user supplied them. Everything it did have is kept.
+         */
+        QueuedScan withMissingSettingsFrom(QueuedScan current) {
+            String filledBoxId = needsBoxId() && boxId.isEmpty() ? current.boxId() : boxId;
+            String filledSku = printLabels && sku.isEmpty() ? current.sku() : sku;
+            String filledPrinter = printLabels && (printer == null || printer.isEmpty()) ? current.printer() : printer;
+            return new QueuedScan(serial, status, subStatus, note, filledBoxId, printLabels, filledSku, filledPrinter);
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.SkuDAO;
 import assettracking.data.Sku;
 import assettracking.manager.StageManager;
@@ -107,7 +108,7 @@ public class SkuManagementController {
             handleNew();
         }));
         loadSkusTask.setOnFailed(e -> Platform.runLater(() -> statusLabel.setText("Error: Failed to load SKU data.")));
-        new Thread(loadSkusTask).start();
+        BackgroundTasks.run("sku-load", loadSkusTask);
     }
 
     private void populateForm(Sku sku) {
@@ -1,5 +1,6 @@
 package assettracking.controller.handler;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.controller.AddAssetDialogController;
 import assettracking.controller.MonitorDisposalDialogController;
 import assettracking.data.AssetInfo;
@@ -50,7 +51,7 @@ public class MonitorIntakeHandler {
             if (controller.getParentController() != null) controller.getParentController().refreshData();
         });
         task.setOnFailed(e -> controller.updateMonitorFeedback("Error: " + e.getSource().getException().getMessage()));
-        new Thread(task).start();
+        BackgroundTasks.run("monitor-intake", task);
     }
 
     public void handleBrokenButton() {
@@ -139,7 +140,7 @@ public class MonitorIntakeHandler {
             if (controller.getParentController() != null) controller.getParentController().refreshData();
         });
         task.setOnFailed(e -> controller.updateMonitorFeedback("Error: " + e.getSource().getException().getMessage()));
-        new Thread(task).start();
+        BackgroundTasks.run("monitor-intake", task);
     }
 
     private void showAlert(String title, String content) {
@@ -1,5 +1,6 @@
 package assettracking.controller.handler;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.controller.AddAssetDialogController;
 import assettracking.controller.MachineRemovalSelectionController;
 import assettracking.dao.FlaggedDeviceDAO;
@@ -155,7 +156,7 @@ public class StandardIntakeHandler {
             StageManager.showAlert(controller.getOwnerWindow(), Alert.AlertType.ERROR, "Save Failed", errorMessage);
             controller.disableSaveButton(false);
         });
-        new Thread(saveTask).start();
+        BackgroundTasks.run("standard-intake-save", saveTask);
     }
 
     public void applyMelRule(String modelNumber, String description) {
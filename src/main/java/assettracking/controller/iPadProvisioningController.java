@@ -1,5 +1,6 @@
 package assettracking.controller;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.dao.bulk.iPadProvisioningDAO;
 import assettracking.data.bulk.BulkDevice;
 import assettracking.data.bulk.RosterEntry;
@@ -223,7 +224,7 @@ public class iPadProvisioningController {
                 updateWorkflowControls();
             }
         });
-        new Thread(dbCheckTask).start();
+        BackgroundTasks.run("ipad-device-count", dbCheckTask);
     }
 
     private void updateWorkflowControls() {
@@ -265,7 +266,7 @@ public class iPadProvisioningController {
             updateWorkflowControls();
         });
         importTask.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Import Error", "Failed to process device file: " + importTask.getException().getMessage()));
-        new Thread(importTask).start();
+        BackgroundTasks.run("ipad-device-list-import", importTask);
     }
 
     @FXML
@@ -287,7 +288,7 @@ public class iPadProvisioningController {
             updateWorkflowControls();
         });
         importTask.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Import Error", "Failed to read roster file: " + importTask.getException().getMessage()));
-        new Thread(importTask).start();
+        BackgroundTasks.runIo("ipad-roster-import", importTask);
     }
 
     @FXML
@@ -379,7 +380,7 @@ public class iPadProvisioningController {
                         }
                     });
 
-                    new Thread(saveTask).start();
+                    BackgroundTasks.run("ipad-save-staged", saveTask);
                     // --- END OF FIX ---
                 }
             });
@@ -413,7 +414,7 @@ public class iPadProvisioningController {
             statusLabel.setText("Export complete.");
         });
         exportTask.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Export Error", "An error occurred: " + e.getSource().getException().getMessage()));
-        new Thread(exportTask).start();
+        BackgroundTasks.run("ipad-export", exportTask);
     }
 
     @FXML
@@ -434,7 +435,7 @@ public class iPadProvisioningController {
             statusLabel.setText("Found " + dbDeviceList.size() + " devices in DB.");
         });
         searchTask.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "DB Search Error", "Failed to search devices: " + searchTask.getException().getMessage()));
-        new Thread(searchTask).start();
+        BackgroundTasks.run("ipad-device-search", searchTask);
     }
 
     @FXML
@@ -484,7 +485,7 @@ public class iPadProvisioningController {
         };
         updateTask.setOnSucceeded(e -> statusLabel.setText("Updated SIM in DB for " + serialNumber));
         updateTask.setOnFailed(e -> StageManager.showAlert(getStage(), Alert.AlertType.ERROR, "Database Error", "Failed to update SIM in DB: " + updateTask.getException().getMessage()));
-        new Thread(updateTask).start();
+        BackgroundTasks.run("ipad-sim-update", updateTask);
     }
 
     private File showFileChooser(String title) {
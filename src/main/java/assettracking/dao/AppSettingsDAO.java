@@ -51,4 +51,20 @@ public class AppSettingsDAO {
             System.err.println("Database error while saving setting '" + key + "': " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Removes a setting from the database. Does nothing if the key does not exist.
+     *
+     * @param key The name of the setting to remove.
+     */
+    public void deleteSetting(String key) {
+        String sql = "DELETE FROM AppSettings WHERE setting_key = ?";
+        try (Connection conn = DatabaseConnection.getInventoryConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, key);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Database error while deleting setting '" + key + "': " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package assettracking.dao;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.data.AssetInfo;
 import assettracking.data.MelRule;
 import assettracking.db.DatabaseConnection;
@@ -202,7 +203,7 @@ public class AssetDAO {
     }
 
     public CompletableFuture<List<AssetInfo>> getAllAutofillEntries() {
-        return CompletableFuture.supplyAsync(() -> {
+        return BackgroundTasks.supply("load-autofill-entries", () -> {
             List<AssetInfo> entries = new ArrayList<>();
             String sql = "SELECT * FROM device_autofill_data ORDER BY serial_number";
             try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
@@ -224,7 +225,7 @@ public class AssetDAO {
     }
 
     public CompletableFuture<Boolean> addAutofillEntry(AssetInfo asset) {
-        return CompletableFuture.supplyAsync(() -> {
+        return BackgroundTasks.supply("add-autofill-entry", () -> {
             String sql = "INSERT INTO device_autofill_data (serial_number, make, part_number, description, category) VALUES (?, ?, ?, ?, ?)";
             try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, asset.getSerialNumber());
@@ -240,7 +241,7 @@ public class AssetDAO {
     }
 
     public CompletableFuture<Boolean> updateAutofillEntry(AssetInfo asset) {
-        return CompletableFuture.supplyAsync(() -> {
+        return BackgroundTasks.supply("update-autofill-entry", () -> {
             String sql = "UPDATE device_autofill_data SET make = ?, part_number = ?, description = ?, category = ? WHERE serial_number = ?";
             try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, asset.getMake());
@@ -256,7 +257,7 @@ public class AssetDAO {
     }
 
     public CompletableFuture<Boolean> deleteAutofillEntry(String serialNumber) {
-        return CompletableFuture.supplyAsync(() -> {
+        return BackgroundTasks.supply("delete-autofill-entry", () -> {
             String sql = "DELETE FROM device_autofill_data WHERE serial_number = ?";
             try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, serialNumber);
@@ -0,0 +1,176 @@
+package assettracking.dao;
+
+import assettracking.data.DeviceClass;
+import assettracking.db.CategoryIdTrigger;
+import assettracking.db.DatabaseConnection;
+import assettracking.db.Upserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Owns the normalized category dimension.
+ * <p>
+ * Category holds one row per canonical code with its display name and {@link DeviceClass}. Category_Alias maps every
+ * legacy free-text spelling seen in Receipt_Events, Physical_Assets and SKU_Table to its category. Each of those
+ * tables gets an indexed {@code category_id}, stamped by {@link CategoryIdTrigger} on insert and update, so
+ * filters and groupings can compare integers instead of matching text.
+ */
+public class CategoryDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryDAO.class);
+    private static final String TRIGGER_CLASS = CategoryIdTrigger.class.getName();
+    private static final List<String> FACT_TABLES = List.of("Receipt_Events", "Physical_Assets", "SKU_Table");
+
+    static final SchemaInstaller schema = new SchemaInstaller(logger, "Category dimension unavailable.", () -> new CategoryDAO().install());
+
+    /**
+     * Trimmed, upper-cased, with runs of whitespace collapsed: "Laptop ", "laptop" and "LAPTOP" share one code.
+     */
+    public static String canonicalCode(String category) {
+        return category.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the category id for a legacy category string, creating the category and alias on first sight.
+     * Runs on the caller's connection and transaction, which is how the trigger uses it.
+     *
+     * @return The id, or null for a blank category.
+     */
+    public static Integer resolveCategoryId(Connection conn, String legacyName) throws SQLException {
+        if (legacyName == null || legacyName.isBlank()) {
+            return null;
+        }
+        Integer id = queryId(conn, "SELECT category_id FROM Category_Alias WHERE legacy_name = ?", legacyName);
+        if (id != null) {
+            return id;
+        }
+
+        String code = canonicalCode(legacyName);
+        id = queryId(conn, "SELECT category_id FROM Category WHERE code = ?", code);
+        if (id == null) {
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO Category (code, name, device_class) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, code);
+                stmt.setString(2, legacyName.trim());
+                stmt.setString(3, DeviceClass.classify(code).name());
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys.next()) id = keys.getInt(1);
+                }
+            } catch (SQLException e) {
+                if (!Upserts.isDuplicateKey(e)) throw e;
+                // Another workstation created it first.
+            }
+            if (id == null) {
+                id = queryId(conn, "SELECT category_id FROM Category WHERE code = ?", code);
+            }
+        }
+
+        Upserts.insertIfAbsent(conn, "INSERT INTO Category_Alias (legacy_name, category_id) VALUES (?, ?)", legacyName, id);
+        return id;
+    }
+
+    /**
+     * @return True if the dimension, the {@code category_id} columns and their triggers are in place. They are
+     * installed by {@link SchemaVersionDAO}, which backfills existing rows when the triggers are new.
+     */
+    public boolean isInstalled() {
+        return schema.isInstalled();
+    }
+
+    private void install() throws SQLException {
+        if (!createSchema()) {
+            logger.info("Category triggers installed; backfilling category ids.");
+            backfill();
+        }
+    }
+
+    /**
+     * Maps every distinct category string to its category and stamps {@code category_id} on rows that lack one.
+     *
+     * @return The number of fact rows updated.
+     */
+    public int backfill() throws SQLException {
+        String distinctSql = String.join(" UNION ", FACT_TABLES.stream()
+                .map(table -> "SELECT DISTINCT category FROM " + table + " WHERE category IS NOT NULL")
+                .toList());
+
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                List<String> categories = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery(distinctSql)) {
+                    while (rs.next()) categories.add(rs.getString(1));
+                }
+                for (String category : categories) {
+                    resolveCategoryId(conn, category);
+                }
+
+                int rows = 0;
+                for (String table : FACT_TABLES) {
+                    rows += stmt.executeUpdate("UPDATE " + table + " t SET category_id = (SELECT a.category_id FROM Category_Alias a WHERE a.legacy_name = t.category) "
+                            + "WHERE t.category_id IS NULL AND t.category IS NOT NULL");
+                }
+                conn.commit();
+                logger.info("Backfilled category ids: {} categories seen, {} rows stamped.", categories.size(), rows);
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * @return true if all the triggers were already in place before this call.
+     */
+    private boolean createSchema() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Category (
+                        category_id INT AUTO_INCREMENT PRIMARY KEY, code VARCHAR NOT NULL UNIQUE, name VARCHAR NOT NULL,
+                        device_class VARCHAR(16) NOT NULL)
+                    """);
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Category_Alias (
+                        legacy_name VARCHAR PRIMARY KEY, category_id INT NOT NULL REFERENCES Category (category_id))
+                    """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_category_device_class ON Category (device_class)");
+
+            int existingTriggers;
+            String triggerNames = String.join(", ", FACT_TABLES.stream().map(table -> "'" + triggerName(table).toUpperCase(Locale.ROOT) + "'").toList());
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_NAME IN (" + triggerNames + ")")) {
+                existingTriggers = rs.next() ? rs.getInt(1) : 0;
+            }
+            for (String table : FACT_TABLES) {
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS category_id INT");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table.toLowerCase(Locale.ROOT) + "_category_id ON " + table + " (category_id)");
+                stmt.execute("CREATE TRIGGER IF NOT EXISTS " + triggerName(table) + " BEFORE INSERT, UPDATE ON " + table + " FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+            }
+            return existingTriggers == FACT_TABLES.size();
+        }
+    }
+
+    private static String triggerName(String table) {
+        return table + "_Category_Id";
+    }
+
+    private static Integer queryId(Connection conn, String sql, String value) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, value);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package assettracking.dao;
+
+import assettracking.data.ChangeRecord;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * A reader's position in Change_Log that doesn't skip late commits. Change ids are handed out when a change is
+ * written, not when its transaction commits, so a reader can see id 12 before id 11 commits. The cursor therefore
+ * reads on from the lowest id it may still be missing and drops the changes it has already delivered. An id that
+ * is still missing after {@link ChangeLogDAO#LATE_COMMIT_WINDOW} belonged to a rolled-back change and is skipped.
+ * <p>
+ * Not thread-safe; each reader keeps its own.
+ */
+public final class ChangeCursor {
+
+    private final long windowNanos;
+    // Every id up to the floor has been delivered or given up on.
+    private long floor;
+    private final NavigableSet<Long> deliveredAboveFloor = new TreeSet<>();
+    // When the gap just above the floor was first seen, or -1 if there is none.
+    private long gapSinceNanos = -1;
+
+    /**
+     * @param settledId An id below which every change is known to have committed or rolled back.
+     */
+    public ChangeCursor(long settledId) {
+        this(settledId, ChangeLogDAO.LATE_COMMIT_WINDOW);
+    }
+
+    ChangeCursor(long settledId, Duration lateCommitWindow) {
+        this.floor = settledId;
+        this.windowNanos = lateCommitWindow.toNanos();
+    }
+
+    /**
+     * @return Read changes with an id greater than this.
+     */
+    public long floor() {
+        return floor;
+    }
+
+    /**
+     * Takes a batch read from {@link #floor()} onwards, oldest first.
+     *
+     * @return The changes in the batch that haven't been delivered before.
+     */
+    public List<ChangeRecord> accept(List<ChangeRecord> changes, long nowNanos) {
+        List<ChangeRecord> fresh = new ArrayList<>();
+        for (ChangeRecord change : changes) {
+            if (change.changeId() > floor && deliveredAboveFloor.add(change.changeId())) {
+                fresh.add(change);
+            }
+        }
+        advance(nowNanos);
+        return fresh;
+    }
+
+    /**
+     * Marks changes as delivered without looking at them, after the reader has refreshed everything instead.
+     */
+    public void acceptIds(long[] changeIds, long nowNanos) {
+        for (long changeId : changeIds) {
+            if (changeId > floor) {
+                deliveredAboveFloor.add(changeId);
+            }
+        }
+        advance(nowNanos);
+    }
+
+    private void advance(long nowNanos) {
+        while (true) {
+            while (!deliveredAboveFloor.isEmpty() && deliveredAboveFloor.first() == floor + 1) {
+                floor = deliveredAboveFloor.pollFirst();
+                gapSinceNanos = -1;
+            }
+            if (deliveredAboveFloor.isEmpty()) {
+                gapSinceNanos = -1;
+                return;
+            }
+            if (gapSinceNanos < 0) {
+                gapSinceNanos = nowNanos;
+            }
+            if (nowNanos - gapSinceNanos < windowNanos) {
+                return;
+            }
+            // Rolled back: move past the gap, and time the next one from now.
+            floor = deliveredAboveFloor.first() - 1;
+            gapSinceNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package assettracking.dao;
+
+import assettracking.data.ChangeRecord;
+import assettracking.db.ChangeLogTrigger;
+import assettracking.db.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns Change_Log, the append-only record of row changes to Receipt_Events and Device_Status written by
+ * {@link ChangeLogTrigger}. Readers keep a {@link ChangeCursor} and ask for anything after it, which is a
+ * primary-key range scan that returns nothing when the data hasn't changed.
+ */
+public class ChangeLogDAO {
+
+    public static final String RECEIPT_EVENTS = "Receipt_Events";
+    public static final String DEVICE_STATUS = "Device_Status";
+    /**
+     * How long a writer's transaction may stay open. A change's changed_at is when its transaction started, so a
+     * change that commits after a reader looked can carry a lower id and an earlier time than ones the reader has
+     * already seen; readers that must not miss it look this far back again.
+     */
+    public static final Duration LATE_COMMIT_WINDOW = Duration.ofMinutes(2);
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogDAO.class);
+    private static final String TRIGGER_CLASS = ChangeLogTrigger.class.getName();
+    private static final int RETENTION_HOURS = 24;
+
+    static final SchemaInstaller schema = new SchemaInstaller(logger, "Change log unavailable; the dashboard will not update by itself.", () -> new ChangeLogDAO().install());
+
+    /**
+     * @return True if the log and its triggers are in place. When they aren't, nothing is logged and readers should
+     * not poll.
+     */
+    public boolean isInstalled() {
+        return schema.isInstalled();
+    }
+
+    private void install() throws SQLException {
+        // The receipt trigger records category_id.
+        if (!CategoryDAO.schema.install()) {
+            throw new SQLException("The category dimension is not available.");
+        }
+        createSchema();
+        prune();
+    }
+
+    /**
+     * A value that changes whenever a change is logged or pruned, including a change that commits late with a
+     * lower id than ones already visible, which moving the newest id alone would miss.
+     */
+    public Version getVersion() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MIN(change_id), 0), COALESCE(MAX(change_id), 0), COUNT(*) FROM Change_Log")) {
+            rs.next();
+            return new Version(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+        }
+    }
+
+    /**
+     * @return The newest change logged more than {@link #LATE_COMMIT_WINDOW} ago. Every change up to it has
+     * committed or rolled back, so a {@link ChangeCursor} can start there.
+     */
+    public long getSettledChangeId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(change_id), 0) FROM Change_Log WHERE changed_at < DATEADD('SECOND', -?, CURRENT_TIMESTAMP)";
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, LATE_COMMIT_WINDOW.toSeconds());
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of every change after {@code afterId}, oldest first, without the change details.
+     */
+    public long[] getChangeIdsAfter(long afterId) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement("SELECT change_id FROM Change_Log WHERE change_id > ? ORDER BY change_id")) {
+            stmt.setLong(1, afterId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Returns up to {@code limit} changes with an id greater than {@code afterId}, oldest first.
+     */
+    public List<ChangeRecord> getChangesAfter(long afterId, int limit) throws SQLException {
+        String sql = "SELECT change_id, source_table, operation, row_key, old_status, new_status, category_id FROM Change_Log WHERE change_id > ? ORDER BY change_id LIMIT ?";
+        List<ChangeRecord> changes = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Object categoryId = rs.getObject("category_id");
+                    changes.add(new ChangeRecord(rs.getLong("change_id"), rs.getString("source_table"), rs.getString("operation"), rs.getLong("row_key"),
+                            rs.getString("old_status"), rs.getString("new_status"), categoryId == null ? null : rs.getInt("category_id")));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Deletes changes older than a day. Readers that fall further behind than that refresh everything anyway.
+     *
+     * @return The number of changes deleted.
+     */
+    public int prune() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate("DELETE FROM Change_Log WHERE changed_at < DATEADD('HOUR', -" + RETENTION_HOURS + ", CURRENT_TIMESTAMP)");
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Change_Log (
+                        change_id BIGINT AUTO_INCREMENT PRIMARY KEY, changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+                        source_table VARCHAR(16) NOT NULL, operation CHAR(1) NOT NULL, row_key BIGINT,
+                        old_status VARCHAR, new_status VARCHAR, category_id INT)
+                    """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_change_log_changed_at ON Change_Log (changed_at)");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Receipt_Events_Change_Log AFTER INSERT, UPDATE, DELETE ON Receipt_Events FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Device_Status_Change_Log AFTER INSERT, UPDATE, DELETE ON Device_Status FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+        }
+    }
+
+    /**
+     * See {@link #getVersion()}. Equal versions mean no change has been logged or pruned in between.
+     */
+    public record Version(long oldestId, long newestId, long count) {
+    }
+}
@@ -0,0 +1,127 @@
+package assettracking.dao;
+
+import assettracking.db.DailyRollupTrigger;
+import assettracking.db.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Owns the dashboard's pre-aggregated daily rollups.
+ * <p>
+ * Daily_Intake_Rollup counts receipts by (receive day, category id, model). Daily_Status_Rollup counts status rows
+ * by (last update day, status, category id, model, latest receipt for the serial). Both are kept current by
+ * {@link DailyRollupTrigger} and can be rebuilt from history at any time. They are keyed by the {@link CategoryDAO}
+ * dimension, so that is installed first.
+ */
+public class DailyRollupDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyRollupDAO.class);
+    private static final String TRIGGER_CLASS = DailyRollupTrigger.class.getName();
+    private static final String LATEST_RECEIPT_SUBQUERY = "SELECT serial_number, MAX(receipt_id) as max_receipt_id FROM Receipt_Events GROUP BY serial_number";
+
+    static final SchemaInstaller schema = new SchemaInstaller(logger, "Daily rollups unavailable; the dashboard will aggregate the base tables instead.", () -> new DailyRollupDAO().install());
+
+    /**
+     * @return True if the rollup tables and triggers are in place. They are installed by {@link SchemaVersionDAO},
+     * which backfills them when the triggers are new. When they aren't (e.g. the database user can't create
+     * triggers), callers should query the base tables directly.
+     */
+    public boolean isInstalled() {
+        return schema.isInstalled();
+    }
+
+    private void install() throws SQLException {
+        if (!CategoryDAO.schema.install()) {
+            throw new SQLException("The category dimension is not available.");
+        }
+        boolean triggersExisted = createSchema();
+        if (!triggersExisted) {
+            logger.info("Daily rollup triggers installed; backfilling from history.");
+            rebuildFromHistory();
+        }
+    }
+
+    /**
+     * Throws the rollups away and recomputes them from Receipt_Events, Packages and Device_Status in one
+     * transaction. Use after bulk repairs or if the rollups are ever suspected to have drifted.
+     *
+     * @return The number of rollup rows written.
+     */
+    public int rebuildFromHistory() throws SQLException {
+        String intakeSql = """
+                INSERT INTO Daily_Intake_Rollup (rollup_day, category_id, model_number, device_count)
+                SELECT rollup_day, category_id, model_number, COUNT(*) FROM (
+                    SELECT CAST(p.receive_date AS DATE) AS rollup_day, COALESCE(re.category_id, 0) AS category_id, COALESCE(re.model_number, '') AS model_number
+                    FROM Receipt_Events re
+                    JOIN Packages p ON re.package_id = p.package_id
+                    WHERE p.receive_date IS NOT NULL
+                ) intake
+                GROUP BY rollup_day, category_id, model_number
+                """;
+        String statusSql = """
+                INSERT INTO Daily_Status_Rollup (rollup_day, status, category_id, model_number, is_latest, device_count)
+                SELECT rollup_day, status, category_id, model_number, is_latest, COUNT(*) FROM (
+                    SELECT CAST(ds.last_update AS DATE) AS rollup_day, ds.status,
+                           COALESCE(re.category_id, 0) AS category_id, COALESCE(re.model_number, '') AS model_number,
+                           COALESCE(re.receipt_id = l.max_receipt_id, FALSE) AS is_latest
+                    FROM Device_Status ds
+                    JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id
+                    LEFT JOIN (%s) l ON re.serial_number = l.serial_number
+                    WHERE ds.status IS NOT NULL AND ds.last_update IS NOT NULL
+                ) statuses
+                GROUP BY rollup_day, status, category_id, model_number, is_latest
+                """.formatted(LATEST_RECEIPT_SUBQUERY);
+
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM Daily_Intake_Rollup");
+                stmt.executeUpdate("DELETE FROM Daily_Status_Rollup");
+                int rows = stmt.executeUpdate(intakeSql) + stmt.executeUpdate(statusSql);
+                conn.commit();
+                logger.info("Rebuilt daily rollups: {} rows.", rows);
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * @return true if the triggers were already in place before this call.
+     */
+    private boolean createSchema() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            // The key columns store 0 for a missing category and '' for a missing model so they can be part of the
+            // primary key.
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Daily_Intake_Rollup (
+                        rollup_day DATE NOT NULL, category_id INT NOT NULL, model_number VARCHAR NOT NULL,
+                        device_count INT NOT NULL,
+                        PRIMARY KEY (rollup_day, category_id, model_number))
+                    """);
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Daily_Status_Rollup (
+                        rollup_day DATE NOT NULL, status VARCHAR NOT NULL, category_id INT NOT NULL, model_number VARCHAR NOT NULL,
+                        is_latest BOOLEAN NOT NULL, device_count INT NOT NULL,
+                        PRIMARY KEY (rollup_day, status, category_id, model_number, is_latest))
+                    """);
+
+            boolean triggersExisted;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_NAME IN ('RECEIPT_EVENTS_ROLLUP', 'DEVICE_STATUS_ROLLUP')")) {
+                triggersExisted = rs.next() && rs.getInt(1) == 2;
+            }
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Receipt_Events_Rollup AFTER INSERT, UPDATE, DELETE ON Receipt_Events FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Device_Status_Rollup AFTER INSERT, UPDATE, DELETE ON Device_Status FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+            return triggersExisted;
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package assettracking.dao;
 
 import assettracking.controller.DeviceStatusTrackingController;
+import assettracking.dao.DeviceStatusVersionDAO.ApplyResult;
+import assettracking.dao.DeviceStatusVersionDAO.RowChange;
+import assettracking.dao.DeviceStatusVersionDAO.RowResult;
+import assettracking.dao.DeviceStatusVersionDAO.RowState;
 import assettracking.data.DeviceStatusView;
 import assettracking.db.DatabaseConnection;
+import assettracking.db.Transactions;
 import assettracking.manager.DeviceStatusManager;
 import assettracking.manager.StageManager;
 import assettracking.ui.DeviceStatusActions;
@@ -16,14 +21,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class DeviceStatusDAO {
 
     private final DeviceStatusManager manager;
     private final ObservableList<DeviceStatusView> deviceStatusList;
+    private final ReceiptEventDAO receiptEventDAO = new ReceiptEventDAO();
+    private final DeviceStatusVersionDAO versionDAO = new DeviceStatusVersionDAO();
 
     public DeviceStatusDAO(DeviceStatusManager manager, ObservableList<DeviceStatusView> deviceStatusList) {
         this.manager = manager;
@@ -79,83 +88,48 @@ public class DeviceStatusDAO {
         }
 
         // Step 2: Update only the serials that were verified to be in the source box.
-        String updatePlaceholders = String.join(",", Collections.nCopies(foundSerials.size(), "?"));
-        String updateSql = String.format("""
-                    UPDATE Device_Status SET box_id = ?
-                    WHERE receipt_id IN (
-                        SELECT MAX(re.receipt_id)
-                        FROM Receipt_Events re
-                        WHERE re.serial_number IN (%s)
-                        GROUP BY re.serial_number
-                    )
-                """, updatePlaceholders);
-
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-            conn.setAutoCommit(false); // Start transaction
-            updateStmt.setString(1, destinationBoxId.trim().toUpperCase());
-            int i = 2;
-            for (String serial : foundSerials) {
-                updateStmt.setString(i++, serial);
-            }
-            updateStmt.executeUpdate();
-            conn.commit(); // Commit transaction
+        ApplyResult result = Transactions.inTransaction(conn -> applyToLatest(conn, foundSerials, DeviceStatusVersionDAO.values(DeviceStatusVersionDAO.BOX_ID, destinationBoxId.trim().toUpperCase())));
+        List<String> movedSerials = new ArrayList<>();
+        for (RowResult row : result.rows()) {
+            if (row.written()) movedSerials.add(row.serialNumber());
         }
-
-        return new BulkMoveResult(foundSerials, notFoundSerials);
+        foundSerials.stream().filter(serial -> !movedSerials.contains(serial)).forEach(notFoundSerials::add);
+        return new BulkMoveResult(movedSerials, notFoundSerials);
     }
 
     public BulkUpdateResult bulkUpdateStatusBySerial(Set<String> serials, String newStatus, String newSubStatus, String note) throws SQLException {
         List<String> updatedSerials = new ArrayList<>();
         List<String> notFoundSerials = new ArrayList<>(serials); // Start with all serials, we'll remove the successful ones
-
-        // This query updates the status of the MOST RECENT receipt event for a given serial number.
-        String sql = """
-                    UPDATE Device_Status
-                    SET status = ?, sub_status = ?, last_update = CURRENT_TIMESTAMP, change_log = ?
-                    WHERE receipt_id IN (
-                        SELECT MAX(re.receipt_id)
-                        FROM Receipt_Events re
-                        WHERE re.serial_number = ?
-                    )
-                """;
-
-        Connection conn = null;
-        try {
-            conn = DatabaseConnection.getInventoryConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                for (String serial : serials) {
-                    stmt.setString(1, newStatus);
-                    stmt.setString(2, newSubStatus);
-                    stmt.setString(3, note);
-                    stmt.setString(4, serial);
-                    stmt.addBatch();
-                }
-
-                int[] results = stmt.executeBatch();
-
-                // Now, validate the results
-                List<String> serialList = new ArrayList<>(serials);
-                for (int i = 0; i < results.length; i++) {
-                    if (results[i] > 0) { // If rows were affected, it was a success
-                        String successfulSerial = serialList.get(i);
-                        updatedSerials.add(successfulSerial);
-                        notFoundSerials.remove(successfulSerial);
-                    }
-                }
-            }
-            conn.commit(); // Commit all successful updates at once
-        } catch (SQLException e) {
-            if (conn != null) conn.rollback(); // Rollback on any error
-            throw e; // Re-throw the exception to be handled by the controller
-        } finally {
-            if (conn != null) {
-                conn.setAutoCommit(true);
-                conn.close();
+        List<String> conflicts = new ArrayList<>();
+
+        // Updates the status of the MOST RECENT receipt event for each serial number, all in one transaction.
+        ApplyResult result = Transactions.inTransaction(conn -> applyToLatest(conn, serials, DeviceStatusVersionDAO.values(
+                DeviceStatusVersionDAO.STATUS, newStatus,
+                DeviceStatusVersionDAO.SUB_STATUS, newSubStatus,
+                DeviceStatusVersionDAO.CHANGE_LOG, note)));
+
+        // Now, validate the results
+        for (RowResult row : result.rows()) {
+            if (row.written()) {
+                updatedSerials.add(row.serialNumber());
+                notFoundSerials.remove(row.serialNumber());
+            } else if (row.outcome() == DeviceStatusVersionDAO.Outcome.CONFLICT) {
+                conflicts.add(row.serialNumber() + ": " + row.detail());
+                notFoundSerials.remove(row.serialNumber());
             }
         }
-        return new BulkUpdateResult(updatedSerials, notFoundSerials);
+        return new BulkUpdateResult(updatedSerials, notFoundSerials, conflicts);
+    }
+
+    /**
+     * Applies the same change to the most recent receipt of each serial, on the caller's transaction.
+     */
+    private ApplyResult applyToLatest(Connection conn, Collection<String> serials, Map<String, Object> values) throws SQLException {
+        List<RowChange> changes = new ArrayList<>();
+        for (int receiptId : receiptEventDAO.findMostRecentReceiptIds(conn, serials).values()) {
+            changes.add(new RowChange(receiptId, values));
+        }
+        return versionDAO.apply(conn, changes);
     }
 
     public void updateTableForPage(int pageIndex) {
@@ -171,71 +145,85 @@ public class DeviceStatusDAO {
 
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                deviceStatusList.add(new DeviceStatusView(rs.getInt("receipt_id"), rs.getString("serial_number"), rs.getString("category"), rs.getString("make"), rs.getString("description"), rs.getString("status"), rs.getString("sub_status"), rs.getTimestamp("last_update") != null ? rs.getTimestamp("last_update").toString().substring(0, 19) : "", rs.getString("receive_date"), rs.getString("change_log"), rs.getBoolean("is_flagged")));
+                deviceStatusList.add(toView(rs));
             }
         } catch (SQLException e) {
             Platform.runLater(() -> StageManager.showAlert(null, Alert.AlertType.ERROR, "Database Error", "Failed to load page data: " + e.getMessage()));
         }
     }
 
+    /**
+     * Reloads the rows for some receipts under the current filters. Receipts that no longer match the filters,
+     * or are no longer the latest for their serial, are left out.
+     */
+    public List<DeviceStatusView> fetchRows(Collection<Integer> receiptIds) throws SQLException {
+        List<DeviceStatusView> rows = new ArrayList<>();
+        if (receiptIds.isEmpty()) return rows;
+        DeviceStatusActions.QueryAndParams queryAndParams = buildFilteredQuery(false, receiptIds);
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(queryAndParams.sql())) {
+            for (int i = 0; i < queryAndParams.params().size(); i++) {
+                stmt.setObject(i + 1, queryAndParams.params().get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(toView(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static DeviceStatusView toView(ResultSet rs) throws SQLException {
+        DeviceStatusView view = new DeviceStatusView(rs.getInt("receipt_id"), rs.getString("serial_number"), rs.getString("category"), rs.getString("make"), rs.getString("description"), rs.getString("status"), rs.getString("sub_status"), rs.getTimestamp("last_update") != null ? rs.getTimestamp("last_update").toString().substring(0, 19) : "", rs.getString("receive_date"), rs.getString("change_log"), rs.getBoolean("is_flagged"));
+        view.setVersion(rs.getLong("version"));
+        return view;
+    }
+
     public void updateDeviceStatus(ObservableList<DeviceStatusView> selectedDevices, String newStatus, String newSubStatus, String note, String boxId) {
         if (selectedDevices == null || selectedDevices.isEmpty()) {
             StageManager.showAlert(null, Alert.AlertType.WARNING, "No Selection", "Please select one or more devices to update.");
             return;
         }
 
-        String updateStatusSql = "UPDATE Device_Status SET status = ?, sub_status = ?, last_update = CURRENT_TIMESTAMP, change_log = ?, box_id = ? WHERE receipt_id = ?";
         String deleteFlagSql = "DELETE FROM Flag_Devices WHERE serial_number = ?";
 
-        Connection conn = null;
+        // If this is a deletion, force box_id to null. Otherwise, use the provided boxId.
+        String newBoxId = "Deleted (Mistake)".equals(newSubStatus) || boxId == null || boxId.isEmpty() ? null : boxId;
+        Map<String, Object> values = DeviceStatusVersionDAO.values(
+                DeviceStatusVersionDAO.STATUS, newStatus,
+                DeviceStatusVersionDAO.SUB_STATUS, newSubStatus,
+                DeviceStatusVersionDAO.CHANGE_LOG, note.isEmpty() ? null : note,
+                DeviceStatusVersionDAO.BOX_ID, newBoxId);
+
+        // Each change is checked against the row as the user saw it, so edits made elsewhere since aren't lost.
+        List<RowChange> changes = new ArrayList<>();
+        for (DeviceStatusView device : selectedDevices) {
+            RowState seen = new RowState(device.getReceiptId(), device.getSerialNumber(), device.getVersion(), DeviceStatusVersionDAO.values(
+                    DeviceStatusVersionDAO.STATUS, device.getStatus(),
+                    DeviceStatusVersionDAO.SUB_STATUS, device.getSubStatus(),
+                    DeviceStatusVersionDAO.CHANGE_LOG, device.getChangeNote()));
+            changes.add(new RowChange(device.getReceiptId(), values, seen));
+        }
         try {
-            conn = DatabaseConnection.getInventoryConnection();
-            conn.setAutoCommit(false);
-
-            try (PreparedStatement updateStmt = conn.prepareStatement(updateStatusSql); PreparedStatement deleteStmt = conn.prepareStatement(deleteFlagSql)) {
-
-                for (DeviceStatusView device : selectedDevices) {
-                    updateStmt.setString(1, newStatus);
-                    updateStmt.setString(2, newSubStatus);
-                    updateStmt.setString(3, note.isEmpty() ? null : note);
-
-                    // If this is a deletion, force box_id to null. Otherwise, use the provided boxId.
-                    if ("Deleted (Mistake)".equals(newSubStatus)) {
-                        updateStmt.setNull(4, java.sql.Types.VARCHAR);
-                    } else {
-                        updateStmt.setString(4, (boxId != null && !boxId.isEmpty()) ? boxId : null);
-                    }
-
-                    updateStmt.setInt(5, device.getReceiptId());
-                    updateStmt.addBatch();
-
-                    if ("Flag!".equals(device.getStatus())) {
-                        deleteStmt.setString(1, device.getSerialNumber());
-                        deleteStmt.addBatch();
+            ApplyResult result = Transactions.inTransaction(conn -> {
+                ApplyResult applied = versionDAO.apply(conn, changes);
+                try (PreparedStatement deleteStmt = conn.prepareStatement(deleteFlagSql)) {
+                    for (int i = 0; i < selectedDevices.size(); i++) {
+                        DeviceStatusView device = selectedDevices.get(i);
+                        if ("Flag!".equals(device.getStatus()) && applied.rows().get(i).written()) {
+                            deleteStmt.setString(1, device.getSerialNumber());
+                            deleteStmt.addBatch();
+                        }
                     }
+                    deleteStmt.executeBatch();
                 }
-                updateStmt.executeBatch();
-                deleteStmt.executeBatch();
+                return applied;
+            });
+            if (!result.conflicts().isEmpty()) {
+                StageManager.showAlert(null, Alert.AlertType.WARNING, "Some Devices Not Updated", "These devices were changed on another workstation after you loaded them and were left as they are. Refresh and try again:\n" + result.describeConflicts());
             }
-            conn.commit();
         } catch (SQLException e) {
             StageManager.showAlert(null, Alert.AlertType.ERROR, "Update Failed", "Failed to update device statuses in the database: " + e.getMessage());
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    StageManager.showAlert(null, Alert.AlertType.ERROR, "Rollback Failed", "Failed to rollback database changes: " + ex.getMessage());
-                }
-            }
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException e) {
-                    StageManager.showAlert(null, Alert.AlertType.ERROR, "Connection Error", "Failed to close database connection: " + e.getMessage());
-                }
-            }
         }
     }
 
@@ -280,6 +268,13 @@ public class DeviceStatusDAO {
     }
 
     private DeviceStatusActions.QueryAndParams buildFilteredQuery(boolean forCount) {
+        return buildFilteredQuery(forCount, null);
+    }
+
+    /**
+     * @param onlyReceiptIds If not null, restricts the page query to these receipts and leaves out the paging.
+     */
+    private DeviceStatusActions.QueryAndParams buildFilteredQuery(boolean forCount, Collection<Integer> onlyReceiptIds) {
         DeviceStatusTrackingController controller = manager.getController();
 
         // --- QUERY LOGIC HAS BEEN CORRECTED HERE ---
@@ -287,7 +282,7 @@ public class DeviceStatusDAO {
                 // --- NEW: JOIN the Physical_Assets table to get the most current data ---
                 "LEFT JOIN Physical_Assets pa ON re.serial_number = pa.serial_number " + "LEFT JOIN Packages p ON re.package_id = p.package_id " + "LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id";
 
-        String selectClause = forCount ? "SELECT COUNT(DISTINCT re.serial_number)" : "SELECT p.receive_date, re.receipt_id, re.serial_number, pa.category, pa.make, pa.description, " + "ds.status, ds.sub_status, COALESCE(ds.last_update, p.receive_date) AS last_update, ds.change_log, " + "EXISTS(SELECT 1 FROM Flag_Devices fd WHERE fd.serial_number = re.serial_number) AS is_flagged";
+        String selectClause = forCount ? "SELECT COUNT(DISTINCT re.serial_number)" : "SELECT p.receive_date, re.receipt_id, re.serial_number, pa.category, pa.make, pa.description, " + "ds.status, ds.sub_status, COALESCE(ds.last_update, p.receive_date) AS last_update, ds.change_log, " + versionColumn() + ", " + "EXISTS(SELECT 1 FROM Flag_Devices fd WHERE fd.serial_number = re.serial_number) AS is_flagged";
 
         List<Object> params = new ArrayList<>();
         StringBuilder whereClause = new StringBuilder(" WHERE 1=1");
@@ -327,9 +322,14 @@ public class DeviceStatusDAO {
             params.add(java.sql.Date.valueOf(toDate.plusDays(1)));
         }
 
+        if (onlyReceiptIds != null) {
+            whereClause.append(" AND re.receipt_id IN (").append(String.join(",", Collections.nCopies(onlyReceiptIds.size(), "?"))).append(")");
+            params.addAll(onlyReceiptIds);
+        }
+
         String fullQuery = selectClause + baseQuery + whereClause;
 
-        if (!forCount) {
+        if (!forCount && onlyReceiptIds == null) {
             String groupBy = controller.groupByCombo.getValue();
             if ("Status".equals(groupBy)) {
                 fullQuery += " ORDER BY ds.status, ds.last_update DESC";
@@ -344,9 +344,17 @@ public class DeviceStatusDAO {
         return new DeviceStatusActions.QueryAndParams(fullQuery, params);
     }
 
+    // Rows loaded before versioning is installed are treated as unknown rather than failing the query.
+    private static String versionColumn() {
+        return DeviceStatusVersionDAO.isInstalled() ? "COALESCE(ds.version, -1) AS version" : "CAST(-1 AS BIGINT) AS version";
+    }
+
     public record BulkMoveResult(List<String> movedSerials, List<String> notFoundOrFailedSerials) {
     }
 
-    public record BulkUpdateResult(List<String> updated, List<String> notFound) {
+    /**
+     * @param conflicts Serials changed on another workstation during the update, each with what changed.
+     */
+    public record BulkUpdateResult(List<String> updated, List<String> notFound, List<String> conflicts) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,258 @@
+package assettracking.dao;
+
+import assettracking.db.DatabaseConnection;
+import assettracking.db.DeviceStatusVersionTrigger;
+import assettracking.db.Transactions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the optimistic-concurrency {@code version} column on Device_Status and the write path that checks it.
+ * {@link DeviceStatusVersionTrigger} increments the version on every update, whoever makes it, and {@link #apply}
+ * only updates a row that is still at the version it was read at.
+ * <p>
+ * When the version has moved, the row is re-read and compared with the state the change was based on. If the other
+ * writer only changed columns this change doesn't set, or set them to the same values, the change is retried on top
+ * of theirs. If they changed a column this change also sets, the row is left as they wrote it and reported as a
+ * conflict. A row locked past the lock timeout is reported the same way instead of failing the whole batch. A
+ * deadlock rolls back the caller's whole transaction, so it is rethrown; callers run their batch through
+ * {@link Transactions#inTransaction}, which runs it again.
+ * <p>
+ * A change only catches edits made since its base. Changes without one, such as scans and box and bulk updates,
+ * are based on the row as read inside the same transaction; they only guard that short window, and otherwise the
+ * last writer wins.
+ */
+public class DeviceStatusVersionDAO {
+
+    public static final String STATUS = "status";
+    public static final String SUB_STATUS = "sub_status";
+    public static final String CHANGE_LOG = "change_log";
+    public static final String BOX_ID = "box_id";
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceStatusVersionDAO.class);
+    private static final String TRIGGER_CLASS = DeviceStatusVersionTrigger.class.getName();
+    private static final List<String> COLUMNS = List.of(STATUS, SUB_STATUS, CHANGE_LOG, BOX_ID);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int READ_CHUNK = 500;
+
+    static final SchemaInstaller schema = new SchemaInstaller(logger, "Device status versioning unavailable; concurrent edits will not be detected.", () -> new DeviceStatusVersionDAO().createSchema());
+
+    /**
+     * @return True if the version column and trigger are in place. When they aren't, {@link #apply} writes without
+     * checking versions.
+     */
+    public static boolean isInstalled() {
+        return schema.isInstalled();
+    }
+
+    /**
+     * Builds the column values for a change from column, value pairs. Values may be null.
+     */
+    public static Map<String, Object> values(Object... columnValuePairs) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < columnValuePairs.length; i += 2) {
+            String column = (String) columnValuePairs[i];
+            if (!COLUMNS.contains(column)) throw new IllegalArgumentException("Not a versioned Device_Status column: " + column);
+            values.put(column, columnValuePairs[i + 1]);
+        }
+        return values;
+    }
+
+    /**
+     * Applies the changes in order on the caller's connection and transaction. Changes to the same receipt build on
+     * each other. Setting the status or sub-status also stamps {@code last_update}.
+     */
+    public ApplyResult apply(Connection conn, List<RowChange> changes) throws SQLException {
+        boolean versioned = isInstalled();
+        Map<Integer, RowState> current = readStates(conn, changes.stream().map(RowChange::receiptId).toList(), versioned);
+        Map<List<String>, PreparedStatement> statements = new HashMap<>();
+        List<RowResult> results = new ArrayList<>(changes.size());
+        try {
+            for (RowChange change : changes) {
+                results.add(applyOne(conn, change, current, statements, versioned));
+            }
+        } finally {
+            for (PreparedStatement stmt : statements.values()) {
+                stmt.close();
+            }
+        }
+        return new ApplyResult(results);
+    }
+
+    private RowResult applyOne(Connection conn, RowChange change, Map<Integer, RowState> current, Map<List<String>, PreparedStatement> statements, boolean versioned) throws SQLException {
+        int receiptId = change.receiptId();
+        RowState state = current.get(receiptId);
+        if (state == null) {
+            return new RowResult(receiptId, null, Outcome.NOT_FOUND, "No status record.");
+        }
+        // A base from before versioning was installed has no version to compare.
+        RowState base = versioned && change.base() != null && change.base().version() >= 0 ? change.base() : state;
+        boolean merged = false;
+        for (int attempt = 1; ; attempt++) {
+            if (versioned && state.version() != base.version()) {
+                String clashes = clashes(base, state, change.values());
+                if (!clashes.isEmpty()) {
+                    return new RowResult(receiptId, state.serialNumber(), Outcome.CONFLICT, "Changed on another workstation: " + clashes + ".");
+                }
+                merged = true;
+            }
+            int updated;
+            try {
+                updated = update(conn, receiptId, change.values(), state.version(), statements, versioned);
+            } catch (SQLException e) {
+                // A deadlock has already rolled back the whole transaction, so it must fail the batch.
+                if (!Transactions.LOCK_TIMEOUT_STATE.equals(e.getSQLState())) throw e;
+                return new RowResult(receiptId, state.serialNumber(), Outcome.CONFLICT, "Being changed on another workstation.");
+            }
+            if (updated > 0) {
+                Map<String, Object> values = new HashMap<>(state.values());
+                values.putAll(change.values());
+                current.put(receiptId, new RowState(receiptId, state.serialNumber(), state.version() + 1, values));
+                return new RowResult(receiptId, state.serialNumber(), merged ? Outcome.MERGED : Outcome.APPLIED, null);
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                return new RowResult(receiptId, state.serialNumber(), Outcome.CONFLICT, "Kept changing on another workstation.");
+            }
+            state = readStates(conn, List.of(receiptId), versioned).get(receiptId);
+            if (state == null) {
+                return new RowResult(receiptId, null, Outcome.NOT_FOUND, "Deleted on another workstation.");
+            }
+        }
+    }
+
+    /**
+     * The columns this change sets that someone else changed since {@code base}, to something else.
+     * Columns the base doesn't know are not compared.
+     */
+    private static String clashes(RowState base, RowState now, Map<String, Object> values) {
+        return values.entrySet().stream()
+                .filter(entry -> base.values().containsKey(entry.getKey()))
+                .filter(entry -> !Objects.equals(base.values().get(entry.getKey()), now.values().get(entry.getKey())))
+                .filter(entry -> !Objects.equals(now.values().get(entry.getKey()), entry.getValue()))
+                .map(entry -> entry.getKey() + " is now '" + Objects.toString(now.values().get(entry.getKey()), "") + "'")
+                .collect(Collectors.joining(", "));
+    }
+
+    private int update(Connection conn, int receiptId, Map<String, Object> values, long version, Map<List<String>, PreparedStatement> statements, boolean versioned) throws SQLException {
+        List<String> columns = COLUMNS.stream().filter(values::containsKey).toList();
+        PreparedStatement stmt = statements.get(columns);
+        if (stmt == null) {
+            StringBuilder sql = new StringBuilder("UPDATE Device_Status SET ");
+            sql.append(columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", ")));
+            if (columns.contains(STATUS) || columns.contains(SUB_STATUS)) sql.append(", last_update = CURRENT_TIMESTAMP");
+            sql.append(" WHERE receipt_id = ?");
+            if (versioned) sql.append(" AND version = ?");
+            stmt = conn.prepareStatement(sql.toString());
+            statements.put(columns, stmt);
+        }
+        int i = 1;
+        for (String column : columns) {
+            stmt.setObject(i++, values.get(column));
+        }
+        stmt.setInt(i++, receiptId);
+        if (versioned) stmt.setLong(i, version);
+        return stmt.executeUpdate();
+    }
+
+    private static Map<Integer, RowState> readStates(Connection conn, Collection<Integer> receiptIds, boolean versioned) throws SQLException {
+        Map<Integer, RowState> states = new HashMap<>();
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(receiptIds));
+        for (int from = 0; from < distinct.size(); from += READ_CHUNK) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + READ_CHUNK, distinct.size()));
+            String sql = "SELECT ds.receipt_id, re.serial_number, ds.status, ds.sub_status, ds.change_log, ds.box_id" + (versioned ? ", ds.version" : "")
+                    + " FROM Device_Status ds LEFT JOIN Receipt_Events re ON re.receipt_id = ds.receipt_id"
+                    + " WHERE ds.receipt_id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Map<String, Object> values = new HashMap<>();
+                        for (String column : COLUMNS) {
+                            values.put(column, rs.getString(column));
+                        }
+                        int receiptId = rs.getInt("receipt_id");
+                        states.put(receiptId, new RowState(receiptId, rs.getString("serial_number"), versioned ? rs.getLong("version") : 0, values));
+                    }
+                }
+            }
+        }
+        return states;
+    }
+
+    private void createSchema() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE Device_Status ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Device_Status_Version BEFORE UPDATE ON Device_Status FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+        }
+    }
+
+    public enum Outcome {APPLIED, MERGED, CONFLICT, NOT_FOUND}
+
+    /**
+     * A row's versioned columns as a writer last saw them.
+     *
+     * @param version -1 if unknown.
+     */
+    public record RowState(int receiptId, String serialNumber, long version, Map<String, Object> values) {
+    }
+
+    /**
+     * New values for some of a row's versioned columns.
+     *
+     * @param base The state the change was decided on, such as the row a user edited; null to base it on the row
+     *             as read when the change is applied, which doesn't protect edits made before that.
+     */
+    public record RowChange(int receiptId, Map<String, Object> values, RowState base) {
+
+        public RowChange(int receiptId, Map<String, Object> values) {
+            this(receiptId, values, null);
+        }
+    }
+
+    /**
+     * @param serialNumber Null if the row wasn't found.
+     * @param detail       Why the row wasn't written; null if it was.
+     */
+    public record RowResult(int receiptId, String serialNumber, Outcome outcome, String detail) {
+
+        public boolean written() {
+            return outcome == Outcome.APPLIED || outcome == Outcome.MERGED;
+        }
+    }
+
+    public record ApplyResult(List<RowResult> rows) {
+
+        public int writtenCount() {
+            return (int) rows.stream().filter(RowResult::written).count();
+        }
+
+        public List<RowResult> conflicts() {
+            return rows.stream().filter(row -> row.outcome() == Outcome.CONFLICT).toList();
+        }
+
+        /**
+         * One line per conflicting row, for showing to the user.
+         */
+        public String describeConflicts() {
+            return conflicts().stream().map(row -> row.serialNumber() + ": " + row.detail()).collect(Collectors.joining("\n"));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package assettracking.dao;
+
+import assettracking.db.DatabaseConnection;
+import assettracking.db.DurationHistogramTrigger;
+import assettracking.metrics.DurationSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Owns Duration_Histogram, the stored form of the {@link DurationSketch} quantile sketches: sample counts by
+ * (day, metric, status, category id, bucket). {@link DurationHistogramTrigger} adds to it as status transitions are
+ * recorded, and a sketch for any window is the sum of its days' buckets.
+ * <p>
+ * {@link #TURNAROUND} is receive date to the receipt's first Processed / Ready for Deployment, counted on that day,
+ * which is the milestone the dashboard's 30-day average turnaround uses.
+ * {@link #TIME_IN_STATUS} is time spent in a status, counted under that status on the day the device left it.
+ */
+public class DurationHistogramDAO {
+
+    public static final String TURNAROUND = "TURNAROUND";
+    public static final String TIME_IN_STATUS = "TIME_IN_STATUS";
+
+    private static final Logger logger = LoggerFactory.getLogger(DurationHistogramDAO.class);
+    private static final String TRIGGER_CLASS = DurationHistogramTrigger.class.getName();
+
+    static final SchemaInstaller schema = new SchemaInstaller(logger, "Duration percentiles unavailable.", () -> new DurationHistogramDAO().install());
+
+    /**
+     * @return True if the table and trigger are in place. They are installed by {@link SchemaVersionDAO}, which
+     * builds the histograms from history when the trigger is new.
+     */
+    public boolean isInstalled() {
+        return schema.isInstalled();
+    }
+
+    private void install() throws SQLException {
+        // The trigger reads Status_Transition and category ids.
+        if (!StatusTransitionDAO.schema.install() || !CategoryDAO.schema.install()) {
+            throw new SQLException("The status history or category dimension is not available.");
+        }
+        if (!createSchema()) {
+            logger.info("Duration histogram trigger installed; building from history.");
+            rebuildFromHistory();
+        }
+    }
+
+    /**
+     * Merges the stored buckets for a window into one sketch.
+     *
+     * @param status     For {@link #TIME_IN_STATUS}, the status to report on; ignored for {@link #TURNAROUND}.
+     * @param categoryId One category, or null for all of them.
+     */
+    public DurationSketch loadSketch(String metric, String status, Integer categoryId, LocalDate from, LocalDate to) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT bucket, SUM(sample_count) AS samples FROM Duration_Histogram WHERE metric = ? AND status = ? AND rollup_day BETWEEN ? AND ?");
+        if (categoryId != null) sql.append(" AND category_id = ?");
+        sql.append(" GROUP BY bucket");
+
+        DurationSketch sketch = new DurationSketch();
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            stmt.setString(1, metric);
+            stmt.setString(2, TURNAROUND.equals(metric) ? "" : status);
+            stmt.setDate(3, java.sql.Date.valueOf(from));
+            stmt.setDate(4, java.sql.Date.valueOf(to));
+            if (categoryId != null) stmt.setInt(5, categoryId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sketch.addBucket(rs.getInt("bucket"), rs.getLong("samples"));
+                }
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * Recomputes the histograms in one transaction. Time in status comes from Status_Transition. Turnaround also
+     * covers devices made ready before transitions were recorded, using their last update.
+     *
+     * @return The number of histogram rows written.
+     */
+    public int rebuildFromHistory() throws SQLException {
+        String transitionsSql = """
+                SELECT st.receipt_id, st.from_status, st.to_status, st.to_sub_status, st.changed_at,
+                       COALESCE(re.category_id, 0) AS category_id, CAST(p.receive_date AS TIMESTAMP) AS received_at
+                FROM Status_Transition st
+                LEFT JOIN Receipt_Events re ON st.receipt_id = re.receipt_id
+                LEFT JOIN Packages p ON re.package_id = p.package_id
+                ORDER BY st.receipt_id, st.transition_id
+                """;
+        String untrackedSql = """
+                SELECT COALESCE(re.category_id, 0) AS category_id, CAST(p.receive_date AS TIMESTAMP) AS received_at, ds.last_update
+                FROM Device_Status ds
+                JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id
+                JOIN Packages p ON re.package_id = p.package_id
+                WHERE ds.status = 'Processed' AND ds.sub_status = 'Ready for Deployment' AND ds.last_update IS NOT NULL AND p.receive_date IS NOT NULL
+                  AND NOT EXISTS (SELECT 1 FROM Status_Transition st WHERE st.receipt_id = ds.receipt_id AND st.to_status = 'Processed' AND st.to_sub_status = 'Ready for Deployment')
+                """;
+
+        Map<BucketKey, Integer> counts = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery(transitionsSql)) {
+                    long receiptId = -1;
+                    LocalDateTime statusEnteredAt = null;
+                    boolean wasReady = false;
+                    while (rs.next()) {
+                        if (rs.getLong("receipt_id") != receiptId) {
+                            receiptId = rs.getLong("receipt_id");
+                            statusEnteredAt = null;
+                            wasReady = false;
+                        }
+                        String fromStatus = rs.getString("from_status");
+                        String toStatus = rs.getString("to_status");
+                        LocalDateTime changedAt = rs.getTimestamp("changed_at").toLocalDateTime();
+                        int categoryId = rs.getInt("category_id");
+                        Timestamp receivedAt = rs.getTimestamp("received_at");
+                        if (!wasReady && "Processed".equals(toStatus) && "Ready for Deployment".equals(rs.getString("to_sub_status"))) {
+                            wasReady = true;
+                            if (receivedAt != null) {
+                                count(counts, changedAt, TURNAROUND, "", categoryId, Duration.between(receivedAt.toLocalDateTime(), changedAt));
+                            }
+                        }
+                        if (fromStatus != null && fromStatus.equals(toStatus)) continue; // sub-status change
+                        if (fromStatus != null && statusEnteredAt != null) {
+                            count(counts, changedAt, TIME_IN_STATUS, fromStatus, categoryId, Duration.between(statusEnteredAt, changedAt));
+                        }
+                        statusEnteredAt = changedAt;
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery(untrackedSql)) {
+                    while (rs.next()) {
+                        LocalDateTime processedAt = rs.getTimestamp("last_update").toLocalDateTime();
+                        count(counts, processedAt, TURNAROUND, "", rs.getInt("category_id"), Duration.between(rs.getTimestamp("received_at").toLocalDateTime(), processedAt));
+                    }
+                }
+
+                stmt.executeUpdate("DELETE FROM Duration_Histogram");
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Duration_Histogram (rollup_day, metric, status, category_id, bucket, sample_count) VALUES (?, ?, ?, ?, ?, ?)")) {
+                    for (Map.Entry<BucketKey, Integer> entry : counts.entrySet()) {
+                        BucketKey key = entry.getKey();
+                        insert.setDate(1, java.sql.Date.valueOf(key.day()));
+                        insert.setString(2, key.metric());
+                        insert.setString(3, key.status());
+                        insert.setInt(4, key.categoryId());
+                        insert.setInt(5, key.bucket());
+                        insert.setInt(6, entry.getValue());
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                conn.commit();
+                logger.info("Rebuilt duration histograms: {} rows.", counts.size());
+                return counts.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void count(Map<BucketKey, Integer> counts, LocalDateTime endedAt, String metric, String status, int categoryId, Duration duration) {
+        counts.merge(new BucketKey(endedAt.toLocalDate(), metric, status, categoryId, DurationSketch.bucketOf(duration.getSeconds())), 1, Integer::sum);
+    }
+
+    /**
+     * @return true if the trigger was already in place before this call.
+     */
+    private boolean createSchema() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            // status is '' for turnaround so it can be part of the primary key.
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Duration_Histogram (
+                        rollup_day DATE NOT NULL, metric VARCHAR(16) NOT NULL, status VARCHAR NOT NULL, category_id INT NOT NULL,
+                        bucket INT NOT NULL, sample_count INT NOT NULL,
+                        PRIMARY KEY (metric, status, rollup_day, category_id, bucket))
+                    """);
+
+            boolean triggerExisted;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_NAME = 'STATUS_TRANSITION_DURATIONS'")) {
+                triggerExisted = rs.next() && rs.getInt(1) == 1;
+            }
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Status_Transition_Durations AFTER INSERT ON Status_Transition FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+            return triggerExisted;
+        }
+    }
+
+    private record BucketKey(LocalDate day, String metric, String status, int categoryId, int bucket) {
+    }
+}
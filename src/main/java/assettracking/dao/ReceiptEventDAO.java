@@ -4,7 +4,13 @@ import assettracking.data.ReceiptEvent;
 import assettracking.db.DatabaseConnection;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class ReceiptEventDAO {
 
@@ -89,5 +95,29 @@ public class ReceiptEventDAO {
         }
         return Optional.empty();
     }
-}
 
+    /**
+     * Finds the most recent receipt for each serial, on the caller's connection and transaction.
+     *
+     * @return Receipt ids by serial; serials with no receipt are absent.
+     */
+    public Map<String, Integer> findMostRecentReceiptIds(Connection conn, Collection<String> serials) throws SQLException {
+        Map<String, Integer> receiptIds = new HashMap<>();
+        Set<String> distinct = new LinkedHashSet<>(serials);
+        if (distinct.isEmpty()) return receiptIds;
+        String placeholders = String.join(",", Collections.nCopies(distinct.size(), "?"));
+        String sql = "SELECT serial_number, MAX(receipt_id) AS receipt_id FROM Receipt_Events WHERE serial_number IN (" + placeholders + ") GROUP BY serial_number";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (String serial : distinct) {
+                stmt.setString(i++, serial);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    receiptIds.put(rs.getString("serial_number"), rs.getInt("receipt_id"));
+                }
+            }
+        }
+        return receiptIds;
+    }
+}
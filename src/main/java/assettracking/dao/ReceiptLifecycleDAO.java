@@ -0,0 +1,88 @@
+package assettracking.dao;
+
+import assettracking.db.DatabaseConnection;
+import assettracking.db.ReceiptLifecycleTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Owns Receipt_Lifecycle, one row per receipt with the milestones the dashboard KPIs need: ever intaken, ever
+ * triaged, received and first ready-for-deployment time. Each receipt is one trip through the depot, so a returned
+ * device is counted and timed again. Kept current by {@link ReceiptLifecycleTrigger}, so the KPIs read one indexed
+ * table instead of rejoining each serial's history.
+ */
+public class ReceiptLifecycleDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptLifecycleDAO.class);
+    private static final String TRIGGER_CLASS = ReceiptLifecycleTrigger.class.getName();
+
+    static final SchemaInstaller schema = new SchemaInstaller(logger, "Receipt lifecycle unavailable; the dashboard will query the status history instead.", () -> new ReceiptLifecycleDAO().install());
+
+    /**
+     * @return True if the table and trigger are in place. They are installed by {@link SchemaVersionDAO}, which
+     * backfills the table when the trigger is new. When they aren't, callers should query the base tables.
+     */
+    public boolean isInstalled() {
+        return schema.isInstalled();
+    }
+
+    private void install() throws SQLException {
+        if (!createSchema()) {
+            logger.info("Receipt lifecycle trigger installed; backfilling from history.");
+            backfill();
+        }
+    }
+
+    /**
+     * Seeds the table from what the base tables still show. Statuses are updated in place, so a receipt whose
+     * status has moved on only shows its current one; it counts as intaken or triaged if any receipt of the same
+     * serial is in Intake or Triage &amp; Repair, as the KPI query without this table does. From then on the trigger
+     * records every transition as it happens.
+     */
+    private void backfill() throws SQLException {
+        String sql = """
+                INSERT INTO Receipt_Lifecycle (receipt_id, ever_intaken, ever_triaged, received_at, first_ready_at)
+                SELECT re.receipt_id,
+                       EXISTS (SELECT 1 FROM Receipt_Events h_re JOIN Device_Status h_ds ON h_ds.receipt_id = h_re.receipt_id
+                               WHERE h_re.serial_number = re.serial_number AND h_ds.status = 'Intake'),
+                       EXISTS (SELECT 1 FROM Receipt_Events h_re JOIN Device_Status h_ds ON h_ds.receipt_id = h_re.receipt_id
+                               WHERE h_re.serial_number = re.serial_number AND h_ds.status = 'Triage & Repair'),
+                       CAST(p.receive_date AS TIMESTAMP),
+                       CASE WHEN ds.status = 'Processed' AND ds.sub_status = 'Ready for Deployment' THEN ds.last_update END
+                FROM Receipt_Events re
+                JOIN Device_Status ds ON ds.receipt_id = re.receipt_id
+                LEFT JOIN Packages p ON re.package_id = p.package_id
+                WHERE NOT EXISTS (SELECT 1 FROM Receipt_Lifecycle rl WHERE rl.receipt_id = re.receipt_id)
+                """;
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            int rows = stmt.executeUpdate(sql);
+            logger.info("Backfilled receipt lifecycle: {} receipts.", rows);
+        }
+    }
+
+    /**
+     * @return true if the trigger was already in place before this call.
+     */
+    private boolean createSchema() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Receipt_Lifecycle (
+                        receipt_id INT PRIMARY KEY, ever_intaken BOOLEAN DEFAULT FALSE NOT NULL,
+                        ever_triaged BOOLEAN DEFAULT FALSE NOT NULL, received_at TIMESTAMP, first_ready_at TIMESTAMP)
+                    """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_receipt_lifecycle_first_ready ON Receipt_Lifecycle (first_ready_at)");
+
+            boolean triggerExisted;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_NAME = 'DEVICE_STATUS_RECEIPT_LIFECYCLE'")) {
+                triggerExisted = rs.next() && rs.getInt(1) == 1;
+            }
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Device_Status_Receipt_Lifecycle AFTER INSERT, UPDATE ON Device_Status FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+            return triggerExisted;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package assettracking.dao;
+
+import org.slf4j.Logger;
+
+import java.sql.SQLException;
+
+/**
+ * Runs a DAO's schema setup (tables, columns, triggers and any backfill) when {@link SchemaVersionDAO} upgrades the
+ * database, and remembers for the session whether the schema is in place. A failed setup is logged once and not
+ * retried; callers fall back to the base tables for the rest of the session.
+ */
+final class SchemaInstaller {
+
+    private final Logger logger;
+    private final String unavailableMessage;
+    private final Install install;
+    private volatile Boolean installed;
+
+    /**
+     * @param unavailableMessage Logged with the cause when the setup fails, saying what the app does without it.
+     */
+    SchemaInstaller(Logger logger, String unavailableMessage, Install install) {
+        this.logger = logger;
+        this.unavailableMessage = unavailableMessage;
+        this.install = install;
+    }
+
+    /**
+     * Runs the setup if it hasn't been tried yet this session.
+     *
+     * @return True if the schema is in place.
+     */
+    boolean install() {
+        Boolean state = installed;
+        if (state != null) {
+            return state;
+        }
+        synchronized (this) {
+            if (installed == null) {
+                try {
+                    install.run();
+                    installed = true;
+                } catch (SQLException e) {
+                    logger.error(unavailableMessage, e);
+                    installed = false;
+                }
+            }
+            return installed;
+        }
+    }
+
+    /**
+     * Records that the schema is in place without running the setup, for a database already at the current
+     * version.
+     */
+    void markInstalled() {
+        installed = true;
+    }
+
+    /**
+     * @return True if the schema is known to be in place this session.
+     */
+    boolean isInstalled() {
+        return Boolean.TRUE.equals(installed);
+    }
+
+    @FunctionalInterface
+    interface Install {
+        void run() throws SQLException;
+    }
+}
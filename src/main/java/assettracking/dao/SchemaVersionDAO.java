@@ -0,0 +1,118 @@
+package assettracking.dao;
+
+import assettracking.db.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Owns the schema version stored in AppSettings and the one step that installs the DAO-owned tables and triggers.
+ * <p>
+ * The triggers are classes in this app, and H2 loads them in whichever process serves the shared database file, so
+ * a workstation running a build without them would fail every write to the tables they are on. Each build knows the
+ * {@link #CURRENT_VERSION} it installs. At startup {@link #prepare} refuses a database stamped with a newer version,
+ * installs everything and stamps the database when it is older, and otherwise only records that the schema is in
+ * place. Nothing else installs these objects, so opening a screen never changes the database.
+ */
+public class SchemaVersionDAO {
+
+    /**
+     * Raise this whenever a trigger class or DAO-owned table is added or changed, so builds without the change
+     * refuse to start.
+     */
+    public static final int CURRENT_VERSION = 1;
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaVersionDAO.class);
+    private static final String VERSION_KEY = "schema.version";
+
+    /**
+     * Brings the database to {@link #CURRENT_VERSION} if it is behind. Must run before anything uses the DAOs'
+     * tables; until it has, they report themselves unavailable.
+     */
+    public Result prepare() throws SQLException {
+        int stored = getStoredVersion();
+        if (stored > CURRENT_VERSION) {
+            logger.error("The database is at schema version {}, newer than this build's {}.", stored, CURRENT_VERSION);
+            return Result.NEWER;
+        }
+        if (stored == CURRENT_VERSION) {
+            for (Component component : Component.values()) {
+                component.schema.markInstalled();
+            }
+            return Result.CURRENT;
+        }
+
+        logger.info("Upgrading the database from schema version {} to {}.", stored, CURRENT_VERSION);
+        boolean complete = true;
+        for (Component component : Component.values()) {
+            complete &= component.install();
+        }
+        if (!complete) {
+            // Not stamped, so the next start tries again.
+            logger.warn("The schema upgrade did not complete; features without their tables will use the base tables.");
+            return Result.INCOMPLETE;
+        }
+        try (Connection conn = DatabaseConnection.getInventoryConnection();
+             PreparedStatement stmt = conn.prepareStatement("MERGE INTO AppSettings (setting_key, setting_value) KEY(setting_key) VALUES (?, ?)")) {
+            stmt.setString(1, VERSION_KEY);
+            stmt.setString(2, Integer.toString(CURRENT_VERSION));
+            stmt.executeUpdate();
+        }
+        return Result.UPGRADED;
+    }
+
+    /**
+     * @return The version the database is stamped with, or 0 if it has never been upgraded.
+     */
+    public int getStoredVersion() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT setting_value FROM AppSettings WHERE setting_key = ?")) {
+            stmt.setString(1, VERSION_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return 0;
+                }
+                try {
+                    return Integer.parseInt(rs.getString(1).trim());
+                } catch (NumberFormatException | NullPointerException e) {
+                    throw new SQLException("Unreadable schema version: " + rs.getString(1), e);
+                }
+            }
+        }
+    }
+
+    public enum Result {CURRENT, UPGRADED, INCOMPLETE, NEWER}
+
+    /**
+     * The DAO-owned schemas, in install order. A schema that needs another installs it first.
+     */
+    public enum Component {
+        CATEGORIES(CategoryDAO.schema),
+        CHANGE_LOG(ChangeLogDAO.schema),
+        STATUS_TRANSITIONS(StatusTransitionDAO.schema),
+        STATUS_VERSION(DeviceStatusVersionDAO.schema),
+        DAILY_ROLLUPS(DailyRollupDAO.schema),
+        RECEIPT_LIFECYCLE(ReceiptLifecycleDAO.schema),
+        DURATION_HISTOGRAMS(DurationHistogramDAO.schema);
+
+        private final SchemaInstaller schema;
+
+        Component(SchemaInstaller schema) {
+            this.schema = schema;
+        }
+
+        /**
+         * Installs this one schema on its own. Only {@link #prepare} and the benchmarks, which time each trigger
+         * set against their own database, call this.
+         *
+         * @return True if the schema is in place.
+         */
+        public boolean install() {
+            return schema.install();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package assettracking.dao;
+
+import assettracking.data.DeviceStatusView;
+import assettracking.db.DatabaseConnection;
+import assettracking.db.StatusTransitionTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns Status_Transition, the append-only history of Device_Status changes written by
+ * {@link StatusTransitionTrigger}. Rows are never updated, so time-in-status, throughput and "what changed today"
+ * questions are range scans over (receipt_id, transition_id) or (changed_at).
+ */
+public class StatusTransitionDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusTransitionDAO.class);
+    private static final String TRIGGER_CLASS = StatusTransitionTrigger.class.getName();
+
+    static final SchemaInstaller schema = new SchemaInstaller(logger, "Status transition history unavailable.", () -> new StatusTransitionDAO().createSchema());
+
+    /**
+     * @return True if the table and trigger are in place. When they aren't, no history is recorded.
+     */
+    public boolean isInstalled() {
+        return schema.isInstalled();
+    }
+
+    /**
+     * Every recorded status change for a serial, newest first, each with the notes as they stood at that change.
+     * The newest change of a receipt shows its current notes, which may have been edited since. Receipts from
+     * before the history was recorded show their current status instead.
+     */
+    public List<DeviceStatusView> getDeviceHistory(String serialNumber) throws SQLException {
+        String sql;
+        boolean withTransitions = isInstalled();
+        if (withTransitions) {
+            sql = """
+                    SELECT * FROM (
+                        SELECT p.receive_date, st.to_status AS status, st.to_sub_status AS sub_status, st.changed_at AS last_update,
+                               CASE WHEN st.transition_id = (SELECT MAX(latest.transition_id) FROM Status_Transition latest WHERE latest.receipt_id = re.receipt_id)
+                                    THEN ds.change_log ELSE st.note END AS change_log,
+                               'From ' || COALESCE(st.from_status, 'new receipt') || COALESCE(' on ' || st.workstation, '') AS transition,
+                               re.receipt_id, st.transition_id AS seq
+                        FROM Receipt_Events re
+                        JOIN Packages p ON re.package_id = p.package_id
+                        JOIN Status_Transition st ON st.receipt_id = re.receipt_id
+                        LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id
+                        WHERE re.serial_number = ?
+                        UNION ALL
+                        SELECT p.receive_date, ds.status, ds.sub_status, ds.last_update, ds.change_log, NULL, re.receipt_id, 0 AS seq
+                        FROM Receipt_Events re
+                        JOIN Packages p ON re.package_id = p.package_id
+                        LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id
+                        WHERE re.serial_number = ?
+                          AND NOT EXISTS (SELECT 1 FROM Status_Transition st WHERE st.receipt_id = re.receipt_id)
+                    ) history
+                    ORDER BY receipt_id DESC, seq DESC
+                    """;
+        } else {
+            sql = "SELECT p.receive_date, ds.status, ds.sub_status, ds.last_update, ds.change_log " +
+                    "FROM Receipt_Events re " +
+                    "JOIN Packages p ON re.package_id = p.package_id " +
+                    "LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id " +
+                    "WHERE re.serial_number = ? " +
+                    "ORDER BY re.receipt_id DESC";
+        }
+
+        List<DeviceStatusView> history = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, serialNumber);
+            if (withTransitions) stmt.setString(2, serialNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    DeviceStatusView entry = new DeviceStatusView(0, serialNumber, null, null, null, rs.getString("status"), rs.getString("sub_status"),
+                            rs.getTimestamp("last_update") != null ? rs.getTimestamp("last_update").toString().substring(0, 19) : "",
+                            rs.getString("receive_date"), rs.getString("change_log"), false);
+                    if (withTransitions) entry.setTransition(rs.getString("transition"));
+                    history.add(entry);
+                }
+            }
+        }
+        return history;
+    }
+
+    private void createSchema() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS Status_Transition (
+                        transition_id BIGINT AUTO_INCREMENT PRIMARY KEY, receipt_id INT NOT NULL,
+                        from_status VARCHAR, to_status VARCHAR, to_sub_status VARCHAR,
+                        changed_at TIMESTAMP NOT NULL, workstation VARCHAR, note VARCHAR)
+                    """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_status_transition_receipt ON Status_Transition (receipt_id, transition_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_status_transition_changed_at ON Status_Transition (changed_at)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_status_transition_to_status ON Status_Transition (to_status, changed_at)");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS Device_Status_Transition AFTER INSERT, UPDATE ON Device_Status FOR EACH ROW CALL '" + TRIGGER_CLASS + "'");
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package assettracking.dao.bulk;
+
+import assettracking.data.bulk.BulkDevice;
+import assettracking.db.DatabaseConnection;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * A session-local staging table for device imports.
+ * Raw rows from a file are loaded here first, validated with set-based SQL, and then merged into
+ * Bulk_Devices with a single MERGE ... USING per chunk. The table is a LOCAL TEMPORARY table, so it is
+ * only visible to this connection and never locks anything other workstations are using.
+ * <p>
+ * Always use in a try-with-resources block; closing drops the table and returns the connection to the pool.
+ */
+public class BulkDeviceStaging implements AutoCloseable {
+
+    /**
+     * Rows merged per transaction unless the import is configured otherwise.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final String TABLE = "Bulk_Devices_Staging";
+
+    private final Connection conn;
+
+    public BulkDeviceStaging() throws SQLException {
+        this.conn = DatabaseConnection.getInventoryConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + TABLE);
+            stmt.execute("CREATE LOCAL TEMPORARY TABLE " + TABLE + " (" +
+                    "row_num INT PRIMARY KEY, SerialNumber VARCHAR(255) NOT NULL, IMEI VARCHAR(255), ICCID VARCHAR(255), " +
+                    "Capacity VARCHAR(255), DeviceName VARCHAR(255), LastImportDate VARCHAR(255), merged_imei VARCHAR(255))");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_staging_serial ON " + TABLE + " (SerialNumber)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_staging_merged_imei ON " + TABLE + " (merged_imei)");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Bulk-loads parsed rows into the staging table. Row numbers follow the list order (starting at 1),
+     * which keeps them stable between runs of the same file so they can be used as a resume checkpoint.
+     */
+    public void load(List<BulkDevice> devices) throws SQLException {
+        String sql = "INSERT INTO " + TABLE + " (row_num, SerialNumber, IMEI, ICCID, Capacity, DeviceName, LastImportDate) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int rowNum = 0;
+            for (BulkDevice device : devices) {
+                stmt.setInt(1, ++rowNum);
+                stmt.setString(2, device.getSerialNumber());
+                stmt.setString(3, device.getImei());
+                stmt.setString(4, device.getIccid());
+                stmt.setString(5, device.getCapacity());
+                stmt.setString(6, device.getDeviceName());
+                stmt.setString(7, device.getLastImportDate());
+                stmt.addBatch();
+                if (rowNum % DEFAULT_CHUNK_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Loads a CSV file straight into the staging table with H2's CSVREAD, cleaning and classifying the
+     * IMEI/ICCID values in SQL instead of building a Java object per row.
+     * <p>
+     * CSVREAD runs inside the database process. When this workstation is connected to another machine's
+     * AUTO_SERVER instance the file must be reachable from there too (e.g. a UNC path); callers should fall
+     * back to the Java parser if this method throws.
+     *
+     * @param csvFile        The file to load.
+     * @param columns        The exact header names to read for each field; optional fields may be null.
+     * @param lastImportDate The import timestamp written to every row.
+     * @return The number of rows loaded.
+     */
+    public int loadFromCsv(File csvFile, CsvColumns columns, String lastImportDate) throws SQLException {
+        String sql = "INSERT INTO " + TABLE + " (row_num, SerialNumber, IMEI, ICCID, Capacity, DeviceName, LastImportDate) " +
+                "SELECT ROWNUM(), serial, " +
+                // Same rules as the Java parser: a 15-digit value is an IMEI, an 18-20 digit value is an ICCID.
+                "CASE WHEN LENGTH(raw_imei) = 15 THEN raw_imei WHEN LENGTH(raw_sim) = 15 THEN raw_sim END, " +
+                "CASE WHEN LENGTH(raw_imei) BETWEEN 18 AND 20 THEN raw_imei WHEN LENGTH(raw_sim) BETWEEN 18 AND 20 THEN raw_sim END, " +
+                "capacity, device_name, ? FROM (SELECT " +
+                "UPPER(TRIM(" + columnOrNull(columns.serialNumber()) + ")) AS serial, " +
+                "REGEXP_REPLACE(COALESCE(" + columnOrNull(columns.imei()) + ", ''), '[^0-9]', '') AS raw_imei, " +
+                "REGEXP_REPLACE(COALESCE(" + columnOrNull(columns.iccid()) + ", ''), '[^0-9]', '') AS raw_sim, " +
+                "NULLIF(TRIM(" + columnOrNull(columns.capacity()) + "), '') AS capacity, " +
+                "NULLIF(TRIM(" + columnOrNull(columns.deviceName()) + "), '') AS device_name " +
+                // H2 reads the file's header when the statement is prepared, so the path can't be a parameter.
+                "FROM CSVREAD(" + sqlLiteral(csvFile.getAbsolutePath()) + ", NULL, 'charset=UTF-8 caseSensitiveColumnNames=true')) csv " +
+                "WHERE serial IS NOT NULL AND serial <> ''";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, lastImportDate);
+            return stmt.executeUpdate();
+        }
+    }
+
+    private static String sqlLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private static String columnOrNull(String headerName) {
+        return headerName == null ? "CAST(NULL AS VARCHAR)" : "\"" + headerName.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Keeps only the first occurrence of each serial number in the file.
+     *
+     * @return The number of duplicate rows removed.
+     */
+    public int removeDuplicateSerials() throws SQLException {
+        String sql = "DELETE FROM " + TABLE + " s WHERE EXISTS (SELECT 1 FROM " + TABLE + " o WHERE o.SerialNumber = s.SerialNumber AND o.row_num < s.row_num)";
+        try (Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Resolves each row's effective IMEI (the new value, or the existing database value when the file has none)
+     * and removes every row whose effective IMEI is shared with another row.
+     *
+     * @return One entry per rejected IMEI, with the serials that claimed it.
+     */
+    public List<DuplicateImei> rejectDuplicateImeis() throws SQLException {
+        String resolveSql = "UPDATE " + TABLE + " s SET merged_imei = COALESCE(NULLIF(s.IMEI, ''), " +
+                "(SELECT b.IMEI FROM Bulk_Devices b WHERE b.SerialNumber = s.SerialNumber))";
+        String findSql = "SELECT merged_imei, LISTAGG(SerialNumber, ', ') WITHIN GROUP (ORDER BY row_num) AS serials FROM " + TABLE +
+                " WHERE merged_imei IS NOT NULL AND merged_imei <> '' GROUP BY merged_imei HAVING COUNT(*) > 1";
+        String deleteSql = "DELETE FROM " + TABLE + " WHERE merged_imei IN (SELECT merged_imei FROM " + TABLE +
+                " WHERE merged_imei <> '' GROUP BY merged_imei HAVING COUNT(*) > 1)";
+
+        List<DuplicateImei> duplicates = new ArrayList<>();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(resolveSql);
+            try (ResultSet rs = stmt.executeQuery(findSql)) {
+                while (rs.next()) {
+                    duplicates.add(new DuplicateImei(rs.getString("merged_imei"), rs.getString("serials")));
+                }
+            }
+            if (!duplicates.isEmpty()) {
+                stmt.executeUpdate(deleteSql);
+            }
+        }
+        return duplicates;
+    }
+
+    public int countRows() throws SQLException {
+        return countRowsUpTo(Integer.MAX_VALUE);
+    }
+
+    public int countRowsUpTo(int rowNum) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM " + TABLE + " WHERE row_num <= ?")) {
+            stmt.setInt(1, rowNum);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Merges staged rows into Bulk_Devices in row-number ranges, committing after each range.
+     * For existing serials, a non-empty new value wins and an empty one keeps the stored value.
+     *
+     * @param afterRowNum         Rows up to and including this row number are skipped (already committed).
+     * @param chunkSize           The width of each row-number range, i.e. the maximum rows per transaction.
+     * @param releaseReusedIccids If true, an ICCID being assigned to a device is first removed from any other device.
+     * @param afterChunkCommitted Called with the last committed row number; return false to stop early.
+     * @return The last committed row number.
+     */
+    public int mergeInChunks(int afterRowNum, int chunkSize, boolean releaseReusedIccids, IntPredicate afterChunkCommitted) throws SQLException {
+        String unassignSql = "UPDATE Bulk_Devices b SET ICCID = NULL WHERE EXISTS (SELECT 1 FROM " + TABLE + " s " +
+                "WHERE s.row_num > ? AND s.row_num <= ? AND s.ICCID <> '' AND s.ICCID = b.ICCID AND s.SerialNumber <> b.SerialNumber)";
+        String mergeSql = "MERGE INTO Bulk_Devices b USING (SELECT * FROM " + TABLE + " WHERE row_num > ? AND row_num <= ?) s " +
+                "ON b.SerialNumber = s.SerialNumber " +
+                "WHEN MATCHED THEN UPDATE SET " +
+                "IMEI = COALESCE(NULLIF(s.IMEI, ''), b.IMEI), " +
+                "ICCID = COALESCE(NULLIF(s.ICCID, ''), b.ICCID), " +
+                "Capacity = COALESCE(NULLIF(s.Capacity, ''), b.Capacity), " +
+                "DeviceName = COALESCE(NULLIF(s.DeviceName, ''), b.DeviceName), " +
+                "LastImportDate = s.LastImportDate " +
+                "WHEN NOT MATCHED THEN INSERT (SerialNumber, IMEI, ICCID, Capacity, DeviceName, LastImportDate) " +
+                "VALUES (s.SerialNumber, s.IMEI, s.ICCID, s.Capacity, s.DeviceName, s.LastImportDate)";
+
+        int maxRowNum;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(row_num), 0) FROM " + TABLE)) {
+            maxRowNum = rs.next() ? rs.getInt(1) : 0;
+        }
+
+        int committed = Math.max(0, afterRowNum);
+        int effectiveChunkSize = Math.max(1, chunkSize);
+        conn.setAutoCommit(false);
+        try (PreparedStatement unassignStmt = conn.prepareStatement(unassignSql); PreparedStatement mergeStmt = conn.prepareStatement(mergeSql)) {
+            while (committed < maxRowNum) {
+                int chunkEnd = (int) Math.min((long) committed + effectiveChunkSize, maxRowNum);
+                if (releaseReusedIccids) {
+                    unassignStmt.setInt(1, committed);
+                    unassignStmt.setInt(2, chunkEnd);
+                    unassignStmt.executeUpdate();
+                }
+                mergeStmt.setInt(1, committed);
+                mergeStmt.setInt(2, chunkEnd);
+                mergeStmt.executeUpdate();
+                conn.commit();
+                committed = chunkEnd;
+
+                if (!afterChunkCommitted.test(committed)) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return committed;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + TABLE);
+        } finally {
+            conn.close();
+        }
+    }
+
+    public record DuplicateImei(String imei, String serials) {
+    }
+
+    /**
+     * The exact CSV header names that hold each Bulk_Devices field. Only serialNumber is required.
+     */
+    public record CsvColumns(String serialNumber, String imei, String iccid, String capacity, String deviceName) {
+    }
+}
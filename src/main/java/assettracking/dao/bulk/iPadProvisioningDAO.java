@@ -11,26 +11,6 @@ import java.sql.SQLException;
 import java.util.*;
 
 public class iPadProvisioningDAO {
-    public void upsertBulkDevices(List<BulkDevice> devices) throws SQLException {
-        // This is the correct "UPSERT" syntax for an H2 database.
-        String upsertSql = "MERGE INTO Bulk_Devices (SerialNumber, IMEI, ICCID, Capacity, DeviceName, LastImportDate) " + "KEY(SerialNumber) " + "VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
-            conn.setAutoCommit(false);
-            for (BulkDevice device : devices) {
-                stmt.setString(1, device.getSerialNumber());
-                stmt.setString(2, device.getImei());
-                stmt.setString(3, device.getIccid());
-                stmt.setString(4, device.getCapacity());
-                stmt.setString(5, device.getDeviceName());
-                stmt.setString(6, device.getLastImportDate());
-                stmt.addBatch();
-            }
-            stmt.executeBatch();
-            conn.commit();
-        }
-    }
-
     /**
      * Inserts a single, manually created BulkDevice into the database.
      * This is used when a user adds a device that wasn't found in the initial import.
@@ -59,32 +39,6 @@ public class iPadProvisioningDAO {
         }
     }
 
-    public Map<String, BulkDevice> findDevicesBySerials(List<String> serialNumbers) throws SQLException {
-        Map<String, BulkDevice> results = new HashMap<>();
-        if (serialNumbers == null || serialNumbers.isEmpty()) {
-            return results;
-        }
-
-        // This creates a query with the correct number of '?' placeholders
-        String placeholders = String.join(",", Collections.nCopies(serialNumbers.size(), "?"));
-        String sql = String.format("SELECT * FROM Bulk_Devices WHERE SerialNumber IN (%s)", placeholders);
-
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Bind all the serial numbers to the prepared statement
-            for (int i = 0; i < serialNumbers.size(); i++) {
-                stmt.setString(i + 1, serialNumbers.get(i));
-            }
-
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                BulkDevice device = new BulkDevice(rs.getString("SerialNumber"), rs.getString("IMEI"), rs.getString("ICCID"), rs.getString("Capacity"), rs.getString("DeviceName"), rs.getString("LastImportDate"));
-                results.put(device.getSerialNumber(), device);
-            }
-        }
-        return results;
-    }
-
     public int getDeviceCount() throws SQLException {
         String sql = "SELECT COUNT(*) FROM Bulk_Devices;";
         try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
@@ -0,0 +1,15 @@
+package assettracking.data;
+
+/**
+ * One row of Change_Log.
+ *
+ * @param sourceTable "Receipt_Events" or "Device_Status".
+ * @param operation   "I", "U" or "D".
+ * @param rowKey      The receipt id of the changed row.
+ * @param oldStatus   Device_Status only: the status before the change, null for an insert.
+ * @param newStatus   Device_Status only: the status after the change, null for a delete.
+ * @param categoryId  Receipt_Events only: the receipt's category id, if it has one.
+ */
+public record ChangeRecord(long changeId, String sourceTable, String operation, long rowKey, String oldStatus,
+                           String newStatus, Integer categoryId) {
+}
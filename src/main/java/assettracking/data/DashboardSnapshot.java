@@ -0,0 +1,39 @@
+package assettracking.data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the dashboard shows for one refresh, computed off the FX thread and published in one piece.
+ * Immutable: the collections are copied on construction.
+ *
+ * @param granularMetrics    Per-family counts keyed like "laptopsIntaken" or "monitorsDisposed".
+ * @param kpis               The KPI tiles keyed by name ("activeTriage", "avgTurnaround", ...), already formatted.
+ * @param inventoryOverview  Status counts for the latest receipt of every serial, all time.
+ * @param processedBreakdown Processed counts by category within the range.
+ * @param intakeVsProcessed  One entry per day of the chart range, oldest first.
+ */
+public record DashboardSnapshot(Map<String, Integer> granularMetrics, Map<String, String> kpis, List<TopModelStat> topModels,
+                                List<Slice> inventoryOverview, List<Slice> processedBreakdown, List<DailyCount> intakeVsProcessed) {
+
+    public DashboardSnapshot {
+        granularMetrics = Map.copyOf(granularMetrics);
+        kpis = Map.copyOf(kpis);
+        topModels = List.copyOf(topModels);
+        inventoryOverview = List.copyOf(inventoryOverview);
+        processedBreakdown = List.copyOf(processedBreakdown);
+        intakeVsProcessed = List.copyOf(intakeVsProcessed);
+    }
+
+    /**
+     * One pie chart slice.
+     */
+    public record Slice(String label, int count) {
+    }
+
+    /**
+     * One bar group of the intake vs processed chart.
+     */
+    public record DailyCount(String day, int intake, int processed) {
+    }
+}
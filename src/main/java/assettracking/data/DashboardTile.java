@@ -0,0 +1,8 @@
+package assettracking.data;
+
+/**
+ * The independently refreshable parts of a {@link DashboardSnapshot}.
+ */
+public enum DashboardTile {
+    GRANULAR_METRICS, KPIS, TOP_MODELS, INVENTORY_OVERVIEW, PROCESSED_BREAKDOWN, INTAKE_VS_PROCESSED
+}
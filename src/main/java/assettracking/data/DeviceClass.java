@@ -0,0 +1,23 @@
+package assettracking.data;
+
+import java.util.Locale;
+
+/**
+ * The coarse device class the dashboard reports on. Each row of the Category table carries one.
+ */
+public enum DeviceClass {
+    LAPTOP, TABLET, DESKTOP, MONITOR, OTHER;
+
+    /**
+     * Classifies a category code or free-text category by the word it contains, in this order.
+     */
+    public static DeviceClass classify(String category) {
+        if (category == null) return OTHER;
+        String text = category.toUpperCase(Locale.ROOT);
+        if (text.contains("LAPTOP")) return LAPTOP;
+        if (text.contains("TABLET")) return TABLET;
+        if (text.contains("DESKTOP")) return DESKTOP;
+        if (text.contains("MONITOR")) return MONITOR;
+        return OTHER;
+    }
+}
@@ -16,6 +16,8 @@ public class DeviceStatusView {
     private final SimpleStringProperty receiveDate; // New Field
     private final SimpleStringProperty changeNote;
     private final SimpleBooleanProperty isFlagged;
+    private long version = -1; // Device_Status.version when loaded; -1 if unknown.
+    private String transition; // "From <status> on <workstation>" for a history row; null elsewhere.
 
     public DeviceStatusView(int receiptId, String serialNumber, String category, String make, String description,
                             String status, String subStatus, String lastUpdate, String receiveDate, String changeNote, boolean isFlagged) {
@@ -77,6 +79,22 @@ public class DeviceStatusView {
         return isFlagged.get();
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getTransition() {
+        return transition;
+    }
+
+    public void setTransition(String transition) {
+        this.transition = transition;
+    }
+
     // Property Getters
     public SimpleIntegerProperty receiptIdProperty() {
         return receiptId;
@@ -0,0 +1,35 @@
+package assettracking.db;
+
+import assettracking.dao.CategoryDAO;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * BEFORE INSERT/UPDATE trigger that stamps {@code category_id} from the free-text {@code category} column, creating
+ * the Category and alias rows the first time a spelling is seen. Installed by {@link CategoryDAO} on each fact table.
+ */
+public class CategoryIdTrigger implements Trigger {
+
+    private int categoryColumn;
+    private int categoryIdColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        TriggerColumns columns = new TriggerColumns(conn, schemaName, tableName);
+        categoryColumn = columns.indexOf("CATEGORY");
+        categoryIdColumn = columns.indexOf("CATEGORY_ID");
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (newRow == null) return;
+        Object category = newRow[categoryColumn];
+        if (oldRow != null && Objects.equals(oldRow[categoryColumn], category) && newRow[categoryIdColumn] != null) {
+            return;
+        }
+        newRow[categoryIdColumn] = CategoryDAO.resolveCategoryId(conn, category == null ? null : category.toString());
+    }
+}
@@ -0,0 +1,51 @@
+package assettracking.db;
+
+import assettracking.dao.ChangeLogDAO;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * AFTER INSERT/UPDATE/DELETE row trigger on Receipt_Events and Device_Status that appends one compact record per
+ * changed row to Change_Log, in the writer's transaction. Dashboards poll the log to find out which tiles to
+ * recompute. Installed by {@link ChangeLogDAO}.
+ */
+public class ChangeLogTrigger implements Trigger {
+
+    private static final String INSERT_CHANGE = "INSERT INTO Change_Log (source_table, operation, row_key, old_status, new_status, category_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private String sourceTable;
+    private boolean receiptTable;
+    private int receiptIdColumn;
+    private int statusColumn;
+    private int categoryIdColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        TriggerColumns columns = new TriggerColumns(conn, schemaName, tableName);
+        receiptTable = tableName.equalsIgnoreCase("Receipt_Events");
+        sourceTable = receiptTable ? ChangeLogDAO.RECEIPT_EVENTS : ChangeLogDAO.DEVICE_STATUS;
+        receiptIdColumn = columns.indexOf("RECEIPT_ID");
+        if (receiptTable) {
+            categoryIdColumn = columns.indexOf("CATEGORY_ID");
+        } else {
+            statusColumn = columns.indexOf("STATUS");
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        Object[] row = newRow != null ? newRow : oldRow;
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_CHANGE)) {
+            stmt.setString(1, sourceTable);
+            stmt.setString(2, oldRow == null ? "I" : newRow == null ? "D" : "U");
+            stmt.setObject(3, row[receiptIdColumn]);
+            stmt.setObject(4, receiptTable || oldRow == null ? null : oldRow[statusColumn]);
+            stmt.setObject(5, receiptTable || newRow == null ? null : newRow[statusColumn]);
+            stmt.setObject(6, receiptTable ? row[categoryIdColumn] : null);
+            stmt.executeUpdate();
+        }
+    }
+}
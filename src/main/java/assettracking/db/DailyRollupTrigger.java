@@ -0,0 +1,234 @@
+package assettracking.db;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Row trigger that keeps Daily_Intake_Rollup and Daily_Status_Rollup in step with Receipt_Events and Device_Status.
+ * H2 fires it inside the writer's own transaction, so a rollback undoes the rollup change along with the row.
+ * Installed by {@link assettracking.dao.DailyRollupDAO}; anything it can't attribute is corrected by a rebuild.
+ */
+public class DailyRollupTrigger implements Trigger {
+
+    private static final String RECEIPT_LOOKUP = """
+            SELECT re.category_id, re.model_number, re.serial_number,
+                   (SELECT MAX(m.receipt_id) FROM Receipt_Events m WHERE m.serial_number = re.serial_number) AS latest_id
+            FROM Receipt_Events re WHERE re.receipt_id = ?
+            """;
+    private static final String STATUS_LOOKUP = "SELECT status, last_update FROM Device_Status WHERE receipt_id = ?";
+    private static final String RECEIVE_DATE_LOOKUP = "SELECT CAST(receive_date AS DATE) FROM Packages WHERE package_id = ?";
+    private static final String LATEST_OTHER_RECEIPT = "SELECT MAX(receipt_id) FROM Receipt_Events WHERE serial_number = ? AND receipt_id <> ?";
+
+    private static final String UPDATE_INTAKE = "UPDATE Daily_Intake_Rollup SET device_count = device_count + ? WHERE rollup_day = ? AND category_id = ? AND model_number = ?";
+    private static final String INSERT_INTAKE = "INSERT INTO Daily_Intake_Rollup (device_count, rollup_day, category_id, model_number) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_STATUS = "UPDATE Daily_Status_Rollup SET device_count = device_count + ? WHERE rollup_day = ? AND status = ? AND category_id = ? AND model_number = ? AND is_latest = ?";
+    private static final String INSERT_STATUS = "INSERT INTO Daily_Status_Rollup (device_count, rollup_day, status, category_id, model_number, is_latest) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private boolean receiptTable;
+    private int receiptIdColumn;
+    private int serialColumn;
+    private int packageIdColumn;
+    private int categoryIdColumn;
+    private int modelColumn;
+    private int statusColumn;
+    private int lastUpdateColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        TriggerColumns columns = new TriggerColumns(conn, schemaName, tableName);
+        receiptTable = tableName.equalsIgnoreCase("Receipt_Events");
+        receiptIdColumn = columns.indexOf("RECEIPT_ID");
+        if (receiptTable) {
+            serialColumn = columns.indexOf("SERIAL_NUMBER");
+            packageIdColumn = columns.indexOf("PACKAGE_ID");
+            categoryIdColumn = columns.indexOf("CATEGORY_ID");
+            modelColumn = columns.indexOf("MODEL_NUMBER");
+        } else {
+            statusColumn = columns.indexOf("STATUS");
+            lastUpdateColumn = columns.indexOf("LAST_UPDATE");
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (receiptTable) {
+            fireReceipt(conn, oldRow, newRow);
+        } else {
+            fireStatus(conn, oldRow, newRow);
+        }
+    }
+
+    private void fireStatus(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (oldRow != null && newRow != null
+                && Objects.equals(oldRow[receiptIdColumn], newRow[receiptIdColumn])
+                && Objects.equals(oldRow[statusColumn], newRow[statusColumn])
+                && Objects.equals(toDate(oldRow[lastUpdateColumn]), toDate(newRow[lastUpdateColumn]))) {
+            return; // box_id, change_log and same-day touches don't move a bucket
+        }
+        if (oldRow != null) {
+            adjustStatusForReceipt(conn, oldRow[receiptIdColumn], (String) oldRow[statusColumn], toDate(oldRow[lastUpdateColumn]), -1);
+        }
+        if (newRow != null) {
+            adjustStatusForReceipt(conn, newRow[receiptIdColumn], (String) newRow[statusColumn], toDate(newRow[lastUpdateColumn]), 1);
+        }
+    }
+
+    private void adjustStatusForReceipt(Connection conn, Object receiptId, String status, LocalDate day, int delta) throws SQLException {
+        if (receiptId == null || status == null || day == null) return;
+        try (PreparedStatement stmt = conn.prepareStatement(RECEIPT_LOOKUP)) {
+            stmt.setObject(1, receiptId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    boolean latest = rs.getObject("latest_id") != null && rs.getLong("latest_id") == toLong(receiptId);
+                    adjustStatus(conn, day, status, rs.getObject("category_id"), rs.getString("model_number"), latest, delta);
+                }
+            }
+        }
+    }
+
+    private void fireReceipt(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        boolean intakeMoved = oldRow == null || newRow == null
+                || !Objects.equals(oldRow[packageIdColumn], newRow[packageIdColumn])
+                || !Objects.equals(oldRow[categoryIdColumn], newRow[categoryIdColumn])
+                || !Objects.equals(oldRow[modelColumn], newRow[modelColumn]);
+        if (!intakeMoved) return;
+
+        if (oldRow != null) {
+            adjustIntake(conn, receiveDate(conn, oldRow[packageIdColumn]), oldRow[categoryIdColumn], (String) oldRow[modelColumn], -1);
+        }
+        if (newRow != null) {
+            adjustIntake(conn, receiveDate(conn, newRow[packageIdColumn]), newRow[categoryIdColumn], (String) newRow[modelColumn], 1);
+        }
+
+        if (oldRow == null) {
+            // A new receipt supersedes the serial's previous latest receipt.
+            moveLatestFlag(conn, newRow[serialColumn], newRow[receiptIdColumn], true);
+        } else if (newRow == null) {
+            // Deleting the latest receipt hands the flag back to the one before it.
+            moveLatestFlag(conn, oldRow[serialColumn], oldRow[receiptIdColumn], false);
+        } else if (!Objects.equals(oldRow[categoryIdColumn], newRow[categoryIdColumn]) || !Objects.equals(oldRow[modelColumn], newRow[modelColumn])) {
+            // Category or model edits move the receipt's status bucket too.
+            boolean latest = isLatest(conn, newRow[serialColumn], newRow[receiptIdColumn]);
+            for (StatusRow status : statusRows(conn, newRow[receiptIdColumn])) {
+                adjustStatus(conn, status.day, status.status, oldRow[categoryIdColumn], (String) oldRow[modelColumn], latest, -1);
+                adjustStatus(conn, status.day, status.status, newRow[categoryIdColumn], (String) newRow[modelColumn], latest, 1);
+            }
+        }
+    }
+
+    /**
+     * @param inserted true when {@code receiptId} was just inserted, false when it was just deleted.
+     */
+    private void moveLatestFlag(Connection conn, Object serial, Object receiptId, boolean inserted) throws SQLException {
+        if (serial == null || receiptId == null) return;
+        Object otherId;
+        try (PreparedStatement stmt = conn.prepareStatement(LATEST_OTHER_RECEIPT)) {
+            stmt.setObject(1, serial);
+            stmt.setObject(2, receiptId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                otherId = rs.next() ? rs.getObject(1) : null;
+            }
+        }
+        if (otherId == null || toLong(otherId) > toLong(receiptId)) return;
+
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT category_id, model_number FROM Receipt_Events WHERE receipt_id = ?")) {
+            stmt.setObject(1, otherId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return;
+                Object categoryId = rs.getObject("category_id");
+                String model = rs.getString("model_number");
+                for (StatusRow status : statusRows(conn, otherId)) {
+                    adjustStatus(conn, status.day, status.status, categoryId, model, inserted, -1);
+                    adjustStatus(conn, status.day, status.status, categoryId, model, !inserted, 1);
+                }
+            }
+        }
+    }
+
+    private boolean isLatest(Connection conn, Object serial, Object receiptId) throws SQLException {
+        if (serial == null) return false;
+        try (PreparedStatement stmt = conn.prepareStatement(LATEST_OTHER_RECEIPT)) {
+            stmt.setObject(1, serial);
+            stmt.setObject(2, receiptId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return !rs.next() || rs.getObject(1) == null || rs.getLong(1) < toLong(receiptId);
+            }
+        }
+    }
+
+    private List<StatusRow> statusRows(Connection conn, Object receiptId) throws SQLException {
+        List<StatusRow> rows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(STATUS_LOOKUP)) {
+            stmt.setObject(1, receiptId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String status = rs.getString("status");
+                    LocalDate day = toDate(rs.getObject("last_update"));
+                    if (status != null && day != null) {
+                        rows.add(new StatusRow(status, day));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private LocalDate receiveDate(Connection conn, Object packageId) throws SQLException {
+        if (packageId == null) return null;
+        try (PreparedStatement stmt = conn.prepareStatement(RECEIVE_DATE_LOOKUP)) {
+            stmt.setObject(1, packageId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? toDate(rs.getObject(1)) : null;
+            }
+        }
+    }
+
+    private void adjustIntake(Connection conn, LocalDate day, Object categoryId, String model, int delta) throws SQLException {
+        if (day == null) return;
+        Upserts.updateOrInsert(conn, UPDATE_INTAKE, INSERT_INTAKE, delta, day, toCategoryId(categoryId), nullToEmpty(model));
+    }
+
+    private void adjustStatus(Connection conn, LocalDate day, String status, Object categoryId, String model, boolean latest, int delta) throws SQLException {
+        Upserts.updateOrInsert(conn, UPDATE_STATUS, INSERT_STATUS, delta, day, status, toCategoryId(categoryId), nullToEmpty(model), latest);
+    }
+
+    static LocalDate toDate(Object value) {
+        return switch (value) {
+            case null -> null;
+            case LocalDate date -> date;
+            case LocalDateTime dateTime -> dateTime.toLocalDate();
+            case OffsetDateTime dateTime -> dateTime.toLocalDate();
+            case Timestamp timestamp -> timestamp.toLocalDateTime().toLocalDate();
+            case java.sql.Date date -> date.toLocalDate();
+            case String text when text.length() >= 10 -> LocalDate.parse(text.substring(0, 10));
+            default -> null;
+        };
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(value.toString());
+    }
+
+    /** Receipts without a category are counted under id 0, which has no Category row. */
+    private static int toCategoryId(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private record StatusRow(String status, LocalDate day) {
+    }
+}
@@ -1,5 +1,6 @@
 package assettracking.db;
 
+import assettracking.concurrent.BackgroundTasks;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
@@ -7,6 +8,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Properties;
@@ -15,6 +18,9 @@ import java.util.concurrent.ExecutionException;
 
 public class DatabaseConnection {
 
+    // BackgroundTasks divides this between the dedicated threads and its own database permits.
+    public static final int MAX_POOL_SIZE = 10;
+
     private static final CompletableFuture<Void> initializationFuture = new CompletableFuture<>();
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConnection.class);
     private static volatile HikariDataSource dataSource;
@@ -25,7 +31,8 @@ public class DatabaseConnection {
     }
 
     private static void initializePoolInBackground() {
-        CompletableFuture.runAsync(() -> {
+        // No database permit: the permits only matter once the pool exists.
+        BackgroundTasks.runIo("database-pool-init", () -> {
             try {
                 // Step 1: Load properties from the config file in the background.
                 Properties properties = new Properties();
@@ -39,15 +46,18 @@ public class DatabaseConnection {
                 // Step 2: Initialize the connection pool. This is the slowest part.
                 Class.forName("org.h2.Driver");
                 HikariConfig config = new HikariConfig();
-                config.setJdbcUrl(properties.getProperty("db.url"));
-                config.setUsername(properties.getProperty("db.user"));
-                config.setPassword(properties.getProperty("db.password"));
+                // System properties win over the file, so tools (e.g. the import benchmark) can point at another database.
+                config.setJdbcUrl(System.getProperty("db.url", properties.getProperty("db.url")));
+                config.setUsername(System.getProperty("db.user", properties.getProperty("db.user")));
+                config.setPassword(System.getProperty("db.password", properties.getProperty("db.password")));
 
-                config.setMaximumPoolSize(10);
+                config.setMaximumPoolSize(MAX_POOL_SIZE);
                 config.setMinimumIdle(2);
                 config.setConnectionTimeout(15000);
                 config.setIdleTimeout(600000);
                 config.setMaxLifetime(1800000);
+                // Triggers run in whichever process serves the database file, so they read the workstation from the session.
+                config.setConnectionInitSql("SET @WORKSTATION = '" + getWorkstationName().replace("'", "''") + "'");
 
                 dataSource = new HikariDataSource(config);
                 logger.info("HikariCP Connection Pool Initialized successfully.");
@@ -74,6 +84,21 @@ public class DatabaseConnection {
         }
     }
 
+    /**
+     * The name recorded against changes made from this machine.
+     */
+    public static String getWorkstationName() {
+        String name = System.getenv("COMPUTERNAME");
+        if (name == null || name.isBlank()) {
+            try {
+                name = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                name = System.getProperty("user.name", "unknown");
+            }
+        }
+        return name;
+    }
+
     public static void refreshConnectionPool() {
         if (dataSource != null) {
             dataSource.getHikariPoolMXBean().softEvictConnections();
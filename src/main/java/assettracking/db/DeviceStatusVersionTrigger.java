@@ -0,0 +1,29 @@
+package assettracking.db;
+
+import assettracking.dao.DeviceStatusVersionDAO;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * BEFORE UPDATE row trigger on Device_Status that increments {@code version} on every update, whichever code path or
+ * workstation made it, so a writer that checks the version it read can tell when the row changed underneath it.
+ * Installed by {@link DeviceStatusVersionDAO}.
+ */
+public class DeviceStatusVersionTrigger implements Trigger {
+
+    private int versionColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        versionColumn = new TriggerColumns(conn, schemaName, tableName).indexOf("VERSION");
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+        if (oldRow == null || newRow == null) return;
+        Object version = oldRow[versionColumn];
+        newRow[versionColumn] = version == null ? 1L : ((Number) version).longValue() + 1;
+    }
+}
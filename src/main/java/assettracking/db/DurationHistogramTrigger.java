@@ -0,0 +1,115 @@
+package assettracking.db;
+
+import assettracking.dao.DurationHistogramDAO;
+import assettracking.metrics.DurationSketch;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+/**
+ * AFTER INSERT row trigger on Status_Transition that counts the durations each transition ends into
+ * Duration_Histogram: the time the receipt spent in the status it is leaving, and when the receipt first reaches
+ * Processed / Ready for Deployment, the time since it was received (the same milestone as the 30-day average
+ * turnaround). Counts are kept per day, category and {@link DurationSketch} bucket so quantiles for
+ * any window are a sum over a few rows. Installed by {@link DurationHistogramDAO}.
+ */
+public class DurationHistogramTrigger implements Trigger {
+
+    private static final String RECEIPT_LOOKUP = "SELECT re.category_id, CAST(p.receive_date AS TIMESTAMP) AS received_at FROM Receipt_Events re LEFT JOIN Packages p ON re.package_id = p.package_id WHERE re.receipt_id = ?";
+    // When the receipt entered the status it is now leaving: its last transition that changed the status itself.
+    private static final String STATUS_ENTERED = "SELECT changed_at FROM Status_Transition WHERE receipt_id = ? AND transition_id < ? AND (from_status IS NULL OR from_status <> to_status) ORDER BY transition_id DESC LIMIT 1";
+    private static final String READY_BEFORE = "SELECT 1 FROM Status_Transition WHERE receipt_id = ? AND transition_id < ? AND to_status = 'Processed' AND to_sub_status = 'Ready for Deployment' LIMIT 1";
+
+    private static final String UPDATE_BUCKET = "UPDATE Duration_Histogram SET sample_count = sample_count + 1 WHERE rollup_day = ? AND metric = ? AND status = ? AND category_id = ? AND bucket = ?";
+    private static final String INSERT_BUCKET = "INSERT INTO Duration_Histogram (rollup_day, metric, status, category_id, bucket, sample_count) VALUES (?, ?, ?, ?, ?, 1)";
+
+
+    private int transitionIdColumn;
+    private int receiptIdColumn;
+    private int fromStatusColumn;
+    private int toStatusColumn;
+    private int toSubStatusColumn;
+    private int changedAtColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        TriggerColumns columns = new TriggerColumns(conn, schemaName, tableName);
+        transitionIdColumn = columns.indexOf("TRANSITION_ID");
+        receiptIdColumn = columns.indexOf("RECEIPT_ID");
+        fromStatusColumn = columns.indexOf("FROM_STATUS");
+        toStatusColumn = columns.indexOf("TO_STATUS");
+        toSubStatusColumn = columns.indexOf("TO_SUB_STATUS");
+        changedAtColumn = columns.indexOf("CHANGED_AT");
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (newRow == null) return;
+        String fromStatus = (String) newRow[fromStatusColumn];
+        String toStatus = (String) newRow[toStatusColumn];
+        boolean statusChanged = fromStatus != null && !fromStatus.equals(toStatus); // not a new receipt or a sub-status change
+        boolean ready = "Processed".equals(toStatus) && "Ready for Deployment".equals(newRow[toSubStatusColumn]);
+        if (!statusChanged && !ready) return;
+
+        LocalDateTime changedAt = toDateTime(newRow[changedAtColumn]);
+        Object receiptId = newRow[receiptIdColumn];
+        int categoryId = 0;
+        LocalDateTime receivedAt = null;
+        try (PreparedStatement stmt = conn.prepareStatement(RECEIPT_LOOKUP)) {
+            stmt.setObject(1, receiptId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    categoryId = rs.getInt("category_id");
+                    receivedAt = toDateTime(rs.getTimestamp("received_at"));
+                }
+            }
+        }
+
+        if (statusChanged) {
+            try (PreparedStatement stmt = conn.prepareStatement(STATUS_ENTERED)) {
+                stmt.setObject(1, receiptId);
+                stmt.setObject(2, newRow[transitionIdColumn]);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        count(conn, changedAt, DurationHistogramDAO.TIME_IN_STATUS, fromStatus, categoryId, Duration.between(toDateTime(rs.getTimestamp(1)), changedAt));
+                    }
+                }
+            }
+        }
+        if (ready && receivedAt != null && !readyBefore(conn, receiptId, newRow[transitionIdColumn])) {
+            count(conn, changedAt, DurationHistogramDAO.TURNAROUND, "", categoryId, Duration.between(receivedAt, changedAt));
+        }
+    }
+
+    private static boolean readyBefore(Connection conn, Object receiptId, Object transitionId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(READY_BEFORE)) {
+            stmt.setObject(1, receiptId);
+            stmt.setObject(2, transitionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void count(Connection conn, LocalDateTime changedAt, String metric, String status, int categoryId, Duration duration) throws SQLException {
+        Object[] key = {changedAt.toLocalDate(), metric, status, categoryId, DurationSketch.bucketOf(duration.getSeconds())};
+        Upserts.updateOrInsert(conn, UPDATE_BUCKET, INSERT_BUCKET, key);
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        return switch (value) {
+            case null -> null;
+            case LocalDateTime dateTime -> dateTime;
+            case OffsetDateTime dateTime -> dateTime.toLocalDateTime();
+            case Timestamp timestamp -> timestamp.toLocalDateTime();
+            default -> LocalDateTime.parse(value.toString().replace(' ', 'T'));
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package assettracking.db;
+
+import assettracking.dao.ReceiptLifecycleDAO;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * AFTER INSERT/UPDATE row trigger on Device_Status that records the milestones of each receipt, one trip of a
+ * device through the depot, in Receipt_Lifecycle: whether it has been in Intake or Triage &amp; Repair, when it was
+ * received and when it first reached Ready for Deployment. A returned device gets a new receipt and so starts with
+ * a fresh row. The flags only ever go from unset to set, so deletes and later status changes leave them alone.
+ * Installed by {@link ReceiptLifecycleDAO}.
+ */
+public class ReceiptLifecycleTrigger implements Trigger {
+
+    // The receive date, as the backfill and the turnaround histograms use, since the Intake status is often skipped.
+    private static final String RECEIVED_LOOKUP = "SELECT CAST(p.receive_date AS TIMESTAMP) FROM Receipt_Events re LEFT JOIN Packages p ON re.package_id = p.package_id WHERE re.receipt_id = ?";
+    private static final String UPDATE_LIFECYCLE = """
+            UPDATE Receipt_Lifecycle SET
+                ever_intaken = ever_intaken OR CAST(? AS BOOLEAN),
+                ever_triaged = ever_triaged OR CAST(? AS BOOLEAN),
+                received_at = COALESCE(received_at, CAST(? AS TIMESTAMP)),
+                first_ready_at = COALESCE(first_ready_at, CAST(? AS TIMESTAMP))
+            WHERE receipt_id = ?
+            """;
+    private static final String INSERT_LIFECYCLE = "INSERT INTO Receipt_Lifecycle (ever_intaken, ever_triaged, received_at, first_ready_at, receipt_id) VALUES (?, ?, ?, ?, ?)";
+
+
+    private int receiptIdColumn;
+    private int statusColumn;
+    private int subStatusColumn;
+    private int lastUpdateColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        TriggerColumns columns = new TriggerColumns(conn, schemaName, tableName);
+        receiptIdColumn = columns.indexOf("RECEIPT_ID");
+        statusColumn = columns.indexOf("STATUS");
+        subStatusColumn = columns.indexOf("SUB_STATUS");
+        lastUpdateColumn = columns.indexOf("LAST_UPDATE");
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (newRow == null) return;
+        if (oldRow != null && Objects.equals(oldRow[statusColumn], newRow[statusColumn]) && Objects.equals(oldRow[subStatusColumn], newRow[subStatusColumn])) {
+            return;
+        }
+        String status = (String) newRow[statusColumn];
+        boolean intaken = "Intake".equals(status);
+        boolean triaged = "Triage & Repair".equals(status);
+        boolean ready = "Processed".equals(status) && "Ready for Deployment".equals(newRow[subStatusColumn]);
+        if (!intaken && !triaged && !ready) return;
+
+        Object receiptId = newRow[receiptIdColumn];
+        if (receiptId == null) return;
+        Object[] values = {intaken, triaged, receivedAt(conn, receiptId), ready ? newRow[lastUpdateColumn] : null, receiptId};
+
+        Upserts.updateOrInsert(conn, UPDATE_LIFECYCLE, INSERT_LIFECYCLE, values);
+    }
+
+    private static Object receivedAt(Connection conn, Object receiptId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(RECEIVED_LOOKUP)) {
+            stmt.setObject(1, receiptId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getTimestamp(1) : null;
+            }
+        }
+    }
+}
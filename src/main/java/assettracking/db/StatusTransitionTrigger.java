@@ -0,0 +1,60 @@
+package assettracking.db;
+
+import assettracking.dao.StatusTransitionDAO;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+
+/**
+ * AFTER INSERT/UPDATE row trigger on Device_Status that appends a Status_Transition row whenever a receipt's
+ * status or sub-status changes, in the writer's transaction, so the history can't disagree with the current state.
+ * The row keeps the notes as they stood at that change, since later edits overwrite them in Device_Status.
+ * The workstation comes from the session's {@code @WORKSTATION} variable, which {@link DatabaseConnection} sets on
+ * every pooled connection. Installed by {@link StatusTransitionDAO}.
+ */
+public class StatusTransitionTrigger implements Trigger {
+
+    private static final String INSERT_TRANSITION = "INSERT INTO Status_Transition (receipt_id, from_status, to_status, to_sub_status, changed_at, workstation, note) VALUES (?, ?, ?, ?, LOCALTIMESTAMP, ?, ?)";
+
+    private int receiptIdColumn;
+    private int statusColumn;
+    private int subStatusColumn;
+    private int changeLogColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        TriggerColumns columns = new TriggerColumns(conn, schemaName, tableName);
+        receiptIdColumn = columns.indexOf("RECEIPT_ID");
+        statusColumn = columns.indexOf("STATUS");
+        subStatusColumn = columns.indexOf("SUB_STATUS");
+        changeLogColumn = columns.indexOf("CHANGE_LOG");
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (newRow == null) return;
+        if (oldRow != null && Objects.equals(oldRow[statusColumn], newRow[statusColumn]) && Objects.equals(oldRow[subStatusColumn], newRow[subStatusColumn])) {
+            return; // notes, box id and timestamp touches aren't transitions
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_TRANSITION)) {
+            stmt.setObject(1, newRow[receiptIdColumn]);
+            stmt.setObject(2, oldRow == null ? null : oldRow[statusColumn]);
+            stmt.setObject(3, newRow[statusColumn]);
+            stmt.setObject(4, newRow[subStatusColumn]);
+            stmt.setString(5, workstation(conn));
+            stmt.setObject(6, newRow[changeLogColumn]);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String workstation(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT @WORKSTATION")) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package assettracking.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs a unit of work in one transaction on its own pooled connection. H2 breaks a deadlock by rolling back the
+ * whole transaction of one of the writers, so nothing that work did or reported still holds; it is run again from
+ * the start in a new transaction instead, and only the result of the run that commits is returned.
+ */
+public final class Transactions {
+
+    /**
+     * SQLSTATE for a deadlock. The transaction has been rolled back.
+     */
+    public static final String DEADLOCK_STATE = "40001";
+    /**
+     * SQLSTATE for a lock wait that timed out. Only the statement failed; the transaction is still open.
+     */
+    public static final String LOCK_TIMEOUT_STATE = "HYT00";
+
+    private static final Logger logger = LoggerFactory.getLogger(Transactions.class);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private Transactions() {
+    }
+
+    public static boolean isDeadlock(SQLException e) {
+        return DEADLOCK_STATE.equals(e.getSQLState());
+    }
+
+    /**
+     * Runs {@code work} and commits, running it again after a deadlock, up to three times in all. Any other
+     * failure rolls back and is rethrown.
+     */
+    public static <T> T inTransaction(Work<T> work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    T result = work.run(conn);
+                    conn.commit();
+                    return result;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (!isDeadlock(e) || attempt == MAX_ATTEMPTS) throw e;
+                    logger.info("Transaction deadlocked on attempt {}; running it again.", attempt);
+                } catch (RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+}
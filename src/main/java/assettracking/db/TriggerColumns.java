@@ -0,0 +1,37 @@
+package assettracking.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column positions of a table, for triggers that receive rows as plain arrays.
+ */
+final class TriggerColumns {
+
+    private final String tableName;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    TriggerColumns(Connection conn, String schemaName, String tableName) throws SQLException {
+        this.tableName = tableName;
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (rs.next()) {
+                positions.put(rs.getString("COLUMN_NAME").toUpperCase(Locale.ROOT), rs.getInt("ORDINAL_POSITION") - 1);
+            }
+        }
+    }
+
+    /**
+     * @return The zero-based index of the column in trigger rows.
+     */
+    int indexOf(String columnName) throws SQLException {
+        Integer index = positions.get(columnName.toUpperCase(Locale.ROOT));
+        if (index == null) {
+            throw new SQLException("Trigger: column " + columnName + " not found on " + tableName);
+        }
+        return index;
+    }
+}
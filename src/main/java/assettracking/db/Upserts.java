@@ -0,0 +1,68 @@
+package assettracking.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Update-or-insert for tables that several workstations write at once. H2 has no atomic upsert that reports a
+ * lost race, so the update runs first and the insert only when it matched nothing; if another connection inserts
+ * the same key in between, the insert fails with a duplicate key and the update is retried against their row.
+ * Used by the DAOs and by the triggers, which run on the writer's connection.
+ */
+public final class Upserts {
+
+    /**
+     * SQLSTATE for a unique or primary key violation.
+     */
+    public static final String DUPLICATE_KEY_STATE = "23505";
+
+    private Upserts() {
+    }
+
+    public static boolean isDuplicateKey(SQLException e) {
+        return DUPLICATE_KEY_STATE.equals(e.getSQLState());
+    }
+
+    /**
+     * Runs {@code updateSql}, and {@code insertSql} if no row matched. Both statements take {@code values} as
+     * their parameters, in the same order.
+     */
+    public static void updateOrInsert(Connection conn, String updateSql, String insertSql, Object... values) throws SQLException {
+        if (execute(conn, updateSql, values) > 0) return;
+        try {
+            execute(conn, insertSql, values);
+        } catch (SQLException e) {
+            if (!isDuplicateKey(e)) throw e;
+            execute(conn, updateSql, values);
+        }
+    }
+
+    /**
+     * Inserts a row unless one with the same key already exists.
+     *
+     * @return True if this call inserted it.
+     */
+    public static boolean insertIfAbsent(Connection conn, String insertSql, Object... values) throws SQLException {
+        try {
+            return execute(conn, insertSql, values) > 0;
+        } catch (SQLException e) {
+            if (!isDuplicateKey(e)) throw e;
+            return false;
+        }
+    }
+
+    /**
+     * Runs an update with positional parameters.
+     *
+     * @return The number of rows changed.
+     */
+    public static int execute(Connection conn, String sql, Object... values) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < values.length; i++) {
+                stmt.setObject(i + 1, values[i]);
+            }
+            return stmt.executeUpdate();
+        }
+    }
+}
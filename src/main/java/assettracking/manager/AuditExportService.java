@@ -0,0 +1,411 @@
+package assettracking.manager;
+
+import assettracking.concurrent.BackgroundTasks;
+import assettracking.db.DatabaseConnection;
+import assettracking.manager.ParquetTableWriter.ColumnType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Exports the full device history (every Receipt_Events row with its Device_Status and Disposition_Info)
+ * for audits and offline analysis. The receipt_id space is split into ranges that are read on parallel
+ * connections, and rows are written to one CSV, XLSX or Parquet file per receive month, followed by a
+ * manifest.json describing the partitions.
+ * <p>
+ * Each worker only holds a small batch of rows per month, so memory stays bounded regardless of how many
+ * years of history are exported. Rows inside a partition are grouped by range, not globally sorted;
+ * receipt_id is the first column for that reason.
+ */
+public class AuditExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditExportService.class);
+    // Part of the pool budget in BackgroundTasks, so the rest of the app keeps working during an export.
+    private static final int WORKER_COUNT = BackgroundTasks.AUDIT_EXPORT_CONNECTIONS;
+    private static final int RANGE_SIZE = 25_000;
+    private static final int FETCH_SIZE = 1000;
+    private static final int APPEND_BATCH_SIZE = 1000;
+    private static final int XLSX_ROW_WINDOW = 100;
+    private static final int XLSX_MAX_ROWS_PER_SHEET = 1_000_000;
+    private static final int PARQUET_ROW_GROUP_SIZE = 8192;
+    private static final String UNDATED_PARTITION = "undated";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final int RECEIVE_DATE = 4;
+
+    private static final String[] HEADERS = {"Receipt ID", "Serial Number", "Package ID", "Tracking Number", "Receive Date", "Category", "Make", "Model Number", "Description", "IMEI", "Status", "Sub Status", "Last Update", "Box ID", "Change Log", "Is Everon", "Is Under Capacity", "Is End of Life", "Is Phone", "Other Disqualification"};
+
+    // Column names and types for Parquet partitions, in the same order as HEADERS.
+    private static final String[] COLUMN_NAMES = {"receipt_id", "serial_number", "package_id", "tracking_number", "receive_date", "category", "make", "model_number", "description", "imei", "status", "sub_status", "last_update", "box_id", "change_log", "is_everon", "is_under_capacity", "is_end_of_life", "is_phone", "other_disqualification"};
+    private static final ColumnType[] COLUMN_TYPES = {
+            ColumnType.INT64, ColumnType.STRING, ColumnType.INT64, ColumnType.STRING, ColumnType.DATE,
+            ColumnType.DICTIONARY_STRING, ColumnType.DICTIONARY_STRING, ColumnType.DICTIONARY_STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.DICTIONARY_STRING, ColumnType.DICTIONARY_STRING, ColumnType.TIMESTAMP, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.BOOLEAN, ColumnType.BOOLEAN, ColumnType.BOOLEAN, ColumnType.BOOLEAN, ColumnType.STRING
+    };
+
+    private static final String RANGE_QUERY = """
+                SELECT
+                    re.receipt_id, re.serial_number, re.package_id, p.tracking_number, p.receive_date,
+                    re.category, re.make, re.model_number, re.description, re.imei,
+                    ds.status, ds.sub_status, ds.last_update, ds.box_id, ds.change_log,
+                    di.is_everon, di.is_under_capacity, di.is_end_of_life, di.is_phone, di.other_disqualification
+                FROM Receipt_Events re
+                LEFT JOIN Packages p ON re.package_id = p.package_id
+                LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id
+                LEFT JOIN Disposition_Info di ON re.receipt_id = di.receipt_id
+                WHERE re.receipt_id BETWEEN ? AND ?
+                ORDER BY re.receipt_id
+            """;
+
+    /**
+     * Writes the partitions and manifest into a new timestamped folder under {@code outputDir}.
+     * When cancelled, the folder is removed and {@code null} is returned.
+     *
+     * @param isCancelled Checked by every worker between batches.
+     * @param progress    Receives rows exported so far against the total Receipt_Events count.
+     * @return The manifest file, or null if the export was cancelled.
+     */
+    public Path exportHistory(Path outputDir, Format format, BooleanSupplier isCancelled, ReportingService.ExportProgress progress) throws SQLException, IOException {
+        long minId;
+        long maxId;
+        long totalRows;
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement("SELECT MIN(receipt_id), MAX(receipt_id), COUNT(*) FROM Receipt_Events"); ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            minId = rs.getLong(1);
+            maxId = rs.getLong(2);
+            totalRows = rs.getLong(3);
+        }
+
+        Path exportDir = Files.createDirectories(outputDir.resolve("audit_export_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))));
+        Map<String, Partition> partitions = new ConcurrentHashMap<>();
+        AtomicLong rowsExported = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        BooleanSupplier shouldStop = () -> stop.get() || isCancelled.getAsBoolean();
+
+        ExecutorService workers = Executors.newFixedThreadPool(WORKER_COUNT, runnable -> {
+            Thread thread = new Thread(runnable, "audit-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> rangeJobs = new ArrayList<>();
+        if (totalRows > 0) {
+            for (long rangeStart = minId; rangeStart <= maxId; rangeStart += RANGE_SIZE) {
+                long start = rangeStart;
+                long end = Math.min(start + RANGE_SIZE - 1, maxId);
+                rangeJobs.add(workers.submit(() -> {
+                    exportRange(start, end, exportDir, format, partitions, shouldStop, () -> progress.update(rowsExported.addAndGet(APPEND_BATCH_SIZE), totalRows));
+                    return null;
+                }));
+            }
+        }
+        workers.shutdown();
+
+        Exception failure = null;
+        for (Future<?> job : rangeJobs) {
+            try {
+                job.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+                    failure = cause instanceof Exception exception ? exception : e;
+                    stop.set(true); // Let the other workers finish their current batch and stop.
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop.set(true);
+                failure = e;
+            }
+        }
+
+        boolean keep = failure == null && !isCancelled.getAsBoolean();
+        IOException closeFailure = null;
+        for (Partition partition : partitions.values()) {
+            try {
+                partition.close(keep);
+            } catch (IOException e) {
+                closeFailure = e;
+            }
+        }
+
+        if (!keep) {
+            deleteQuietly(exportDir);
+            if (failure instanceof SQLException sqlException) throw sqlException;
+            if (failure instanceof IOException ioException) throw ioException;
+            if (failure != null) throw new IOException("Audit export failed: " + failure.getMessage(), failure);
+            return null;
+        }
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
+
+        progress.update(totalRows, totalRows);
+        return writeManifest(exportDir, format, minId, maxId, partitions);
+    }
+
+    private void exportRange(long startId, long endId, Path exportDir, Format format, Map<String, Partition> partitions, BooleanSupplier shouldStop, Runnable onBatch) throws SQLException, IOException {
+        if (shouldStop.getAsBoolean()) return;
+
+        Map<String, List<Object[]>> pendingByMonth = new HashMap<>();
+        int pendingRows = 0;
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(RANGE_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            stmt.setLong(1, startId);
+            stmt.setLong(2, endId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                int columnCount = HEADERS.length;
+                while (rs.next()) {
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = switch (COLUMN_TYPES[i]) {
+                            case INT64 -> rs.getObject(i + 1, Long.class);
+                            case DATE -> rs.getObject(i + 1, LocalDate.class);
+                            case TIMESTAMP -> rs.getObject(i + 1, LocalDateTime.class);
+                            case BOOLEAN -> rs.getObject(i + 1, Boolean.class);
+                            default -> rs.getString(i + 1);
+                        };
+                    }
+                    LocalDate receiveDate = (LocalDate) row[RECEIVE_DATE];
+                    String month = receiveDate != null ? receiveDate.format(MONTH_FORMAT) : UNDATED_PARTITION;
+                    pendingByMonth.computeIfAbsent(month, k -> new ArrayList<>()).add(row);
+
+                    if (++pendingRows == APPEND_BATCH_SIZE) {
+                        flush(pendingByMonth, exportDir, format, partitions);
+                        pendingRows = 0;
+                        onBatch.run();
+                        if (shouldStop.getAsBoolean()) return;
+                    }
+                }
+            }
+        }
+        flush(pendingByMonth, exportDir, format, partitions);
+    }
+
+    private void flush(Map<String, List<Object[]>> pendingByMonth, Path exportDir, Format format, Map<String, Partition> partitions) throws IOException {
+        for (Map.Entry<String, List<Object[]>> entry : pendingByMonth.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            Partition partition = partitions.computeIfAbsent(entry.getKey(), month -> openPartition(exportDir, format, month));
+            partition.append(entry.getValue());
+            entry.getValue().clear();
+        }
+    }
+
+    private Partition openPartition(Path exportDir, Format format, String month) {
+        Path file = exportDir.resolve("audit_" + month + "." + format.name().toLowerCase());
+        try {
+            return switch (format) {
+                case CSV -> new CsvPartition(month, file);
+                case XLSX -> new XlsxPartition(month, file);
+                case PARQUET -> new ParquetPartition(month, file);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path writeManifest(Path exportDir, Format format, long minId, long maxId, Map<String, Partition> partitions) throws IOException {
+        List<PartitionEntry> entries = partitions.values().stream()
+                .sorted(Comparator.comparing(p -> p.month))
+                .map(p -> new PartitionEntry(p.month, p.file.getFileName().toString(), p.rowCount, p.minReceiptId, p.maxReceiptId))
+                .toList();
+        long totalRows = entries.stream().mapToLong(PartitionEntry::rows).sum();
+        Manifest manifest = new Manifest(LocalDateTime.now().toString(), format.name(), minId, maxId, totalRows, "Receive month (Packages.receive_date)", entries);
+
+        Path manifestFile = exportDir.resolve("manifest.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(manifestFile.toFile(), manifest);
+        logger.info("Audit export finished: {} rows in {} partitions at {}", totalRows, entries.size(), exportDir);
+        return manifestFile;
+    }
+
+    private static String displayValue(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDateTime timestamp) return timestamp.format(ReportSnapshotCache.TIMESTAMP_FORMAT);
+        return value.toString();
+    }
+
+    private void deleteQuietly(Path dir) {
+        try (var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Could not delete {}", path);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not clean up audit export folder {}", dir, e);
+        }
+    }
+
+    public enum Format {CSV, XLSX, PARQUET}
+
+    public record PartitionEntry(String month, String file, long rows, long minReceiptId, long maxReceiptId) {
+    }
+
+    public record Manifest(String generatedAt, String format, long minReceiptId, long maxReceiptId, long totalRows, String partitionedBy, List<PartitionEntry> partitions) {
+    }
+
+    /**
+     * One month's output file. Workers append whole batches under the partition's lock.
+     */
+    private abstract static class Partition {
+        final String month;
+        final Path file;
+        long rowCount;
+        long minReceiptId = Long.MAX_VALUE;
+        long maxReceiptId = Long.MIN_VALUE;
+
+        Partition(String month, Path file) {
+            this.month = month;
+            this.file = file;
+        }
+
+        synchronized void append(List<Object[]> rows) throws IOException {
+            for (Object[] row : rows) {
+                long receiptId = (Long) row[0];
+                minReceiptId = Math.min(minReceiptId, receiptId);
+                maxReceiptId = Math.max(maxReceiptId, receiptId);
+                writeRow(row);
+            }
+            rowCount += rows.size();
+        }
+
+        abstract void writeRow(Object[] row) throws IOException;
+
+        /**
+         * Finishes the file. With {@code keep} false the output is about to be deleted, so nothing more is written.
+         */
+        abstract void close(boolean keep) throws IOException;
+    }
+
+    private static class CsvPartition extends Partition {
+        private final Writer writer;
+
+        CsvPartition(String month, Path file) throws IOException {
+            super(month, file);
+            this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+            writer.write(String.join(",", HEADERS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        void writeRow(Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) writer.write(',');
+                ReportingService.writeCsvField(writer, displayValue(row[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        synchronized void close(boolean keep) throws IOException {
+            writer.close();
+        }
+    }
+
+    private static class XlsxPartition extends Partition {
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+        private final CellStyle headerStyle;
+        private Sheet sheet;
+        private int rowNum;
+
+        XlsxPartition(String month, Path file) {
+            super(month, file);
+            workbook.setCompressTempFiles(true);
+            headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            startSheet();
+        }
+
+        private void startSheet() {
+            int sheetNumber = workbook.getNumberOfSheets() + 1;
+            sheet = workbook.createSheet(sheetNumber == 1 ? "History" : "History (" + sheetNumber + ")");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                header.createCell(i).setCellValue(HEADERS[i]);
+                header.getCell(i).setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, 18 * 256);
+            }
+            rowNum = 1;
+        }
+
+        @Override
+        void writeRow(Object[] row) {
+            // A month can outgrow one sheet's row limit, so it continues on a new sheet in the same file.
+            if (rowNum > XLSX_MAX_ROWS_PER_SHEET) {
+                startSheet();
+            }
+            Row excelRow = sheet.createRow(rowNum++);
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] instanceof Long number) {
+                    excelRow.createCell(i).setCellValue(number);
+                } else if (row[i] != null) {
+                    excelRow.createCell(i).setCellValue(displayValue(row[i]));
+                }
+            }
+        }
+
+        @Override
+        synchronized void close(boolean keep) throws IOException {
+            try {
+                if (keep) {
+                    try (OutputStream out = Files.newOutputStream(file)) {
+                        workbook.write(out);
+                    }
+                }
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+
+    private static class ParquetPartition extends Partition {
+        private final ParquetTableWriter writer;
+
+        ParquetPartition(String month, Path file) throws IOException {
+            super(month, file);
+            List<ParquetTableWriter.Column> columns = new ArrayList<>();
+            for (int i = 0; i < COLUMN_NAMES.length; i++) {
+                columns.add(new ParquetTableWriter.Column(COLUMN_NAMES[i], COLUMN_TYPES[i]));
+            }
+            // Every month stays open until the export ends, so row groups are kept smaller than the default.
+            this.writer = new ParquetTableWriter(Files.newOutputStream(file), columns, PARQUET_ROW_GROUP_SIZE);
+        }
+
+        @Override
+        void writeRow(Object[] row) throws IOException {
+            writer.writeRow(row);
+        }
+
+        @Override
+        synchronized void close(boolean keep) throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package assettracking.manager;
+
+import assettracking.db.DatabaseConnection;
+import org.apache.poi.ss.usermodel.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Reads an autofill spreadsheet using a user-chosen column mapping and upserts it into Device_Autofill_Data.
+ * The UI side (choosing the file and mapping columns) lives in AutofillImportDialogController.
+ */
+public class AutofillImportService {
+
+    /**
+     * Reads the header row of the first sheet.
+     */
+    public List<String> readHeaders(File file) throws IOException {
+        try (FileInputStream fis = new FileInputStream(file); Workbook workbook = WorkbookFactory.create(fis)) {
+            List<String> headers = new ArrayList<>();
+            Row headerRow = workbook.getSheetAt(0).getRow(0);
+            if (headerRow != null) {
+                for (Cell cell : headerRow) {
+                    headers.add(getCellValueAsString(cell));
+                }
+            }
+            return headers;
+        }
+    }
+
+    /**
+     * Imports the file.
+     *
+     * @param file          The Excel file to import.
+     * @param columnMapping Database field name (serial_number, part_number, description) to the selected header name.
+     *                      serial_number is required; unmapped fields use the defaults.
+     * @param defaults      Values applied to every row for fields the file does not provide.
+     * @return The number of records written.
+     */
+    public int importFile(File file, Map<String, String> columnMapping, Defaults defaults) throws IOException, SQLException {
+        List<Map<String, String>> dataRows = parseExcelData(file, columnMapping);
+
+        String sql = "MERGE INTO device_autofill_data (serial_number, part_number, description, make, category) KEY(serial_number) VALUES (?, ?, ?, ?, ?)";
+        int[] results;
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (Map<String, String> rowData : dataRows) {
+                stmt.setString(1, rowData.get("serial_number"));
+                stmt.setString(2, rowData.getOrDefault("part_number", defaults.partNumber()));
+                stmt.setString(3, rowData.getOrDefault("description", defaults.description()));
+                stmt.setString(4, defaults.make());
+                stmt.setString(5, defaults.category());
+                stmt.addBatch();
+            }
+            results = stmt.executeBatch();
+            conn.commit();
+        }
+        return (int) Arrays.stream(results).filter(i -> i >= 0).count();
+    }
+
+    private List<Map<String, String>> parseExcelData(File file, Map<String, String> columnMapping) throws IOException {
+        List<Map<String, String>> dataRows = new ArrayList<>();
+        try (FileInputStream fis = new FileInputStream(file); Workbook workbook = WorkbookFactory.create(fis)) {
+            Sheet sheet = workbook.getSheetAt(0);
+
+            // Resolve the selected header names to column indexes once, from the same workbook.
+            Map<String, Integer> columnIndexes = new HashMap<>();
+            Row headerRow = sheet.getRow(0);
+            if (headerRow != null) {
+                for (Map.Entry<String, String> entry : columnMapping.entrySet()) {
+                    for (Cell cell : headerRow) {
+                        if (entry.getValue().equalsIgnoreCase(getCellValueAsString(cell))) {
+                            columnIndexes.put(entry.getKey(), cell.getColumnIndex());
+                            break;
+                        }
+                    }
+                }
+            }
+            Integer serialIndex = columnIndexes.get("serial_number");
+            if (serialIndex == null) {
+                throw new IOException("The mapped 'Serial Number' column was not found in the file.");
+            }
+
+            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+                Row row = sheet.getRow(i);
+                if (row == null) continue;
+
+                String serial = getCellValueAsString(row.getCell(serialIndex));
+                if (serial.isEmpty()) continue;
+
+                Map<String, String> rowData = new HashMap<>();
+                rowData.put("serial_number", serial);
+                for (String field : List.of("part_number", "description")) {
+                    Integer index = columnIndexes.get(field);
+                    if (index != null) {
+                        rowData.put(field, getCellValueAsString(row.getCell(index)));
+                    }
+                }
+                dataRows.add(rowData);
+            }
+        }
+        return dataRows;
+    }
+
+    private String getCellValueAsString(Cell cell) {
+        if (cell == null) return "";
+        return new DataFormatter().formatCellValue(cell).trim();
+    }
+
+    public record Defaults(String partNumber, String description, String make, String category) {
+    }
+}
@@ -0,0 +1,121 @@
+package assettracking.manager;
+
+import assettracking.dao.ChangeCursor;
+import assettracking.dao.ChangeLogDAO;
+import assettracking.data.ChangeRecord;
+import assettracking.data.DashboardTile;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Polls Change_Log and reports which dashboard tiles the new changes affect. Each poll reads only the changes
+ * after its {@link ChangeCursor}, so an idle database costs one empty primary-key lookup per interval, however
+ * many dashboards are open, and a change that commits after a newer one is still reported.
+ */
+public class DashboardChangeWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardChangeWatcher.class);
+    private static final long POLL_INTERVAL_SECONDS = 5;
+    private static final int BATCH_LIMIT = 500;
+    // About once an hour at the poll interval above.
+    private static final int POLLS_PER_PRUNE = 720;
+
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-change-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Only touched on the scheduler thread.
+    private ChangeCursor cursor;
+    private int pollsSincePrune;
+
+    /**
+     * Starts watching. {@code onChange} is called on the FX thread, first with every tile and then with the tiles
+     * affected by each batch of changes. If the change log is unavailable only the first call is made.
+     */
+    public void start(Consumer<Set<DashboardTile>> onChange) {
+        scheduler.execute(() -> {
+            boolean polling = false;
+            try {
+                // Read the starting point before the first refresh so nothing written in between is missed.
+                if (changeLogDAO.isInstalled()) {
+                    // Changes from the last few minutes may still be committing, so start before them.
+                    cursor = new ChangeCursor(changeLogDAO.getSettledChangeId());
+                    cursor.acceptIds(changeLogDAO.getChangeIdsAfter(cursor.floor()), System.nanoTime());
+                    polling = true;
+                }
+            } catch (Exception e) {
+                logger.error("Could not read the change log; the dashboard will not update by itself.", e);
+            }
+            Platform.runLater(() -> onChange.accept(EnumSet.allOf(DashboardTile.class)));
+            if (polling) {
+                scheduler.scheduleWithFixedDelay(() -> poll(onChange), POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void poll(Consumer<Set<DashboardTile>> onChange) {
+        // An exception escaping a scheduled task cancels it, so everything is caught here.
+        try {
+            List<ChangeRecord> batch = changeLogDAO.getChangesAfter(cursor.floor(), BATCH_LIMIT);
+            Set<DashboardTile> tiles;
+            if (batch.size() == BATCH_LIMIT) {
+                // A bulk operation: refresh everything rather than read the whole backlog.
+                tiles = EnumSet.allOf(DashboardTile.class);
+                cursor.acceptIds(changeLogDAO.getChangeIdsAfter(cursor.floor()), System.nanoTime());
+            } else {
+                List<ChangeRecord> changes = cursor.accept(batch, System.nanoTime());
+                if (changes.isEmpty()) {
+                    if (++pollsSincePrune >= POLLS_PER_PRUNE) {
+                        pollsSincePrune = 0;
+                        changeLogDAO.prune();
+                    }
+                    return;
+                }
+                tiles = affectedTiles(changes);
+            }
+            if (!tiles.isEmpty()) {
+                Platform.runLater(() -> onChange.accept(tiles));
+            }
+        } catch (Exception e) {
+            logger.warn("Change log poll failed; will retry.", e);
+        }
+    }
+
+    static Set<DashboardTile> affectedTiles(List<ChangeRecord> changes) {
+        Set<DashboardTile> tiles = EnumSet.noneOf(DashboardTile.class);
+        for (ChangeRecord change : changes) {
+            if (change.sourceTable().equals(ChangeLogDAO.RECEIPT_EVENTS)) {
+                // Receipts carry the intake counts, categories, models and the latest-receipt flag behind every tile.
+                return EnumSet.allOf(DashboardTile.class);
+            }
+            if (!change.operation().equals("U") || !Objects.equals(change.oldStatus(), change.newStatus())) {
+                // Leaving a status adds a time-in-status sample, which the KPI percentiles read.
+                tiles.addAll(EnumSet.of(DashboardTile.INVENTORY_OVERVIEW, DashboardTile.KPIS));
+            }
+            if ("Processed".equals(change.oldStatus()) || "Processed".equals(change.newStatus())) {
+                tiles.addAll(EnumSet.of(DashboardTile.GRANULAR_METRICS, DashboardTile.KPIS, DashboardTile.TOP_MODELS,
+                        DashboardTile.PROCESSED_BREAKDOWN, DashboardTile.INTAKE_VS_PROCESSED));
+            }
+            if ("Disposed".equals(change.oldStatus()) || "Disposed".equals(change.newStatus())) {
+                tiles.addAll(EnumSet.of(DashboardTile.GRANULAR_METRICS, DashboardTile.KPIS));
+            }
+        }
+        return tiles;
+    }
+}
@@ -1,7 +1,17 @@
 package assettracking.manager;
 
+import assettracking.dao.ChangeLogDAO;
+import assettracking.dao.DailyRollupDAO;
+import assettracking.dao.DurationHistogramDAO;
+import assettracking.dao.ReceiptLifecycleDAO;
+import assettracking.data.DashboardSnapshot;
+import assettracking.data.DashboardSnapshot.DailyCount;
+import assettracking.data.DashboardSnapshot.Slice;
+import assettracking.data.DashboardTile;
+import assettracking.data.DeviceClass;
 import assettracking.data.TopModelStat;
 import assettracking.db.DatabaseConnection;
+import assettracking.metrics.DurationSketch;
 import javafx.scene.chart.PieChart;
 import javafx.scene.chart.XYChart;
 import org.slf4j.Logger;
@@ -11,16 +21,61 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 
 public class DashboardDataService {
     private static final Logger logger = LoggerFactory.getLogger(DashboardDataService.class);
 
-
     private static final String LATEST_RECEIPT_SUBQUERY = "SELECT serial_number, MAX(receipt_id) as max_receipt_id FROM Receipt_Events GROUP BY serial_number";
+    private static final String CATEGORY_JOIN = "JOIN Category c ON c.category_id = r.category_id";
+    // Enough for every range on both the tiles and the KPIs, with room for the day rolling over.
+    private static final int CACHE_MAX_ENTRIES = 16;
+    private static final Duration CACHE_MAX_AGE = Duration.ofMinutes(10);
+
+    private final DailyRollupDAO rollupDAO = new DailyRollupDAO();
+    private final ReceiptLifecycleDAO lifecycleDAO = new ReceiptLifecycleDAO();
+    private final DurationHistogramDAO histogramDAO = new DurationHistogramDAO();
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    private final ResultCache<List<LocalDate>, RangeTiles> rangeTilesCache = new ResultCache<>(CACHE_MAX_ENTRIES, CACHE_MAX_AGE);
+    private final ResultCache<LocalDate, Map<String, String>> kpiCache = new ResultCache<>(CACHE_MAX_ENTRIES, CACHE_MAX_AGE);
+
+    /**
+     * Intake, processed and disposed counts per device family since {@code since}, keyed like "laptopsIntaken".
+     */
+    public Map<String, Integer> getGranularMetrics(LocalDate since) throws SQLException {
+        if (!rollupDAO.isInstalled()) {
+            return getGranularMetricsLive(sinceClause("p.receive_date", since), sinceClause("ds.last_update", since));
+        }
+        Map<String, Integer> metrics = new HashMap<>();
+        String intakeSql = "SELECT c.device_class, SUM(r.device_count) AS device_count FROM Daily_Intake_Rollup r " + CATEGORY_JOIN + " WHERE r.rollup_day >= ? GROUP BY c.device_class";
+        String statusSql = "SELECT c.device_class, r.status, SUM(r.device_count) AS device_count FROM Daily_Status_Rollup r " + CATEGORY_JOIN + " WHERE r.rollup_day >= ? AND r.status IN ('Processed', 'Disposed') GROUP BY c.device_class, r.status";
+
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(intakeSql)) {
+                stmt.setDate(1, java.sql.Date.valueOf(since));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String family = deviceFamily(DeviceClass.valueOf(rs.getString("device_class")));
+                        if (family != null) metrics.merge(family + "Intaken", rs.getInt("device_count"), Integer::sum);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(statusSql)) {
+                stmt.setDate(1, java.sql.Date.valueOf(since));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String family = deviceFamily(DeviceClass.valueOf(rs.getString("device_class")));
+                        if (family != null) metrics.merge(family + rs.getString("status"), rs.getInt("device_count"), Integer::sum);
+                    }
+                }
+            }
+        }
+        return metrics;
+    }
 
-    public Map<String, Integer> getGranularMetrics(String intakeDateClause, String statusDateClause) throws SQLException {
+    private Map<String, Integer> getGranularMetricsLive(String intakeDateClause, String statusDateClause) throws SQLException {
         Map<String, Integer> metrics = new HashMap<>();
         String sql = String.format("""
                     SELECT
@@ -41,32 +96,47 @@ public class DashboardDataService {
 
         try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                String category = rs.getString("category");
-                if (category == null) continue;
-                if (category.contains("Laptop")) {
-                    metrics.merge("laptopsIntaken", rs.getInt("IntakenCount"), Integer::sum);
-                    metrics.merge("laptopsProcessed", rs.getInt("ProcessedCount"), Integer::sum);
-                    metrics.merge("laptopsDisposed", rs.getInt("DisposedCount"), Integer::sum);
-                } else if (category.contains("Tablet")) {
-                    metrics.merge("tabletsIntaken", rs.getInt("IntakenCount"), Integer::sum);
-                    metrics.merge("tabletsProcessed", rs.getInt("ProcessedCount"), Integer::sum);
-                    metrics.merge("tabletsDisposed", rs.getInt("DisposedCount"), Integer::sum);
-                } else if (category.contains("Desktop")) {
-                    metrics.merge("desktopsIntaken", rs.getInt("IntakenCount"), Integer::sum);
-                    metrics.merge("desktopsProcessed", rs.getInt("ProcessedCount"), Integer::sum);
-                    metrics.merge("desktopsDisposed", rs.getInt("DisposedCount"), Integer::sum);
-                } else if (category.contains("Monitor")) {
-                    metrics.merge("monitorsIntaken", rs.getInt("IntakenCount"), Integer::sum);
-                    metrics.merge("monitorsProcessed", rs.getInt("ProcessedCount"), Integer::sum);
-                    metrics.merge("monitorsDisposed", rs.getInt("DisposedCount"), Integer::sum);
-                }
+                String family = deviceFamily(DeviceClass.classify(rs.getString("category")));
+                if (family == null) continue;
+                metrics.merge(family + "Intaken", rs.getInt("IntakenCount"), Integer::sum);
+                metrics.merge(family + "Processed", rs.getInt("ProcessedCount"), Integer::sum);
+                metrics.merge(family + "Disposed", rs.getInt("DisposedCount"), Integer::sum);
             }
         }
         return metrics;
     }
 
-    public List<TopModelStat> getTopModels(String dateFilterClause) throws SQLException {
-        List<TopModelStat> results = new ArrayList<>();
+    private static String deviceFamily(DeviceClass deviceClass) {
+        return switch (deviceClass) {
+            case LAPTOP -> "laptops";
+            case TABLET -> "tablets";
+            case DESKTOP -> "desktops";
+            case MONITOR -> "monitors";
+            case OTHER -> null;
+        };
+    }
+
+    private static String sinceClause(String column, LocalDate since) {
+        // LocalDate.toString() is always yyyy-MM-dd, so it is safe to inline as a literal.
+        return String.format(" CAST(%s AS DATE) >= DATE '%s'", column, since);
+    }
+
+    public List<TopModelStat> getTopModels(LocalDate since) throws SQLException {
+        if (!rollupDAO.isInstalled()) {
+            return getTopModelsLive(sinceClause("ds.last_update", since));
+        }
+        String sql = """
+                    SELECT model_number, SUM(device_count) as model_count
+                    FROM Daily_Status_Rollup
+                    WHERE status = 'Processed' AND rollup_day >= ? AND model_number != ''
+                    GROUP BY model_number
+                    HAVING SUM(device_count) > 0
+                    ORDER BY model_count DESC LIMIT 10
+                """;
+        return queryTopModels(sql, since);
+    }
+
+    private List<TopModelStat> getTopModelsLive(String dateFilterClause) throws SQLException {
         String sql = String.format("""
                     SELECT re.model_number, COUNT(re.receipt_id) as model_count
                     FROM Device_Status ds JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id
@@ -75,10 +145,17 @@ public class DashboardDataService {
                     HAVING re.model_number IS NOT NULL AND re.model_number != ''
                     ORDER BY model_count DESC LIMIT 10
                 """, dateFilterClause);
+        return queryTopModels(sql, null);
+    }
 
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                results.add(new TopModelStat(rs.getString("model_number"), rs.getInt("model_count")));
+    private List<TopModelStat> queryTopModels(String sql, LocalDate since) throws SQLException {
+        List<TopModelStat> results = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (since != null) stmt.setDate(1, java.sql.Date.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    results.add(new TopModelStat(rs.getString("model_number"), rs.getInt("model_count")));
+                }
             }
         }
         return results;
@@ -86,7 +163,9 @@ public class DashboardDataService {
 
     public List<PieChart.Data> getInventoryOverviewData() throws SQLException {
         List<PieChart.Data> data = new ArrayList<>();
-        String sql = "SELECT CASE WHEN ds.status = 'Flag!' THEN 'Flagged for Review' ELSE ds.status END as status_display, COUNT(*) as status_count FROM Device_Status ds JOIN (" + LATEST_RECEIPT_SUBQUERY + ") latest_re ON ds.receipt_id = latest_re.max_receipt_id GROUP BY status_display;";
+        String sql = rollupDAO.isInstalled()
+                ? "SELECT CASE WHEN status = 'Flag!' THEN 'Flagged for Review' ELSE status END as status_display, SUM(device_count) as status_count FROM Daily_Status_Rollup WHERE is_latest GROUP BY status_display HAVING SUM(device_count) > 0"
+                : "SELECT CASE WHEN ds.status = 'Flag!' THEN 'Flagged for Review' ELSE ds.status END as status_display, COUNT(*) as status_count FROM Device_Status ds JOIN (" + LATEST_RECEIPT_SUBQUERY + ") latest_re ON ds.receipt_id = latest_re.max_receipt_id GROUP BY status_display;";
         try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 data.add(new PieChart.Data(rs.getString("status_display"), rs.getInt("status_count")));
@@ -163,128 +242,346 @@ public class DashboardDataService {
     public Map<String, int[]> getIntakeVsProcessedData(LocalDate startDate, LocalDate endDate) throws SQLException {
         Map<String, int[]> dailyCounts = new LinkedHashMap<>();
 
-        String intakeSql = """
-                    SELECT
-                        p.receive_date AS "day",
-                        COUNT(re.receipt_id) AS device_count
-                    FROM Receipt_Events re
-                    JOIN Packages p ON re.package_id = p.package_id
-                    WHERE p.receive_date BETWEEN ? AND ?
-                    GROUP BY p.receive_date
-                    ORDER BY p.receive_date ASC;
-                """;
-
-        String processedSql = """
-                    SELECT
-                        CAST(ds.last_update AS DATE) AS "day",
-                        COUNT(ds.receipt_id) AS device_count
-                    FROM Device_Status ds
-                    WHERE ds.status = 'Processed'
-                      AND ds.last_update >= ? AND ds.last_update < ?
-                    GROUP BY CAST(ds.last_update AS DATE)
-                    ORDER BY "day" ASC;
-                """;
+        String intakeSql;
+        String processedSql;
+        LocalDate processedEnd;
+        if (rollupDAO.isInstalled()) {
+            intakeSql = """
+                        SELECT rollup_day AS "day", SUM(device_count) AS device_count
+                        FROM Daily_Intake_Rollup
+                        WHERE rollup_day BETWEEN ? AND ?
+                        GROUP BY rollup_day
+                        ORDER BY rollup_day ASC;
+                    """;
+            processedSql = """
+                        SELECT rollup_day AS "day", SUM(device_count) AS device_count
+                        FROM Daily_Status_Rollup
+                        WHERE status = 'Processed' AND rollup_day BETWEEN ? AND ?
+                        GROUP BY rollup_day
+                        ORDER BY rollup_day ASC;
+                    """;
+            processedEnd = endDate;
+        } else {
+            intakeSql = """
+                        SELECT
+                            p.receive_date AS "day",
+                            COUNT(re.receipt_id) AS device_count
+                        FROM Receipt_Events re
+                        JOIN Packages p ON re.package_id = p.package_id
+                        WHERE p.receive_date BETWEEN ? AND ?
+                        GROUP BY p.receive_date
+                        ORDER BY p.receive_date ASC;
+                    """;
+            processedSql = """
+                        SELECT
+                            CAST(ds.last_update AS DATE) AS "day",
+                            COUNT(ds.receipt_id) AS device_count
+                        FROM Device_Status ds
+                        WHERE ds.status = 'Processed'
+                          AND ds.last_update >= ? AND ds.last_update < ?
+                        GROUP BY CAST(ds.last_update AS DATE)
+                        ORDER BY "day" ASC;
+                    """;
+            processedEnd = endDate.plusDays(1);
+        }
 
         try (Connection conn = DatabaseConnection.getInventoryConnection()) {
-            try (PreparedStatement stmt = conn.prepareStatement(intakeSql)) {
-                stmt.setDate(1, java.sql.Date.valueOf(startDate));
-                stmt.setDate(2, java.sql.Date.valueOf(endDate));
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    String day = rs.getString("day");
-                    int intakeCount = rs.getInt("device_count");
-                    dailyCounts.put(day, new int[]{intakeCount, 0});
-                }
-            }
+            loadDailyCounts(conn, intakeSql, startDate, endDate, dailyCounts, 0);
+            loadDailyCounts(conn, processedSql, startDate, processedEnd, dailyCounts, 1);
+        }
+        // The method now correctly returns the raw data map.
+        return dailyCounts;
+    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(processedSql)) {
-                stmt.setDate(1, java.sql.Date.valueOf(startDate));
-                stmt.setDate(2, java.sql.Date.valueOf(endDate.plusDays(1)));
-                ResultSet rs = stmt.executeQuery();
+    private void loadDailyCounts(Connection conn, String sql, LocalDate from, LocalDate to, Map<String, int[]> dailyCounts, int slot) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, java.sql.Date.valueOf(from));
+            stmt.setDate(2, java.sql.Date.valueOf(to));
+            try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String day = rs.getString("day");
-                    int processedCount = rs.getInt("device_count");
-                    dailyCounts.computeIfAbsent(day, k -> new int[2])[1] = processedCount;
+                    dailyCounts.computeIfAbsent(rs.getString("day"), k -> new int[2])[slot] = rs.getInt("device_count");
                 }
             }
         }
-        // The method now correctly returns the raw data map.
-        return dailyCounts;
     }
 
-    public List<PieChart.Data> getProcessedBreakdownData(String dateFilterClause) throws SQLException {
-        List<PieChart.Data> data = new ArrayList<>();
-        // --- THIS QUERY IS NOW CORRECTED ---
-        // It adds the condition "re.category IS NOT NULL AND re.category != ''" to exclude blank categories.
-        String sql = "SELECT re.category, COUNT(*) as count " + "FROM Device_Status ds " + "JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id " + "JOIN (" + LATEST_RECEIPT_SUBQUERY + ") latest_re ON ds.receipt_id = latest_re.max_receipt_id " + "WHERE ds.status = 'Processed' " + "AND re.category IS NOT NULL AND re.category != '' " + // <-- THE FIX
-                "AND " + dateFilterClause + " " + "GROUP BY re.category " + "ORDER BY count DESC";
+    public List<PieChart.Data> getProcessedBreakdownData(LocalDate since) throws SQLException {
+        String sql;
+        if (rollupDAO.isInstalled()) {
+            // The inner join drops rows without a category (id 0).
+            sql = "SELECT c.name AS category, SUM(r.device_count) as count FROM Daily_Status_Rollup r " + CATEGORY_JOIN + " WHERE r.status = 'Processed' AND r.is_latest AND r.rollup_day >= ? " + "GROUP BY c.category_id, c.name HAVING SUM(r.device_count) > 0 ORDER BY count DESC";
+        } else {
+            // It adds the condition "re.category IS NOT NULL AND re.category != ''" to exclude blank categories.
+            sql = "SELECT re.category, COUNT(*) as count " + "FROM Device_Status ds " + "JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id " + "JOIN (" + LATEST_RECEIPT_SUBQUERY + ") latest_re ON ds.receipt_id = latest_re.max_receipt_id " + "WHERE ds.status = 'Processed' " + "AND re.category IS NOT NULL AND re.category != '' " + "AND CAST(ds.last_update AS DATE) >= ? " + "GROUP BY re.category " + "ORDER BY count DESC";
+        }
 
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                data.add(new PieChart.Data(rs.getString("category"), rs.getInt("count")));
+        List<PieChart.Data> data = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, java.sql.Date.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    data.add(new PieChart.Data(rs.getString("category"), rs.getInt("count")));
+                }
             }
         }
         return data;
     }
 
-    public XYChart.Series<String, Number> getIntakeVolumeData(String dateFilterClause) throws SQLException {
+    public XYChart.Series<String, Number> getIntakeVolumeData(LocalDate since) throws SQLException {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Devices Received");
 
-        // --- FINAL, ROBUST QUERY ---
-        // PARSEDATETIME forces the text column to be treated as a date for the query.
-        String sql = "SELECT FORMATDATETIME(PARSEDATETIME(p.receive_date, 'yyyy-MM-dd'), 'yyyy-MM-dd') AS day, COUNT(re.receipt_id) AS device_count " + "FROM Receipt_Events re " + "LEFT JOIN Packages p ON re.package_id = p.package_id " + "WHERE p.receive_date IS NOT NULL AND " + dateFilterClause + " " + "GROUP BY p.receive_date " + "ORDER BY p.receive_date ASC;";
-
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+        String sql;
+        if (rollupDAO.isInstalled()) {
+            sql = "SELECT rollup_day AS \"day\", SUM(device_count) AS device_count FROM Daily_Intake_Rollup WHERE rollup_day >= ? GROUP BY rollup_day ORDER BY rollup_day ASC";
+        } else {
+            // PARSEDATETIME forces the text column to be treated as a date for the query.
+            sql = "SELECT FORMATDATETIME(PARSEDATETIME(p.receive_date, 'yyyy-MM-dd'), 'yyyy-MM-dd') AS \"day\", COUNT(re.receipt_id) AS device_count " + "FROM Receipt_Events re " + "LEFT JOIN Packages p ON re.package_id = p.package_id " + "WHERE p.receive_date IS NOT NULL AND CAST(p.receive_date AS DATE) >= ? " + "GROUP BY p.receive_date " + "ORDER BY p.receive_date ASC;";
+        }
 
-            while (rs.next()) {
-                String day = rs.getString("day");
-                int deviceCount = rs.getInt("device_count");
-                series.getData().add(new XYChart.Data<>(day, deviceCount));
+        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, java.sql.Date.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String day = rs.getString("day");
+                    int deviceCount = rs.getInt("device_count");
+                    series.getData().add(new XYChart.Data<>(day, deviceCount));
+                }
             }
         }
         return series;
     }
 
 
-    public Map<String, String> getStaticKpis(String dateFilterClause) throws SQLException {
+    /**
+     * The awaiting-disposal, turnaround and boxes-assembled KPIs, and the time-in-status percentiles shown under
+     * active intake and awaiting disposal. Active triage is part of {@link #loadRangeTiles},
+     * which already has the latest status of every serial. Turnaround and boxes assembled come from the per-receipt
+     * lifecycle milestones when they are available, so a returned device counts again. A result computed at the
+     * current data version is served from the cache instead.
+     */
+    public Map<String, String> getStaticKpis(LocalDate since) throws SQLException {
+        ChangeLogDAO.Version version = getDataVersion();
+        Map<String, String> cached = kpiCache.getFresh(since, version);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, String> kpis = Map.copyOf(computeStaticKpis(since));
+        kpiCache.put(since, version, kpis);
+        return kpis;
+    }
+
+    /**
+     * The last {@link #getStaticKpis} result for {@code since}, even if the data has changed since, or null.
+     */
+    public Map<String, String> peekStaticKpis(LocalDate since) {
+        return kpiCache.peek(since);
+    }
+
+    private Map<String, String> computeStaticKpis(LocalDate since) throws SQLException {
         Map<String, String> kpis = new HashMap<>();
-        String triageSql = "SELECT COUNT(*) as count FROM Device_Status ds " + "JOIN (" + LATEST_RECEIPT_SUBQUERY + ") l ON ds.receipt_id = l.max_receipt_id " + "JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id " + "WHERE ds.status = 'Intake' ";
         String awaitingDisposalSql = "SELECT COUNT(*) as count FROM Device_Status ds JOIN (" + LATEST_RECEIPT_SUBQUERY + ") l ON ds.receipt_id = l.max_receipt_id WHERE ds.status = 'Disposed' AND ds.sub_status IN ('Can-Am, Pending Pickup', 'Ingram, Pending Pickup', 'Ready for Wipe')";
-        String turnaroundSql = "SELECT AVG(DATEDIFF('DAY', p.receive_date, ds.last_update)) as avg_days FROM Device_Status ds JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id JOIN Packages p ON re.package_id = p.package_id WHERE ds.status = 'Processed' AND ds.sub_status = 'Ready for Deployment' AND ds.last_update >= DATEADD('DAY', -30, CURRENT_DATE)";
-
-        // This query now correctly uses the dateFilterClause passed from the controller
-        String dailySql = String.format("""
-                    SELECT COUNT(DISTINCT re.serial_number) as count
-                    FROM Device_Status ds
-                    JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id
-                    WHERE ds.status = 'Processed'
-                      AND ds.sub_status = 'Ready for Deployment'
-                      AND %s
-                      AND EXISTS (
-                        SELECT 1
-                        FROM Device_Status h_ds
-                        JOIN Receipt_Events h_re ON h_ds.receipt_id = h_re.receipt_id
-                        WHERE h_re.serial_number = re.serial_number
-                          AND h_ds.status IN ('Intake', 'Triage & Repair')
-                      )
-                """, dateFilterClause);
+        String turnaroundSql;
+        String dailySql;
+        boolean lifecycle = lifecycleDAO.isInstalled();
+        if (lifecycle) {
+            turnaroundSql = "SELECT AVG(DATEDIFF('DAY', received_at, first_ready_at)) as avg_days FROM Receipt_Lifecycle WHERE first_ready_at >= DATEADD('DAY', -30, CURRENT_DATE) AND received_at IS NOT NULL";
+            dailySql = "SELECT COUNT(*) as count FROM Receipt_Lifecycle WHERE first_ready_at >= ? AND (ever_intaken OR ever_triaged)";
+        } else {
+            turnaroundSql = "SELECT AVG(DATEDIFF('DAY', p.receive_date, ds.last_update)) as avg_days FROM Device_Status ds JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id JOIN Packages p ON re.package_id = p.package_id WHERE ds.status = 'Processed' AND ds.sub_status = 'Ready for Deployment' AND ds.last_update >= DATEADD('DAY', -30, CURRENT_DATE)";
+            dailySql = String.format("""
+                        SELECT COUNT(DISTINCT re.serial_number) as count
+                        FROM Device_Status ds
+                        JOIN Receipt_Events re ON ds.receipt_id = re.receipt_id
+                        WHERE ds.status = 'Processed'
+                          AND ds.sub_status = 'Ready for Deployment'
+                          AND %s
+                          AND EXISTS (
+                            SELECT 1
+                            FROM Device_Status h_ds
+                            JOIN Receipt_Events h_re ON h_ds.receipt_id = h_re.receipt_id
+                            WHERE h_re.serial_number = re.serial_number
+                              AND h_ds.status IN ('Intake', 'Triage & Repair')
+                          )
+                    """, sinceClause("ds.last_update", since));
+        }
 
         try (Connection conn = DatabaseConnection.getInventoryConnection()) {
-            try (PreparedStatement stmt = conn.prepareStatement(triageSql); ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) kpis.put("activeTriage", String.valueOf(rs.getInt("count")));
-            }
             try (PreparedStatement stmt = conn.prepareStatement(awaitingDisposalSql); ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) kpis.put("awaitingDisposal", String.valueOf(rs.getInt("count")));
             }
             try (PreparedStatement stmt = conn.prepareStatement(turnaroundSql); ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) kpis.put("avgTurnaround", String.format("%.1f Days", rs.getDouble("avg_days")));
             }
-            // This query will now execute with the correct date filter
-            try (PreparedStatement stmt = conn.prepareStatement(dailySql); ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) kpis.put("boxesAssembled", String.valueOf(rs.getInt("count")));
+            try (PreparedStatement stmt = conn.prepareStatement(dailySql)) {
+                if (lifecycle) stmt.setTimestamp(1, java.sql.Timestamp.valueOf(since.atStartOfDay()));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) kpis.put("boxesAssembled", String.valueOf(rs.getInt("count")));
+                }
             }
         }
+        if (histogramDAO.isInstalled()) {
+            kpis.put("turnaroundPercentiles", formatPercentiles(histogramDAO.loadSketch(DurationHistogramDAO.TURNAROUND, null, null, since, LocalDate.now())));
+            kpis.put("intakeTimePercentiles", formatPercentiles(histogramDAO.loadSketch(DurationHistogramDAO.TIME_IN_STATUS, "Intake", null, since, LocalDate.now())));
+            kpis.put("disposedTimePercentiles", formatPercentiles(histogramDAO.loadSketch(DurationHistogramDAO.TIME_IN_STATUS, "Disposed", null, since, LocalDate.now())));
+        }
         return kpis;
     }
-}
\ No newline at end of file
+
+    private static String formatPercentiles(DurationSketch sketch) {
+        if (sketch.isEmpty()) return "No data";
+        return String.format("p50 %s · p90 %s · p99 %s", formatDays(sketch.quantile(0.5)), formatDays(sketch.quantile(0.9)), formatDays(sketch.quantile(0.99)));
+    }
+
+    private static String formatDays(Duration duration) {
+        return String.format("%.1fd", duration.getSeconds() / 86400.0);
+    }
+
+    /**
+     * Loads every rollup-backed tile for one date range on a single connection. The range's status rows are read
+     * once and split into the metrics, breakdown and top models; the all-time status counts feed both the overview
+     * and the active-triage KPI. Falls back to the per-tile queries when the rollups are unavailable. A result
+     * computed at the current data version is served from the cache instead.
+     */
+    public RangeTiles loadRangeTiles(LocalDate since, LocalDate chartStart, LocalDate chartEnd) throws SQLException {
+        ChangeLogDAO.Version version = getDataVersion();
+        List<LocalDate> key = List.of(since, chartStart, chartEnd);
+        RangeTiles cached = rangeTilesCache.getFresh(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        RangeTiles tiles = computeRangeTiles(since, chartStart, chartEnd);
+        rangeTilesCache.put(key, version, tiles);
+        return tiles;
+    }
+
+    /**
+     * The last {@link #loadRangeTiles} result for the range, even if the data has changed since, or null.
+     */
+    public RangeTiles peekRangeTiles(LocalDate since, LocalDate chartStart, LocalDate chartEnd) {
+        return rangeTilesCache.peek(List.of(since, chartStart, chartEnd));
+    }
+
+    /**
+     * The Change_Log version, which moves whenever a receipt or status row is written, even by a transaction that
+     * commits after a newer one, or null if the change log is unavailable and cached results can't be trusted.
+     */
+    private ChangeLogDAO.Version getDataVersion() throws SQLException {
+        return changeLogDAO.isInstalled() ? changeLogDAO.getVersion() : null;
+    }
+
+    private RangeTiles computeRangeTiles(LocalDate since, LocalDate chartStart, LocalDate chartEnd) throws SQLException {
+        if (!rollupDAO.isInstalled()) {
+            List<Slice> overview = toSlices(getInventoryOverviewData());
+            return new RangeTiles(getGranularMetrics(since), getTopModels(since), overview, toSlices(getProcessedBreakdownData(since)),
+                    toDailyCounts(getIntakeVsProcessedData(chartStart, chartEnd), chartStart, chartEnd), intakeCount(overview));
+        }
+
+        // A left join here so uncategorized rows still count towards the top models.
+        String rangeStatusSql = "SELECT c.name, c.device_class, r.model_number, r.status, r.is_latest, SUM(r.device_count) AS device_count FROM Daily_Status_Rollup r "
+                + "LEFT JOIN Category c ON c.category_id = r.category_id WHERE r.rollup_day >= ? AND r.status IN ('Processed', 'Disposed') "
+                + "GROUP BY r.category_id, c.name, c.device_class, r.model_number, r.status, r.is_latest";
+        String rangeIntakeSql = "SELECT c.device_class, SUM(r.device_count) AS device_count FROM Daily_Intake_Rollup r " + CATEGORY_JOIN + " WHERE r.rollup_day >= ? GROUP BY c.device_class";
+        String overviewSql = "SELECT status, SUM(device_count) AS device_count FROM Daily_Status_Rollup WHERE is_latest GROUP BY status HAVING SUM(device_count) > 0";
+        String dailyIntakeSql = "SELECT rollup_day AS \"day\", SUM(device_count) AS device_count FROM Daily_Intake_Rollup WHERE rollup_day BETWEEN ? AND ? GROUP BY rollup_day";
+        String dailyProcessedSql = "SELECT rollup_day AS \"day\", SUM(device_count) AS device_count FROM Daily_Status_Rollup WHERE status = 'Processed' AND rollup_day BETWEEN ? AND ? GROUP BY rollup_day";
+
+        Map<String, Integer> metrics = new HashMap<>();
+        Map<String, Integer> breakdown = new HashMap<>();
+        Map<String, Integer> models = new HashMap<>();
+        List<Slice> overview = new ArrayList<>();
+        Map<String, int[]> dailyCounts = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(rangeStatusSql)) {
+                stmt.setDate(1, java.sql.Date.valueOf(since));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String category = rs.getString("name");
+                        String model = rs.getString("model_number");
+                        String status = rs.getString("status");
+                        int count = rs.getInt("device_count");
+                        if (category != null) {
+                            String family = deviceFamily(DeviceClass.valueOf(rs.getString("device_class")));
+                            if (family != null) metrics.merge(family + status, count, Integer::sum);
+                        }
+                        if (status.equals("Processed")) {
+                            if (rs.getBoolean("is_latest") && category != null) breakdown.merge(category, count, Integer::sum);
+                            if (!model.isEmpty()) models.merge(model, count, Integer::sum);
+                        }
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(rangeIntakeSql)) {
+                stmt.setDate(1, java.sql.Date.valueOf(since));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String family = deviceFamily(DeviceClass.valueOf(rs.getString("device_class")));
+                        if (family != null) metrics.merge(family + "Intaken", rs.getInt("device_count"), Integer::sum);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(overviewSql); ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String status = rs.getString("status");
+                    overview.add(new Slice(status.equals("Flag!") ? "Flagged for Review" : status, rs.getInt("device_count")));
+                }
+            }
+            loadDailyCounts(conn, dailyIntakeSql, chartStart, chartEnd, dailyCounts, 0);
+            loadDailyCounts(conn, dailyProcessedSql, chartStart, chartEnd, dailyCounts, 1);
+        }
+
+        List<TopModelStat> topModels = models.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(10)
+                .map(e -> new TopModelStat(e.getKey(), e.getValue()))
+                .toList();
+        List<Slice> breakdownSlices = breakdown.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .map(e -> new Slice(e.getKey(), e.getValue()))
+                .toList();
+        return new RangeTiles(metrics, topModels, overview, breakdownSlices, toDailyCounts(dailyCounts, chartStart, chartEnd), intakeCount(overview));
+    }
+
+    /**
+     * Recomputes {@code tiles} and carries every other tile over from {@code base}. Active triage is always
+     * re-derived from the overview it is part of.
+     */
+    public DashboardSnapshot loadTiles(Set<DashboardTile> tiles, LocalDate since, LocalDate chartStart, LocalDate chartEnd, DashboardSnapshot base) throws SQLException {
+        Map<String, Integer> metrics = tiles.contains(DashboardTile.GRANULAR_METRICS) ? getGranularMetrics(since) : base.granularMetrics();
+        List<TopModelStat> topModels = tiles.contains(DashboardTile.TOP_MODELS) ? getTopModels(since) : base.topModels();
+        List<Slice> overview = tiles.contains(DashboardTile.INVENTORY_OVERVIEW) ? toSlices(getInventoryOverviewData()) : base.inventoryOverview();
+        List<Slice> breakdown = tiles.contains(DashboardTile.PROCESSED_BREAKDOWN) ? toSlices(getProcessedBreakdownData(since)) : base.processedBreakdown();
+        List<DailyCount> intakeVsProcessed = tiles.contains(DashboardTile.INTAKE_VS_PROCESSED)
+                ? toDailyCounts(getIntakeVsProcessedData(chartStart, chartEnd), chartStart, chartEnd) : base.intakeVsProcessed();
+        Map<String, String> kpis = new HashMap<>(tiles.contains(DashboardTile.KPIS) ? getStaticKpis(since) : base.kpis());
+        kpis.put("activeTriage", String.valueOf(intakeCount(overview)));
+        return new DashboardSnapshot(metrics, kpis, topModels, overview, breakdown, intakeVsProcessed);
+    }
+
+    private static List<Slice> toSlices(List<PieChart.Data> data) {
+        return data.stream().map(d -> new Slice(d.getName(), (int) d.getPieValue())).toList();
+    }
+
+    private static int intakeCount(List<Slice> overview) {
+        return overview.stream().filter(s -> s.label().equals("Intake")).mapToInt(Slice::count).sum();
+    }
+
+    private static List<DailyCount> toDailyCounts(Map<String, int[]> dailyCounts, LocalDate start, LocalDate end) {
+        List<DailyCount> days = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            int[] counts = dailyCounts.getOrDefault(date.toString(), new int[2]);
+            days.add(new DailyCount(date.toString(), counts[0], counts[1]));
+        }
+        return days;
+    }
+
+    /**
+     * The rollup-backed part of a {@link DashboardSnapshot}.
+     */
+    public record RangeTiles(Map<String, Integer> granularMetrics, List<TopModelStat> topModels, List<Slice> inventoryOverview,
+                             List<Slice> processedBreakdown, List<DailyCount> intakeVsProcessed, int activeTriage) {
+    }
+}
@@ -0,0 +1,180 @@
+package assettracking.manager;
+
+import assettracking.concurrent.BackgroundTasks;
+import assettracking.data.DashboardSnapshot;
+import assettracking.data.DashboardTile;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs a dashboard refresh as one plan: the rollup tiles and the base-table KPIs are loaded in parallel on a small
+ * bounded pool, each on a single connection, and combined into one {@link DashboardSnapshot} that is handed to the
+ * FX thread. Starting a new refresh supersedes the previous one; its unstarted work is skipped and its result is
+ * never published.
+ * <p>
+ * The last published snapshot is kept so that {@link #refreshTiles} can recompute just the tiles whose inputs
+ * changed and carry the rest over. When the data service still has results for the requested range, they are shown
+ * at once and then revalidated; the revalidated snapshot is only published if it differs.
+ */
+public class DashboardRefreshCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardRefreshCoordinator.class);
+    private static final int WORKER_COUNT = BackgroundTasks.DASHBOARD_REFRESH_CONNECTIONS;
+
+    private final DashboardDataService dataService;
+    private final ExecutorService executor;
+    private final AtomicLong generation = new AtomicLong();
+    // The fields below are only touched on the FX thread.
+    private List<CompletableFuture<?>> currentRound = List.of();
+    private DashboardSnapshot lastSnapshot;
+    private Range lastRange;
+
+    public DashboardRefreshCoordinator(DashboardDataService dataService) {
+        this.dataService = dataService;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(WORKER_COUNT, runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a refresh. Must be called on the FX thread; {@code onReady} and {@code onError} are also called there,
+     * and only if no newer refresh has been started in the meantime. With cached results for the range,
+     * {@code onReady} is called before this returns and again later only if revalidation changed anything.
+     *
+     * @param since      First day of the selected range for counts and KPIs.
+     * @param chartStart First day shown in the intake vs processed chart.
+     * @param chartEnd   Last day shown in the intake vs processed chart.
+     */
+    public void refresh(LocalDate since, LocalDate chartStart, LocalDate chartEnd, Consumer<DashboardSnapshot> onReady, Consumer<Throwable> onError) {
+        long round = generation.incrementAndGet();
+        // Don't interrupt: an interrupted thread can close H2's file channel mid-query. Queued branches are skipped.
+        currentRound.forEach(branch -> branch.cancel(false));
+
+        Range range = new Range(since, chartStart, chartEnd);
+        DashboardSnapshot shown = cachedSnapshot(since, chartStart, chartEnd);
+        if (shown != null) {
+            lastSnapshot = shown;
+            lastRange = range;
+            onReady.accept(shown);
+        }
+
+        CompletableFuture<DashboardDataService.RangeTiles> tiles = CompletableFuture.supplyAsync(() -> {
+            checkCurrent(round);
+            try {
+                return dataService.loadRangeTiles(since, chartStart, chartEnd);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        CompletableFuture<Map<String, String>> kpis = CompletableFuture.supplyAsync(() -> {
+            checkCurrent(round);
+            try {
+                return dataService.getStaticKpis(since);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+
+        CompletableFuture<DashboardSnapshot> snapshot = tiles.thenCombine(kpis, DashboardRefreshCoordinator::combine);
+        currentRound = List.of(tiles, kpis);
+        publish(round, snapshot, range, shown, onReady, onError);
+    }
+
+    private DashboardSnapshot cachedSnapshot(LocalDate since, LocalDate chartStart, LocalDate chartEnd) {
+        DashboardDataService.RangeTiles tiles = dataService.peekRangeTiles(since, chartStart, chartEnd);
+        Map<String, String> kpis = dataService.peekStaticKpis(since);
+        return tiles == null || kpis == null ? null : combine(tiles, kpis);
+    }
+
+    private static DashboardSnapshot combine(DashboardDataService.RangeTiles tiles, Map<String, String> kpis) {
+        Map<String, String> allKpis = new HashMap<>(kpis);
+        allKpis.put("activeTriage", String.valueOf(tiles.activeTriage()));
+        return new DashboardSnapshot(tiles.granularMetrics(), allKpis, tiles.topModels(), tiles.inventoryOverview(), tiles.processedBreakdown(), tiles.intakeVsProcessed());
+    }
+
+    /**
+     * Recomputes only {@code changed} on top of the last published snapshot. Falls back to a full {@link #refresh}
+     * when there is nothing to build on: no snapshot yet, a different range, or a refresh still in flight (which
+     * this one would supersede). Must be called on the FX thread; {@code onReady} receives the snapshot and the
+     * tiles that were actually recomputed.
+     */
+    public void refreshTiles(Set<DashboardTile> changed, LocalDate since, LocalDate chartStart, LocalDate chartEnd,
+                             BiConsumer<DashboardSnapshot, Set<DashboardTile>> onReady, Consumer<Throwable> onError) {
+        Range range = new Range(since, chartStart, chartEnd);
+        DashboardSnapshot base = lastSnapshot;
+        boolean roundPending = currentRound.stream().anyMatch(branch -> !branch.isDone());
+        if (base == null || roundPending || !range.equals(lastRange) || changed.containsAll(EnumSet.allOf(DashboardTile.class))) {
+            Set<DashboardTile> allTiles = EnumSet.allOf(DashboardTile.class);
+            refresh(since, chartStart, chartEnd, snapshot -> onReady.accept(snapshot, allTiles), onError);
+            return;
+        }
+
+        long round = generation.incrementAndGet();
+        Set<DashboardTile> tiles = EnumSet.copyOf(changed);
+        CompletableFuture<DashboardSnapshot> update = CompletableFuture.supplyAsync(() -> {
+            checkCurrent(round);
+            try {
+                return dataService.loadTiles(tiles, since, chartStart, chartEnd, base);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        currentRound = List.of(update);
+        publish(round, update, range, null, snapshot -> onReady.accept(snapshot, tiles), onError);
+    }
+
+    /**
+     * Hands the result to the FX thread if its round is still current and it isn't what {@code shown} already put
+     * on screen.
+     */
+    private void publish(long round, CompletableFuture<DashboardSnapshot> snapshot, Range range, DashboardSnapshot shown,
+                         Consumer<DashboardSnapshot> onReady, Consumer<Throwable> onError) {
+        snapshot.whenComplete((result, error) -> {
+            if (generation.get() != round) {
+                return; // superseded by a newer refresh
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.error("Dashboard refresh failed", cause);
+                Platform.runLater(() -> onError.accept(cause));
+            } else {
+                Platform.runLater(() -> {
+                    if (generation.get() == round) {
+                        lastSnapshot = result;
+                        lastRange = range;
+                        if (!result.equals(shown)) onReady.accept(result);
+                    }
+                });
+            }
+        });
+    }
+
+    private void checkCurrent(long round) {
+        if (generation.get() != round) {
+            throw new CompletionException(new CancellationException("Superseded by a newer dashboard refresh"));
+        }
+    }
+
+    private record Range(LocalDate since, LocalDate chartStart, LocalDate chartEnd) {
+    }
+}
@@ -1,5 +1,6 @@
 package assettracking.manager;
 
+import assettracking.concurrent.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,7 +11,6 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public final class DesktopNotifier {
@@ -21,7 +21,7 @@ public final class DesktopNotifier {
     }
 
     public static void showNotification(String title, String message) {
-        CompletableFuture.runAsync(() -> {
+        BackgroundTasks.runIo("desktop-notification", () -> {
             logger.info("Attempting to show desktop notification: Title='{}', Message='{}'", title, message);
             try {
                 Path scriptPath = extractScriptToTemp("Show-Toast.ps1");
@@ -0,0 +1,87 @@
+package assettracking.manager;
+
+import java.util.*;
+
+/**
+ * The resolved column layout of a device list file: for each Bulk_Devices field, the column indexes to read,
+ * in order of preference. Rows are then read by index, without any header-name lookups.
+ */
+public final class DeviceColumnPlan {
+
+    public static final int SERIAL = 0;
+    public static final int IMEI = 1;
+    public static final int ICCID = 2;
+    public static final int CAPACITY = 3;
+    public static final int NAME = 4;
+
+    // Header aliases per field, in order of preference. Indexes match the constants above.
+    private static final String[][] ALIASES = {
+            {"serial number", "serial"},
+            {"imei/meid", "imei"},
+            {"iccid", "sim"},
+            {"capacity"},
+            {"name", "device name"}
+    };
+    private static final String[] FIELD_KEYS = {"serial", "imei", "iccid", "capacity", "name"};
+
+    private final int[][] columnsByField;
+
+    private DeviceColumnPlan(int[][] columnsByField) {
+        this.columnsByField = columnsByField;
+    }
+
+    /**
+     * Quick check used to find the header row before resolving a full plan.
+     */
+    public static boolean looksLikeHeader(List<String> normalizedHeaders) {
+        return normalizedHeaders.contains("serial number") || normalizedHeaders.contains("serial");
+    }
+
+    /**
+     * Resolves a plan from a header row using the alias heuristics.
+     *
+     * @param normalizedHeaders Header text by column index, trimmed and lower-cased ("" for empty cells).
+     */
+    public static DeviceColumnPlan fromHeaders(List<String> normalizedHeaders) {
+        // When a header name repeats, the last column with that name is used (same as the old header map).
+        Map<String, Integer> indexByName = new HashMap<>();
+        for (int i = 0; i < normalizedHeaders.size(); i++) {
+            indexByName.put(normalizedHeaders.get(i), i);
+        }
+        int[][] columns = new int[ALIASES.length][];
+        for (int field = 0; field < ALIASES.length; field++) {
+            columns[field] = Arrays.stream(ALIASES[field]).map(indexByName::get).filter(Objects::nonNull).mapToInt(Integer::intValue).toArray();
+        }
+        return new DeviceColumnPlan(columns);
+    }
+
+    /**
+     * Compact text form, e.g. {@code serial=0|imei=3|iccid=4,5|capacity=|name=1}.
+     */
+    public String serialize() {
+        StringJoiner joiner = new StringJoiner("|");
+        for (int field = 0; field < FIELD_KEYS.length; field++) {
+            StringJoiner indexes = new StringJoiner(",");
+            for (int index : columnsByField[field]) {
+                indexes.add(String.valueOf(index));
+            }
+            joiner.add(FIELD_KEYS[field] + "=" + indexes);
+        }
+        return joiner.toString();
+    }
+
+    public int[] columns(int field) {
+        return columnsByField[field];
+    }
+
+    public boolean hasSerialColumn() {
+        return columnsByField[SERIAL].length > 0;
+    }
+
+    /**
+     * True when no field has more than one candidate column, so the file can be read without per-row fallbacks.
+     */
+    public boolean hasSingleColumnPerField() {
+        return Arrays.stream(columnsByField).allMatch(fieldColumns -> fieldColumns.length <= 1);
+    }
+}
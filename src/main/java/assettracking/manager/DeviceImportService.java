@@ -1,8 +1,8 @@
 package assettracking.manager;
 
-import assettracking.dao.bulk.iPadProvisioningDAO;
+import assettracking.dao.AppSettingsDAO;
+import assettracking.dao.bulk.BulkDeviceStaging;
 import assettracking.data.bulk.BulkDevice;
-import assettracking.db.DatabaseConnection;
 import com.github.pjfanning.xlsx.StreamingReader;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
@@ -14,51 +14,78 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
 
 public class DeviceImportService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceImportService.class);
-    private final iPadProvisioningDAO dao = new iPadProvisioningDAO();
+    private static final String CHUNK_SIZE_KEY = "bulk.import.chunk.size";
+    private static final String CHECKPOINT_KEY_PREFIX = "bulk.import.checkpoint.";
+    private final AppSettingsDAO appSettingsDAO = new AppSettingsDAO();
+    private final DeviceLayoutCache layoutCache = new DeviceLayoutCache();
 
     public int importFromFile(File file) throws IOException, SQLException {
         List<BulkDevice> devicesFromFile = streamExcelData(file);
         if (devicesFromFile.isEmpty()) {
             return 0;
         }
-        List<BulkDevice> hydratedDevices = mergeWithExistingData(devicesFromFile);
-        dao.upsertBulkDevices(hydratedDevices);
-        return hydratedDevices.size();
+        try (BulkDeviceStaging staging = new BulkDeviceStaging()) {
+            staging.load(devicesFromFile);
+            staging.removeDuplicateSerials();
+            return performDatabaseUpsert(file, staging, false, () -> false).importedCount();
+        }
     }
 
     public ImportResult processAndUpsertData(File file) throws IOException, CsvException, SQLException {
+        return processAndUpsertData(file, () -> false);
+    }
+
+    /**
+     * Imports a device file in chunked transactions. If a previous run of the same (unchanged) file was
+     * cancelled or failed part-way, the import resumes after the last committed chunk.
+     * <p>
+     * Parsed rows are loaded into a temporary staging table, validated there, and merged into Bulk_Devices
+     * with set-based SQL, so existing devices never have to be read back into memory.
+     *
+     * @param file        The .csv or .xlsx device file.
+     * @param isCancelled Checked between chunks; when it returns true the import stops and keeps its checkpoint.
+     */
+    public ImportResult processAndUpsertData(File file, BooleanSupplier isCancelled) throws IOException, CsvException, SQLException {
         logger.info("--- Starting Import Process for File: {} ---", file.getName());
-        List<BulkDevice> parsedDevices = file.getName().toLowerCase().endsWith(".csv") ? streamCsvData(file) : streamExcelData(file);
-        if (parsedDevices.isEmpty()) {
-            logger.warn("No devices were parsed from file: {}.", file.getName());
-            return new ImportResult(file, 0, Collections.emptyList());
-        }
-        logger.info("Parsed {} devices from {}. Merging with existing database data...", parsedDevices.size(), file.getName());
-        List<BulkDevice> hydratedDevices = mergeWithExistingData(parsedDevices);
-        logger.info("Validating {} merged devices...", hydratedDevices.size());
-        DeviceValidationResult validationResult = validateDevices(hydratedDevices);
+        List<String> errors = new ArrayList<>();
         int successfulCount = 0;
-        if (!validationResult.validDevices().isEmpty()) {
-            logger.info("Upserting {} valid devices to the database...", validationResult.validDevices().size());
-            successfulCount = performDatabaseUpsert(validationResult.validDevices());
+        try (BulkDeviceStaging staging = new BulkDeviceStaging()) {
+            int stagedCount = stageFile(file, staging);
+            if (stagedCount == 0) {
+                logger.warn("No devices were parsed from file: {}.", file.getName());
+                return new ImportResult(file, 0, Collections.emptyList());
+            }
+
+            int duplicateRows = staging.removeDuplicateSerials();
+            if (duplicateRows > 0) {
+                logger.info("Ignored {} repeated serial numbers in {}.", duplicateRows, file.getName());
+            }
+            for (BulkDeviceStaging.DuplicateImei duplicate : staging.rejectDuplicateImeis()) {
+                errors.add(String.format("Rejected: Duplicate IMEI [%s] found for serials: %s.", duplicate.imei(), duplicate.serials()));
+            }
+
+            UpsertProgress progress = performDatabaseUpsert(file, staging, true, isCancelled);
+            successfulCount = progress.importedCount();
+            if (!progress.isComplete()) {
+                errors.add(String.format("Import cancelled after %d of %d rows. The remaining rows will be imported on the next run.", progress.committedCount(), progress.totalCount()));
+            }
         }
         logger.info("--- Finished Import Process for File: {} ---", file.getName());
-        return new ImportResult(file, successfulCount, validationResult.errors());
+        return new ImportResult(file, successfulCount, errors);
     }
 
     public List<File> findAllDeviceFiles(List<String> folderPaths) throws IOException {
@@ -81,147 +108,190 @@ public class DeviceImportService {
         return foundFiles;
     }
 
-    private List<BulkDevice> mergeWithExistingData(List<BulkDevice> parsedDevices) throws SQLException {
-        List<String> serialsToFetch = parsedDevices.stream().map(BulkDevice::getSerialNumber).collect(Collectors.toList());
-
-        Map<String, BulkDevice> existingDevicesMap = dao.findDevicesBySerials(serialsToFetch);
-        logger.info("Found {} existing devices in the database out of {} parsed from the file.", existingDevicesMap.size(), parsedDevices.size());
-
-        List<BulkDevice> hydratedList = new ArrayList<>();
-        for (BulkDevice parsed : parsedDevices) {
-            BulkDevice existing = existingDevicesMap.get(parsed.getSerialNumber());
-            if (existing != null) {
-                String mergedImei = (parsed.getImei() != null && !parsed.getImei().isEmpty()) ? parsed.getImei() : existing.getImei();
-                String mergedIccid = (parsed.getIccid() != null && !parsed.getIccid().isEmpty()) ? parsed.getIccid() : existing.getIccid();
-                String mergedCapacity = (parsed.getCapacity() != null && !parsed.getCapacity().isEmpty()) ? parsed.getCapacity() : existing.getCapacity();
-                String mergedDeviceName = (parsed.getDeviceName() != null && !parsed.getDeviceName().isEmpty()) ? parsed.getDeviceName() : existing.getDeviceName();
-                hydratedList.add(new BulkDevice(parsed.getSerialNumber(), mergedImei, mergedIccid, mergedCapacity, mergedDeviceName, parsed.getLastImportDate()));
-            } else {
-                hydratedList.add(parsed);
+    /**
+     * Loads a device file into the staging table. CSV files with a plain header (one column per field,
+     * no stray whitespace or duplicates) are read by the database directly with CSVREAD; everything else
+     * goes through the Java parsers.
+     *
+     * @return The number of rows staged.
+     */
+    private int stageFile(File file, BulkDeviceStaging staging) throws IOException, CsvException, SQLException {
+        boolean isCsv = file.getName().toLowerCase().endsWith(".csv");
+        if (isCsv) {
+            Optional<BulkDeviceStaging.CsvColumns> nativeColumns = detectNativeCsvColumns(file);
+            if (nativeColumns.isPresent()) {
+                String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                try {
+                    int loaded = staging.loadFromCsv(file, nativeColumns.get(), now);
+                    logger.info("Loaded {} rows from {} with CSVREAD.", loaded, file.getName());
+                    return loaded;
+                } catch (SQLException e) {
+                    // Usually means the database process cannot see this path. The Java parser always can.
+                    logger.warn("CSVREAD could not load {} ({}). Falling back to the Java parser.", file.getName(), e.getMessage());
+                }
             }
         }
-        return hydratedList;
+
+        List<BulkDevice> parsedDevices = isCsv ? streamCsvData(file) : streamExcelData(file);
+        if (!parsedDevices.isEmpty()) {
+            logger.info("Parsed {} devices from {}. Loading into staging table...", parsedDevices.size(), file.getName());
+            staging.load(parsedDevices);
+        }
+        return parsedDevices.size();
+    }
+
+    /**
+     * Checks whether a CSV header can be read column-for-column by CSVREAD.
+     * Returns empty when any field has more than one candidate column (the Java parser then picks the first
+     * non-empty one per row), or when header names are blank, padded, quoted or repeated.
+     */
+    private Optional<BulkDeviceStaging.CsvColumns> detectNativeCsvColumns(File file) throws IOException, CsvException {
+        String[] headerArray;
+        try (CSVReader reader = new CSVReader(new FileReader(file))) {
+            headerArray = reader.readNext();
+        }
+        if (headerArray == null) return Optional.empty();
+
+        Set<String> seenHeaders = new HashSet<>();
+        for (String header : headerArray) {
+            if (header == null || header.isEmpty() || !header.equals(header.trim()) || header.contains("\"")) {
+                return Optional.empty();
+            }
+            if (!seenHeaders.add(header.toLowerCase())) {
+                return Optional.empty();
+            }
+        }
+
+        DeviceColumnPlan plan = layoutCache.resolve(normalizeHeaders(headerArray));
+        if (!plan.hasSerialColumn() || !plan.hasSingleColumnPerField()) {
+            return Optional.empty();
+        }
+        return Optional.of(new BulkDeviceStaging.CsvColumns(
+                headerNameFor(headerArray, plan, DeviceColumnPlan.SERIAL),
+                headerNameFor(headerArray, plan, DeviceColumnPlan.IMEI),
+                headerNameFor(headerArray, plan, DeviceColumnPlan.ICCID),
+                headerNameFor(headerArray, plan, DeviceColumnPlan.CAPACITY),
+                headerNameFor(headerArray, plan, DeviceColumnPlan.NAME)));
+    }
+
+    private String headerNameFor(String[] headerArray, DeviceColumnPlan plan, int field) {
+        int[] columns = plan.columns(field);
+        return columns.length == 0 ? null : headerArray[columns[0]];
+    }
+
+    private List<String> normalizeHeaders(String[] headerArray) {
+        List<String> normalized = new ArrayList<>(headerArray.length);
+        for (String header : headerArray) {
+            normalized.add(header == null ? "" : header.trim().toLowerCase());
+        }
+        return normalized;
     }
 
     private List<BulkDevice> streamExcelData(File file) throws IOException {
         List<BulkDevice> devices = new ArrayList<>();
         String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        DataFormatter formatter = new DataFormatter();
         try (FileInputStream fis = new FileInputStream(file); Workbook workbook = StreamingReader.builder().rowCacheSize(100).bufferSize(4096).open(fis)) {
             if (workbook.getNumberOfSheets() == 0) {
                 logger.warn("Excel file '{}' is empty and has no sheets.", file.getName());
                 return devices;
             }
             Sheet sheet = workbook.getSheetAt(0);
-            Map<String, Integer> headerMap = null;
+            DeviceColumnPlan plan = null;
             for (Row row : sheet) {
-                if (headerMap == null) {
-                    Map<String, Integer> potentialHeaders = getHeaderMap(row);
-                    if (potentialHeaders.containsKey("serial") || potentialHeaders.containsKey("serial number")) {
-                        headerMap = potentialHeaders;
-                        continue;
-                    } else {
-                        continue;
+                if (plan == null) {
+                    // Rows above the header (titles, notes) are skipped until a row names a serial column.
+                    List<String> potentialHeaders = getNormalizedHeaderRow(row, formatter);
+                    if (DeviceColumnPlan.looksLikeHeader(potentialHeaders)) {
+                        plan = layoutCache.resolve(potentialHeaders);
                     }
+                    continue;
                 }
-                processRow(row, headerMap, now).ifPresent(devices::add);
+                String serial = getCellValue(row, plan.columns(DeviceColumnPlan.SERIAL), formatter);
+                buildDevice(serial,
+                        getCellValue(row, plan.columns(DeviceColumnPlan.IMEI), formatter),
+                        getCellValue(row, plan.columns(DeviceColumnPlan.ICCID), formatter),
+                        getCellValue(row, plan.columns(DeviceColumnPlan.CAPACITY), formatter),
+                        getCellValue(row, plan.columns(DeviceColumnPlan.NAME), formatter),
+                        now).ifPresent(devices::add);
             }
-            if (headerMap == null) {
+            if (plan == null) {
                 logger.error("Required 'Serial Number' or 'Serial' column not found in the first sheet of file {}. Aborting file read.", file.getName());
             }
         }
         return devices;
     }
 
-    private Optional<BulkDevice> processRow(Row row, Map<String, Integer> headers, String now) {
-        String serial = getCellValue(row, headers, "serial number", "serial");
-        if (serial == null || serial.isEmpty()) return Optional.empty();
-
-        String rawImei = getCleanedNumericValue(row, headers, "imei/meid", "imei");
-        String rawSim = getCleanedNumericValue(row, headers, "iccid", "sim");
-        String finalImei = null;
-        String finalSim = null;
-
-        if (rawImei != null && !rawImei.isEmpty()) {
-            if (rawImei.length() == 15) {
-                finalImei = rawImei;
-            } else if (rawImei.length() >= 18 && rawImei.length() <= 20) {
-                finalSim = rawImei;
-            }
-        }
-
-        if (rawSim != null && !rawSim.isEmpty()) {
-            if (rawSim.length() == 15) {
-                if (finalImei == null) finalImei = rawSim;
-            } else if (rawSim.length() >= 18 && rawSim.length() <= 20) {
-                if (finalSim == null) finalSim = rawSim;
-            }
-        }
-
-        logger.debug("Final values for serial {} -> IMEI: [{}], SIM: [{}]", serial, finalImei, finalSim);
-
-        return Optional.of(new BulkDevice(serial.toUpperCase(), finalImei, finalSim, getCellValue(row, headers, "capacity"), getCellValue(row, headers, "name", "device name"), now));
-    }
-
-    private Map<String, Integer> getHeaderMap(Row headerRow) {
-        Map<String, Integer> map = new HashMap<>();
+    private List<String> getNormalizedHeaderRow(Row headerRow, DataFormatter formatter) {
+        List<String> headers = new ArrayList<>();
         if (headerRow != null) {
             for (Cell cell : headerRow) {
-                map.put(new DataFormatter().formatCellValue(cell).trim().toLowerCase(), cell.getColumnIndex());
+                while (headers.size() < cell.getColumnIndex()) {
+                    headers.add("");
+                }
+                headers.add(formatter.formatCellValue(cell).trim().toLowerCase());
             }
         }
-        return map;
+        return headers;
     }
 
-    private String getCellValue(Row row, Map<String, Integer> headers, String... possibleNames) {
-        for (String name : possibleNames) {
-            Integer index = headers.get(name);
-            if (index != null) {
-                Cell cell = row.getCell(index);
-                if (cell != null && cell.getCellType() != CellType.BLANK) {
-                    return switch (cell.getCellType()) {
-                        case NUMERIC -> new java.math.BigDecimal(cell.getNumericCellValue()).toPlainString();
-                        case STRING -> cell.getStringCellValue().trim();
-                        default -> new DataFormatter().formatCellValue(cell).trim();
-                    };
-                }
+    private String getCellValue(Row row, int[] columns, DataFormatter formatter) {
+        for (int index : columns) {
+            Cell cell = row.getCell(index);
+            if (cell != null && cell.getCellType() != CellType.BLANK) {
+                return switch (cell.getCellType()) {
+                    case NUMERIC -> new java.math.BigDecimal(cell.getNumericCellValue()).toPlainString();
+                    case STRING -> cell.getStringCellValue().trim();
+                    default -> formatter.formatCellValue(cell).trim();
+                };
             }
         }
         return null;
     }
 
-    private String getCleanedNumericValue(Row row, Map<String, Integer> headers, String... possibleNames) {
-        String val = getCellValue(row, headers, possibleNames);
-        if (val == null) return null;
-        return val.replaceAll("[^0-9]", "");
-    }
-
     private List<BulkDevice> streamCsvData(File file) throws IOException, CsvException {
         List<BulkDevice> devices = new ArrayList<>();
         String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
         try (CSVReader reader = new CSVReader(new FileReader(file))) {
             String[] headerArray = reader.readNext();
             if (headerArray == null) return devices;
-            Map<String, Integer> headerMap = new HashMap<>();
-            for (int i = 0; i < headerArray.length; i++) {
-                headerMap.put(headerArray[i].trim().toLowerCase(), i);
-            }
-            if (!headerMap.containsKey("serial number") && !headerMap.containsKey("serial")) {
+            List<String> normalizedHeaders = normalizeHeaders(headerArray);
+            if (!DeviceColumnPlan.looksLikeHeader(normalizedHeaders)) {
                 return devices;
             }
+            DeviceColumnPlan plan = layoutCache.resolve(normalizedHeaders);
             String[] line;
             while ((line = reader.readNext()) != null) {
-                processCsvRow(line, headerMap, now).ifPresent(devices::add);
+                buildDevice(getCsvValue(line, plan.columns(DeviceColumnPlan.SERIAL)),
+                        getCsvValue(line, plan.columns(DeviceColumnPlan.IMEI)),
+                        getCsvValue(line, plan.columns(DeviceColumnPlan.ICCID)),
+                        getCsvValue(line, plan.columns(DeviceColumnPlan.CAPACITY)),
+                        getCsvValue(line, plan.columns(DeviceColumnPlan.NAME)),
+                        now).ifPresent(devices::add);
             }
         }
         return devices;
     }
 
-    private Optional<BulkDevice> processCsvRow(String[] line, Map<String, Integer> headers, String now) {
-        String serial = getCsvValue(line, headers, "serial number", "serial");
+    private String getCsvValue(String[] line, int[] columns) {
+        for (int index : columns) {
+            if (index < line.length && line[index] != null && !line[index].trim().isEmpty()) {
+                return line[index].trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies the shared row rules: rows without a serial are skipped, identifiers are reduced to digits,
+     * and a 15-digit value is treated as an IMEI while an 18-20 digit value is treated as an ICCID,
+     * whichever column it arrived in.
+     */
+    private Optional<BulkDevice> buildDevice(String serial, String imeiValue, String simValue, String capacity, String deviceName, String now) {
         if (serial == null || serial.isEmpty()) return Optional.empty();
 
-        String rawImei = getCleanedNumericCsvValue(line, headers, "imei/meid", "imei");
-        String rawSim = getCleanedNumericCsvValue(line, headers, "iccid", "sim");
+        String rawImei = imeiValue == null ? null : imeiValue.replaceAll("[^0-9]", "");
+        String rawSim = simValue == null ? null : simValue.replaceAll("[^0-9]", "");
         String finalImei = null;
         String finalSim = null;
 
@@ -241,72 +311,82 @@ public class DeviceImportService {
             }
         }
 
-        return Optional.of(new BulkDevice(serial.toUpperCase(), finalImei, finalSim, getCsvValue(line, headers, "capacity"), getCsvValue(line, headers, "name", "device name"), now));
+        logger.debug("Final values for serial {} -> IMEI: [{}], SIM: [{}]", serial, finalImei, finalSim);
+
+        return Optional.of(new BulkDevice(serial.toUpperCase(), finalImei, finalSim, capacity, deviceName, now));
     }
 
-    private String getCsvValue(String[] line, Map<String, Integer> headers, String... possibleNames) {
-        for (String name : possibleNames) {
-            Integer index = headers.get(name);
-            if (index != null && index < line.length && line[index] != null && !line[index].trim().isEmpty()) {
-                return line[index].trim();
+    private UpsertProgress performDatabaseUpsert(File file, BulkDeviceStaging staging, boolean releaseReusedIccids, BooleanSupplier isCancelled) throws SQLException {
+        String checkpointKey = getCheckpointKey(file);
+        String fileVersion = file.lastModified() + ":" + file.length();
+        int totalRows = staging.countRows();
+        // The checkpoint is a row number within the file, which stays the same between runs of an unchanged file.
+        int resumeAfterRow = readCheckpoint(checkpointKey, fileVersion);
+        if (resumeAfterRow > 0) {
+            logger.info("Resuming import of {} after file row {}.", file.getName(), resumeAfterRow);
+        }
+
+        int chunkSize = appSettingsDAO.getSetting(CHUNK_SIZE_KEY).map(value -> {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid '{}' setting: {}", CHUNK_SIZE_KEY, value);
+                return BulkDeviceStaging.DEFAULT_CHUNK_SIZE;
             }
+        }).orElse(BulkDeviceStaging.DEFAULT_CHUNK_SIZE);
+
+        int lastCommittedRow = staging.mergeInChunks(resumeAfterRow, chunkSize, releaseReusedIccids, committedRow -> {
+            appSettingsDAO.saveSetting(checkpointKey, fileVersion + ":" + committedRow);
+            logger.debug("Committed file rows up to {} from {}.", committedRow, file.getName());
+            return !isCancelled.getAsBoolean();
+        });
+
+        int committedCount = staging.countRowsUpTo(lastCommittedRow);
+        if (committedCount >= totalRows) {
+            appSettingsDAO.deleteSetting(checkpointKey);
+        } else {
+            logger.info("Import of {} stopped after file row {} ({} of {} rows). Checkpoint saved.", file.getName(), lastCommittedRow, committedCount, totalRows);
         }
-        return null;
+        return new UpsertProgress(staging.countRowsUpTo(resumeAfterRow), committedCount, totalRows);
     }
 
-    private String getCleanedNumericCsvValue(String[] line, Map<String, Integer> headers, String... possibleNames) {
-        String val = getCsvValue(line, headers, possibleNames);
-        if (val == null) return null;
-        return val.replaceAll("[^0-9]", "");
+    private String getCheckpointKey(File file) {
+        // Paths can be long, so the key stores a stable hash of the absolute path instead of the path itself.
+        UUID pathId = UUID.nameUUIDFromBytes(file.getAbsolutePath().toLowerCase().getBytes(StandardCharsets.UTF_8));
+        return CHECKPOINT_KEY_PREFIX + pathId;
     }
 
-    private DeviceValidationResult validateDevices(List<BulkDevice> devices) {
-        List<String> errors = new ArrayList<>();
-        Map<String, BulkDevice> uniqueDevicesBySerial = new LinkedHashMap<>();
-        for (BulkDevice device : devices) {
-            uniqueDevicesBySerial.putIfAbsent(device.getSerialNumber(), device);
+    private int readCheckpoint(String checkpointKey, String fileVersion) {
+        Optional<String> saved = appSettingsDAO.getSetting(checkpointKey);
+        if (saved.isEmpty()) {
+            return 0;
+        }
+        // Stored as "lastModified:length:lastCommittedRow". A changed file starts over from the first row.
+        int separator = saved.get().lastIndexOf(':');
+        if (separator < 0 || !saved.get().substring(0, separator).equals(fileVersion)) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(saved.get().substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            return 0;
         }
-        List<BulkDevice> deDuplicatedList = new ArrayList<>(uniqueDevicesBySerial.values());
-        Map<String, List<BulkDevice>> devicesByImei = deDuplicatedList.stream().filter(d -> d.getImei() != null && !d.getImei().isEmpty()).collect(Collectors.groupingBy(BulkDevice::getImei));
-        devicesByImei.entrySet().stream().filter(entry -> entry.getValue().size() > 1).forEach(entry -> {
-            String imei = entry.getKey();
-            String serials = entry.getValue().stream().map(BulkDevice::getSerialNumber).collect(Collectors.joining(", "));
-            errors.add(String.format("Rejected: Duplicate IMEI [%s] found for serials: %s.", imei, serials));
-        });
-        Set<String> invalidImeis = devicesByImei.entrySet().stream().filter(entry -> entry.getValue().size() > 1).map(Map.Entry::getKey).collect(Collectors.toSet());
-        List<BulkDevice> validDevices = deDuplicatedList.stream().filter(d -> d.getImei() == null || d.getImei().isEmpty() || !invalidImeis.contains(d.getImei())).collect(Collectors.toList());
-        return new DeviceValidationResult(validDevices, errors);
     }
 
-    private int performDatabaseUpsert(List<BulkDevice> devices) throws SQLException {
-        String unassignSql = "UPDATE Bulk_Devices SET ICCID = NULL WHERE ICCID = ? AND SerialNumber <> ?";
-        String upsertSql = "MERGE INTO Bulk_Devices (SerialNumber, IMEI, ICCID, Capacity, DeviceName, LastImportDate) KEY(SerialNumber) VALUES (?, ?, ?, ?, ?, ?)";
-        int[] upsertResults;
-        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
-            conn.setAutoCommit(false);
-            try (PreparedStatement unassignStmt = conn.prepareStatement(unassignSql); PreparedStatement upsertStmt = conn.prepareStatement(upsertSql)) {
-                for (BulkDevice device : devices) {
-                    if (device.getIccid() != null && !device.getIccid().isEmpty()) {
-                        unassignStmt.setString(1, device.getIccid());
-                        unassignStmt.setString(2, device.getSerialNumber());
-                        unassignStmt.addBatch();
-                    }
-                    upsertStmt.setString(1, device.getSerialNumber());
-                    upsertStmt.setString(2, device.getImei());
-                    upsertStmt.setString(3, device.getIccid());
-                    upsertStmt.setString(4, device.getCapacity());
-                    upsertStmt.setString(5, device.getDeviceName());
-                    upsertStmt.setString(6, device.getLastImportDate());
-                    upsertStmt.addBatch();
-                }
-                unassignStmt.executeBatch();
-                upsertResults = upsertStmt.executeBatch();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            }
-            conn.commit();
+    /**
+     * @param resumedCount   Rows already committed by an earlier, interrupted run of the same file.
+     * @param committedCount Rows committed so far, including {@code resumedCount}.
+     */
+    private record UpsertProgress(int resumedCount, int committedCount, int totalCount) {
+        boolean isComplete() {
+            return committedCount >= totalCount;
+        }
+
+        /**
+         * @return The rows this run committed.
+         */
+        int importedCount() {
+            return committedCount - resumedCount;
         }
-        return (int) Arrays.stream(upsertResults).filter(i -> i >= 0).count();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package assettracking.manager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers resolved column plans by header layout for the rest of the session.
+ * The same carrier export layouts arrive over and over, so each distinct header row is resolved once and reused
+ * from memory. Only the {@link #MAX_LAYOUTS} most recently used layouts are kept.
+ * <p>
+ * Plans are cheap to resolve from the headers, so they are kept in memory rather than stored in the database,
+ * where reading one back would cost a round trip to save a few map lookups.
+ */
+public class DeviceLayoutCache {
+
+    static final int MAX_LAYOUTS = 64;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceLayoutCache.class);
+    // Access-ordered, so the least recently used layout is dropped first. Guarded by itself.
+    private static final Map<String, DeviceColumnPlan> plansBySignature = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeviceColumnPlan> eldest) {
+            return size() > MAX_LAYOUTS;
+        }
+    };
+
+    /**
+     * Returns the column plan for a header row, resolving it with the alias heuristics the first time the layout
+     * is seen.
+     *
+     * @param normalizedHeaders Header text by column index, trimmed and lower-cased.
+     */
+    public DeviceColumnPlan resolve(List<String> normalizedHeaders) {
+        String signature = signatureOf(normalizedHeaders);
+        synchronized (plansBySignature) {
+            DeviceColumnPlan cached = plansBySignature.get(signature);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        DeviceColumnPlan plan = DeviceColumnPlan.fromHeaders(normalizedHeaders);
+        if (plan.hasSerialColumn()) {
+            logger.info("New device file layout {} resolved to {}.", signature, plan.serialize());
+            synchronized (plansBySignature) {
+                plansBySignature.put(signature, plan);
+            }
+        }
+        return plan;
+    }
+
+    static String signatureOf(List<String> normalizedHeaders) {
+        // The unit separator can't appear in a header cell, so different layouts can't join to the same text.
+        byte[] layout = String.join("\u001F", normalizedHeaders).getBytes(StandardCharsets.UTF_8);
+        return UUID.nameUUIDFromBytes(layout).toString();
+    }
+}
@@ -1,5 +1,6 @@
 package assettracking.manager;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.controller.DeviceStatusTrackingController;
 import assettracking.dao.DeviceStatusDAO;
 import assettracking.data.DeviceStatusView;
@@ -12,7 +13,11 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class DeviceStatusManager {
     private final DeviceStatusTrackingController controller;
@@ -54,7 +59,41 @@ public class DeviceStatusManager {
             // Optionally show an error to the user
         });
 
-        new Thread(countTask).start();
+        BackgroundTasks.run("device-status-page-count", countTask);
+    }
+
+    /**
+     * Reloads the rows for some receipts in place, without re-counting or re-reading the page. Falls back to a full
+     * reload when a receipt isn't on the current page or no longer matches the filters, since the page's contents
+     * change then. Rows keep their position until the next full reload.
+     */
+    public void refreshRows(Set<Integer> receiptIds) {
+        Set<Integer> onPage = deviceStatusList.stream().map(DeviceStatusView::getReceiptId).collect(Collectors.toSet());
+        if (!onPage.containsAll(receiptIds)) {
+            resetPagination();
+            return;
+        }
+
+        Task<List<DeviceStatusView>> rowsTask = new Task<>() {
+            @Override
+            protected List<DeviceStatusView> call() throws SQLException {
+                return deviceStatusDAO.fetchRows(receiptIds);
+            }
+        };
+        rowsTask.setOnSucceeded(e -> {
+            List<DeviceStatusView> rows = rowsTask.getValue();
+            if (rows.size() != receiptIds.size()) {
+                resetPagination();
+                return;
+            }
+            Map<Integer, DeviceStatusView> byReceiptId = rows.stream().collect(Collectors.toMap(DeviceStatusView::getReceiptId, Function.identity()));
+            for (int i = 0; i < deviceStatusList.size(); i++) {
+                DeviceStatusView updated = byReceiptId.get(deviceStatusList.get(i).getReceiptId());
+                if (updated != null) deviceStatusList.set(i, updated);
+            }
+        });
+        rowsTask.setOnFailed(e -> resetPagination());
+        BackgroundTasks.run("device-status-rows", rowsTask);
     }
 
     private Node createPage(int pageIndex) {
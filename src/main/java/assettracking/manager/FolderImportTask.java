@@ -38,6 +38,10 @@ public class FolderImportTask extends Task<List<ImportResult>> {
         int totalFiles = allFiles.size();
 
         for (int i = 0; i < totalFiles; i++) {
+            if (isCancelled()) {
+                logger.info("Folder import cancelled before file {}/{}.", i + 1, totalFiles);
+                break;
+            }
             File file = allFiles.get(i);
             updateProgress(i + 1, totalFiles);
             updateMessage(String.format("Processing file %d/%d: %s", i + 1, totalFiles, file.getName()));
@@ -45,7 +49,8 @@ public class FolderImportTask extends Task<List<ImportResult>> {
             // --- THIS IS THE FIX ---
             // Wrap the processing of each file in a try-catch block.
             try {
-                results.add(deviceImportService.processAndUpsertData(file));
+                // Cancellation is checked between committed chunks, so a stopped file resumes on the next run.
+                results.add(deviceImportService.processAndUpsertData(file, this::isCancelled));
             } catch (Exception e) {
                 // If a single file fails (e.g., it's locked), log the error and continue.
                 logger.error("Critical error processing file: {}", file.getName(), e);
@@ -54,7 +59,7 @@ public class FolderImportTask extends Task<List<ImportResult>> {
             }
             // --- END OF FIX ---
         }
-        updateMessage("Import process complete.");
+        updateMessage(isCancelled() ? "Import cancelled. Progress has been saved." : "Import process complete.");
         return results;
     }
 }
\ No newline at end of file
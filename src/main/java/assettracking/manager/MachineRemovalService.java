@@ -1,5 +1,7 @@
 package assettracking.manager;
 
+import assettracking.concurrent.BackgroundTasks;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -25,7 +27,7 @@ public class MachineRemovalService {
      * @return A CompletableFuture that will complete with a list of SearchResult objects.
      */
     public CompletableFuture<List<SearchResult>> search(List<String> searchTerms) {
-        return CompletableFuture.supplyAsync(() ->
+        return BackgroundTasks.supplyIo("machine-removal-search", () ->
                 executePowerShell("search", searchTerms, "Both").stream()
                         .filter(line -> line.startsWith("RESULT:"))
                         .map(this::parseSearchResult)
@@ -40,7 +42,7 @@ public class MachineRemovalService {
      * @return A CompletableFuture that will complete with a list of log messages from the script.
      */
     public CompletableFuture<List<String>> remove(List<String> computerNames) {
-        return CompletableFuture.supplyAsync(() ->
+        return BackgroundTasks.supplyIo("machine-removal-remove", () ->
                 executePowerShell("remove", computerNames, null).stream()
                         .filter(line -> line.startsWith("LOG:"))
                         .map(line -> line.substring(4)) // Remove "LOG:" prefix
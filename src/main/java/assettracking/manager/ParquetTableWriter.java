@@ -0,0 +1,519 @@
+package assettracking.manager;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal streaming Parquet writer for flat tables of nullable columns, using only the JDK.
+ * <p>
+ * Rows are buffered into row groups of {@code rowGroupSize} rows; each full group is encoded and written out,
+ * so memory is bounded by one row group. Every column chunk is a single gzip-compressed v1 data page, with a
+ * dictionary page for {@link ColumnType#DICTIONARY_STRING} columns. Dates are stored as DATE, timestamps as
+ * local (not UTC-adjusted) millisecond TIMESTAMP, and booleans as BOOLEAN, so pandas, pyarrow and Power BI
+ * read them back with their types.
+ */
+public final class ParquetTableWriter implements Closeable {
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 65_536;
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    // Parquet physical types, encodings and codecs (parquet.thrift).
+    private static final int TYPE_BOOLEAN = 0;
+    private static final int TYPE_INT32 = 1;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_PLAIN_DICTIONARY = 2;
+    private static final int ENCODING_RLE = 3;
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DATE = 6;
+    private static final int REPETITION_OPTIONAL = 1;
+    private static final int CODEC_GZIP = 2;
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+
+    private final CountingOutputStream out;
+    private final List<Column> columns;
+    private final int rowGroupSize;
+    private Object[][] buffer;
+    private final List<byte[]> rowGroups = new ArrayList<>();
+    private int bufferedRows;
+    private long totalRows;
+    private boolean closed;
+
+    public ParquetTableWriter(OutputStream out, List<Column> columns, int rowGroupSize) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.columns = List.copyOf(columns);
+        this.rowGroupSize = rowGroupSize;
+        // Grown on demand, so writers that only ever see a few rows stay small.
+        this.buffer = new Object[columns.size()][Math.min(rowGroupSize, 1024)];
+        this.out.write(MAGIC);
+    }
+
+    /**
+     * Adds one row. Values must match the column types: String, Number (INT64), LocalDate, LocalDateTime or
+     * Boolean; null is allowed for every column.
+     */
+    public void writeRow(Object[] values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values but got " + values.length);
+        }
+        if (bufferedRows == buffer[0].length) {
+            int capacity = Math.min(rowGroupSize, buffer[0].length * 2);
+            for (int c = 0; c < buffer.length; c++) {
+                buffer[c] = Arrays.copyOf(buffer[c], capacity);
+            }
+        }
+        for (int c = 0; c < values.length; c++) {
+            buffer[c][bufferedRows] = values[c];
+        }
+        if (++bufferedRows == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    public long getRowCount() {
+        return totalRows + bufferedRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (bufferedRows > 0) {
+                flushRowGroup();
+            }
+            byte[] footer = fileMetadata();
+            out.write(footer);
+            writeIntLittleEndian(out, footer.length);
+            out.write(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        ThriftCompactWriter rowGroup = new ThriftCompactWriter();
+        rowGroup.fieldHeader(1, ThriftCompactWriter.LIST);
+        rowGroup.listHeader(columns.size(), ThriftCompactWriter.STRUCT);
+        long rowGroupBytes = 0;
+        for (int c = 0; c < columns.size(); c++) {
+            ChunkInfo chunk = writeColumnChunk(columns.get(c), buffer[c], bufferedRows);
+            writeColumnChunkMetadata(rowGroup, columns.get(c), chunk, bufferedRows);
+            rowGroupBytes += chunk.uncompressedSize;
+            Arrays.fill(buffer[c], 0, bufferedRows, null);
+        }
+        rowGroup.i64Field(2, rowGroupBytes);
+        rowGroup.i64Field(3, bufferedRows);
+        rowGroup.structEnd();
+        rowGroups.add(rowGroup.toByteArray());
+        totalRows += bufferedRows;
+        bufferedRows = 0;
+    }
+
+    private ChunkInfo writeColumnChunk(Column column, Object[] values, int rowCount) throws IOException {
+        ChunkInfo chunk = new ChunkInfo();
+        chunk.startOffset = out.getCount();
+
+        ByteArrayOutputStream levels = new ByteArrayOutputStream();
+        int[] definitionLevels = new int[rowCount];
+        int nonNullCount = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (values[i] != null) {
+                definitionLevels[i] = 1;
+                nonNullCount++;
+            }
+        }
+        byte[] encodedLevels = encodeRle(definitionLevels, rowCount, 1);
+        writeIntLittleEndian(levels, encodedLevels.length);
+        levels.write(encodedLevels);
+
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        page.write(levels.toByteArray());
+        int dataEncoding;
+        if (column.type() == ColumnType.DICTIONARY_STRING && nonNullCount > 0) {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            int[] indexes = new int[nonNullCount];
+            int n = 0;
+            for (int i = 0; i < rowCount; i++) {
+                if (values[i] != null) {
+                    indexes[n++] = dictionary.computeIfAbsent(values[i].toString(), k -> dictionary.size());
+                }
+            }
+            ByteArrayOutputStream dictionaryPage = new ByteArrayOutputStream();
+            for (String entry : dictionary.keySet()) {
+                writeByteArray(dictionaryPage, entry);
+            }
+            chunk.dictionaryOffset = out.getCount();
+            writePage(chunk, PAGE_DICTIONARY, dictionaryPage.toByteArray(), dictionary.size(), ENCODING_PLAIN_DICTIONARY);
+
+            int bitWidth = Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionary.size() - 1));
+            page.write(bitWidth);
+            page.write(encodeRle(indexes, nonNullCount, bitWidth));
+            dataEncoding = ENCODING_PLAIN_DICTIONARY;
+            chunk.encodings = new int[]{ENCODING_PLAIN_DICTIONARY, ENCODING_RLE};
+        } else {
+            writePlainValues(page, column.type(), values, rowCount);
+            dataEncoding = ENCODING_PLAIN;
+            chunk.encodings = new int[]{ENCODING_PLAIN, ENCODING_RLE};
+        }
+        chunk.dataOffset = out.getCount();
+        writePage(chunk, PAGE_DATA, page.toByteArray(), rowCount, dataEncoding);
+        return chunk;
+    }
+
+    private void writePage(ChunkInfo chunk, int pageType, byte[] body, int valueCount, int encoding) throws IOException {
+        ByteArrayOutputStream compressedBody = new ByteArrayOutputStream(body.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressedBody)) {
+            gzip.write(body);
+        }
+        byte[] compressed = compressedBody.toByteArray();
+
+        ThriftCompactWriter header = new ThriftCompactWriter();
+        header.i32Field(1, pageType);
+        header.i32Field(2, body.length);
+        header.i32Field(3, compressed.length);
+        if (pageType == PAGE_DATA) {
+            header.fieldHeader(5, ThriftCompactWriter.STRUCT);
+            header.structBegin();
+            header.i32Field(1, valueCount);
+            header.i32Field(2, encoding);
+            header.i32Field(3, ENCODING_RLE);
+            header.i32Field(4, ENCODING_RLE);
+            header.structEnd();
+        } else {
+            header.fieldHeader(7, ThriftCompactWriter.STRUCT);
+            header.structBegin();
+            header.i32Field(1, valueCount);
+            header.i32Field(2, encoding);
+            header.structEnd();
+        }
+        header.structEnd();
+        byte[] headerBytes = header.toByteArray();
+
+        out.write(headerBytes);
+        out.write(compressed);
+        chunk.uncompressedSize += headerBytes.length + body.length;
+        chunk.compressedSize += headerBytes.length + compressed.length;
+    }
+
+    private void writePlainValues(ByteArrayOutputStream page, ColumnType type, Object[] values, int rowCount) throws IOException {
+        switch (type) {
+            case STRING, DICTIONARY_STRING -> {
+                for (int i = 0; i < rowCount; i++) {
+                    if (values[i] != null) writeByteArray(page, values[i].toString());
+                }
+            }
+            case INT64 -> {
+                for (int i = 0; i < rowCount; i++) {
+                    if (values[i] != null) writeLongLittleEndian(page, ((Number) values[i]).longValue());
+                }
+            }
+            case DATE -> {
+                for (int i = 0; i < rowCount; i++) {
+                    if (values[i] != null) writeIntLittleEndian(page, (int) ((LocalDate) values[i]).toEpochDay());
+                }
+            }
+            case TIMESTAMP -> {
+                for (int i = 0; i < rowCount; i++) {
+                    if (values[i] != null) writeLongLittleEndian(page, ((LocalDateTime) values[i]).toInstant(ZoneOffset.UTC).toEpochMilli());
+                }
+            }
+            case BOOLEAN -> {
+                // Bit-packed, least significant bit first.
+                int current = 0;
+                int bits = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    if (values[i] == null) continue;
+                    if ((Boolean) values[i]) current |= 1 << bits;
+                    if (++bits == 8) {
+                        page.write(current);
+                        current = 0;
+                        bits = 0;
+                    }
+                }
+                if (bits > 0) page.write(current);
+            }
+        }
+    }
+
+    private void writeColumnChunkMetadata(ThriftCompactWriter writer, Column column, ChunkInfo chunk, int rowCount) {
+        writer.structBegin();
+        writer.i64Field(2, chunk.startOffset);
+        writer.fieldHeader(3, ThriftCompactWriter.STRUCT);
+        writer.structBegin();
+        writer.i32Field(1, physicalType(column.type()));
+        writer.fieldHeader(2, ThriftCompactWriter.LIST);
+        writer.listHeader(chunk.encodings.length, ThriftCompactWriter.I32);
+        for (int encoding : chunk.encodings) {
+            writer.varint(zigzag(encoding));
+        }
+        writer.fieldHeader(3, ThriftCompactWriter.LIST);
+        writer.listHeader(1, ThriftCompactWriter.BINARY);
+        writer.binary(column.name());
+        writer.i32Field(4, CODEC_GZIP);
+        writer.i64Field(5, rowCount);
+        writer.i64Field(6, chunk.uncompressedSize);
+        writer.i64Field(7, chunk.compressedSize);
+        writer.i64Field(9, chunk.dataOffset);
+        if (chunk.dictionaryOffset >= 0) {
+            writer.i64Field(11, chunk.dictionaryOffset);
+        }
+        writer.structEnd();
+        writer.structEnd();
+    }
+
+    private byte[] fileMetadata() {
+        ThriftCompactWriter writer = new ThriftCompactWriter();
+        writer.i32Field(1, 1);
+        writer.fieldHeader(2, ThriftCompactWriter.LIST);
+        writer.listHeader(columns.size() + 1, ThriftCompactWriter.STRUCT);
+        writer.structBegin();
+        writer.stringField(4, "schema");
+        writer.i32Field(5, columns.size());
+        writer.structEnd();
+        for (Column column : columns) {
+            writer.structBegin();
+            writer.i32Field(1, physicalType(column.type()));
+            writer.i32Field(3, REPETITION_OPTIONAL);
+            writer.stringField(4, column.name());
+            switch (column.type()) {
+                case STRING, DICTIONARY_STRING -> writer.i32Field(6, CONVERTED_UTF8);
+                case DATE -> writer.i32Field(6, CONVERTED_DATE);
+                case TIMESTAMP -> {
+                    // LogicalType.TIMESTAMP(isAdjustedToUTC=false, unit=MILLIS). There is no converted type for
+                    // local timestamps, so only the logical type is written.
+                    writer.fieldHeader(10, ThriftCompactWriter.STRUCT);
+                    writer.structBegin();
+                    writer.fieldHeader(8, ThriftCompactWriter.STRUCT);
+                    writer.structBegin();
+                    writer.boolField(1, false);
+                    writer.fieldHeader(2, ThriftCompactWriter.STRUCT);
+                    writer.structBegin();
+                    writer.fieldHeader(1, ThriftCompactWriter.STRUCT);
+                    writer.structBegin();
+                    writer.structEnd();
+                    writer.structEnd();
+                    writer.structEnd();
+                    writer.structEnd();
+                }
+                default -> {
+                }
+            }
+            writer.structEnd();
+        }
+        writer.i64Field(3, totalRows);
+        writer.fieldHeader(4, ThriftCompactWriter.LIST);
+        writer.listHeader(rowGroups.size(), ThriftCompactWriter.STRUCT);
+        for (byte[] rowGroup : rowGroups) {
+            writer.raw(rowGroup);
+        }
+        writer.stringField(6, "assettracking ParquetTableWriter");
+        writer.structEnd();
+        return writer.toByteArray();
+    }
+
+    private static int physicalType(ColumnType type) {
+        return switch (type) {
+            case STRING, DICTIONARY_STRING -> TYPE_BYTE_ARRAY;
+            case INT64, TIMESTAMP -> TYPE_INT64;
+            case DATE -> TYPE_INT32;
+            case BOOLEAN -> TYPE_BOOLEAN;
+        };
+    }
+
+    /**
+     * RLE/bit-packed hybrid encoding using only RLE runs, which every reader accepts.
+     */
+    private static byte[] encodeRle(int[] values, int count, int bitWidth) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        int byteWidth = (bitWidth + 7) / 8;
+        int i = 0;
+        while (i < count) {
+            int value = values[i];
+            int run = 1;
+            while (i + run < count && values[i + run] == value) {
+                run++;
+            }
+            writeVarint(encoded, (long) run << 1);
+            for (int b = 0; b < byteWidth; b++) {
+                encoded.write((value >>> (8 * b)) & 0xFF);
+            }
+            i += run;
+        }
+        return encoded.toByteArray();
+    }
+
+    private static void writeByteArray(ByteArrayOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeIntLittleEndian(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeIntLittleEndian(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeLongLittleEndian(OutputStream out, long value) throws IOException {
+        for (int b = 0; b < 8; b++) {
+            out.write((int) (value >>> (8 * b)) & 0xFF);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public enum ColumnType {
+        STRING,
+        /**
+         * A low-cardinality string (status, category, make) stored with dictionary encoding.
+         */
+        DICTIONARY_STRING,
+        INT64,
+        DATE,
+        TIMESTAMP,
+        BOOLEAN
+    }
+
+    public record Column(String name, ColumnType type) {
+    }
+
+    private static final class ChunkInfo {
+        long startOffset;
+        long dictionaryOffset = -1;
+        long dataOffset;
+        long uncompressedSize;
+        long compressedSize;
+        int[] encodings;
+    }
+
+    /**
+     * Just enough of the Thrift compact protocol to write Parquet page headers and file metadata.
+     */
+    private static final class ThriftCompactWriter {
+        static final int BOOLEAN_TRUE = 1;
+        static final int BOOLEAN_FALSE = 2;
+        static final int I32 = 5;
+        static final int I64 = 6;
+        static final int BINARY = 8;
+        static final int LIST = 9;
+        static final int STRUCT = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Deque<Integer> lastFieldIds = new ArrayDeque<>();
+        private int lastFieldId;
+
+        void fieldHeader(int fieldId, int type) {
+            int delta = fieldId - lastFieldId;
+            if (delta > 0 && delta <= 15) {
+                bytes.write((delta << 4) | type);
+            } else {
+                bytes.write(type);
+                varint(zigzag(fieldId));
+            }
+            lastFieldId = fieldId;
+        }
+
+        void structBegin() {
+            lastFieldIds.push(lastFieldId);
+            lastFieldId = 0;
+        }
+
+        void structEnd() {
+            bytes.write(0);
+            lastFieldId = lastFieldIds.isEmpty() ? 0 : lastFieldIds.pop();
+        }
+
+        void listHeader(int size, int elementType) {
+            if (size < 15) {
+                bytes.write((size << 4) | elementType);
+            } else {
+                bytes.write(0xF0 | elementType);
+                varint(size);
+            }
+        }
+
+        void i32Field(int fieldId, int value) {
+            fieldHeader(fieldId, I32);
+            varint(zigzag(value));
+        }
+
+        void i64Field(int fieldId, long value) {
+            fieldHeader(fieldId, I64);
+            varint(zigzag(value));
+        }
+
+        void boolField(int fieldId, boolean value) {
+            fieldHeader(fieldId, value ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+        }
+
+        void stringField(int fieldId, String value) {
+            fieldHeader(fieldId, BINARY);
+            binary(value);
+        }
+
+        void binary(String value) {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            varint(data.length);
+            bytes.write(data, 0, data.length);
+        }
+
+        void varint(long value) {
+            writeVarint(bytes, value);
+        }
+
+        /**
+         * Appends an already-encoded struct (a list element), which carries its own field ids.
+         */
+        void raw(byte[] encoded) {
+            bytes.write(encoded, 0, encoded.length);
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -10,17 +10,33 @@ import java.util.List;
 
 /**
  * Service responsible for writing staged device data to the Excel template.
+ * The template is read from the JAR and parsed once per session; every export starts from that prototype.
  */
 public class ProvisioningExportService {
+
+    private static final String TEMPLATE_RESOURCE = "/template/Device_Submission_Template.xlsx";
+    private static volatile ExcelWriter.Template cachedTemplate;
+
     public void exportToFile(File outputFile, List<StagedDevice> devices) throws IOException {
-        // This is the correct way to get a resource from within a JAR
-        try (InputStream templateStream = getClass().getResourceAsStream("/template/Device_Submission_Template.xlsx")) {
-            if (templateStream == null) {
-                throw new IOException("The required Excel template 'Device_Submission_Template.xlsx' could not be found in application resources.");
-            }
+        ExcelWriter.writeTemplate(getTemplate(), outputFile, devices);
+    }
 
-            // Pass the InputStream directly to the updated ExcelWriter method
-            ExcelWriter.writeTemplate(templateStream, outputFile, devices);
+    private ExcelWriter.Template getTemplate() throws IOException {
+        ExcelWriter.Template template = cachedTemplate;
+        if (template != null) {
+            return template;
+        }
+        synchronized (ProvisioningExportService.class) {
+            if (cachedTemplate == null) {
+                // This is the correct way to get a resource from within a JAR
+                try (InputStream templateStream = getClass().getResourceAsStream(TEMPLATE_RESOURCE)) {
+                    if (templateStream == null) {
+                        throw new IOException("The required Excel template 'Device_Submission_Template.xlsx' could not be found in application resources.");
+                    }
+                    cachedTemplate = ExcelWriter.prepareTemplate(templateStream);
+                }
+            }
+            return cachedTemplate;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package assettracking.manager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The bookkeeping behind {@link ViewInvalidator}: what has been marked dirty since the last refresh, and when the
+ * next refresh may run. Kept apart from the FX timer so it can be tested without a toolkit. Not thread-safe.
+ */
+final class RefreshCoalescer {
+
+    private final long intervalMillis;
+    private final boolean rowRefresh;
+    private Set<Integer> dirtyReceiptIds = new HashSet<>();
+    private boolean allDirty;
+    private long lastRefreshMillis = Long.MIN_VALUE / 2;
+
+    /**
+     * @param rowRefresh False if the view can only reload everything, in which case marked rows mark it all dirty.
+     */
+    RefreshCoalescer(long intervalMillis, boolean rowRefresh) {
+        this.intervalMillis = intervalMillis;
+        this.rowRefresh = rowRefresh;
+    }
+
+    void markAll() {
+        allDirty = true;
+    }
+
+    void mark(Collection<Integer> receiptIds) {
+        if (rowRefresh) {
+            dirtyReceiptIds.addAll(receiptIds);
+        } else {
+            allDirty = true;
+        }
+    }
+
+    /**
+     * @return How long until the next refresh may run; zero or less if it may run now.
+     */
+    long millisUntilRefresh(long nowMillis) {
+        return lastRefreshMillis + intervalMillis - nowMillis;
+    }
+
+    /**
+     * Takes everything marked so far and starts a new interval.
+     *
+     * @return What to refresh, or null if nothing was marked.
+     */
+    Refresh take(long nowMillis) {
+        if (!allDirty && dirtyReceiptIds.isEmpty()) {
+            return null;
+        }
+        lastRefreshMillis = nowMillis;
+        Refresh refresh = allDirty ? new Refresh(true, Set.of()) : new Refresh(false, dirtyReceiptIds);
+        allDirty = false;
+        dirtyReceiptIds = new HashSet<>();
+        return refresh;
+    }
+
+    /**
+     * @param all        Reload the whole view.
+     * @param receiptIds Otherwise, the receipts whose rows to reload.
+     */
+    record Refresh(boolean all, Set<Integer> receiptIds) {
+    }
+}
@@ -0,0 +1,442 @@
+package assettracking.manager;
+
+import assettracking.dao.ChangeLogDAO;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import com.opencsv.enums.CSVReaderNullFieldIndicator;
+import com.opencsv.exceptions.CsvValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the last "latest status per serial" report snapshot on disk, with the data version it reflects.
+ * <p>
+ * Each refresh notes when it read the data. Next time, the serials with a Change_Log entry from
+ * {@link ChangeLogDAO#LATE_COMMIT_WINDOW} before that read onwards are re-queried and merged in, so changes that
+ * were still uncommitted during the last read are picked up too. When no change has been logged in that window
+ * since, the file is reused as-is. Anything else (deleted receipts, another database, a snapshot from an earlier
+ * day, no change log) triggers a full rebuild. The daily rebuild also picks up package edits such as contact details,
+ * which are not logged.
+ * <p>
+ * The snapshot holds customer names and addresses, so it lives in the user's local application data and is
+ * readable by its owner only. A {@link Snapshot} holds a read lock until it is closed, so a refresh never replaces
+ * the file while an export is reading it.
+ */
+public class ReportSnapshotCache {
+
+    /**
+     * Snapshot columns, in file order. Dates are stored as yyyy-MM-dd and timestamps as yyyy-MM-dd HH:mm:ss.
+     */
+    public static final String[] COLUMNS = {"tracking_number", "first_name", "last_name", "city", "state", "zip_code", "receive_date", "category", "description", "imei", "serial_number", "status_change_date", "status", "sub_status"};
+    public static final int RECEIVE_DATE = 6;
+    public static final int SERIAL_NUMBER = 10;
+    public static final int STATUS_CHANGE_DATE = 11;
+    public static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportSnapshotCache.class);
+    private static final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock(true);
+    private static final String FORMAT_VERSION = "2";
+    // Past this many changed serials a full rebuild is cheaper than holding the patch in memory.
+    private static final int MAX_PATCH_ROWS = 50_000;
+    private static final int FETCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // The order of the full query: newest status change first, rows without a status last.
+    private static final Comparator<String[]> SNAPSHOT_ROW_ORDER = Comparator
+            .comparing((String[] row) -> row[STATUS_CHANGE_DATE], Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(row -> row[RECEIVE_DATE], Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private static final String SNAPSHOT_SELECT = """
+                SELECT
+                    p.tracking_number, p.first_name, p.last_name, p.city, p.state, p.zip_code, p.receive_date,
+                    re.category, re.description, re.imei, re.serial_number, ds.last_update AS status_change_date,
+                    ds.status, ds.sub_status
+                FROM Receipt_Events re
+                INNER JOIN (
+                    SELECT serial_number, MAX(receipt_id) AS max_receipt_id
+                    FROM Receipt_Events
+                    GROUP BY serial_number
+                ) latest ON re.serial_number = latest.serial_number AND re.receipt_id = latest.max_receipt_id
+                LEFT JOIN Packages p ON re.package_id = p.package_id
+                LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id
+            """;
+    private static final String SNAPSHOT_ORDER = " ORDER BY ds.last_update DESC NULLS LAST, p.receive_date DESC";
+    // Change_Log.row_key is the receipt_id for both logged tables.
+    private static final String CHANGED_SERIALS_FILTER = """
+                WHERE re.serial_number IN (
+                    SELECT r.serial_number FROM Change_Log c
+                    INNER JOIN Receipt_Events r ON r.receipt_id = c.row_key
+                    WHERE c.changed_at >= ?
+                )
+            """;
+
+    private final Path snapshotFile;
+    private final Path metadataFile;
+
+    public ReportSnapshotCache() {
+        this(defaultCacheDirectory());
+    }
+
+    public ReportSnapshotCache(Path cacheDirectory) {
+        this.snapshotFile = cacheDirectory.resolve("report_snapshot.csv.gz");
+        this.metadataFile = cacheDirectory.resolve("report_snapshot.properties");
+    }
+
+    /**
+     * Brings the on-disk snapshot up to date with the database and returns it. The snapshot must be closed once it
+     * has been read; until then other refreshes wait.
+     */
+    public Snapshot refresh(Connection conn) throws SQLException, IOException {
+        snapshotLock.writeLock().lock();
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            restrictToOwner(snapshotFile.getParent(), true);
+            Snapshot snapshot = update(conn);
+            // Downgrade, so readers can share the file but no refresh replaces it until they are done.
+            snapshotLock.readLock().lock();
+            return snapshot;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    private Snapshot update(Connection conn) throws SQLException, IOException {
+        // Read the version before the rows, so changes made while the snapshot is written are patched in next time.
+        DataVersion current = readDataVersion(conn);
+        Optional<Properties> metadata = readMetadata();
+
+        if (metadata.isPresent() && Files.exists(snapshotFile) && new ChangeLogDAO().isInstalled() && canPatch(conn, metadata.get())) {
+            Properties stored = metadata.get();
+            LocalDateTime changesSince = LocalDateTime.parse(stored.getProperty("changes.since"));
+            if (current.maxReceiptId() == Long.parseLong(stored.getProperty("max.receipt.id"))
+                    && current.maxChangeId() == Long.parseLong(stored.getProperty("max.change.id"))
+                    && countChangesSince(conn, changesSince) == Long.parseLong(stored.getProperty("changes.in.window"))) {
+                return new Snapshot(snapshotFile, Long.parseLong(stored.getProperty("row.count")), RefreshKind.REUSED);
+            }
+            Optional<Long> patchedCount = patch(conn, changesSince);
+            if (patchedCount.isPresent()) {
+                writeMetadata(conn, current, patchedCount.get());
+                return new Snapshot(snapshotFile, patchedCount.get(), RefreshKind.PATCHED);
+            }
+        }
+
+        long rowCount = rebuild(conn);
+        writeMetadata(conn, current, rowCount);
+        return new Snapshot(snapshotFile, rowCount, RefreshKind.REBUILT);
+    }
+
+    private static Path defaultCacheDirectory() {
+        String localAppData = System.getenv("LOCALAPPDATA");
+        if (localAppData != null && !localAppData.isBlank()) {
+            return Paths.get(localAppData, "AssetTracker", "cache");
+        }
+        return Paths.get(System.getProperty("user.home"), ".asset_tracker_cache");
+    }
+
+    private boolean canPatch(Connection conn, Properties stored) throws SQLException {
+        if (!FORMAT_VERSION.equals(stored.getProperty("format.version"))
+                || !conn.getMetaData().getURL().equals(stored.getProperty("db.url"))
+                || !LocalDate.now().toString().equals(stored.getProperty("created.on"))) {
+            return false;
+        }
+        // Receipts are only ever appended, so any difference here means rows were deleted since the snapshot.
+        long storedMaxReceiptId = Long.parseLong(stored.getProperty("max.receipt.id"));
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM Receipt_Events WHERE receipt_id <= ?")) {
+            stmt.setLong(1, storedMaxReceiptId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getLong(1) == Long.parseLong(stored.getProperty("receipt.count"));
+            }
+        }
+    }
+
+    private long rebuild(Connection conn) throws SQLException, IOException {
+        Path tempFile = Files.createTempFile(snapshotFile.getParent(), "report_snapshot", ".tmp");
+        long rowCount = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(SNAPSHOT_SELECT + SNAPSHOT_ORDER, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(); Writer writer = openWriter(tempFile)) {
+                while (rs.next()) {
+                    writeRow(writer, readRow(rs));
+                    rowCount++;
+                }
+            }
+            replaceSnapshot(tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        logger.info("Rebuilt report snapshot with {} rows.", rowCount);
+        return rowCount;
+    }
+
+    /**
+     * Re-queries the serials with changes logged since {@code changesSince} and merges them into the existing file.
+     *
+     * @return The new row count, or empty if too many serials changed and the snapshot should be rebuilt.
+     */
+    private Optional<Long> patch(Connection conn, LocalDateTime changesSince) throws SQLException, IOException {
+        List<String[]> patchedRows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SNAPSHOT_SELECT + CHANGED_SERIALS_FILTER + SNAPSHOT_ORDER)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(changesSince));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (patchedRows.size() == MAX_PATCH_ROWS) {
+                        return Optional.empty();
+                    }
+                    patchedRows.add(readRow(rs));
+                }
+            }
+        }
+        Set<String> patchedSerials = new HashSet<>();
+        patchedRows.forEach(row -> patchedSerials.add(row[SERIAL_NUMBER]));
+
+        // Both inputs are in snapshot order, so a single merge pass keeps the file in that order.
+        Path tempFile = Files.createTempFile(snapshotFile.getParent(), "report_snapshot", ".tmp");
+        long rowCount = 0;
+        try {
+            try (SnapshotReader reader = new SnapshotReader(snapshotFile); Writer writer = openWriter(tempFile)) {
+                Iterator<String[]> patched = patchedRows.iterator();
+                String[] nextPatched = patched.hasNext() ? patched.next() : null;
+                String[] row;
+                while ((row = reader.next()) != null) {
+                    if (patchedSerials.contains(row[SERIAL_NUMBER])) continue;
+                    while (nextPatched != null && SNAPSHOT_ROW_ORDER.compare(nextPatched, row) <= 0) {
+                        writeRow(writer, nextPatched);
+                        rowCount++;
+                        nextPatched = patched.hasNext() ? patched.next() : null;
+                    }
+                    writeRow(writer, row);
+                    rowCount++;
+                }
+                while (nextPatched != null) {
+                    writeRow(writer, nextPatched);
+                    rowCount++;
+                    nextPatched = patched.hasNext() ? patched.next() : null;
+                }
+            }
+            replaceSnapshot(tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        logger.info("Patched {} changed serials into the report snapshot.", patchedSerials.size());
+        return Optional.of(rowCount);
+    }
+
+    private void replaceSnapshot(Path tempFile) throws IOException {
+        restrictToOwner(tempFile, false);
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private DataVersion readDataVersion(Connection conn) throws SQLException {
+        String sql = "SELECT CURRENT_TIMESTAMP, (SELECT COALESCE(MAX(receipt_id), 0) FROM Receipt_Events), (SELECT COUNT(*) FROM Receipt_Events)";
+        LocalDateTime readAt;
+        long maxReceiptId;
+        long receiptCount;
+        try (PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            readAt = rs.getObject(1, LocalDateTime.class);
+            maxReceiptId = rs.getLong(2);
+            receiptCount = rs.getLong(3);
+        }
+        LocalDateTime changesSince = readAt.minus(ChangeLogDAO.LATE_COMMIT_WINDOW);
+        return new DataVersion(maxReceiptId, receiptCount, changesSince, readMaxChangeId(conn), countChangesSince(conn, changesSince));
+    }
+
+    private static long readMaxChangeId(Connection conn) throws SQLException {
+        if (!new ChangeLogDAO().isInstalled()) return 0;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(change_id), 0) FROM Change_Log")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Changes logged inside the window are never pruned, so this count only grows as late changes commit.
+    private static long countChangesSince(Connection conn, LocalDateTime since) throws SQLException {
+        if (!new ChangeLogDAO().isInstalled()) return 0;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM Change_Log WHERE changed_at >= ?")) {
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private Optional<Properties> readMetadata() {
+        if (!Files.exists(metadataFile)) return Optional.empty();
+        try (Reader reader = Files.newBufferedReader(metadataFile, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            return Optional.of(properties);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Ignoring unreadable report snapshot metadata", e);
+            return Optional.empty();
+        }
+    }
+
+    private void writeMetadata(Connection conn, DataVersion version, long rowCount) throws SQLException, IOException {
+        Properties properties = new Properties();
+        properties.setProperty("format.version", FORMAT_VERSION);
+        properties.setProperty("db.url", conn.getMetaData().getURL());
+        properties.setProperty("created.on", LocalDate.now().toString());
+        properties.setProperty("max.receipt.id", String.valueOf(version.maxReceiptId()));
+        properties.setProperty("receipt.count", String.valueOf(version.receiptCount()));
+        properties.setProperty("changes.since", version.changesSince().toString());
+        properties.setProperty("max.change.id", String.valueOf(version.maxChangeId()));
+        properties.setProperty("changes.in.window", String.valueOf(version.changesInWindow()));
+        properties.setProperty("row.count", String.valueOf(rowCount));
+        try (Writer writer = Files.newBufferedWriter(metadataFile, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Report snapshot version");
+        }
+        restrictToOwner(metadataFile, false);
+    }
+
+    /**
+     * Leaves only the owner with access: POSIX permissions where supported, otherwise an owner-only ACL (Windows),
+     * which new files in a directory inherit.
+     */
+    private static void restrictToOwner(Path path, boolean directory) throws IOException {
+        PosixFileAttributeView posix = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (posix != null) {
+            posix.setPermissions(PosixFilePermissions.fromString(directory ? "rwx------" : "rw-------"));
+            return;
+        }
+        AclFileAttributeView acl = Files.getFileAttributeView(path, AclFileAttributeView.class);
+        if (acl != null) {
+            AclEntry ownerOnly = AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(acl.getOwner())
+                    .setPermissions(EnumSet.allOf(AclEntryPermission.class))
+                    .setFlags(directory ? EnumSet.of(AclEntryFlag.FILE_INHERIT, AclEntryFlag.DIRECTORY_INHERIT) : EnumSet.noneOf(AclEntryFlag.class))
+                    .build();
+            acl.setAcl(List.of(ownerOnly));
+        }
+    }
+
+    private static String[] readRow(ResultSet rs) throws SQLException {
+        String[] row = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i == RECEIVE_DATE) {
+                LocalDate date = rs.getObject(i + 1, LocalDate.class);
+                row[i] = date != null ? date.toString() : null;
+            } else if (i == STATUS_CHANGE_DATE) {
+                LocalDateTime timestamp = rs.getObject(i + 1, LocalDateTime.class);
+                row[i] = timestamp != null ? timestamp.format(TIMESTAMP_FORMAT) : null;
+            } else {
+                row[i] = rs.getString(i + 1);
+            }
+        }
+        return row;
+    }
+
+    private static Writer openWriter(Path file) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+        return writer;
+    }
+
+    // Nulls are written as an unquoted empty field and empty strings as "", so they survive the round trip.
+    private static void writeRow(Writer writer, String[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) writer.write(',');
+            if (row[i] != null && row[i].isEmpty()) {
+                writer.write("\"\"");
+            } else {
+                ReportingService.writeCsvField(writer, row[i]);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    public enum RefreshKind {REUSED, PATCHED, REBUILT}
+
+    /**
+     * A refreshed snapshot file. Holds the read lock taken by {@link #refresh} until closed, on the same thread.
+     */
+    public static final class Snapshot implements AutoCloseable {
+        private final Path file;
+        private final long rowCount;
+        private final RefreshKind refreshKind;
+        private boolean closed;
+
+        private Snapshot(Path file, long rowCount, RefreshKind refreshKind) {
+            this.file = file;
+            this.rowCount = rowCount;
+            this.refreshKind = refreshKind;
+        }
+
+        public long rowCount() {
+            return rowCount;
+        }
+
+        public RefreshKind refreshKind() {
+            return refreshKind;
+        }
+
+        /**
+         * Opens a reader over the rows, skipping the header.
+         */
+        public SnapshotReader open() throws IOException {
+            if (closed) throw new IllegalStateException("The report snapshot has been closed.");
+            return new SnapshotReader(file);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                snapshotLock.readLock().unlock();
+            }
+        }
+    }
+
+    private record DataVersion(long maxReceiptId, long receiptCount, LocalDateTime changesSince, long maxChangeId, long changesInWindow) {
+    }
+
+    /**
+     * Reads snapshot rows one at a time. Empty unquoted fields come back as null.
+     */
+    public static final class SnapshotReader implements AutoCloseable {
+        private final CSVReader reader;
+
+        private SnapshotReader(Path file) throws IOException {
+            Reader input = new InputStreamReader(new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), StandardCharsets.UTF_8);
+            this.reader = new CSVReaderBuilder(new BufferedReader(input, BUFFER_SIZE))
+                    .withCSVParser(new RFC4180ParserBuilder().withFieldAsNull(CSVReaderNullFieldIndicator.EMPTY_SEPARATORS).build())
+                    .withSkipLines(1)
+                    .build();
+        }
+
+        /**
+         * @return The next row, or null at the end of the file.
+         */
+        public String[] next() throws IOException {
+            try {
+                return reader.readNext();
+            } catch (CsvValidationException e) {
+                throw new IOException("Corrupt report snapshot: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -4,32 +4,28 @@ import assettracking.db.DatabaseConnection;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.stage.Window;
-import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.AreaReference;
 import org.apache.poi.ss.util.CellReference;
-import org.apache.poi.xssf.usermodel.XSSFPivotTable;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFTable;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTable;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTableStyleInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * A dedicated service for generating and exporting data reports (CSV, XLSX).
@@ -37,37 +33,52 @@ import java.util.stream.Collectors;
  */
 public class ReportingService {
     private static final Logger logger = LoggerFactory.getLogger(ReportingService.class);
+    private static final int XLSX_ROW_WINDOW = 500;
+    private static final int WIDTH_SAMPLE_ROWS = 1000;
+    private static final int MAX_COLUMN_CHARS = 60;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final int PROGRESS_INTERVAL = 1000;
+    // The last three buckets are the "over 30 days" range highlighted red on the data sheet.
+    private static final AgingBucket[] AGING_BUCKETS = {
+            new AgingBucket("0-7 days", 7),
+            new AgingBucket("8-14 days", 14),
+            new AgingBucket("15-30 days", 30),
+            new AgingBucket("31-60 days", 60),
+            new AgingBucket("61-90 days", 90),
+            new AgingBucket("Over 90 days", Long.MAX_VALUE)
+    };
+
+    // Same columns and order as ReportSnapshotCache.COLUMNS.
+    private static final List<ParquetTableWriter.Column> PARQUET_SNAPSHOT_COLUMNS = List.of(
+            new ParquetTableWriter.Column("tracking_number", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("first_name", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("last_name", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("city", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("state", ParquetTableWriter.ColumnType.DICTIONARY_STRING),
+            new ParquetTableWriter.Column("zip_code", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("receive_date", ParquetTableWriter.ColumnType.DATE),
+            new ParquetTableWriter.Column("category", ParquetTableWriter.ColumnType.DICTIONARY_STRING),
+            new ParquetTableWriter.Column("description", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("imei", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("serial_number", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("status_change_date", ParquetTableWriter.ColumnType.TIMESTAMP),
+            new ParquetTableWriter.Column("status", ParquetTableWriter.ColumnType.DICTIONARY_STRING),
+            new ParquetTableWriter.Column("sub_status", ParquetTableWriter.ColumnType.DICTIONARY_STRING));
+
+    private final ReportSnapshotCache snapshotCache = new ReportSnapshotCache();
 
     public void exportToXLSX(File file, Window owner) {
         String[] headers = {"Tracking Number", "First Name", "Last Name", "City", "State", "Zip", "Receive Date", "Category", "Description", "IMEI", "Serial Number", "Status Change Date", "Status", "Sub Status", "Days in Current Status", "Total Days to Process"};
 
-        // --- THIS IS THE CORRECTED QUERY ---
-        String query = """
-                    SELECT
-                        p.tracking_number, p.first_name, p.last_name, p.city, p.state, p.zip_code, p.receive_date,
-                        re.category, re.description, re.imei, re.serial_number, ds.last_update AS status_change_date,
-                        ds.status, ds.sub_status
-                    FROM Receipt_Events re
-                    INNER JOIN (
-                        SELECT serial_number, MAX(receipt_id) AS max_receipt_id
-                        FROM Receipt_Events
-                        GROUP BY serial_number
-                    ) latest ON re.serial_number = latest.serial_number AND re.receipt_id = latest.max_receipt_id
-                    LEFT JOIN Packages p ON re.package_id = p.package_id
-                    LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id
-                    ORDER BY ds.last_update DESC NULLS LAST, p.receive_date DESC
-                """;
-        // --- END OF CORRECTION ---
-
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(query); ResultSet rs = stmt.executeQuery(); XSSFWorkbook workbook = new XSSFWorkbook()) {
-
-            // ... the rest of the method from this point on is unchanged ...
-            // (No need to copy it all, just replace the query string at the top)
-
-            XSSFSheet dataSheet = workbook.createSheet("Full Data Report");
-            XSSFSheet summarySheet = workbook.createSheet("Summary Dashboard");
+        // SXSSF keeps only XLSX_ROW_WINDOW rows in memory and spills the rest to a compressed temp file,
+        // so the export no longer holds the whole inventory in an in-memory workbook.
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            SXSSFSheet dataSheet = workbook.createSheet("Full Data Report");
+            SXSSFSheet summarySheet = workbook.createSheet("Summary Dashboard");
             CreationHelper createHelper = workbook.getCreationHelper();
-            Map<String, Integer> statusCounts = new HashMap<>();
+            SnapshotAggregates aggregates = new SnapshotAggregates();
             CellStyle timestampCellStyle = workbook.createCellStyle();
             timestampCellStyle.setDataFormat(createHelper.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
             CellStyle dateCellStyle = workbook.createCellStyle();
@@ -82,69 +93,72 @@ public class ReportingService {
             CellStyle dangerStyle = workbook.createCellStyle();
             dangerStyle.setFillForegroundColor(IndexedColors.RED.getIndex());
             dangerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            // autoSizeColumn would need every row in memory; widths are estimated from the first rows instead.
+            int[] sampledWidths = new int[headers.length];
             Row headerRow = dataSheet.createRow(0);
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
                 cell.setCellStyle(headerStyle);
+                sampledWidths[i] = headers[i].length();
             }
+
             int rowNum = 1;
-            while (rs.next()) {
-                Row row = dataSheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(rs.getString("tracking_number"));
-                row.createCell(1).setCellValue(rs.getString("first_name"));
-                row.createCell(2).setCellValue(rs.getString("last_name"));
-                row.createCell(3).setCellValue(rs.getString("city"));
-                row.createCell(4).setCellValue(rs.getString("state"));
-                row.createCell(5).setCellValue(rs.getString("zip_code"));
-                Cell receiveDateCell = row.createCell(6);
-                LocalDate receiveDate = rs.getObject("receive_date", LocalDate.class);
-                if (receiveDate != null) {
-                    receiveDateCell.setCellValue(receiveDate);
-                    receiveDateCell.setCellStyle(dateCellStyle);
-                }
-                row.createCell(7).setCellValue(rs.getString("category"));
-                row.createCell(8).setCellValue(rs.getString("description"));
-                row.createCell(9).setCellValue(rs.getString("imei"));
-                row.createCell(10).setCellValue(rs.getString("serial_number"));
-                Cell statusDateCell = row.createCell(11);
-                LocalDateTime statusTimestamp = rs.getObject("status_change_date", LocalDateTime.class);
-                if (statusTimestamp != null) {
-                    statusDateCell.setCellValue(statusTimestamp);
-                    statusDateCell.setCellStyle(timestampCellStyle);
-                }
-                String status = rs.getString("status");
-                row.createCell(12).setCellValue(status);
-                row.createCell(13).setCellValue(rs.getString("sub_status"));
-                statusCounts.merge(status != null ? status : "Not Set", 1, Integer::sum);
-                if (statusTimestamp != null) {
-                    long daysInStatus = ChronoUnit.DAYS.between(statusTimestamp.toLocalDate(), LocalDate.now());
-                    Cell daysInStatusCell = row.createCell(14);
-                    daysInStatusCell.setCellValue(daysInStatus);
-                    if (daysInStatus > 30) daysInStatusCell.setCellStyle(dangerStyle);
-                    else if (daysInStatus > 14) daysInStatusCell.setCellStyle(warningStyle);
-                }
-                if (receiveDate != null && statusTimestamp != null) {
-                    long daysToProcess = ChronoUnit.DAYS.between(receiveDate, statusTimestamp.toLocalDate());
-                    row.createCell(15).setCellValue(daysToProcess);
+            LocalDate today = LocalDate.now();
+            try (ReportSnapshotCache.Snapshot snapshot = refreshSnapshot(); ReportSnapshotCache.SnapshotReader reader = snapshot.open()) {
+                String[] values;
+                while ((values = reader.next()) != null) {
+                    boolean sampleRow = rowNum <= WIDTH_SAMPLE_ROWS;
+                    Row row = dataSheet.createRow(rowNum++);
+                    for (int i = 0; i < values.length; i++) {
+                        if (i == ReportSnapshotCache.RECEIVE_DATE || i == ReportSnapshotCache.STATUS_CHANGE_DATE) continue;
+                        row.createCell(i).setCellValue(values[i]);
+                        if (sampleRow) trackWidth(sampledWidths, i, values[i]);
+                    }
+                    LocalDate receiveDate = values[ReportSnapshotCache.RECEIVE_DATE] != null ? LocalDate.parse(values[ReportSnapshotCache.RECEIVE_DATE]) : null;
+                    if (receiveDate != null) {
+                        Cell receiveDateCell = row.createCell(6);
+                        receiveDateCell.setCellValue(receiveDate);
+                        receiveDateCell.setCellStyle(dateCellStyle);
+                    }
+                    LocalDateTime statusTimestamp = values[ReportSnapshotCache.STATUS_CHANGE_DATE] != null ? LocalDateTime.parse(values[ReportSnapshotCache.STATUS_CHANGE_DATE], ReportSnapshotCache.TIMESTAMP_FORMAT) : null;
+                    if (statusTimestamp != null) {
+                        Cell statusDateCell = row.createCell(11);
+                        statusDateCell.setCellValue(statusTimestamp);
+                        statusDateCell.setCellStyle(timestampCellStyle);
+                    }
+                    Long daysInStatus = null;
+                    if (statusTimestamp != null) {
+                        daysInStatus = ChronoUnit.DAYS.between(statusTimestamp.toLocalDate(), today);
+                        Cell daysInStatusCell = row.createCell(14);
+                        daysInStatusCell.setCellValue(daysInStatus);
+                        if (daysInStatus > 30) daysInStatusCell.setCellStyle(dangerStyle);
+                        else if (daysInStatus > 14) daysInStatusCell.setCellStyle(warningStyle);
+                    }
+                    Long daysToProcess = null;
+                    if (receiveDate != null && statusTimestamp != null) {
+                        daysToProcess = ChronoUnit.DAYS.between(receiveDate, statusTimestamp.toLocalDate());
+                        row.createCell(15).setCellValue(daysToProcess);
+                    }
+                    aggregates.add(values[12], values[7], daysInStatus, daysToProcess);
                 }
             }
+
+            sampledWidths[6] = Math.max(sampledWidths[6], 10);
+            sampledWidths[11] = Math.max(sampledWidths[11], 19);
+            for (int i = 0; i < headers.length; i++) {
+                dataSheet.setColumnWidth(i, Math.min(sampledWidths[i] + 3, MAX_COLUMN_CHARS) * 256);
+            }
             if (rowNum > 1) {
-                AreaReference tableArea = workbook.getCreationHelper().createAreaReference(new CellReference(0, 0), new CellReference(rowNum - 1, headers.length - 1));
-                XSSFTable table = dataSheet.createTable(tableArea);
-                table.setDisplayName("AssetData");
-                table.setName("AssetData");
-                CTTable cttable = table.getCTTable();
-                cttable.addNewAutoFilter().setRef(tableArea.formatAsString());
-                CTTableStyleInfo styleInfo = cttable.addNewTableStyleInfo();
-                styleInfo.setName("TableStyleMedium2");
-                styleInfo.setShowRowStripes(true);
-                cttable.setTableStyleInfo(styleInfo);
+                addDataTable(workbook, dataSheet, headers, rowNum - 1);
             }
-            for (int i = 0; i < headers.length; i++) dataSheet.autoSizeColumn(i);
-            buildSummarySheet(summarySheet, rowNum - 1, headerStyle, statusCounts);
+            SummaryStyles summaryStyles = createSummaryStyles(workbook);
+            buildSummarySheet(summarySheet, rowNum - 1, summaryStyles, aggregates);
             if (rowNum > 1) {
-                buildPivotTableSheet(workbook.createSheet("Pivot Table Analysis"), dataSheet, rowNum, headers.length);
+                buildStatusByCategorySheet(workbook.createSheet("Status by Category"), summaryStyles, aggregates);
+                buildAgingSheet(workbook.createSheet("Aging"), summaryStyles, aggregates);
+                buildTurnaroundSheet(workbook.createSheet("Turnaround"), summaryStyles, aggregates);
             }
             workbook.setActiveSheet(0);
             try (FileOutputStream fileOut = new FileOutputStream(file)) {
@@ -155,97 +169,457 @@ public class ReportingService {
         } catch (Exception e) {
             System.err.println("Service error: " + e.getMessage());
             Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.ERROR, "Export Error", "An error occurred: " + e.getMessage()));
+        } finally {
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close streaming workbook", e);
+            }
+        }
+    }
+
+    /**
+     * Adds the styled "AssetData" Excel table over the streamed rows. The table part is written to the
+     * underlying XSSF sheet, so its column names are set explicitly rather than read back from flushed rows.
+     */
+    private void addDataTable(SXSSFWorkbook workbook, SXSSFSheet dataSheet, String[] headers, int lastRowIndex) {
+        AreaReference tableArea = workbook.getCreationHelper().createAreaReference(new CellReference(0, 0), new CellReference(lastRowIndex, headers.length - 1));
+        XSSFTable table = workbook.getXSSFWorkbook().getSheet(dataSheet.getSheetName()).createTable(tableArea);
+        table.setDisplayName("AssetData");
+        table.setName("AssetData");
+        for (int i = 0; i < headers.length; i++) {
+            table.getColumns().get(i).setName(headers[i]);
         }
+        CTTable cttable = table.getCTTable();
+        cttable.addNewAutoFilter().setRef(tableArea.formatAsString());
+        CTTableStyleInfo styleInfo = cttable.addNewTableStyleInfo();
+        styleInfo.setName("TableStyleMedium2");
+        styleInfo.setShowRowStripes(true);
+        cttable.setTableStyleInfo(styleInfo);
     }
 
-    public void exportToCSV(File file, Window owner) {
+    private void trackWidth(int[] widths, int column, String value) {
+        if (value != null && value.length() > widths[column]) {
+            widths[column] = value.length();
+        }
+    }
+
+    /**
+     * Streams the latest-status snapshot to a CSV file, gzip-compressed when the file name ends in ".gz".
+     * Rows are streamed from the cached snapshot file, so memory use doesn't grow with the inventory.
+     * When cancelled, the partial file is deleted and no alert is shown.
+     *
+     * @param isCancelled Checked between batches of rows.
+     * @param progress    Receives rows written and the expected total, every {@value #PROGRESS_INTERVAL} rows.
+     */
+    public void exportToCSV(File file, Window owner, BooleanSupplier isCancelled, ExportProgress progress) {
         String header = "Tracking Number,First Name,Last Name,City,State,Zip,Receive Date,Category,Description,IMEI,Serial Number,Status Change Date,Status,Sub Status";
+        boolean gzip = file.getName().toLowerCase().endsWith(".gz");
+        boolean cancelled = false;
 
-        // --- THIS IS THE CORRECTED QUERY ---
-        String query = """
-                    SELECT
-                        p.tracking_number, p.first_name, p.last_name, p.city, p.state, p.zip_code, p.receive_date,
-                        re.category, re.description, re.imei, re.serial_number, ds.last_update AS status_change_date,
-                        ds.status, ds.sub_status
-                    FROM Receipt_Events re
-                    INNER JOIN (
-                        SELECT serial_number, MAX(receipt_id) AS max_receipt_id
-                        FROM Receipt_Events
-                        GROUP BY serial_number
-                    ) latest ON re.serial_number = latest.serial_number AND re.receipt_id = latest.max_receipt_id
-                    LEFT JOIN Packages p ON re.package_id = p.package_id
-                    LEFT JOIN Device_Status ds ON re.receipt_id = ds.receipt_id
-                    ORDER BY ds.last_update DESC NULLS LAST, p.receive_date DESC
-                """;
-        // --- END OF CORRECTION ---
-
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(query); ResultSet rs = stmt.executeQuery(); PrintWriter writer = new PrintWriter(file)) {
-
-            writer.println(header);
-            while (rs.next()) {
-                List<String> row = new ArrayList<>();
-                row.add(escapeCSV(rs.getString("tracking_number")));
-                row.add(escapeCSV(rs.getString("first_name")));
-                row.add(escapeCSV(rs.getString("last_name")));
-                row.add(escapeCSV(rs.getString("city")));
-                row.add(escapeCSV(rs.getString("state")));
-                row.add(escapeCSV(rs.getString("zip_code")));
-                row.add(escapeCSV(rs.getString("receive_date")));
-                row.add(escapeCSV(rs.getString("category")));
-                row.add(escapeCSV(rs.getString("description")));
-                row.add(escapeCSV(rs.getString("imei")));
-                row.add(escapeCSV(rs.getString("serial_number")));
-                row.add(escapeCSV(rs.getString("status_change_date")));
-                row.add(escapeCSV(rs.getString("status")));
-                row.add(escapeCSV(rs.getString("sub_status")));
-                writer.println(String.join(",", row));
+        try {
+            try (ReportSnapshotCache.Snapshot snapshot = refreshSnapshot(); ReportSnapshotCache.SnapshotReader reader = snapshot.open(); Writer writer = openCsvWriter(file, gzip)) {
+                long totalRows = snapshot.rowCount();
+                writer.write(header);
+                writer.write("\r\n");
+                long rowsWritten = 0;
+                String[] values;
+                while ((values = reader.next()) != null) {
+                    for (int i = 0; i < values.length; i++) {
+                        if (i > 0) writer.write(',');
+                        writeCsvField(writer, values[i]);
+                    }
+                    writer.write("\r\n");
+                    if (++rowsWritten % PROGRESS_INTERVAL == 0) {
+                        progress.update(rowsWritten, totalRows);
+                        if (isCancelled.getAsBoolean()) {
+                            cancelled = true;
+                            break;
+                        }
+                    }
+                }
+                progress.update(rowsWritten, Math.max(rowsWritten, totalRows));
             }
-            Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.INFORMATION, "Success", "Export successful: " + file.getAbsolutePath()));
         } catch (SQLException e) {
             Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.ERROR, "Database Error", "Failed to query data for export: " + e.getMessage()));
+            return;
         } catch (IOException e) {
             Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.ERROR, "Export Error", "Failed to write to file: " + e.getMessage()));
+            return;
         }
+
+        if (cancelled) {
+            if (!file.delete()) {
+                logger.warn("Could not delete partial export file {}", file.getAbsolutePath());
+            }
+            return;
+        }
+        Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.INFORMATION, "Success", "Export successful: " + file.getAbsolutePath()));
     }
 
-    private void buildSummarySheet(XSSFSheet sheet, int totalDevices, CellStyle headerStyle, Map<String, Integer> statusCounts) {
-        sheet.createRow(0).createCell(0).setCellValue("Inventory & Performance Summary");
-        sheet.getRow(0).getCell(0).setCellStyle(headerStyle);
-        sheet.createRow(2).createCell(0).setCellValue("Total Receipt Events in Report:");
-        sheet.getRow(2).createCell(1).setCellValue(totalDevices);
-        sheet.createRow(4).createCell(0).setCellValue("Inventory by Status (Live Count):");
-        sheet.getRow(4).getCell(0).setCellStyle(headerStyle);
+    /**
+     * Writes the latest-status snapshot as a Parquet file for offline analysis (pandas, Power BI).
+     * Dates and timestamps keep their types, and the repetitive text columns are dictionary-encoded.
+     * When cancelled, the partial file is deleted and no alert is shown.
+     */
+    public void exportToParquet(File file, Window owner, BooleanSupplier isCancelled, ExportProgress progress) {
+        boolean cancelled = false;
+        try {
+            try (ReportSnapshotCache.Snapshot snapshot = refreshSnapshot(); ReportSnapshotCache.SnapshotReader reader = snapshot.open();
+                 ParquetTableWriter writer = new ParquetTableWriter(new FileOutputStream(file), PARQUET_SNAPSHOT_COLUMNS, ParquetTableWriter.DEFAULT_ROW_GROUP_SIZE)) {
+                long totalRows = snapshot.rowCount();
+                long rowsWritten = 0;
+                String[] values;
+                while ((values = reader.next()) != null) {
+                    Object[] row = new Object[values.length];
+                    System.arraycopy(values, 0, row, 0, values.length);
+                    String receiveDate = values[ReportSnapshotCache.RECEIVE_DATE];
+                    String statusChangeDate = values[ReportSnapshotCache.STATUS_CHANGE_DATE];
+                    row[ReportSnapshotCache.RECEIVE_DATE] = receiveDate != null ? LocalDate.parse(receiveDate) : null;
+                    row[ReportSnapshotCache.STATUS_CHANGE_DATE] = statusChangeDate != null ? LocalDateTime.parse(statusChangeDate, ReportSnapshotCache.TIMESTAMP_FORMAT) : null;
+                    writer.writeRow(row);
+                    if (++rowsWritten % PROGRESS_INTERVAL == 0) {
+                        progress.update(rowsWritten, totalRows);
+                        if (isCancelled.getAsBoolean()) {
+                            cancelled = true;
+                            break;
+                        }
+                    }
+                }
+                progress.update(rowsWritten, Math.max(rowsWritten, totalRows));
+            }
+        } catch (SQLException e) {
+            Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.ERROR, "Database Error", "Failed to query data for export: " + e.getMessage()));
+            return;
+        } catch (IOException e) {
+            Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.ERROR, "Export Error", "Failed to write to file: " + e.getMessage()));
+            return;
+        }
+
+        if (cancelled) {
+            if (!file.delete()) {
+                logger.warn("Could not delete partial export file {}", file.getAbsolutePath());
+            }
+            return;
+        }
+        Platform.runLater(() -> StageManager.showAlert(owner, Alert.AlertType.INFORMATION, "Success", "Export successful: " + file.getAbsolutePath()));
+    }
+
+    /**
+     * Brings the cached snapshot up to date. Repeated exports only re-query serials that changed since the last one.
+     * Close the snapshot once it has been read.
+     */
+    private ReportSnapshotCache.Snapshot refreshSnapshot() throws SQLException, IOException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            ReportSnapshotCache.Snapshot snapshot = snapshotCache.refresh(conn);
+            logger.info("Report snapshot {} ({} rows).", snapshot.refreshKind(), snapshot.rowCount());
+            return snapshot;
+        }
+    }
+
+    private Writer openCsvWriter(File file, boolean gzip) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            out = new GZIPOutputStream(out, OUTPUT_BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Writes one field with RFC 4180 quoting, directly to the writer so no escaped copy of the value is built.
+     */
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
 
-        Map<String, Integer> sortedStatusCounts = statusCounts.entrySet().stream().sorted(Map.Entry.<String, Integer>comparingByValue().reversed()).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
-        int summaryRowNum = 5;
+    private void buildSummarySheet(Sheet sheet, int totalDevices, SummaryStyles styles, SnapshotAggregates aggregates) {
+        int rowNum = writeTitle(sheet, 0, "Inventory & Performance Summary", styles);
+        rowNum = writeLabelValue(sheet, rowNum + 1, "Total Receipt Events in Report:", totalDevices, styles.integer());
+
+        writeTitle(sheet, rowNum + 1, "Inventory by Status (Live Count):", styles);
+        rowNum += 2;
+        Map<String, Integer> sortedStatusCounts = aggregates.statusCounts.entrySet().stream().sorted(Map.Entry.<String, Integer>comparingByValue().reversed()).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
         for (Map.Entry<String, Integer> entry : sortedStatusCounts.entrySet()) {
-            Row row = sheet.createRow(summaryRowNum++);
+            rowNum = writeLabelValue(sheet, rowNum, entry.getKey(), entry.getValue(), styles.integer());
+        }
+
+        writeTitle(sheet, rowNum + 1, "Performance Metrics (Based on this Report):", styles);
+        rowNum += 2;
+        rowNum = writeLabelValue(sheet, rowNum, "Average Days in Current Status", aggregates.daysInStatus.average(), styles.decimal());
+        rowNum = writeLabelValue(sheet, rowNum, "Devices Older Than 30 Days in Status", aggregates.agingTotals[AGING_BUCKETS.length - 3] + aggregates.agingTotals[AGING_BUCKETS.length - 2] + aggregates.agingTotals[AGING_BUCKETS.length - 1], styles.integer());
+        rowNum = writeLabelValue(sheet, rowNum, "Average Days to Process", aggregates.turnaround.average(), styles.decimal());
+        writeLabelValue(sheet, rowNum, "Longest Days to Process", aggregates.turnaround.count > 0 ? aggregates.turnaround.max : null, styles.integer());
+        sheet.setColumnWidth(0, 45 * 256);
+        sheet.setColumnWidth(1, 14 * 256);
+    }
+
+    /**
+     * Status down the side, category across the top, with row and column totals.
+     */
+    private void buildStatusByCategorySheet(Sheet sheet, SummaryStyles styles, SnapshotAggregates aggregates) {
+        List<String> categories = aggregates.statusCategoryCounts.values().stream().flatMap(counts -> counts.keySet().stream()).distinct().sorted().toList();
+        writeTitle(sheet, 0, "Device Count by Status and Category", styles);
+
+        Row header = sheet.createRow(2);
+        writeHeaderCell(header, 0, "Status", styles);
+        for (int i = 0; i < categories.size(); i++) {
+            writeHeaderCell(header, i + 1, categories.get(i), styles);
+        }
+        writeHeaderCell(header, categories.size() + 1, "Total", styles);
+
+        int rowNum = 3;
+        int[] columnTotals = new int[categories.size()];
+        for (Map.Entry<String, Map<String, Integer>> statusEntry : aggregates.statusCategoryCounts.entrySet()) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(statusEntry.getKey());
+            int statusTotal = 0;
+            for (int i = 0; i < categories.size(); i++) {
+                int count = statusEntry.getValue().getOrDefault(categories.get(i), 0);
+                writeNumber(row, i + 1, count, styles.integer());
+                columnTotals[i] += count;
+                statusTotal += count;
+            }
+            writeNumber(row, categories.size() + 1, statusTotal, styles.totalInteger());
+        }
+        Row totalRow = sheet.createRow(rowNum);
+        writeHeaderCell(totalRow, 0, "Grand Total", styles);
+        int grandTotal = 0;
+        for (int i = 0; i < columnTotals.length; i++) {
+            writeNumber(totalRow, i + 1, columnTotals[i], styles.totalInteger());
+            grandTotal += columnTotals[i];
+        }
+        writeNumber(totalRow, categories.size() + 1, grandTotal, styles.totalInteger());
+
+        sheet.createFreezePane(1, 3);
+        sheet.setColumnWidth(0, 30 * 256);
+        for (int i = 0; i < categories.size(); i++) {
+            sheet.setColumnWidth(i + 1, Math.min(Math.max(categories.get(i).length() + 3, 10), MAX_COLUMN_CHARS) * 256);
+        }
+        sheet.setColumnWidth(categories.size() + 1, 10 * 256);
+    }
+
+    /**
+     * Days in current status, bucketed per status, so stale work can be spotted without filtering the data sheet.
+     */
+    private void buildAgingSheet(Sheet sheet, SummaryStyles styles, SnapshotAggregates aggregates) {
+        writeTitle(sheet, 0, "Aging: Days in Current Status", styles);
+        Row header = sheet.createRow(2);
+        writeHeaderCell(header, 0, "Status", styles);
+        for (int i = 0; i < AGING_BUCKETS.length; i++) {
+            writeHeaderCell(header, i + 1, AGING_BUCKETS[i].label(), styles);
+        }
+        writeHeaderCell(header, AGING_BUCKETS.length + 1, "Total", styles);
+        writeHeaderCell(header, AGING_BUCKETS.length + 2, "Average Days", styles);
+
+        int rowNum = 3;
+        for (Map.Entry<String, int[]> entry : aggregates.agingByStatus.entrySet()) {
+            Row row = sheet.createRow(rowNum++);
             row.createCell(0).setCellValue(entry.getKey());
-            row.createCell(1).setCellValue(entry.getValue());
+            writeBucketRow(row, entry.getValue(), aggregates.daysInStatusByStatus.get(entry.getKey()), styles, false);
+        }
+        Row totalRow = sheet.createRow(rowNum);
+        writeHeaderCell(totalRow, 0, "All Statuses", styles);
+        writeBucketRow(totalRow, aggregates.agingTotals, aggregates.daysInStatus, styles, true);
+
+        sheet.createFreezePane(1, 3);
+        sheet.setColumnWidth(0, 30 * 256);
+        for (int i = 1; i <= AGING_BUCKETS.length + 2; i++) {
+            sheet.setColumnWidth(i, 14 * 256);
+        }
+    }
+
+    private void writeBucketRow(Row row, int[] buckets, DayStats stats, SummaryStyles styles, boolean totals) {
+        CellStyle integerStyle = totals ? styles.totalInteger() : styles.integer();
+        int total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            writeNumber(row, i + 1, buckets[i], integerStyle);
+            total += buckets[i];
+        }
+        writeNumber(row, buckets.length + 1, total, styles.totalInteger());
+        Double average = stats != null ? stats.average() : null;
+        if (average != null) {
+            writeNumber(row, buckets.length + 2, average, styles.decimal());
+        }
+    }
+
+    /**
+     * Receive-to-last-status turnaround per category.
+     */
+    private void buildTurnaroundSheet(Sheet sheet, SummaryStyles styles, SnapshotAggregates aggregates) {
+        writeTitle(sheet, 0, "Turnaround: Days from Receipt to Current Status", styles);
+        Row header = sheet.createRow(2);
+        String[] headers = {"Category", "Devices", "Average Days", "Fastest", "Slowest"};
+        for (int i = 0; i < headers.length; i++) {
+            writeHeaderCell(header, i, headers[i], styles);
+        }
+
+        int rowNum = 3;
+        for (Map.Entry<String, DayStats> entry : aggregates.turnaroundByCategory.entrySet()) {
+            writeTurnaroundRow(sheet.createRow(rowNum++), entry.getKey(), entry.getValue(), styles, false);
+        }
+        Row totalRow = sheet.createRow(rowNum);
+        writeTurnaroundRow(totalRow, "All Categories", aggregates.turnaround, styles, true);
+        totalRow.getCell(0).setCellStyle(styles.header());
+
+        sheet.createFreezePane(0, 3);
+        sheet.setColumnWidth(0, 30 * 256);
+        for (int i = 1; i < headers.length; i++) {
+            sheet.setColumnWidth(i, 14 * 256);
+        }
+    }
+
+    private void writeTurnaroundRow(Row row, String label, DayStats stats, SummaryStyles styles, boolean totals) {
+        row.createCell(0).setCellValue(label);
+        writeNumber(row, 1, stats.count, totals ? styles.totalInteger() : styles.integer());
+        if (stats.count > 0) {
+            writeNumber(row, 2, stats.average(), styles.decimal());
+            writeNumber(row, 3, stats.min, styles.integer());
+            writeNumber(row, 4, stats.max, styles.integer());
+        }
+    }
+
+    private int writeTitle(Sheet sheet, int rowIndex, String title, SummaryStyles styles) {
+        Cell cell = sheet.createRow(rowIndex).createCell(0);
+        cell.setCellValue(title);
+        cell.setCellStyle(styles.title());
+        return rowIndex + 1;
+    }
+
+    private int writeLabelValue(Sheet sheet, int rowIndex, String label, Number value, CellStyle valueStyle) {
+        Row row = sheet.createRow(rowIndex);
+        row.createCell(0).setCellValue(label);
+        if (value != null) {
+            writeNumber(row, 1, value.doubleValue(), valueStyle);
+        }
+        return rowIndex + 1;
+    }
+
+    private void writeHeaderCell(Row row, int column, String value, SummaryStyles styles) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        cell.setCellStyle(styles.header());
+    }
+
+    private void writeNumber(Row row, int column, double value, CellStyle style) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        cell.setCellStyle(style);
+    }
+
+    private SummaryStyles createSummaryStyles(Workbook workbook) {
+        DataFormat format = workbook.createDataFormat();
+        Font boldFont = workbook.createFont();
+        boldFont.setBold(true);
+        Font titleFont = workbook.createFont();
+        titleFont.setBold(true);
+        titleFont.setFontHeightInPoints((short) 13);
+
+        CellStyle title = workbook.createCellStyle();
+        title.setFont(titleFont);
+        CellStyle header = workbook.createCellStyle();
+        header.setFont(boldFont);
+        header.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        header.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        header.setBorderBottom(BorderStyle.THIN);
+        CellStyle integer = workbook.createCellStyle();
+        integer.setDataFormat(format.getFormat("#,##0"));
+        CellStyle totalInteger = workbook.createCellStyle();
+        totalInteger.setDataFormat(format.getFormat("#,##0"));
+        totalInteger.setFont(boldFont);
+        CellStyle decimal = workbook.createCellStyle();
+        decimal.setDataFormat(format.getFormat("#,##0.0"));
+        return new SummaryStyles(title, header, integer, totalInteger, decimal);
+    }
+
+    private static int agingBucketOf(long days) {
+        for (int i = 0; i < AGING_BUCKETS.length - 1; i++) {
+            if (days <= AGING_BUCKETS[i].maxDays()) return i;
         }
-        summaryRowNum++;
-        sheet.createRow(summaryRowNum).createCell(0).setCellValue("Performance Metrics (Based on this Report):");
-        sheet.getRow(summaryRowNum).getCell(0).setCellStyle(headerStyle);
-        sheet.createRow(summaryRowNum + 1).createCell(0).setCellValue("Average Days in Current Status");
-        sheet.getRow(summaryRowNum + 1).createCell(1).setCellFormula("AVERAGE('Full Data Report'!O:O)");
-        sheet.autoSizeColumn(0);
-        sheet.autoSizeColumn(1);
+        return AGING_BUCKETS.length - 1;
     }
 
-    private void buildPivotTableSheet(XSSFSheet pivotSheet, XSSFSheet dataSheet, int totalRows, int totalCols) {
-        AreaReference source = new AreaReference(new CellReference(0, 0), new CellReference(totalRows - 1, totalCols - 1), SpreadsheetVersion.EXCEL2007);
-        XSSFPivotTable pivotTable = pivotSheet.createPivotTable(source, new CellReference("A4"), dataSheet);
-        pivotTable.addRowLabel(12); // Group by "Status" (Column M)
-        pivotTable.addRowLabel(7);  // Then group by "Category" (Column H)
-        pivotTable.addColumnLabel(DataConsolidateFunction.COUNT, 10, "Count of Devices"); // Summarize by counting "Serial Number" (Column K)
-        pivotTable.getPivotCacheDefinition().getCTPivotCacheDefinition().setRefreshOnLoad(true);
+    private record AgingBucket(String label, long maxDays) {
     }
 
-    private String escapeCSV(String value) {
-        if (value == null) return "";
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            value = "\"" + value.replace("\"", "\"\"") + "\"";
+    private record SummaryStyles(CellStyle title, CellStyle header, CellStyle integer, CellStyle totalInteger, CellStyle decimal) {
+    }
+
+    /**
+     * Count, total, min and max of a day measure.
+     */
+    private static class DayStats {
+        private long count;
+        private long total;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        void add(long days) {
+            count++;
+            total += days;
+            min = Math.min(min, days);
+            max = Math.max(max, days);
         }
-        return value;
+
+        Double average() {
+            return count > 0 ? (double) total / count : null;
+        }
+    }
+
+    /**
+     * Totals collected row by row during the export pass. The summary sheets are written from these as static
+     * values, so the workbook has no pivot caches or whole-column formulas to recalculate when it is opened.
+     */
+    private static class SnapshotAggregates {
+        private final Map<String, Integer> statusCounts = new HashMap<>();
+        private final Map<String, Map<String, Integer>> statusCategoryCounts = new TreeMap<>();
+        private final Map<String, int[]> agingByStatus = new TreeMap<>();
+        private final Map<String, DayStats> daysInStatusByStatus = new HashMap<>();
+        private final int[] agingTotals = new int[AGING_BUCKETS.length];
+        private final DayStats daysInStatus = new DayStats();
+        private final Map<String, DayStats> turnaroundByCategory = new TreeMap<>();
+        private final DayStats turnaround = new DayStats();
+
+        void add(String status, String category, Long daysInCurrentStatus, Long daysToProcess) {
+            statusCounts.merge(status != null ? status : "Not Set", 1, Integer::sum);
+            String statusLabel = status != null ? status : "(blank)";
+            String categoryLabel = category != null ? category : "(blank)";
+            statusCategoryCounts.computeIfAbsent(statusLabel, k -> new TreeMap<>()).merge(categoryLabel, 1, Integer::sum);
+            if (daysInCurrentStatus != null) {
+                int bucket = agingBucketOf(daysInCurrentStatus);
+                agingByStatus.computeIfAbsent(statusLabel, k -> new int[AGING_BUCKETS.length])[bucket]++;
+                agingTotals[bucket]++;
+                daysInStatusByStatus.computeIfAbsent(statusLabel, k -> new DayStats()).add(daysInCurrentStatus);
+                daysInStatus.add(daysInCurrentStatus);
+            }
+            if (daysToProcess != null) {
+                turnaroundByCategory.computeIfAbsent(categoryLabel, k -> new DayStats()).add(daysToProcess);
+                turnaround.add(daysToProcess);
+            }
+        }
+    }
+
+    /**
+     * Progress callback for long-running exports.
+     */
+    @FunctionalInterface
+    public interface ExportProgress {
+        void update(long rowsWritten, long totalRows);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package assettracking.manager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A small LRU cache of query results tagged with the data version they were computed at. {@link #getFresh} only
+ * returns a result computed at the current version; {@link #peek} returns any result that hasn't aged out, for
+ * showing straight away while a fresh one is computed. Entries are evicted beyond {@code maxEntries} (least
+ * recently used first) and after {@code maxAge}. Thread-safe.
+ */
+final class ResultCache<K, V> {
+
+    private final int maxEntries;
+    private final long maxAgeNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    ResultCache(int maxEntries, Duration maxAge) {
+        this.maxEntries = maxEntries;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param version The current data version, compared with equals, or null if it is unknown, in which case
+     *                nothing is fresh.
+     * @return The cached result if it was computed at {@code version}, otherwise null.
+     */
+    synchronized V getFresh(K key, Object version) {
+        Entry<V> entry = live(key);
+        return entry != null && version != null && Objects.equals(entry.version(), version) ? entry.value() : null;
+    }
+
+    /**
+     * @return The cached result whatever its version, or null if there is none or it has aged out.
+     */
+    synchronized V peek(K key) {
+        Entry<V> entry = live(key);
+        return entry == null ? null : entry.value();
+    }
+
+    synchronized void put(K key, Object version, V value) {
+        entries.put(key, new Entry<>(value, version, System.nanoTime()));
+    }
+
+    private Entry<V> live(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.storedAtNanos() > maxAgeNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private record Entry<V>(V value, Object version, long storedAtNanos) {
+    }
+}
@@ -1,14 +1,19 @@
 package assettracking.manager;
 
+import assettracking.dao.DeviceStatusVersionDAO;
+import assettracking.dao.DeviceStatusVersionDAO.ApplyResult;
+import assettracking.dao.DeviceStatusVersionDAO.RowChange;
 import assettracking.db.DatabaseConnection;
+import assettracking.db.Transactions;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A service class to handle the business logic of updating device statuses.
@@ -16,36 +21,17 @@ import java.util.List;
  */
 public class ScanUpdateService {
 
-    public UpdateResult updateBySerial(String serial, String newStatus, String newSubStatus, String note, String boxId) throws SQLException {
-        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+    // One writer per workstation, shared by every scan window.
+    private static final ScanWriter scanWriter = new ScanWriter();
+    private final DeviceStatusVersionDAO versionDAO = new DeviceStatusVersionDAO();
 
-            // Step 1: Find the most recent receipt_id for the given serial number.
-            String queryReceiptId = "SELECT receipt_id FROM Receipt_Events WHERE serial_number = ? ORDER BY receipt_id DESC LIMIT 1";
-            int receiptId = -1;
-            try (PreparedStatement stmt = conn.prepareStatement(queryReceiptId)) {
-                stmt.setString(1, serial);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    receiptId = rs.getInt("receipt_id");
-                }
-            }
-
-            // Step 2: If a receipt was found, update the status using that specific receipt_id.
-            if (receiptId != -1) {
-                String updateQuery = "UPDATE Device_Status SET status = ?, sub_status = ?, last_update = CURRENT_TIMESTAMP, change_log = ?, box_id = ? WHERE receipt_id = ?";
-                try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
-                    stmt.setString(1, newStatus);
-                    stmt.setString(2, newSubStatus);
-                    stmt.setString(3, note.isEmpty() ? null : note);
-                    stmt.setString(4, boxId.isEmpty() ? null : boxId);
-                    stmt.setInt(5, receiptId); // Use the specific receipt_id here
-                    stmt.executeUpdate();
-                    return UpdateResult.SUCCESS;
-                }
-            } else {
-                return UpdateResult.NOT_FOUND;
-            }
-        }
+    /**
+     * Queues a status update for the most recent receipt of a serial. Updates are group-committed by the
+     * workstation's scan writer in the order they were submitted; the future completes, off the FX thread, once
+     * this one has committed.
+     */
+    public CompletableFuture<ScanOutcome> submitUpdate(String serial, String newStatus, String newSubStatus, String note, String boxId) {
+        return scanWriter.submit(new ScanWriter.ScanUpdate(serial, newStatus, newSubStatus, note, boxId));
     }
 
     public List<Integer> findDeviceReceiptsByLocation(String location) throws SQLException {
@@ -64,23 +50,29 @@ public class ScanUpdateService {
         return receiptIds;
     }
 
-    public int updateByReceiptIds(List<Integer> receiptIds, String newStatus, String newSubStatus, String note) throws SQLException {
-        if (receiptIds == null || receiptIds.isEmpty()) return 0;
+    /**
+     * Updates the given receipts in one transaction and clears their box ID. Only a row changed on another
+     * workstation while the transaction runs is reported as a conflict; earlier changes are overwritten.
+     */
+    public ApplyResult updateByReceiptIds(List<Integer> receiptIds, String newStatus, String newSubStatus, String note) throws SQLException {
+        if (receiptIds == null || receiptIds.isEmpty()) return new ApplyResult(List.of());
 
-        String placeholders = String.join(",", Collections.nCopies(receiptIds.size(), "?"));
-        String updateSql = String.format("UPDATE Device_Status SET status = ?, sub_status = ?, last_update = CURRENT_TIMESTAMP, change_log = ?, box_id = NULL WHERE receipt_id IN (%s)", placeholders);
+        Map<String, Object> values = DeviceStatusVersionDAO.values(
+                DeviceStatusVersionDAO.STATUS, newStatus,
+                DeviceStatusVersionDAO.SUB_STATUS, newSubStatus,
+                DeviceStatusVersionDAO.CHANGE_LOG, note.isEmpty() ? null : note,
+                DeviceStatusVersionDAO.BOX_ID, null);
+        List<RowChange> changes = receiptIds.stream().map(id -> new RowChange(id, values)).toList();
 
-        try (Connection conn = DatabaseConnection.getInventoryConnection(); PreparedStatement stmt = conn.prepareStatement(updateSql)) {
-            stmt.setString(1, newStatus);
-            stmt.setString(2, newSubStatus);
-            stmt.setString(3, note.isEmpty() ? null : note);
-            int i = 4;
-            for (Integer id : receiptIds) {
-                stmt.setInt(i++, id);
-            }
-            return stmt.executeUpdate();
-        }
+        return Transactions.inTransaction(conn -> versionDAO.apply(conn, changes));
     }
 
-    public enum UpdateResult {SUCCESS, NOT_FOUND}
+    public enum UpdateResult {SUCCESS, NOT_FOUND, CONFLICT}
+
+    /**
+     * @param receiptId The receipt that was updated, or -1 if none was found.
+     * @param detail    Why the scan wasn't applied, or null.
+     */
+    public record ScanOutcome(UpdateResult result, int receiptId, String detail) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package assettracking.manager;
+
+import assettracking.dao.DeviceStatusVersionDAO;
+import assettracking.dao.DeviceStatusVersionDAO.RowChange;
+import assettracking.dao.DeviceStatusVersionDAO.RowResult;
+import assettracking.dao.ReceiptEventDAO;
+import assettracking.db.Transactions;
+import assettracking.manager.ScanUpdateService.ScanOutcome;
+import assettracking.manager.ScanUpdateService.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The workstation's single scan writer. Scans are queued and one thread drains them in arrival order: it takes
+ * whatever arrives within {@link #LINGER_MILLIS} of the first scan (up to {@link #MAX_BATCH}), resolves their
+ * receipts in one query and applies the updates in one transaction through {@link DeviceStatusVersionDAO}. Scans of
+ * the same serial are applied in the order they were made, so the last scan wins and the status history records
+ * each step. A scan has no version of its own to check, so only another workstation's change landing while the
+ * batch runs is reported as a conflict.
+ * <p>
+ * A batch that deadlocks is run again whole. If it fails any other way it is rolled back and its scans are retried
+ * one at a time, so a bad scan only fails itself.
+ */
+final class ScanWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanWriter.class);
+    private static final long LINGER_MILLIS = 5;
+    private static final int MAX_BATCH = 64;
+
+    private final BlockingQueue<PendingScan> queue = new LinkedBlockingQueue<>();
+    private final ReceiptEventDAO receiptEventDAO = new ReceiptEventDAO();
+    private final DeviceStatusVersionDAO versionDAO = new DeviceStatusVersionDAO();
+
+    ScanWriter() {
+        Thread thread = new Thread(this::drain, "scan-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    record ScanUpdate(String serial, String status, String subStatus, String note, String boxId) {
+    }
+
+    private record PendingScan(ScanUpdate update, CompletableFuture<ScanOutcome> result) {
+    }
+
+    /**
+     * Queues a scan. The future completes on the writer thread once the scan's batch has committed.
+     */
+    CompletableFuture<ScanOutcome> submit(ScanUpdate update) {
+        CompletableFuture<ScanOutcome> result = new CompletableFuture<>();
+        queue.add(new PendingScan(update, result));
+        return result;
+    }
+
+    private void drain() {
+        List<PendingScan> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MILLIS);
+                while (batch.size() < MAX_BATCH) {
+                    PendingScan next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Keep the writer alive; whatever was in hand is failed rather than left waiting.
+                logger.error("Scan writer failed on a batch of {} scans.", batch.size(), e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingScan> batch) {
+        try {
+            List<ScanOutcome> results = commit(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (SQLException e) {
+            if (batch.size() == 1) {
+                batch.getFirst().result().completeExceptionally(e);
+                return;
+            }
+            logger.warn("Group commit of {} scans failed; writing them one at a time.", batch.size(), e);
+            for (PendingScan pending : batch) {
+                write(List.of(pending));
+            }
+        }
+    }
+
+    private List<ScanOutcome> commit(List<PendingScan> batch) throws SQLException {
+        return Transactions.inTransaction(conn -> {
+            Map<String, Integer> receiptIds = receiptEventDAO.findMostRecentReceiptIds(conn, batch.stream().map(pending -> pending.update().serial()).toList());
+            List<RowChange> changes = new ArrayList<>();
+            for (PendingScan pending : batch) {
+                ScanUpdate update = pending.update();
+                Integer receiptId = receiptIds.get(update.serial());
+                if (receiptId != null) {
+                    changes.add(new RowChange(receiptId, DeviceStatusVersionDAO.values(
+                            DeviceStatusVersionDAO.STATUS, update.status(),
+                            DeviceStatusVersionDAO.SUB_STATUS, update.subStatus(),
+                            DeviceStatusVersionDAO.CHANGE_LOG, update.note().isEmpty() ? null : update.note(),
+                            DeviceStatusVersionDAO.BOX_ID, update.boxId().isEmpty() ? null : update.boxId())));
+                }
+            }
+            Iterator<RowResult> rows = versionDAO.apply(conn, changes).rows().iterator();
+
+            List<ScanOutcome> results = new ArrayList<>(batch.size());
+            for (PendingScan pending : batch) {
+                if (!receiptIds.containsKey(pending.update().serial())) {
+                    results.add(new ScanOutcome(UpdateResult.NOT_FOUND, -1, null));
+                    continue;
+                }
+                RowResult row = rows.next();
+                results.add(switch (row.outcome()) {
+                    case APPLIED, MERGED -> new ScanOutcome(UpdateResult.SUCCESS, row.receiptId(), null);
+                    case CONFLICT -> new ScanOutcome(UpdateResult.CONFLICT, row.receiptId(), row.detail());
+                    case NOT_FOUND -> new ScanOutcome(UpdateResult.NOT_FOUND, row.receiptId(), row.detail());
+                });
+            }
+            return results;
+        });
+    }
+}
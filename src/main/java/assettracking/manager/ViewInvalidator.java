@@ -0,0 +1,100 @@
+package assettracking.manager;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces refresh requests for one view. Callers mark the whole view or some receipts dirty; the view refreshes
+ * at most once per interval, with everything marked since its last refresh. The first request after a quiet
+ * spell refreshes straight away, so a single save still shows up at once while a burst of scans costs one
+ * refresh per interval instead of one per scan.
+ * <p>
+ * May be called from any thread; refreshes run on the FX thread.
+ */
+public final class ViewInvalidator {
+
+    /**
+     * The default minimum time between refreshes, overridable with the {@code view.refresh.interval.ms} system
+     * property.
+     */
+    public static final Duration DEFAULT_INTERVAL = Duration.millis(Long.getLong("view.refresh.interval.ms", 1000));
+
+    private final Runnable refreshAll;
+    private final Consumer<Set<Integer>> refreshRows;
+    private final PauseTransition timer;
+    private final long intervalMillis;
+    // Only touched on the FX thread.
+    private final RefreshCoalescer coalescer;
+
+    /**
+     * @param refreshAll  Reloads the whole view.
+     * @param refreshRows Reloads the rows for some receipt ids, or null if the view can only reload everything.
+     */
+    public ViewInvalidator(Duration interval, Runnable refreshAll, Consumer<Set<Integer>> refreshRows) {
+        this.refreshAll = refreshAll;
+        this.refreshRows = refreshRows;
+        this.intervalMillis = (long) interval.toMillis();
+        this.coalescer = new RefreshCoalescer(intervalMillis, refreshRows != null);
+        this.timer = new PauseTransition();
+        this.timer.setOnFinished(e -> flush());
+    }
+
+    public ViewInvalidator(Runnable refreshAll) {
+        this(DEFAULT_INTERVAL, refreshAll, null);
+    }
+
+    public void invalidateAll() {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(this::invalidateAll);
+            return;
+        }
+        coalescer.markAll();
+        schedule();
+    }
+
+    /**
+     * Marks the rows for these receipts dirty. Views without row refresh reload everything instead.
+     */
+    public void invalidate(Collection<Integer> receiptIds) {
+        if (!Platform.isFxApplicationThread()) {
+            Set<Integer> copy = Set.copyOf(receiptIds);
+            Platform.runLater(() -> invalidate(copy));
+            return;
+        }
+        coalescer.mark(receiptIds);
+        schedule();
+    }
+
+    private void schedule() {
+        if (timer.getStatus() == PauseTransition.Status.RUNNING) {
+            return; // The pending refresh will pick this up.
+        }
+        long wait = coalescer.millisUntilRefresh(System.currentTimeMillis());
+        if (wait <= 0) {
+            // Let the caller finish its own UI work first, then refresh on the next pulse.
+            Platform.runLater(this::flush);
+            timer.setDuration(Duration.millis(intervalMillis));
+            timer.playFromStart();
+        } else {
+            timer.setDuration(Duration.millis(wait));
+            timer.playFromStart();
+        }
+    }
+
+    private void flush() {
+        RefreshCoalescer.Refresh refresh = coalescer.take(System.currentTimeMillis());
+        if (refresh == null) {
+            return;
+        }
+        if (refresh.all()) {
+            refreshAll.run();
+        } else {
+            refreshRows.accept(refresh.receiptIds());
+        }
+    }
+}
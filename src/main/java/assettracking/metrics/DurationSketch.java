@@ -0,0 +1,87 @@
+package assettracking.metrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A mergeable quantile sketch for durations. Samples are counted in logarithmic buckets that each span the same
+ * relative width, so any quantile is answered within {@link #RELATIVE_ACCURACY} of the true value however many
+ * samples were added, in memory proportional to the range of durations rather than their number. Two sketches
+ * merge by adding bucket counts, which is what lets per-day, per-category counts be stored and summed over any
+ * window.
+ * <p>
+ * Not thread-safe.
+ */
+public final class DurationSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final NavigableMap<Integer, Long> counts = new TreeMap<>();
+    private long total;
+
+    /**
+     * The bucket a duration falls in: bucket {@code i} holds durations in (gamma<sup>i-1</sup>, gamma<sup>i</sup>]
+     * seconds. A second or less, including negative durations from clock skew, is bucket 0.
+     */
+    public static int bucketOf(long seconds) {
+        if (seconds <= 1) return 0;
+        return (int) Math.ceil(Math.log(seconds) / LOG_GAMMA);
+    }
+
+    public void add(Duration duration) {
+        addBucket(bucketOf(duration.getSeconds()), 1);
+    }
+
+    public void addBucket(int bucket, long count) {
+        if (count <= 0) return;
+        counts.merge(bucket, count, Long::sum);
+        total += count;
+    }
+
+    public void merge(DurationSketch other) {
+        other.counts.forEach(this::addBucket);
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.9 for the 90th percentile.
+     * @throws IllegalStateException if the sketch is empty.
+     */
+    public Duration quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        if (total == 0) {
+            throw new IllegalStateException("No samples");
+        }
+        double rank = quantile * (total - 1);
+        long seen = 0;
+        int bucket = counts.lastKey();
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            seen += entry.getValue();
+            if (seen > rank) {
+                bucket = entry.getKey();
+                break;
+            }
+        }
+        return Duration.ofSeconds(Math.round(valueOf(bucket)));
+    }
+
+    /**
+     * The midpoint of a bucket in relative terms, which is within {@link #RELATIVE_ACCURACY} of every duration in it.
+     */
+    private static double valueOf(int bucket) {
+        return bucket <= 0 ? 0 : 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+    }
+}
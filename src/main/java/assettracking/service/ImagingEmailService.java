@@ -1,5 +1,6 @@
 package assettracking.service;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.data.ImagingResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,7 +25,7 @@ public class ImagingEmailService {
     private static final Pattern EMAIL_BLOCK_PATTERN = Pattern.compile("PARSED_EMAIL:(.+?_\\|\\|_.+?_\\|\\|_.+?_\\|\\|_.+?)(?=\\n|$)");
 
     public CompletableFuture<String> testOutlookConnection(String folderName) {
-        return CompletableFuture.supplyAsync(() -> {
+        return BackgroundTasks.supplyIo("outlook-connection-test", () -> {
             try {
                 return executePython(List.of("--test_connection", folderName));
             } catch (Exception e) {
@@ -34,7 +35,7 @@ public class ImagingEmailService {
     }
 
     public CompletableFuture<List<ImagingResult>> fetchAndParseEmails(List<String> command) {
-        return CompletableFuture.supplyAsync(() -> {
+        return BackgroundTasks.supplyIo("imaging-email-fetch", () -> {
             try {
                 String fullOutput = executePython(command);
 
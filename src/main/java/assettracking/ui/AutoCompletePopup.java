@@ -1,5 +1,6 @@
 package assettracking.ui;
 
+import assettracking.concurrent.BackgroundTasks;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -105,7 +106,7 @@ public class AutoCompletePopup {
                 }
             }
         }));
-        new Thread(task).start();
+        BackgroundTasks.run("autocomplete-suggestions", textField.getScene().getWindow(), task);
     }
 
     private void selectAndHide() {
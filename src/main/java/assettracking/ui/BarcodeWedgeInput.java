@@ -0,0 +1,180 @@
+package assettracking.ui;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.util.Duration;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Separates a keyboard-wedge barcode scanner from typing in a text field. A scanner "types" a whole code within a
+ * few milliseconds and ends it with Enter, so keys that arrive closer together than {@link #BURST_GAP_MILLIS} are
+ * collected here instead of going into the field, and the Enter that ends them queues the code rather than firing
+ * the field's action. Slower keys are left to the field, so typing a serial and pressing Enter still works.
+ * <p>
+ * Each code is turned into a scan by the capture function the moment it is queued, so whatever the scan depends on
+ * (the status selected, the note, the printer) is taken as it was when the code was scanned. Scans are queued in a
+ * lock-free buffer and handed to the handler in order, on the FX thread, after the key handling has returned. A
+ * scan that arrives while the handler is busy (for example showing an alert) waits in the buffer instead of
+ * interleaving with the field's text. If the handler refuses a scan it goes back to the front of the buffer, with
+ * everything behind it. New scans then only queue behind it, without asking the handler again, until
+ * {@link #resume()} is called.
+ *
+ * @param <T> A scanned code with the settings captured for it.
+ */
+public final class BarcodeWedgeInput<T> {
+
+    /**
+     * The longest gap between keys from a scanner, overridable with the {@code scanner.burst.gap.ms} system
+     * property. People rarely type two keys within 35 ms; scanners send them 1-10 ms apart.
+     */
+    public static final long BURST_GAP_MILLIS = Long.getLong("scanner.burst.gap.ms", 35);
+
+    // Shorter bursts are taken to be fast typing and go back into the field.
+    private static final int MIN_CODE_LENGTH = 4;
+
+    private final TextField field;
+    private final Function<String, T> capture;
+    private final Predicate<T> handler;
+    private final long gapNanos = BURST_GAP_MILLIS * 1_000_000;
+    private final ConcurrentLinkedDeque<T> scans = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final PauseTransition idle;
+    // Only touched on the FX thread.
+    private final StringBuilder burst = new StringBuilder();
+    private long lastKeyNanos;
+    private int firstKeyAt = -1;
+    private boolean draining;
+    private boolean held;
+
+    /**
+     * @param capture Called on the FX thread as each code is queued, to record it with the current settings.
+     * @param handler Takes each scan in order; returns false to hold it and the scans after it back.
+     */
+    public BarcodeWedgeInput(TextField field, Function<String, T> capture, Predicate<T> handler) {
+        this.field = field;
+        this.capture = capture;
+        this.handler = handler;
+        // A burst with no Enter after it wasn't a scan; give the keys back to the field.
+        this.idle = new PauseTransition(Duration.millis(BURST_GAP_MILLIS * 3));
+        this.idle.setOnFinished(e -> returnBurstToField());
+        field.addEventFilter(KeyEvent.KEY_TYPED, this::onKeyTyped);
+        field.addEventFilter(KeyEvent.KEY_PRESSED, this::onKeyPressed);
+    }
+
+    /**
+     * Queues a code as if it had been scanned, capturing its settings now, and hands it to the handler unless
+     * earlier scans are held back. Must be called on the FX thread.
+     */
+    public void submit(String code) {
+        scans.offer(capture.apply(code));
+        if (!held) {
+            resume();
+        }
+    }
+
+    /**
+     * Hands any held-back scans to the handler again. May be called from any thread.
+     */
+    public void resume() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    /**
+     * @return True if the handler refused the scan at the front of the buffer and hasn't taken it since. Must be
+     * called on the FX thread.
+     */
+    public boolean isHeld() {
+        return held;
+    }
+
+    /**
+     * @return The number of scans waiting for the handler.
+     */
+    public int pending() {
+        return scans.size();
+    }
+
+    private void onKeyTyped(KeyEvent event) {
+        String typed = event.getCharacter();
+        if (typed.isEmpty() || Character.isISOControl(typed.charAt(0))) {
+            return; // Enter is handled on key press.
+        }
+        long now = System.nanoTime();
+        boolean fast = now - lastKeyNanos <= gapNanos;
+        lastKeyNanos = now;
+
+        if (fast && !burst.isEmpty()) {
+            burst.append(typed);
+            event.consume();
+            idle.playFromStart();
+            return;
+        }
+        if (fast && firstKeyAt >= 0 && field.getCaretPosition() == firstKeyAt + 1 && field.getLength() > firstKeyAt) {
+            // The second key of a burst: the first already went into the field, so take it back out.
+            burst.append(field.getText(firstKeyAt, firstKeyAt + 1)).append(typed);
+            field.deleteText(firstKeyAt, firstKeyAt + 1);
+            firstKeyAt = -1;
+            event.consume();
+            idle.playFromStart();
+            return;
+        }
+        returnBurstToField();
+        // The field puts this key where the selection starts.
+        firstKeyAt = field.getSelection().getStart();
+    }
+
+    private void onKeyPressed(KeyEvent event) {
+        if (event.getCode() != KeyCode.ENTER) {
+            return;
+        }
+        firstKeyAt = -1;
+        if (burst.length() >= MIN_CODE_LENGTH) {
+            idle.stop();
+            String code = burst.toString();
+            burst.setLength(0);
+            event.consume();
+            submit(code);
+        } else {
+            returnBurstToField();
+        }
+    }
+
+    private void returnBurstToField() {
+        idle.stop();
+        if (!burst.isEmpty()) {
+            field.insertText(field.getCaretPosition(), burst.toString());
+            burst.setLength(0);
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        // A handler that opens a dialog runs a nested event loop; the outer drain picks up anything queued meanwhile.
+        if (draining) {
+            return;
+        }
+        draining = true;
+        try {
+            T scan;
+            while ((scan = scans.poll()) != null) {
+                if (!handler.test(scan)) {
+                    scans.offerFirst(scan);
+                    held = true;
+                    return;
+                }
+                held = false;
+            }
+        } finally {
+            draining = false;
+        }
+    }
+}
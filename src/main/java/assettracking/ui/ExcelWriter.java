@@ -2,66 +2,191 @@ package assettracking.ui;
 
 import assettracking.data.bulk.StagedDevice;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ExcelWriter {
 
-    public static void writeTemplate(InputStream templateInputStream, File outputFile, List<StagedDevice> data) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook(templateInputStream); FileOutputStream fos = new FileOutputStream(outputFile)) {
+    private static final int DATA_START_ROW = 4;
+    private static final int DATA_COLUMN_COUNT = 15;
+    private static final int IMEI_COLUMN = 7;
+    private static final int SIM_COLUMN = 8;
+    private static final int STREAMING_ROW_WINDOW = 200;
 
+    /**
+     * Parses a submission template once and keeps it as a prototype: the header rows as workbook bytes,
+     * the template's pre-formatted data rows as plain styles and values, and the text styles used for
+     * IMEI and SIM cells. The result can be shared between exports.
+     */
+    public static Template prepareTemplate(InputStream templateInputStream) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(templateInputStream)) {
             Sheet sheet = workbook.getSheetAt(0);
-            int startRowIndex = 4;
-            CellStyle textStyle = workbook.createCellStyle();
             DataFormat format = workbook.createDataFormat();
-            textStyle.setDataFormat(format.getFormat("@"));
+            short textFormat = format.getFormat("@");
+
+            List<TemplateRow> rows = new ArrayList<>();
+            Map<Short, Short> textStyleByStyle = new HashMap<>();
+            for (int r = DATA_START_ROW; r <= sheet.getLastRowNum(); r++) {
+                Row row = sheet.getRow(r);
+                int cellCount = row == null ? 0 : Math.max(row.getLastCellNum(), 0);
+                short[] styles = new short[Math.max(cellCount, DATA_COLUMN_COUNT)];
+                Object[] values = new Object[styles.length];
+                for (int c = 0; c < cellCount; c++) {
+                    Cell cell = row.getCell(c);
+                    if (cell == null) continue;
+                    styles[c] = cell.getCellStyle().getIndex();
+                    values[c] = switch (cell.getCellType()) {
+                        case NUMERIC -> cell.getNumericCellValue();
+                        case STRING -> cell.getStringCellValue();
+                        case BOOLEAN -> cell.getBooleanCellValue();
+                        default -> null;
+                    };
+                }
+                for (int c : new int[]{IMEI_COLUMN, SIM_COLUMN}) {
+                    textStyleByStyle.computeIfAbsent(styles[c], base -> {
+                        CellStyle textStyle = workbook.createCellStyle();
+                        textStyle.cloneStyleFrom(workbook.getCellStyleAt(base));
+                        textStyle.setDataFormat(textFormat);
+                        return textStyle.getIndex();
+                    });
+                }
+                rows.add(new TemplateRow(row == null ? -1 : row.getHeight(), styles, values));
+            }
+            if (rows.isEmpty()) {
+                CellStyle textStyle = workbook.createCellStyle();
+                textStyle.setDataFormat(textFormat);
+                textStyleByStyle.put((short) 0, textStyle.getIndex());
+            }
+
+            // The streaming writer can only append below the last existing row, so the prototype keeps just the header.
+            for (int r = sheet.getLastRowNum(); r >= DATA_START_ROW; r--) {
+                Row row = sheet.getRow(r);
+                if (row != null) {
+                    sheet.removeRow(row);
+                }
+            }
+
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            workbook.write(headerBytes);
+            return new Template(headerBytes.toByteArray(), rows, textStyleByStyle);
+        }
+    }
+
+    /**
+     * Writes the staged devices below the template header through a streaming workbook. Template rows past
+     * the end of the data are written back as the template had them, so the sheet keeps its numbering.
+     */
+    public static void writeTemplate(Template template, File outputFile, List<StagedDevice> data) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(new XSSFWorkbook(new ByteArrayInputStream(template.headerBytes)), STREAMING_ROW_WINDOW);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Map<Short, CellStyle> styles = new HashMap<>();
 
             for (int i = 0; i < data.size(); i++) {
                 StagedDevice device = data.get(i);
-                Row row = sheet.getRow(startRowIndex + i);
-                if (row == null) {
-                    row = sheet.createRow(startRowIndex + i);
-                }
+                TemplateRow layout = template.layoutFor(i);
+                Row row = createRow(sheet, DATA_START_ROW + i, layout);
 
-                getCell(row, 0).setCellValue(i + 1);
-                getCell(row, 1).setCellValue(device.getCarrier());
-                getCell(row, 2).setCellValue(device.getCarrierAccountNumber());
-                getCell(row, 3).setCellValue(561);
-                getCell(row, 4).setCellValue("New activation");
-                getCell(row, 5).setCellValue(device.getDeviceType());
+                setCell(workbook, styles, row, layout, 0, i + 1);
+                setCell(workbook, styles, row, layout, 1, device.getCarrier());
+                setCell(workbook, styles, row, layout, 2, device.getCarrierAccountNumber());
+                setCell(workbook, styles, row, layout, 3, 561);
+                setCell(workbook, styles, row, layout, 4, "New activation");
+                setCell(workbook, styles, row, layout, 5, device.getDeviceType());
 
-                getCell(row, 6).setCellValue(device.getSerialNumber());
+                setCell(workbook, styles, row, layout, 6, device.getSerialNumber());
 
-                Cell imeiCell = getCell(row, 7);
+                Cell imeiCell = row.createCell(IMEI_COLUMN);
                 imeiCell.setCellValue(device.getImei());
-                imeiCell.setCellStyle(textStyle);
+                imeiCell.setCellStyle(styleAt(workbook, styles, template.textStyleFor(layout, IMEI_COLUMN)));
 
-                Cell simCell = getCell(row, 8);
+                Cell simCell = row.createCell(SIM_COLUMN);
                 simCell.setCellValue(device.getSim());
-                simCell.setCellStyle(textStyle);
-
-                getCell(row, 9).setCellValue("No");
-                getCell(row, 10).setCellValue(device.getFirstName());
-                getCell(row, 11).setCellValue(device.getLastName());
-                getCell(row, 12).setCellValue("");
-                getCell(row, 13).setCellValue(device.getEmployeeEmail());
-                getCell(row, 14).setCellValue(device.getSnReferenceNumber());
+                simCell.setCellStyle(styleAt(workbook, styles, template.textStyleFor(layout, SIM_COLUMN)));
+
+                setCell(workbook, styles, row, layout, 9, "No");
+                setCell(workbook, styles, row, layout, 10, device.getFirstName());
+                setCell(workbook, styles, row, layout, 11, device.getLastName());
+                setCell(workbook, styles, row, layout, 12, "");
+                setCell(workbook, styles, row, layout, 13, device.getEmployeeEmail());
+                setCell(workbook, styles, row, layout, 14, device.getSnReferenceNumber());
+                for (int c = DATA_COLUMN_COUNT; c < layout.styles.length; c++) {
+                    setCell(workbook, styles, row, layout, c, null);
+                }
+            }
+
+            for (int i = data.size(); i < template.rows.size(); i++) {
+                TemplateRow layout = template.rows.get(i);
+                Row row = createRow(sheet, DATA_START_ROW + i, layout);
+                for (int c = 0; c < layout.styles.length; c++) {
+                    setCell(workbook, styles, row, layout, c, layout.values[c]);
+                }
             }
 
-            workbook.write(fos);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static Row createRow(Sheet sheet, int rowIndex, TemplateRow layout) {
+        Row row = sheet.createRow(rowIndex);
+        if (layout != null && layout.height >= 0) {
+            row.setHeight(layout.height);
+        }
+        return row;
+    }
+
+    private static void setCell(Workbook workbook, Map<Short, CellStyle> styles, Row row, TemplateRow layout, int cellIndex, Object value) {
+        Cell cell = row.createCell(cellIndex);
+        switch (value) {
+            case null -> {
+            }
+            case Number number -> cell.setCellValue(number.doubleValue());
+            case Boolean bool -> cell.setCellValue(bool);
+            default -> cell.setCellValue(value.toString());
+        }
+        if (layout != null && cellIndex < layout.styles.length) {
+            cell.setCellStyle(styleAt(workbook, styles, layout.styles[cellIndex]));
         }
     }
 
-    private static Cell getCell(Row row, int cellIndex) {
-        Cell cell = row.getCell(cellIndex);
-        if (cell == null) {
-            cell = row.createCell(cellIndex);
+    private static CellStyle styleAt(Workbook workbook, Map<Short, CellStyle> styles, short index) {
+        return styles.computeIfAbsent(index, workbook::getCellStyleAt);
+    }
+
+    /**
+     * A parsed submission template. Immutable once prepared.
+     */
+    public static final class Template {
+        private final byte[] headerBytes;
+        private final List<TemplateRow> rows;
+        private final Map<Short, Short> textStyleByStyle;
+
+        private Template(byte[] headerBytes, List<TemplateRow> rows, Map<Short, Short> textStyleByStyle) {
+            this.headerBytes = headerBytes;
+            this.rows = List.copyOf(rows);
+            this.textStyleByStyle = Map.copyOf(textStyleByStyle);
+        }
+
+        /** Data rows beyond the template's formatted range take the formatting of its last row. */
+        private TemplateRow layoutFor(int dataIndex) {
+            return rows.isEmpty() ? null : rows.get(Math.min(dataIndex, rows.size() - 1));
         }
-        return cell;
+
+        private short textStyleFor(TemplateRow layout, int cellIndex) {
+            short base = layout == null ? 0 : layout.styles[cellIndex];
+            return textStyleByStyle.getOrDefault(base, textStyleByStyle.values().iterator().next());
+        }
+    }
+
+    private record TemplateRow(short height, short[] styles, Object[] values) {
     }
-}
\ No newline at end of file
+}
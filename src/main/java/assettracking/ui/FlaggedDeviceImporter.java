@@ -1,5 +1,6 @@
 package assettracking.ui;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.db.DatabaseConnection;
 import assettracking.manager.StageManager;
 import javafx.application.Platform;
@@ -50,11 +51,17 @@ public class FlaggedDeviceImporter {
                 showAlert(owner, Alert.AlertType.ERROR, "Import Failed", "An error occurred during the import: " + ex.getMessage());
             });
 
-            new Thread(importTask).start();
+            BackgroundTasks.run("flagged-device-import", importTask);
         }
     }
 
-    private String processExcelFile(File file) throws IOException, SQLException {
+    /**
+     * Upserts every serial in the given Excel file into Flag_Devices.
+     * Runs without any UI, so it can be called from a background task or a headless tool.
+     *
+     * @return A user-facing summary of the import.
+     */
+    public String processExcelFile(File file) throws IOException, SQLException {
         Map<String, String> dataToImport = new LinkedHashMap<>();
         int skippedRowCount = 0;
 
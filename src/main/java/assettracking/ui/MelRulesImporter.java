@@ -1,5 +1,6 @@
 package assettracking.ui;
 
+import assettracking.concurrent.BackgroundTasks;
 import assettracking.db.DatabaseConnection;
 import assettracking.manager.StageManager;
 import javafx.concurrent.Task;
@@ -56,11 +57,17 @@ public class MelRulesImporter {
                 StageManager.showAlert(owner, Alert.AlertType.ERROR, title, message);
             });
 
-            new Thread(importTask).start();
+            BackgroundTasks.run("mel-rules-import", importTask);
         }
     }
 
-    private String processAndImportFile(File file) throws SQLException, IOException, MelRulesImportException {
+    /**
+     * Replaces all MEL rules with the contents of the given Excel file in a single transaction.
+     * Runs without any UI, so it can be called from a background task or a headless tool.
+     *
+     * @return A user-facing summary of the import.
+     */
+    public String processAndImportFile(File file) throws SQLException, IOException, MelRulesImportException {
         ParseResult parseResult = parseExcelFile(file);
 
         String insertSql = "INSERT INTO Mel_Rules (model_number, description, action, special_notes, manufac, redeploy_threshold) VALUES (?, ?, ?, ?, ?, ?)";
@@ -0,0 +1,31 @@
+package assettracking.benchmark;
+
+import assettracking.db.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the core tables from {@code /schema/base-schema.sql} in a benchmark's own database, if they don't
+ * exist.
+ */
+final class BaseSchema {
+
+    static final String SCRIPT = "/schema/base-schema.sql";
+
+    private BaseSchema() {
+    }
+
+    static void install(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM 'classpath:" + SCRIPT + "'");
+        }
+    }
+
+    static void install() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            install(conn);
+        }
+    }
+}
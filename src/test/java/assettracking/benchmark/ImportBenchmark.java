@@ -0,0 +1,126 @@
+package assettracking.benchmark;
+
+import assettracking.benchmark.SyntheticSheetGenerator.Format;
+import assettracking.db.DatabaseConnection;
+import assettracking.manager.AutofillImportService;
+import assettracking.manager.DeviceImportService;
+import assettracking.manager.RosterImportService;
+import assettracking.ui.FlaggedDeviceImporter;
+import assettracking.ui.MelRulesImporter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end import benchmark against an embedded H2 database.
+ * <p>
+ * Generates synthetic files at each requested size and times the real importers on them, reporting
+ * throughput and peak heap per importer. Run with:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.rows=10000,100000,500000
+ * </pre>
+ * Generated files are kept in {@code target/import-benchmark} and reused on later runs.
+ */
+public class ImportBenchmark {
+
+    private static final int[] DEFAULT_ROW_COUNTS = {10_000, 100_000, 500_000};
+
+    public static void main(String[] args) throws Exception {
+        int[] rowCounts = args.length > 0 && !args[0].isBlank()
+                ? Arrays.stream(args[0].split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_ROW_COUNTS;
+
+        Path workDir = Path.of("target", "import-benchmark").toAbsolutePath();
+        Path dataDir = Files.createDirectories(workDir.resolve("data"));
+        // Must be set before DatabaseConnection is first touched; it reads these in its static initializer.
+        System.setProperty("db.url", "jdbc:h2:file:" + workDir.resolve("benchdb") + ";DB_CLOSE_DELAY=-1");
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+
+        BaseSchema.install();
+        SyntheticSheetGenerator generator = new SyntheticSheetGenerator(dataDir);
+        DeviceImportService deviceImportService = new DeviceImportService();
+        RosterImportService rosterImportService = new RosterImportService();
+        MelRulesImporter melRulesImporter = new MelRulesImporter();
+        FlaggedDeviceImporter flaggedDeviceImporter = new FlaggedDeviceImporter();
+        AutofillImportService autofillImportService = new AutofillImportService();
+        Map<String, String> autofillMapping = Map.of("serial_number", "Serial Number", "part_number", "Part Number", "description", "Description");
+        AutofillImportService.Defaults autofillDefaults = new AutofillImportService.Defaults("", "", "Apple", "Tablet");
+
+        List<Result> results = new ArrayList<>();
+        for (int rows : rowCounts) {
+            System.out.printf("Generating synthetic files with %,d rows...%n", rows);
+            Path devicesCsv = generator.deviceList(rows, Format.CSV);
+            Path devicesXlsx = generator.deviceList(rows, Format.XLSX);
+            generator.roster(rows, Format.CSV);
+            Path rosterXlsx = generator.roster(rows, Format.XLSX);
+            generator.melRules(rows, Format.CSV);
+            Path melXlsx = generator.melRules(rows, Format.XLSX);
+            generator.flags(rows, Format.CSV);
+            Path flagsXlsx = generator.flags(rows, Format.XLSX);
+            generator.autofill(rows, Format.CSV);
+            Path autofillXlsx = generator.autofill(rows, Format.XLSX);
+
+            // The roster, MEL, flag and autofill importers only accept Excel files; their CSVs are generated for other tools.
+            results.add(run("Device list (insert)", "csv", rows, "Bulk_Devices", () -> deviceImportService.processAndUpsertData(devicesCsv.toFile())));
+            results.add(run("Device list (update)", "csv", rows, null, () -> deviceImportService.processAndUpsertData(devicesCsv.toFile())));
+            results.add(run("Device list (insert)", "xlsx", rows, "Bulk_Devices", () -> deviceImportService.processAndUpsertData(devicesXlsx.toFile())));
+            results.add(run("Roster", "xlsx", rows, null, () -> rosterImportService.importFromFile(rosterXlsx.toFile())));
+            results.add(run("MEL rules", "xlsx", rows, "Mel_Rules", () -> melRulesImporter.processAndImportFile(melXlsx.toFile())));
+            results.add(run("Flagged devices", "xlsx", rows, "Flag_Devices", () -> flaggedDeviceImporter.processExcelFile(flagsXlsx.toFile())));
+            results.add(run("Autofill", "xlsx", rows, "Device_Autofill_Data", () -> autofillImportService.importFile(autofillXlsx.toFile(), autofillMapping, autofillDefaults)));
+        }
+
+        System.out.println();
+        System.out.printf("%-22s %-6s %10s %10s %12s %14s  %s%n", "Importer", "Format", "Rows", "Seconds", "Rows/sec", "Peak heap MB", "Notes");
+        for (Result r : results) {
+            System.out.printf("%-22s %-6s %,10d %10.2f %,12.0f %14.1f  %s%n", r.importer(), r.format(), r.rows(), r.seconds(), r.rows() / Math.max(r.seconds(), 0.001), r.peakHeapBytes() / (1024.0 * 1024.0), r.note());
+        }
+        DatabaseConnection.closeConnectionPool();
+    }
+
+    private static Result run(String importer, String format, int rows, String tableToClear, Importer action) throws SQLException {
+        if (tableToClear != null) {
+            try (Connection conn = DatabaseConnection.getInventoryConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DELETE FROM " + tableToClear);
+                stmt.execute("DELETE FROM AppSettings WHERE setting_key LIKE 'bulk.import.%'");
+            }
+        }
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        System.out.printf("Running %s (%s, %,d rows)...%n", importer, format, rows);
+        String note = "";
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (OutOfMemoryError e) {
+            note = "OutOfMemoryError";
+        } catch (Exception e) {
+            note = "Failed: " + e.getMessage();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        // Summing per-pool peaks slightly over-counts (pools peak at different moments), but is stable between runs.
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new Result(importer, format, rows, seconds, peakHeap, note);
+    }
+
+    @FunctionalInterface
+    private interface Importer {
+        Object run() throws Exception;
+    }
+
+    private record Result(String importer, String format, int rows, double seconds, long peakHeapBytes, String note) {
+    }
+}
@@ -0,0 +1,131 @@
+package assettracking.benchmark;
+
+import assettracking.dao.SchemaVersionDAO;
+import assettracking.db.DatabaseConnection;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Measures the cost of the Device_Status triggers on a status update, the write a scan makes.
+ * <p>
+ * Seeds one receipt and status row per device, then moves every device to its next status once per stage, adding
+ * one trigger set per stage, and reports updates per second at each stage. Run with:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=assettracking.benchmark.StatusUpdateBenchmark -Dbenchmark.rows=5000
+ * </pre>
+ * The database in {@code target/status-benchmark} is recreated on every run, since installed triggers persist.
+ */
+public class StatusUpdateBenchmark {
+
+    private static final int DEFAULT_DEVICES = 5_000;
+    private static final String[][] STATUS_CYCLE = {
+            {"Triage & Repair", "Troubleshooting"},
+            {"Processed", "Ready for Deployment"},
+            {"Disposed", "Can-Am, Pending Pickup"},
+            {"Intake", ""}
+    };
+
+    public static void main(String[] args) throws Exception {
+        int[] deviceCounts = args.length > 0 && !args[0].isBlank()
+                ? Arrays.stream(args[0].split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray()
+                : new int[]{DEFAULT_DEVICES};
+
+        Path workDir = Files.createDirectories(Path.of("target", "status-benchmark").toAbsolutePath());
+        Files.deleteIfExists(workDir.resolve("benchdb.mv.db"));
+        Files.deleteIfExists(workDir.resolve("benchdb.trace.db"));
+        // Must be set before DatabaseConnection is first touched; it reads these in its static initializer.
+        System.setProperty("db.url", "jdbc:h2:file:" + workDir.resolve("benchdb") + ";DB_CLOSE_DELAY=-1");
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        BaseSchema.install();
+        int devices = deviceCounts[0];
+        seed(devices);
+        // Untimed, so the first stage isn't charged for JIT warm-up.
+        for (int i = 0; i < 3; i++) {
+            updateAll(devices, "Intake", "");
+        }
+
+        List<Stage> stages = List.of(
+                new Stage("No triggers", () -> true),
+                new Stage("+ change log", SchemaVersionDAO.Component.CHANGE_LOG::install),
+                new Stage("+ status transitions", SchemaVersionDAO.Component.STATUS_TRANSITIONS::install),
+                new Stage("+ version column", SchemaVersionDAO.Component.STATUS_VERSION::install),
+                new Stage("+ daily rollups", SchemaVersionDAO.Component.DAILY_ROLLUPS::install),
+                new Stage("+ receipt lifecycle", SchemaVersionDAO.Component.RECEIPT_LIFECYCLE::install),
+                new Stage("+ duration histograms", SchemaVersionDAO.Component.DURATION_HISTOGRAMS::install));
+
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            if (!stage.install().getAsBoolean()) {
+                throw new IllegalStateException("Could not install " + stage.name());
+            }
+            String[] next = STATUS_CYCLE[i % STATUS_CYCLE.length];
+            System.out.printf("Running %s (%,d updates)...%n", stage.name(), devices);
+            long start = System.nanoTime();
+            updateAll(devices, next[0], next[1]);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            results.add(new Result(stage.name(), devices, seconds));
+        }
+
+        System.out.println();
+        System.out.printf("%-24s %10s %10s %12s %10s%n", "Triggers", "Updates", "Seconds", "Updates/sec", "ms/update");
+        for (Result r : results) {
+            System.out.printf("%-24s %,10d %10.2f %,12.0f %10.3f%n", r.stage(), r.updates(), r.seconds(), r.updates() / Math.max(r.seconds(), 0.001), r.seconds() * 1000 / r.updates());
+        }
+        System.out.printf("%nAll triggers cost %.1fx the time of an untriggered update.%n", results.getLast().seconds() / Math.max(results.getFirst().seconds(), 0.001));
+        DatabaseConnection.closeConnectionPool();
+    }
+
+    private static void seed(int devices) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO Packages (tracking_number, receive_date) VALUES ('BENCH', CURRENT_DATE)");
+            }
+            try (PreparedStatement receipt = conn.prepareStatement("INSERT INTO Receipt_Events (receipt_id, serial_number, package_id, category, model_number) VALUES (?, ?, 1, ?, ?)");
+                 PreparedStatement status = conn.prepareStatement("INSERT INTO Device_Status (receipt_id, status, sub_status, last_update) VALUES (?, 'Intake', '', CURRENT_TIMESTAMP)")) {
+                for (int id = 1; id <= devices; id++) {
+                    receipt.setInt(1, id);
+                    receipt.setString(2, "BENCH" + id);
+                    receipt.setString(3, id % 2 == 0 ? "Laptop" : "Tablet");
+                    receipt.setString(4, "MODEL-" + id % 20);
+                    receipt.addBatch();
+                    status.setInt(1, id);
+                    status.addBatch();
+                }
+                receipt.executeBatch();
+                status.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    // One committed update per device, as a scan makes them.
+    private static void updateAll(int devices, String status, String subStatus) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInventoryConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE Device_Status SET status = ?, sub_status = ?, last_update = CURRENT_TIMESTAMP WHERE receipt_id = ?")) {
+            for (int id = 1; id <= devices; id++) {
+                stmt.setString(1, status);
+                stmt.setString(2, subStatus);
+                stmt.setInt(3, id);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private record Stage(String name, BooleanSupplier install) {
+    }
+
+    private record Result(String stage, int updates, double seconds) {
+    }
+}
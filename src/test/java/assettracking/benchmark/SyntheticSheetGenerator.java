@@ -0,0 +1,149 @@
+package assettracking.benchmark;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes synthetic import files (device lists, rosters, MEL rules, flags, autofill) in CSV and XLSX.
+ * Every sheet is generated from a fixed seed, so the same row count always produces the same file.
+ */
+public class SyntheticSheetGenerator {
+
+    private static final long SEED = 20240501L;
+    private static final String[] CAPACITIES = {"64GB", "128GB", "256GB", "512GB"};
+    private static final String[] ACTIONS = {"Redeploy", "Dispose", "Refurbish", "Return to Vendor"};
+    private static final String[] MAKES = {"Apple", "Dell", "HP", "Lenovo", "Samsung"};
+    private static final String[] CAUSES = {"Cracked screen", "Battery swelling", "Missing parts", "Water damage", ""};
+
+    private final Path outputDir;
+
+    public SyntheticSheetGenerator(Path outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public Path deviceList(int rows, Format format) throws IOException {
+        Random random = new Random(SEED);
+        return write("devices_" + rows, format, List.of("Serial Number", "IMEI/MEID", "ICCID", "Capacity", "Name"), rows, i -> new String[]{
+                serial("DMP", i),
+                digits(random, 15),
+                "89" + digits(random, 17),
+                CAPACITIES[random.nextInt(CAPACITIES.length)],
+                "iPad-" + i
+        });
+    }
+
+    public Path roster(int rows, Format format) throws IOException {
+        return write("roster_" + rows, format, List.of("First name", "Last name", "Email", "Email", "SN Reference Number", "Depot Reference", "Country"), rows, i -> new String[]{
+                "First" + i,
+                "Last" + i,
+                "manager" + (i % 500) + "@example.com",
+                "employee" + i + "@example.com",
+                "SNREF" + String.format("%08d", i),
+                "DEPOT-" + (i % 1000),
+                i % 3 == 0 ? "CA" : "US"
+        });
+    }
+
+    public Path melRules(int rows, Format format) throws IOException {
+        Random random = new Random(SEED);
+        return write("mel_rules_" + rows, format, List.of("Model", "Description", "Action", "SPECIAL NOTES", "Mfg", "Redeploy Threshold"), rows, i -> new String[]{
+                "MDL-" + String.format("%07d", i),
+                "Synthetic model " + i,
+                ACTIONS[random.nextInt(ACTIONS.length)],
+                i % 10 == 0 ? "Check accessories" : "",
+                MAKES[random.nextInt(MAKES.length)],
+                String.valueOf(1 + random.nextInt(5))
+        });
+    }
+
+    public Path flags(int rows, Format format) throws IOException {
+        Random random = new Random(SEED);
+        return write("flags_" + rows, format, List.of("Serial Number", "Probable Cause"), rows, i -> new String[]{
+                serial("FLG", i),
+                CAUSES[random.nextInt(CAUSES.length)]
+        });
+    }
+
+    public Path autofill(int rows, Format format) throws IOException {
+        Random random = new Random(SEED);
+        return write("autofill_" + rows, format, List.of("Serial Number", "Part Number", "Description"), rows, i -> new String[]{
+                serial("AF", i),
+                "PN-" + digits(random, 6),
+                "Synthetic asset " + MAKES[random.nextInt(MAKES.length)]
+        });
+    }
+
+    private Path write(String baseName, Format format, List<String> headers, int rows, RowSource source) throws IOException {
+        Path file = outputDir.resolve(baseName + "." + format.extension);
+        if (Files.exists(file)) {
+            return file; // Deterministic output, so an existing file can be reused between runs.
+        }
+        if (format == Format.CSV) {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(String.join(",", headers));
+                writer.newLine();
+                for (int i = 0; i < rows; i++) {
+                    writer.write(String.join(",", source.row(i)));
+                    writer.newLine();
+                }
+            }
+        } else {
+            // SXSSF keeps only a small window of rows in memory, so even 500k-row sheets can be generated.
+            try (SXSSFWorkbook workbook = new SXSSFWorkbook(200); OutputStream out = new FileOutputStream(file.toFile())) {
+                Sheet sheet = workbook.createSheet("Sheet1");
+                writeRow(sheet.createRow(0), headers.toArray(String[]::new));
+                for (int i = 0; i < rows; i++) {
+                    writeRow(sheet.createRow(i + 1), source.row(i));
+                }
+                workbook.write(out);
+                workbook.dispose();
+            }
+        }
+        return file;
+    }
+
+    private void writeRow(Row row, String[] values) {
+        for (int c = 0; c < values.length; c++) {
+            row.createCell(c).setCellValue(values[c]);
+        }
+    }
+
+    private static String serial(String prefix, int i) {
+        return prefix + String.format("%09d", i);
+    }
+
+    private static String digits(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        sb.append(1 + random.nextInt(9));
+        for (int i = 1; i < length; i++) {
+            sb.append(random.nextInt(10));
+        }
+        return sb.toString();
+    }
+
+    public enum Format {
+        CSV("csv"), XLSX("xlsx");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        String[] row(int index);
+    }
+}
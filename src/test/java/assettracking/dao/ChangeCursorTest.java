@@ -0,0 +1,80 @@
+package assettracking.dao;
+
+import assettracking.data.ChangeRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChangeCursorTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(120);
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void contiguousChangesMoveTheFloor() {
+        ChangeCursor cursor = new ChangeCursor(10, WINDOW);
+        assertEquals(List.of(11L, 12L), ids(cursor.accept(changes(11, 12), 0)));
+        assertEquals(12, cursor.floor());
+    }
+
+    @Test
+    void lateCommitBelowANewerChangeIsStillDelivered() {
+        ChangeCursor cursor = new ChangeCursor(10, WINDOW);
+        // 11 is still uncommitted when 12 is read.
+        assertEquals(List.of(12L), ids(cursor.accept(changes(12), 0)));
+        assertEquals(10, cursor.floor());
+        // 11 commits; the next read from the floor returns 12 again, which is dropped.
+        assertEquals(List.of(11L, 13L), ids(cursor.accept(changes(11, 12, 13), 5 * SECOND)));
+        assertEquals(13, cursor.floor());
+    }
+
+    @Test
+    void gapOlderThanTheWindowIsSkipped() {
+        ChangeCursor cursor = new ChangeCursor(10, WINDOW);
+        cursor.accept(changes(12, 13), 0);
+        assertEquals(10, cursor.floor());
+        cursor.accept(changes(12, 13), 119 * SECOND);
+        assertEquals(10, cursor.floor());
+        // 11 was rolled back.
+        cursor.accept(changes(12, 13), 121 * SECOND);
+        assertEquals(13, cursor.floor());
+    }
+
+    @Test
+    void eachGapGetsItsOwnWindow() {
+        ChangeCursor cursor = new ChangeCursor(10, WINDOW);
+        cursor.accept(changes(12, 14), 0);
+        cursor.accept(changes(12, 14), 121 * SECOND);
+        assertEquals(12, cursor.floor(), "13 has only just become the lowest gap");
+        assertEquals(List.of(13L), ids(cursor.accept(changes(13, 14), 130 * SECOND)));
+        assertEquals(14, cursor.floor());
+    }
+
+    @Test
+    void bulkAcceptMarksIdsDeliveredAndKeepsGaps() {
+        ChangeCursor cursor = new ChangeCursor(10, WINDOW);
+        cursor.acceptIds(new long[]{11, 12, 14, 15}, 0);
+        assertEquals(12, cursor.floor());
+        assertEquals(List.of(13L, 16L), ids(cursor.accept(changes(13, 14, 15, 16), SECOND)));
+        assertEquals(16, cursor.floor());
+    }
+
+    @Test
+    void changesAtOrBelowTheStartAreIgnored() {
+        ChangeCursor cursor = new ChangeCursor(10, WINDOW);
+        assertEquals(List.of(11L), ids(cursor.accept(changes(9, 10, 11), 0)));
+        assertEquals(11, cursor.floor());
+    }
+
+    private static List<ChangeRecord> changes(long... ids) {
+        return Arrays.stream(ids).mapToObj(id -> new ChangeRecord(id, ChangeLogDAO.DEVICE_STATUS, "U", id, "Intake", "Processed", null)).toList();
+    }
+
+    private static List<Long> ids(List<ChangeRecord> changes) {
+        return changes.stream().map(ChangeRecord::changeId).toList();
+    }
+}
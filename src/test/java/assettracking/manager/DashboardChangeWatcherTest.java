@@ -0,0 +1,48 @@
+package assettracking.manager;
+
+import assettracking.dao.ChangeLogDAO;
+import assettracking.data.ChangeRecord;
+import assettracking.data.DashboardTile;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DashboardChangeWatcherTest {
+
+    @Test
+    void receiptChangesRefreshEveryTile() {
+        ChangeRecord receipt = new ChangeRecord(1, ChangeLogDAO.RECEIPT_EVENTS, "I", 10, null, null, 3);
+        assertEquals(EnumSet.allOf(DashboardTile.class), DashboardChangeWatcher.affectedTiles(List.of(receipt)));
+    }
+
+    @Test
+    void leavingIntakeRefreshesTheKpis() {
+        ChangeRecord triaged = statusChange("Intake", "Triage & Repair");
+        assertEquals(EnumSet.of(DashboardTile.INVENTORY_OVERVIEW, DashboardTile.KPIS), DashboardChangeWatcher.affectedTiles(List.of(triaged)));
+    }
+
+    @Test
+    void processingRefreshesTheProcessedTiles() {
+        ChangeRecord processed = statusChange("Triage & Repair", "Processed");
+        assertEquals(EnumSet.of(DashboardTile.INVENTORY_OVERVIEW, DashboardTile.GRANULAR_METRICS, DashboardTile.KPIS, DashboardTile.TOP_MODELS,
+                DashboardTile.PROCESSED_BREAKDOWN, DashboardTile.INTAKE_VS_PROCESSED), DashboardChangeWatcher.affectedTiles(List.of(processed)));
+    }
+
+    @Test
+    void subStatusChangesOutsideProcessedAndDisposedRefreshNothing() {
+        assertTrue(DashboardChangeWatcher.affectedTiles(List.of(statusChange("Triage & Repair", "Triage & Repair"))).isEmpty());
+    }
+
+    @Test
+    void disposedSubStatusChangesRefreshTheCounts() {
+        assertEquals(EnumSet.of(DashboardTile.GRANULAR_METRICS, DashboardTile.KPIS),
+                DashboardChangeWatcher.affectedTiles(List.of(statusChange("Disposed", "Disposed"))));
+    }
+
+    private static ChangeRecord statusChange(String oldStatus, String newStatus) {
+        return new ChangeRecord(1, ChangeLogDAO.DEVICE_STATUS, "U", 10, oldStatus, newStatus, null);
+    }
+}
@@ -0,0 +1,52 @@
+package assettracking.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceColumnPlanTest {
+
+    @Test
+    void resolvesAliasesInOrderOfPreference() {
+        DeviceColumnPlan plan = DeviceColumnPlan.fromHeaders(List.of("name", "serial", "imei", "iccid", "sim", "imei/meid", "serial number"));
+        assertArrayEquals(new int[]{6, 1}, plan.columns(DeviceColumnPlan.SERIAL));
+        assertArrayEquals(new int[]{5, 2}, plan.columns(DeviceColumnPlan.IMEI));
+        assertArrayEquals(new int[]{3, 4}, plan.columns(DeviceColumnPlan.ICCID));
+        assertArrayEquals(new int[]{}, plan.columns(DeviceColumnPlan.CAPACITY));
+        assertArrayEquals(new int[]{0}, plan.columns(DeviceColumnPlan.NAME));
+        assertFalse(plan.hasSingleColumnPerField());
+        assertEquals("serial=6,1|imei=5,2|iccid=3,4|capacity=|name=0", plan.serialize());
+    }
+
+    @Test
+    void repeatedHeaderUsesTheLastColumn() {
+        DeviceColumnPlan plan = DeviceColumnPlan.fromHeaders(List.of("serial number", "capacity", "serial number"));
+        assertArrayEquals(new int[]{2}, plan.columns(DeviceColumnPlan.SERIAL));
+        assertArrayEquals(new int[]{1}, plan.columns(DeviceColumnPlan.CAPACITY));
+        assertTrue(plan.hasSingleColumnPerField());
+    }
+
+    @Test
+    void fileWithoutASerialColumnHasNoSerial() {
+        DeviceColumnPlan plan = DeviceColumnPlan.fromHeaders(List.of("", "imei", "device name"));
+        assertFalse(plan.hasSerialColumn());
+        assertArrayEquals(new int[]{2}, plan.columns(DeviceColumnPlan.NAME));
+    }
+
+    @Test
+    void headerRowIsRecognisedBySerialColumn() {
+        assertTrue(DeviceColumnPlan.looksLikeHeader(List.of("name", "serial number")));
+        assertTrue(DeviceColumnPlan.looksLikeHeader(List.of("serial")));
+        assertFalse(DeviceColumnPlan.looksLikeHeader(List.of("name", "imei")));
+    }
+
+    @Test
+    void layoutSignatureDependsOnEveryHeaderAndItsPosition() {
+        String signature = DeviceLayoutCache.signatureOf(List.of("serial", "imei"));
+        assertEquals(signature, DeviceLayoutCache.signatureOf(List.of("serial", "imei")));
+        assertNotEquals(signature, DeviceLayoutCache.signatureOf(List.of("imei", "serial")));
+        assertNotEquals(DeviceLayoutCache.signatureOf(List.of("a", "bc")), DeviceLayoutCache.signatureOf(List.of("ab", "c")));
+    }
+}
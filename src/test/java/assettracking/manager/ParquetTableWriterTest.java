@@ -0,0 +1,140 @@
+package assettracking.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes files with {@link ParquetTableWriter} and reads them back with DuckDB's Parquet reader, which shares no
+ * code with the writer.
+ */
+class ParquetTableWriterTest {
+
+    private static final List<ParquetTableWriter.Column> COLUMNS = List.of(
+            new ParquetTableWriter.Column("name", ParquetTableWriter.ColumnType.STRING),
+            new ParquetTableWriter.Column("status", ParquetTableWriter.ColumnType.DICTIONARY_STRING),
+            new ParquetTableWriter.Column("count", ParquetTableWriter.ColumnType.INT64),
+            new ParquetTableWriter.Column("received", ParquetTableWriter.ColumnType.DATE),
+            new ParquetTableWriter.Column("updated", ParquetTableWriter.ColumnType.TIMESTAMP),
+            new ParquetTableWriter.Column("flagged", ParquetTableWriter.ColumnType.BOOLEAN));
+    private static final String[] STATUSES = {"Processed", "Disposed", "WIP", "Intake, \"quoted\""};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsEveryTypeWithNullsAcrossRowGroups() throws Exception {
+        Path file = tempDir.resolve("rows.parquet");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            rows.add(new Object[]{
+                    i % 7 == 0 ? null : "device-" + i + " ü",
+                    i % 11 == 0 ? null : STATUSES[i % STATUSES.length],
+                    i % 5 == 0 ? null : (long) i * 1_000_000_007L,
+                    i % 13 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(i),
+                    i % 17 == 0 ? null : LocalDateTime.of(2024, 1, 1, 8, 30, 15).plusMinutes(i * 37L),
+                    i % 3 == 0 ? null : i % 2 == 0});
+        }
+        write(file, rows, 1_000);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:duckdb:"); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name, status, count, received, updated, flagged FROM read_parquet(" + literal(file) + ", file_row_number = true) ORDER BY file_row_number")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            assertEquals("VARCHAR", metaData.getColumnTypeName(1));
+            assertEquals("VARCHAR", metaData.getColumnTypeName(2));
+            assertEquals("BIGINT", metaData.getColumnTypeName(3));
+            assertEquals("DATE", metaData.getColumnTypeName(4));
+            assertEquals("TIMESTAMP", metaData.getColumnTypeName(5));
+            assertEquals("BOOLEAN", metaData.getColumnTypeName(6));
+            int index = 0;
+            while (rs.next()) {
+                Object[] expected = rows.get(index);
+                assertEquals(expected[0], rs.getString(1), "name at row " + index);
+                assertEquals(expected[1], rs.getString(2), "status at row " + index);
+                assertEquals(expected[2], rs.getObject(3), "count at row " + index);
+                assertEquals(expected[3], rs.getObject(4, LocalDate.class), "received at row " + index);
+                assertEquals(expected[4], rs.getObject(5, LocalDateTime.class), "updated at row " + index);
+                assertEquals(expected[5], rs.getObject(6), "flagged at row " + index);
+                index++;
+            }
+            assertEquals(rows.size(), index);
+        }
+    }
+
+    @Test
+    void writesOneRowGroupPerFullBufferAndDictionaryPagesOnlyForDictionaryColumns() throws Exception {
+        Path file = tempDir.resolve("groups.parquet");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            rows.add(new Object[]{"device-" + i, STATUSES[i % STATUSES.length], (long) i, null, null, null});
+        }
+        write(file, rows, 1_000);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:duckdb:"); Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT row_group_id, row_group_num_rows FROM parquet_metadata(" + literal(file) + ") WHERE path_in_schema = 'name' ORDER BY row_group_id")) {
+                List<Long> rowGroupSizes = new ArrayList<>();
+                while (rs.next()) rowGroupSizes.add(rs.getLong(2));
+                assertEquals(List.of(1_000L, 1_000L, 500L), rowGroupSizes);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT path_in_schema, encodings, dictionary_page_offset FROM parquet_metadata(" + literal(file) + ") WHERE row_group_id = 0")) {
+                int columns = 0;
+                while (rs.next()) {
+                    columns++;
+                    String column = rs.getString(1);
+                    boolean hasDictionary = rs.getObject(3) != null;
+                    assertEquals(column.equals("status"), hasDictionary, "dictionary page for " + column);
+                    assertEquals(column.equals("status"), rs.getString(2).contains("DICTIONARY"), "encodings of " + column);
+                }
+                assertEquals(COLUMNS.size(), columns);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*), COUNT(DISTINCT status), COUNT(received) FROM read_parquet(" + literal(file) + ")")) {
+                assertTrue(rs.next());
+                assertEquals(2_500, rs.getLong(1));
+                assertEquals(STATUSES.length, rs.getLong(2));
+                assertEquals(0, rs.getLong(3));
+            }
+        }
+    }
+
+    @Test
+    void writesAReadableFileWithNoRows() throws Exception {
+        Path file = tempDir.resolve("empty.parquet");
+        write(file, List.of(), 1_000);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:duckdb:"); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM read_parquet(" + literal(file) + ")")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getLong(1));
+        }
+    }
+
+    @Test
+    void rejectsRowsWithTheWrongNumberOfValues() throws Exception {
+        try (ParquetTableWriter writer = new ParquetTableWriter(new FileOutputStream(tempDir.resolve("bad.parquet").toFile()), COLUMNS, 10)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.writeRow(new Object[]{"only one"}));
+        }
+    }
+
+    private static void write(Path file, List<Object[]> rows, int rowGroupSize) throws IOException {
+        try (ParquetTableWriter writer = new ParquetTableWriter(new FileOutputStream(file.toFile()), COLUMNS, rowGroupSize)) {
+            for (Object[] row : rows) {
+                writer.writeRow(row);
+            }
+            assertEquals(rows.size(), writer.getRowCount());
+        }
+    }
+
+    private static String literal(Path file) {
+        return "'" + file.toAbsolutePath().toString().replace("'", "''") + "'";
+    }
+}
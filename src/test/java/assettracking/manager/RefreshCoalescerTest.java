@@ -0,0 +1,67 @@
+package assettracking.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshCoalescerTest {
+
+    private static final long INTERVAL = 1_000;
+
+    @Test
+    void firstRequestAfterAQuietSpellRefreshesAtOnce() {
+        RefreshCoalescer coalescer = new RefreshCoalescer(INTERVAL, true);
+        coalescer.mark(List.of(1));
+        assertTrue(coalescer.millisUntilRefresh(5_000) <= 0);
+    }
+
+    @Test
+    void requestsWithinTheIntervalWaitForItsEnd() {
+        RefreshCoalescer coalescer = new RefreshCoalescer(INTERVAL, true);
+        coalescer.mark(List.of(1));
+        coalescer.take(5_000);
+        coalescer.mark(List.of(2));
+        assertEquals(700, coalescer.millisUntilRefresh(5_300));
+        assertTrue(coalescer.millisUntilRefresh(6_000) <= 0);
+    }
+
+    @Test
+    void refreshCarriesEveryRowMarkedSinceTheLastOne() {
+        RefreshCoalescer coalescer = new RefreshCoalescer(INTERVAL, true);
+        coalescer.mark(List.of(1, 2));
+        coalescer.mark(List.of(2, 3));
+        RefreshCoalescer.Refresh refresh = coalescer.take(5_000);
+        assertFalse(refresh.all());
+        assertEquals(Set.of(1, 2, 3), refresh.receiptIds());
+        assertNull(coalescer.take(6_000), "nothing is left after a refresh");
+    }
+
+    @Test
+    void markingEverythingOverridesMarkedRows() {
+        RefreshCoalescer coalescer = new RefreshCoalescer(INTERVAL, true);
+        coalescer.mark(List.of(1));
+        coalescer.markAll();
+        coalescer.mark(List.of(2));
+        RefreshCoalescer.Refresh refresh = coalescer.take(5_000);
+        assertTrue(refresh.all());
+        assertNull(coalescer.take(6_000));
+    }
+
+    @Test
+    void viewsWithoutRowRefreshReloadEverything() {
+        RefreshCoalescer coalescer = new RefreshCoalescer(INTERVAL, false);
+        coalescer.mark(List.of(1));
+        assertTrue(coalescer.take(5_000).all());
+    }
+
+    @Test
+    void emptyTakeDoesNotStartAnInterval() {
+        RefreshCoalescer coalescer = new RefreshCoalescer(INTERVAL, true);
+        assertNull(coalescer.take(5_000));
+        coalescer.mark(List.of(1));
+        assertTrue(coalescer.millisUntilRefresh(5_001) <= 0);
+    }
+}
@@ -0,0 +1,32 @@
+package assettracking.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReportingServiceTest {
+
+    @Test
+    void plainFieldsAreWrittenAsIs() throws IOException {
+        assertEquals("SN-123 ü", csvField("SN-123 ü"));
+        assertEquals("", csvField(""));
+        assertEquals("", csvField(null));
+    }
+
+    @Test
+    void fieldsWithSeparatorsQuotesOrLineBreaksAreQuoted() throws IOException {
+        assertEquals("\"Smith, Jr.\"", csvField("Smith, Jr."));
+        assertEquals("\"12\"\" monitor\"", csvField("12\" monitor"));
+        assertEquals("\"line one\nline two\"", csvField("line one\nline two"));
+        assertEquals("\"ends with\r\"", csvField("ends with\r"));
+    }
+
+    private static String csvField(String value) throws IOException {
+        StringWriter writer = new StringWriter();
+        ReportingService.writeCsvField(writer, value);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package assettracking.manager;
+
+import assettracking.dao.ChangeLogDAO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    @Test
+    void freshOnlyAtTheVersionItWasComputedAt() {
+        ResultCache<String, String> cache = new ResultCache<>(4, Duration.ofMinutes(5));
+        cache.put("kpis", 7, "seven");
+        assertEquals("seven", cache.getFresh("kpis", 7));
+        assertNull(cache.getFresh("kpis", 8));
+        assertNull(cache.getFresh("other", 7));
+    }
+
+    @Test
+    void unknownVersionIsNeverFresh() {
+        ResultCache<String, String> cache = new ResultCache<>(4, Duration.ofMinutes(5));
+        cache.put("kpis", null, "unknown");
+        assertNull(cache.getFresh("kpis", null));
+        assertEquals("unknown", cache.peek("kpis"));
+    }
+
+    @Test
+    void versionsAreComparedByValue() {
+        ResultCache<String, String> cache = new ResultCache<>(4, Duration.ofMinutes(5));
+        cache.put("kpis", new ChangeLogDAO.Version(1, 9, 9), "before");
+        assertEquals("before", cache.getFresh("kpis", new ChangeLogDAO.Version(1, 9, 9)));
+        // A late commit with a lower id adds a row without moving the newest id.
+        assertNull(cache.getFresh("kpis", new ChangeLogDAO.Version(1, 9, 10)));
+    }
+
+    @Test
+    void peekReturnsStaleResults() {
+        ResultCache<String, String> cache = new ResultCache<>(4, Duration.ofMinutes(5));
+        cache.put("kpis", 7, "seven");
+        assertEquals("seven", cache.peek("kpis"));
+        cache.put("kpis", 8, "eight");
+        assertEquals("eight", cache.peek("kpis"));
+        assertNull(cache.getFresh("kpis", 7));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        ResultCache<String, String> cache = new ResultCache<>(2, Duration.ofMinutes(5));
+        cache.put("a", 1, "A");
+        cache.put("b", 1, "B");
+        assertEquals("A", cache.peek("a"));
+        cache.put("c", 1, "C");
+        assertEquals("A", cache.peek("a"));
+        assertNull(cache.peek("b"));
+        assertEquals("C", cache.peek("c"));
+    }
+
+    @Test
+    void entriesAgeOut() throws InterruptedException {
+        ResultCache<String, String> cache = new ResultCache<>(4, Duration.ofMillis(20));
+        cache.put("kpis", 7, "seven");
+        Thread.sleep(50);
+        assertNull(cache.peek("kpis"));
+        assertNull(cache.getFresh("kpis", 7));
+    }
+}
@@ -0,0 +1,101 @@
+package assettracking.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurationSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    @Test
+    void quantilesAreWithinTheRelativeAccuracy() {
+        Random random = new Random(42);
+        long[] seconds = new long[20_000];
+        DurationSketch sketch = new DurationSketch();
+        for (int i = 0; i < seconds.length; i++) {
+            // A long tail: minutes to a few months.
+            seconds[i] = 60 + (long) Math.exp(random.nextDouble() * Math.log(10_000_000));
+            sketch.add(Duration.ofSeconds(seconds[i]));
+        }
+        Arrays.sort(seconds);
+
+        assertEquals(seconds.length, sketch.count());
+        for (double q : QUANTILES) {
+            long exact = seconds[(int) Math.floor(q * (seconds.length - 1))];
+            long estimate = sketch.quantile(q).getSeconds();
+            // Plus a second for rounding the estimate to whole seconds.
+            assertEquals(exact, estimate, exact * DurationSketch.RELATIVE_ACCURACY + 1, "p" + q * 100);
+        }
+    }
+
+    @Test
+    void mergingMatchesAddingEverySampleToOneSketch() {
+        Random random = new Random(7);
+        DurationSketch all = new DurationSketch();
+        DurationSketch[] days = {new DurationSketch(), new DurationSketch(), new DurationSketch()};
+        for (int i = 0; i < 3_000; i++) {
+            Duration duration = Duration.ofSeconds(random.nextInt(5 * 86_400));
+            all.add(duration);
+            days[i % days.length].add(duration);
+        }
+
+        DurationSketch merged = new DurationSketch();
+        for (DurationSketch day : days) {
+            merged.merge(day);
+        }
+
+        assertEquals(all.count(), merged.count());
+        for (double q : QUANTILES) {
+            assertEquals(all.quantile(q), merged.quantile(q), "p" + q * 100);
+        }
+        assertEquals(1_000, days[0].count(), "merging doesn't change the source");
+    }
+
+    @Test
+    void storedBucketCountsRebuildTheSameSketch() {
+        DurationSketch sketch = new DurationSketch();
+        DurationSketch rebuilt = new DurationSketch();
+        for (long seconds : new long[]{90, 3_600, 3_700, 86_400, 400_000}) {
+            sketch.add(Duration.ofSeconds(seconds));
+            rebuilt.addBucket(DurationSketch.bucketOf(seconds), 1);
+        }
+        rebuilt.addBucket(DurationSketch.bucketOf(10), 0);
+
+        assertEquals(sketch.count(), rebuilt.count());
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), rebuilt.quantile(q));
+        }
+    }
+
+    @Test
+    void aSecondOrLessIncludingClockSkewReadsAsZero() {
+        assertEquals(0, DurationSketch.bucketOf(-30));
+        assertEquals(0, DurationSketch.bucketOf(1));
+        assertTrue(DurationSketch.bucketOf(2) > 0);
+
+        DurationSketch sketch = new DurationSketch();
+        sketch.add(Duration.ofSeconds(-5));
+        sketch.add(Duration.ofMillis(800));
+        assertEquals(Duration.ZERO, sketch.quantile(1));
+    }
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        DurationSketch sketch = new DurationSketch();
+        assertTrue(sketch.isEmpty());
+        assertThrows(IllegalStateException.class, () -> sketch.quantile(0.5));
+    }
+
+    @Test
+    void rejectsQuantilesOutsideZeroToOne() {
+        DurationSketch sketch = new DurationSketch();
+        sketch.add(Duration.ofHours(1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+    }
+}
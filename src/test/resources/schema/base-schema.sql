@@ -0,0 +1,115 @@
+-- Core tables of the inventory database, as the benchmarks create them in their own databases. Keep in step
+-- with the shared database. Tables owned by a DAO (Category, Change_Log, the rollups, Status_Transition, ...)
+-- are created by that DAO instead.
+
+CREATE TABLE IF NOT EXISTS AppSettings (
+    setting_key VARCHAR(255) PRIMARY KEY,
+    setting_value VARCHAR(4000)
+);
+
+CREATE TABLE IF NOT EXISTS Packages (
+    package_id INT AUTO_INCREMENT PRIMARY KEY,
+    tracking_number VARCHAR(255),
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    city VARCHAR(255),
+    state VARCHAR(255),
+    zip_code VARCHAR(255),
+    receive_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS Receipt_Events (
+    receipt_id INT AUTO_INCREMENT PRIMARY KEY,
+    serial_number VARCHAR(255) NOT NULL,
+    package_id INT,
+    imei VARCHAR(255),
+    category VARCHAR(255),
+    make VARCHAR(255),
+    model_number VARCHAR(255),
+    description VARCHAR(1000)
+);
+
+CREATE TABLE IF NOT EXISTS Device_Status (
+    receipt_id INT PRIMARY KEY,
+    status VARCHAR(255),
+    sub_status VARCHAR(255),
+    last_update TIMESTAMP,
+    change_log VARCHAR(4000),
+    box_id VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS Disposition_Info (
+    receipt_id INT PRIMARY KEY,
+    is_everon BOOLEAN,
+    is_end_of_life BOOLEAN,
+    is_under_capacity BOOLEAN,
+    is_phone BOOLEAN,
+    other_disqualification VARCHAR(1000)
+);
+
+CREATE TABLE IF NOT EXISTS Physical_Assets (
+    serial_number VARCHAR(255) PRIMARY KEY,
+    imei VARCHAR(255),
+    category VARCHAR(255),
+    make VARCHAR(255),
+    description VARCHAR(1000),
+    part_number VARCHAR(255),
+    capacity VARCHAR(255),
+    everon_serial VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS Device_Autofill_Data (
+    serial_number VARCHAR(255) PRIMARY KEY,
+    make VARCHAR(255),
+    part_number VARCHAR(255),
+    description VARCHAR(1000),
+    category VARCHAR(255),
+    imei VARCHAR(255),
+    everon_serial VARCHAR(255),
+    capacity VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS SKU_Table (
+    sku_number VARCHAR(255) PRIMARY KEY,
+    model_number VARCHAR(255),
+    category VARCHAR(255),
+    manufac VARCHAR(255),
+    description VARCHAR(1000)
+);
+
+CREATE TABLE IF NOT EXISTS Flag_Devices (
+    serial_number VARCHAR(255) PRIMARY KEY,
+    status VARCHAR(255),
+    sub_status VARCHAR(255),
+    flag_reason VARCHAR(1000)
+);
+
+CREATE TABLE IF NOT EXISTS Mel_Rules (
+    model_number VARCHAR(255) PRIMARY KEY,
+    description VARCHAR(1000),
+    action VARCHAR(255),
+    special_notes VARCHAR(1000),
+    manufac VARCHAR(255),
+    redeploy_threshold VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS Bulk_Devices (
+    SerialNumber VARCHAR(255) PRIMARY KEY,
+    IMEI VARCHAR(255),
+    ICCID VARCHAR(255),
+    Capacity VARCHAR(255),
+    DeviceName VARCHAR(255),
+    LastImportDate VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS Device_Assignments (
+    assignment_id INT AUTO_INCREMENT PRIMARY KEY,
+    SerialNumber VARCHAR(255),
+    EmployeeEmail VARCHAR(255),
+    EmployeeFirstName VARCHAR(255),
+    EmployeeLastName VARCHAR(255),
+    SNReferenceNumber VARCHAR(255),
+    AssignmentDate DATE,
+    DepotOrderNumber VARCHAR(255),
+    Exported BOOLEAN
+);